@@ -0,0 +1,62 @@
+package fr.polytech.mnia.nn;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * VectorKernels.java
+ *
+ * Noyaux de calcul SIMD sur l'API Vector (jdk.incubator.vector), à la largeur
+ * de vecteur préférée du processeur. Les éléments restants en fin de tableau
+ * sont traités en scalaire.
+ *
+ * Cette classe n'est compilée qu'avec le profil Maven "vector" (JDK 17 ou
+ * plus) et n'est utilisable que si la JVM est lancée avec
+ * --add-modules jdk.incubator.vector ; DenseKernels.best() la charge par
+ * réflexion.
+ *
+ * Exemple d'utilisation :
+ * DenseKernels kernels = DenseKernels.best();
+ */
+public class VectorKernels implements DenseKernels {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    @Override
+    public float dot(float[] a, int aOff, float[] b, int bOff, int n) {
+        FloatVector acc = FloatVector.zero(SPECIES);
+        int bound = SPECIES.loopBound(n);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector va = FloatVector.fromArray(SPECIES, a, aOff + i);
+            FloatVector vb = FloatVector.fromArray(SPECIES, b, bOff + i);
+            acc = va.fma(vb, acc);
+        }
+        float sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < n; i++) {
+            sum += a[aOff + i] * b[bOff + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public void axpy(float alpha, float[] x, int xOff, float[] y, int yOff, int n) {
+        FloatVector va = FloatVector.broadcast(SPECIES, alpha);
+        int bound = SPECIES.loopBound(n);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector vx = FloatVector.fromArray(SPECIES, x, xOff + i);
+            FloatVector vy = FloatVector.fromArray(SPECIES, y, yOff + i);
+            vx.fma(va, vy).intoArray(y, yOff + i);
+        }
+        for (; i < n; i++) {
+            y[yOff + i] += alpha * x[xOff + i];
+        }
+    }
+
+    @Override
+    public String name() {
+        return "vector (" + SPECIES.length() + " x float)";
+    }
+}
@@ -3,10 +3,33 @@ package fr.polytech.mnia;
 import fr.polytech.mnia.agent.*;
 import fr.polytech.mnia.reward.*;
 import fr.polytech.mnia.analysis.AgentAnalyzer;
+import fr.polytech.mnia.checkpoint.Checkpoint;
+import fr.polytech.mnia.checkpoint.CheckpointWriter;
+import fr.polytech.mnia.checkpoint.Checkpointable;
+import fr.polytech.mnia.encoding.FeatureExtractor;
+import fr.polytech.mnia.encoding.SparseFeatureExtractor;
 import fr.polytech.mnia.graph.GraphGenerator;
+import fr.polytech.mnia.metrics.FormulaProfiler;
+import fr.polytech.mnia.metrics.MetricsRegistry;
+import fr.polytech.mnia.metrics.StartupTimeline;
+import fr.polytech.mnia.metrics.Timer;
+import fr.polytech.mnia.statespace.Bisimulation;
+import fr.polytech.mnia.statespace.CompactStateGraph;
+import fr.polytech.mnia.statespace.StateGraphCache;
+import fr.polytech.mnia.tictactoe.EpsilonMinimaxOpponent;
+import fr.polytech.mnia.tictactoe.MinimaxOpponent;
+import fr.polytech.mnia.tictactoe.Opponent;
+import fr.polytech.mnia.tictactoe.RandomOpponent;
+import fr.polytech.mnia.tictactoe.TicTacToeTurnPolicy;
+import fr.polytech.mnia.trace.TraceLogger;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 import java.util.Scanner;
 
 /**
@@ -27,6 +50,8 @@ import java.util.Scanner;
  */
 public class App {
 
+    private static final Timer TRAIN = MetricsRegistry.get().timer("agent.train");
+
     /**
      * Point d'entrée principal de l'application.
      *
@@ -45,31 +70,30 @@ public class App {
         System.out.println("[1] SimpleRL");
         System.out.println("[2] YouTube");
         System.out.println("[3] TicTacToe");
+        System.out.println("[4] Scheduler");
 
         int envChoice = scanner.nextInt();
         scanner.nextLine();
 
-        Runner runner;
-        Evironnement env;
+        // L'environnement ProB n'est créé que si un agent en a besoin (voir 4 bis)
+        Evironnement env = null;
         String rewardVariable;
         RewardFunction rewardFunction;
 
         if (envChoice == 1) {
-            runner = new SimpleRunner();
             rewardFunction = new SimpleRewardFunction();
             rewardVariable = "res";
         } else if (envChoice == 2) {
-            runner = new YouTubeRunner();
             rewardFunction = new YouTubeRewardFunction();
             rewardVariable = "step";
-        } else {
-            runner = new TicTacToeRunner();
+        } else if (envChoice == 3) {
             rewardFunction = new TicTacToeRewardFunction();
             rewardVariable = "square";
+        } else {
+            rewardFunction = new SchedulerRewardFunction();
+            rewardVariable = "active";
         }
 
-        env = new Evironnement(runner, rewardFunction, rewardVariable);
-
         // === 2. Choisir les agents disponibles selon l'environnement ===
         System.out.println("\n=== Choisissez les agents (ex: 1 3) ===");
 
@@ -77,11 +101,23 @@ public class App {
             System.out.println("[4] Value Iteration");
             System.out.println("[5] Policy Iteration");
             System.out.println("[6] Q-Learning");
+            System.out.println("[7] Q-Learning avec rejeu prioritaire");
+            System.out.println("[9] MCTS");
+            System.out.println("[12] SARSA(λ) / Q(λ)");
+            System.out.println("[14] TD sur états d'après-coup (afterstates)");
+            System.out.println("[16] Balayage prioritaire (prioritized sweeping)");
+        } else if (envChoice == 4) {
+            System.out.println("[8] Planification à horizon glissant");
+            System.out.println("[9] MCTS");
+            System.out.println("[10] TD linéaire (SARSA / Q-Learning)");
+            System.out.println("[11] Q-Learning neuronal (MLP)");
         } else {
             System.out.println("[1] Epsilon Greedy");
             System.out.println("[2] UCB");
             System.out.println("[3] Bandit Gradient");
         }
+        System.out.println("[13] TD tabulaire générique (Q-Learning / SARSA / Expected SARSA / Double Q)");
+        System.out.println("[15] Dyna-Q (planification en arrière-plan)");
 
         String line = scanner.nextLine();
         String[] choices = line.split("\\s+");
@@ -91,19 +127,19 @@ public class App {
         for (String choice : choices) {
             switch (choice) {
                 case "1":
-                    if (envChoice != 3) {
+                    if (envChoice <= 2) {
                         System.out.print("Epsilon pour Epsilon Greedy : ");
                         double epsilon = Double.parseDouble(scanner.nextLine().replace(",", "."));
                         agents.add(new EpsilonGreedyAgent(epsilon));
                     }
                     break;
                 case "2":
-                    if (envChoice != 3) {
+                    if (envChoice <= 2) {
                         agents.add(new UCBAgent());
                     }
                     break;
                 case "3":
-                    if (envChoice != 3) {
+                    if (envChoice <= 2) {
                         System.out.print("Alpha pour Bandit Gradient : ");
                         double alpha = Double.parseDouble(scanner.nextLine().replace(",", "."));
                         agents.add(new BanditGradientAgent(alpha));
@@ -136,11 +172,187 @@ public class App {
                         agents.add(new QLearningTicTacToeAgent(alphaQ, gammaQ, epsilonQ));
                     }
                     break;
+                case "7":
+                    if (envChoice == 3) {
+                        System.out.print("Alpha pour Q-Learning avec rejeu : ");
+                        double alphaR = Double.parseDouble(scanner.nextLine().replace(",", "."));
+                        System.out.print("Gamma pour Q-Learning avec rejeu : ");
+                        double gammaR = Double.parseDouble(scanner.nextLine().replace(",", "."));
+                        System.out.print("Epsilon pour Q-Learning avec rejeu : ");
+                        double epsilonR = Double.parseDouble(scanner.nextLine().replace(",", "."));
+                        agents.add(new ReplayQLearningTicTacToeAgent(alphaR, gammaR, epsilonR, 10000, 32, true));
+                    }
+                    break;
+                case "8":
+                    if (envChoice == 4) {
+                        System.out.print("Horizon (profondeur de recherche) : ");
+                        int horizon = Integer.parseInt(scanner.nextLine().trim());
+                        System.out.print("Gamma pour la planification : ");
+                        double gammaH = Double.parseDouble(scanner.nextLine().replace(",", "."));
+                        agents.add(new RecedingHorizonAgent(horizon, gammaH, 100_000));
+                    }
+                    break;
+                case "9":
+                    if (envChoice >= 3) {
+                        System.out.print("Simulations par coup pour MCTS : ");
+                        int rollouts = Integer.parseInt(scanner.nextLine().trim());
+                        System.out.print("Threads de recherche (instances ProB) : ");
+                        int workers = Integer.parseInt(scanner.nextLine().trim());
+                        agents.add(new MctsAgent(rollouts, workers, 1.4, 0.95, 20, RolloutPolicy.random(),
+                                envChoice == 3 ? new TicTacToeTurnPolicy(new RandomOpponent(new Random()))
+                                        : TurnPolicy.single()));
+                    }
+                    break;
+                case "10":
+                    if (envChoice == 4) {
+                        System.out.print("Q-Learning plutôt que SARSA ? (o/n) : ");
+                        LinearTDAgent.Mode mode = scanner.nextLine().trim().equalsIgnoreCase("o")
+                                ? LinearTDAgent.Mode.Q_LEARNING
+                                : LinearTDAgent.Mode.SARSA;
+                        System.out.print("Alpha pour TD linéaire : ");
+                        double alphaL = Double.parseDouble(scanner.nextLine().replace(",", "."));
+                        System.out.print("Epsilon pour TD linéaire : ");
+                        double epsilonL = Double.parseDouble(scanner.nextLine().replace(",", "."));
+                        agents.add(new LinearTDAgent(schedulerFeatures(), mode, alphaL, 0.95, epsilonL, 200));
+                    }
+                    break;
+                case "11":
+                    if (envChoice == 4) {
+                        System.out.print("Pas d'apprentissage du réseau : ");
+                        double learningRate = Double.parseDouble(scanner.nextLine().replace(",", "."));
+                        System.out.print("Epsilon pour Q-Learning neuronal : ");
+                        double epsilonN = Double.parseDouble(scanner.nextLine().replace(",", "."));
+                        agents.add(new NeuralQAgent(schedulerFeatures(), 32, 64, learningRate, 0.95, epsilonN, 200));
+                    }
+                    break;
+                case "12":
+                    if (envChoice == 3) {
+                        System.out.print("Alpha pour TD(λ) : ");
+                        double alphaT = Double.parseDouble(scanner.nextLine().replace(",", "."));
+                        System.out.print("Gamma pour TD(λ) : ");
+                        double gammaT = Double.parseDouble(scanner.nextLine().replace(",", "."));
+                        System.out.print("Epsilon pour TD(λ) : ");
+                        double epsilonT = Double.parseDouble(scanner.nextLine().replace(",", "."));
+                        System.out.print("Lambda : ");
+                        double lambda = Double.parseDouble(scanner.nextLine().replace(",", "."));
+                        System.out.print("Q(λ) de Watkins plutôt que SARSA(λ) ? (o/n) : ");
+                        boolean watkins = scanner.nextLine().trim().equalsIgnoreCase("o");
+                        System.out.print("Traces cumulatives plutôt que remplaçantes ? (o/n) : ");
+                        EligibilityTraces.Kind kind = scanner.nextLine().trim().equalsIgnoreCase("o")
+                                ? EligibilityTraces.Kind.ACCUMULATING
+                                : EligibilityTraces.Kind.REPLACING;
+                        agents.add(new LambdaTicTacToeAgent(alphaT, gammaT, epsilonT, lambda, watkins, kind));
+                    }
+                    break;
+                case "13":
+                    System.out.print("Variante (1 Q-Learning, 2 SARSA, 3 Expected SARSA, 4 Double Q) : ");
+                    int variantChoice = Integer.parseInt(scanner.nextLine().trim());
+                    TabularTDAgent.Variant variant = TabularTDAgent.Variant.values()[
+                            Math.max(1, Math.min(4, variantChoice)) - 1];
+                    System.out.print("Alpha pour TD tabulaire : ");
+                    double alphaG = Double.parseDouble(scanner.nextLine().replace(",", "."));
+                    System.out.print("Gamma pour TD tabulaire : ");
+                    double gammaG = Double.parseDouble(scanner.nextLine().replace(",", "."));
+                    System.out.print("Epsilon pour TD tabulaire : ");
+                    double epsilonG = Double.parseDouble(scanner.nextLine().replace(",", "."));
+                    TurnPolicy turns = envChoice == 3
+                            ? new TicTacToeTurnPolicy(new RandomOpponent(new Random()))
+                            : TurnPolicy.single();
+                    agents.add(new TabularTDAgent(variant, alphaG, gammaG, epsilonG, 200, turns));
+                    break;
+                case "14":
+                    if (envChoice == 3) {
+                        System.out.print("Alpha pour afterstates : ");
+                        double alphaA = Double.parseDouble(scanner.nextLine().replace(",", "."));
+                        System.out.print("Gamma pour afterstates : ");
+                        double gammaA = Double.parseDouble(scanner.nextLine().replace(",", "."));
+                        System.out.print("Epsilon pour afterstates : ");
+                        double epsilonA = Double.parseDouble(scanner.nextLine().replace(",", "."));
+                        agents.add(new AfterstateAgent(alphaA, gammaA, epsilonA, 20, AgentMoves.of("place0"),
+                                new RandomOpponent(new Random())));
+                    }
+                    break;
+                case "15":
+                    System.out.print("Alpha pour Dyna-Q : ");
+                    double alphaD = Double.parseDouble(scanner.nextLine().replace(",", "."));
+                    System.out.print("Gamma pour Dyna-Q : ");
+                    double gammaD = Double.parseDouble(scanner.nextLine().replace(",", "."));
+                    System.out.print("Epsilon pour Dyna-Q : ");
+                    double epsilonD = Double.parseDouble(scanner.nextLine().replace(",", "."));
+                    System.out.print("Mises à jour simulées par pas réel : ");
+                    double planningRate = Double.parseDouble(scanner.nextLine().replace(",", "."));
+                    TurnPolicy turnsD = envChoice == 3
+                            ? new TicTacToeTurnPolicy(new RandomOpponent(new Random()))
+                            : TurnPolicy.single();
+                    agents.add(new DynaQAgent(alphaD, gammaD, epsilonD, 200, planningRate, turnsD));
+                    break;
+                case "16":
+                    if (envChoice == 3) {
+                        System.out.print("Gamma pour le balayage prioritaire : ");
+                        double gammaS = Double.parseDouble(scanner.nextLine().replace(",", "."));
+                        System.out.print("Theta pour le balayage prioritaire : ");
+                        double thetaS = Double.parseDouble(scanner.nextLine().replace(",", "."));
+                        agents.add(new PrioritizedSweepingAgent(gammaS, thetaS));
+                    }
+                    break;
                 default:
                     System.out.println("Choix non reconnu : " + choice);
             }
         }
 
+        // === 2 bis. Graphe d'états en cache et préchauffage de ProB ===
+        // Les agents de planification travaillent sur le graphe en cache quand le
+        // modèle n'a pas changé : la machine B n'est alors ni chargée ni explorée.
+        // Sinon, ProB est préchauffé en arrière-plan pendant les saisies suivantes.
+        boolean planning = agents.stream().anyMatch(a -> a instanceof GraphPlanningAgent);
+        CompactStateGraph graph = null;
+        String fingerprint = null;
+        if (envChoice == 3 && planning) {
+            fingerprint = StateGraphCache.fingerprint(machinePath(envChoice), rewardFunction,
+                    rewardVariable);
+            graph = StateGraphCache.load(StateGraphCache.DEFAULT_DIRECTORY, fingerprint);
+            if (graph != null) {
+                System.out.println("[StateGraphCache] Graphe relu depuis le cache : " + graph.size() + " états, "
+                        + graph.edgeCount() + " arcs");
+            }
+        }
+        boolean needsProB = agents.stream().anyMatch(a -> !(a instanceof GraphPlanningAgent))
+                || (planning && graph == null);
+        if (needsProB) {
+            MyProb.prewarm(machinePath(envChoice));
+        }
+
+        // === 2 ter. Adversaire des agents de jeu (TicTacToe) ===
+        if (envChoice == 3 && agents.stream().anyMatch(
+                a -> a instanceof QLearningTicTacToeAgent || a instanceof ReplayQLearningTicTacToeAgent
+                        || a instanceof LambdaTicTacToeAgent || a instanceof TabularTDAgent
+                        || a instanceof AfterstateAgent || a instanceof MctsAgent)) {
+            // Seul QLearningTicTacToeAgent sait jouer contre ses propres instantanés
+            boolean selfPlay = agents.stream().noneMatch(
+                    a -> a instanceof ReplayQLearningTicTacToeAgent || a instanceof LambdaTicTacToeAgent
+                            || a instanceof TabularTDAgent || a instanceof AfterstateAgent
+                            || a instanceof MctsAgent);
+            Opponent opponent = chooseOpponent(scanner, selfPlay);
+            for (Agent agent : agents) {
+                if (agent instanceof QLearningTicTacToeAgent && opponent == null) {
+                    ((QLearningTicTacToeAgent) agent).enableSelfPlay(100, 10);
+                } else if (agent instanceof QLearningTicTacToeAgent) {
+                    ((QLearningTicTacToeAgent) agent).setOpponent(opponent);
+                } else if (agent instanceof ReplayQLearningTicTacToeAgent && opponent != null) {
+                    ((ReplayQLearningTicTacToeAgent) agent).setOpponent(opponent);
+                } else if (agent instanceof LambdaTicTacToeAgent && opponent != null) {
+                    ((LambdaTicTacToeAgent) agent).setOpponent(opponent);
+                } else if (agent instanceof TabularTDAgent && opponent != null) {
+                    // Couvre aussi DynaQAgent, construit sur TabularTDAgent
+                    ((TicTacToeTurnPolicy) ((TabularTDAgent) agent).getTurnPolicy()).setOpponent(opponent);
+                } else if (agent instanceof AfterstateAgent && opponent != null) {
+                    ((AfterstateAgent) agent).setOpponent(opponent);
+                } else if (agent instanceof MctsAgent && opponent != null) {
+                    ((TicTacToeTurnPolicy) ((MctsAgent) agent).getTurnPolicy()).setOpponent(opponent);
+                }
+            }
+        }
+
         // === 3. Mode d'affichage pendant l'entraînement ===
         System.out.println("\n=== Mode d'affichage pendant l'entraînement ===");
         System.out.println("[1] Affichage détaillé");
@@ -150,6 +362,14 @@ public class App {
         scanner.nextLine();
         boolean verbose = (affichageMode == 1);
 
+        // Trace échantillonnée : l'affichage détaillé est écrit en arrière-plan
+        int traceSampling = 0;
+        if (verbose) {
+            System.out.print("Tracer 1 pas sur N dans traces/ (0 = affichage direct) : ");
+            String sampling = scanner.nextLine().trim();
+            traceSampling = sampling.isEmpty() ? 0 : Integer.parseInt(sampling);
+        }
+
         // === 4. Paramètres d'entraînement ===
         System.out.println("\n=== Paramètres de l'entraînement ===");
 
@@ -164,9 +384,81 @@ public class App {
             scanner.nextLine();
         }
 
+        System.out.print("Reprendre et sauvegarder les checkpoints (dossier checkpoints/) ? (o/n) : ");
+        boolean useCheckpoints = scanner.nextLine().trim().equalsIgnoreCase("o");
+
+        // === 4 bis. Environnement ProB (uniquement si nécessaire) ===
+        if (fingerprint != null && graph == null) {
+            env = new Evironnement(createRunner(envChoice), rewardFunction, rewardVariable);
+            graph = StateGraphCache.save(StateGraphCache.DEFAULT_DIRECTORY, fingerprint,
+                    env.enumerateStateSpace(), rewardFunction);
+            System.out.println("[StateGraphCache] Graphe enregistré dans " + StateGraphCache.DEFAULT_DIRECTORY);
+        }
+
+        // La minimisation ne s'applique qu'à la planification sur le graphe en cache
+        if (graph != null) {
+            System.out.print("Réduire le graphe d'états par bisimulation avant la planification ? (o/n) : ");
+            boolean minimize = scanner.nextLine().trim().equalsIgnoreCase("o");
+            for (Agent agent : agents) {
+                if (agent instanceof ValueIterationAgent) {
+                    ((ValueIterationAgent) agent).setMinimization(minimize);
+                } else if (agent instanceof PolicyIterationAgent) {
+                    ((PolicyIterationAgent) agent).setMinimization(minimize);
+                } else if (agent instanceof PrioritizedSweepingAgent) {
+                    ((PrioritizedSweepingAgent) agent).setMinimization(minimize);
+                }
+            }
+        }
+
+        if (env == null && needsProB) {
+            env = new Evironnement(createRunner(envChoice), rewardFunction, rewardVariable);
+
+            // L'espace d'états du Scheduler est trop grand pour être énuméré
+            if (envChoice != 4) {
+                System.out.print("Énumérer tout l'espace d'états avec le model checker ProB ? (o/n) : ");
+                if (scanner.nextLine().trim().equalsIgnoreCase("o")) {
+                    try {
+                        env.enumerateStateSpace();
+                    } catch (IllegalStateException e) {
+                        System.out.println("[Enumeration] " + e.getMessage() + ", exploration à la demande");
+                    }
+                }
+            }
+        }
+
+        if (env != null) {
+            System.out.println(StartupTimeline.report());
+
+            if (traceSampling > 0) {
+                env.enableTracing(new TraceLogger(Paths.get("traces", "trace.jsonl"), traceSampling, 0, 4096));
+            }
+
+            // Les bandits ne gardent aucun état d'un pas à l'autre ; MCTS et
+            // l'horizon glissant abandonnent leurs états après une compaction
+            boolean compactable = agents.stream()
+                    .allMatch(a -> a instanceof EpsilonGreedyAgent || a instanceof UCBAgent
+                            || a instanceof BanditGradientAgent || a instanceof MctsAgent
+                            || a instanceof RecedingHorizonAgent);
+            if (envChoice != 3 && compactable) {
+                System.out.print("Nombre maximal d'états ProB conservés (0 = illimité) : ");
+                String budget = scanner.nextLine().trim();
+                if (!budget.isEmpty() && Integer.parseInt(budget) > 0) {
+                    env.enableBoundedMemory(Integer.parseInt(budget));
+                }
+            }
+
+            System.out.print("Précharger les successeurs en arrière-plan ? (o/n) : ");
+            if (scanner.nextLine().trim().equalsIgnoreCase("o")) {
+                env.enablePrefetching(1, 16);
+            }
+        }
+
         // Nettoyage du dossier de graphes
         GraphGenerator.clearGraphsFolder();
 
+        // Métriques (-Drl.metrics=true) : résumé périodique, aussi publié par JMX
+        MetricsRegistry.get().startReporter(10);
+
         // === 5. Entraîner et analyser chaque agent ===
         int agentNumber = 1;
         for (Agent agent : agents) {
@@ -175,7 +467,66 @@ public class App {
                     "=== Entraînement de l'agent " + agentNumber + " : " + agent.getClass().getSimpleName() + " ===");
             System.out.println("==============================================\n");
 
-            agent.train(env, nbSteps, verbose);
+            Path checkpointPath = Paths.get("checkpoints", agent.getClass().getSimpleName() + ".ckpt");
+            if (useCheckpoints && agent instanceof Checkpointable && Files.exists(checkpointPath)) {
+                ((Checkpointable) agent).loadCheckpoint(Checkpoint.open(checkpointPath));
+                System.out.println("[Checkpoint] Reprise depuis " + checkpointPath);
+            }
+
+            long trainStart = TRAIN.start();
+            if (graph != null && agent instanceof GraphPlanningAgent) {
+                ((GraphPlanningAgent) agent).plan(graph, nbSteps, verbose);
+            } else {
+                agent.train(env, nbSteps, verbose);
+            }
+            TRAIN.stop(trainStart);
+
+            if (useCheckpoints && agent instanceof Checkpointable) {
+                CheckpointWriter writer = new CheckpointWriter();
+                ((Checkpointable) agent).saveCheckpoint(writer);
+                writer.write(checkpointPath);
+                System.out.println("[Checkpoint] Sauvegardé : " + checkpointPath);
+            }
+
+            if (env != null) {
+                System.out.println("[Cache] Successeurs : " + env.getSuccessorCache().summary());
+                if (env.getPrefetcher() != null) {
+                    System.out.println("[Cache] Préchargement : " + env.getPrefetcher().summary());
+                }
+                System.out.println("[Mémoire] " + env.memoryReport());
+            }
+            if (agent instanceof RecedingHorizonAgent) {
+                System.out.println("[Horizon] " + ((RecedingHorizonAgent) agent).summary());
+            }
+            if (agent instanceof MctsAgent) {
+                System.out.println("[MCTS] " + ((MctsAgent) agent).summary());
+            }
+            if (agent instanceof NeuralQAgent) {
+                System.out.println("[MLP] " + ((NeuralQAgent) agent).summary());
+            }
+            if (agent instanceof LambdaTicTacToeAgent) {
+                System.out.println("[TD(λ)] " + ((LambdaTicTacToeAgent) agent).summary());
+            }
+            if (agent instanceof AfterstateAgent) {
+                System.out.println("[Afterstates] " + ((AfterstateAgent) agent).summary());
+            }
+            Bisimulation bisimulation = null;
+            if (agent instanceof ValueIterationAgent) {
+                bisimulation = ((ValueIterationAgent) agent).getBisimulation();
+            } else if (agent instanceof PolicyIterationAgent) {
+                bisimulation = ((PolicyIterationAgent) agent).getBisimulation();
+            } else if (agent instanceof PrioritizedSweepingAgent) {
+                bisimulation = ((PrioritizedSweepingAgent) agent).getBisimulation();
+            }
+            if (bisimulation != null) {
+                System.out.println("[Bisimulation] " + bisimulation.summary());
+            }
+            if (agent instanceof PrioritizedSweepingAgent) {
+                System.out.println("[Sweeping] " + ((PrioritizedSweepingAgent) agent).summary());
+            }
+            if (agent instanceof TabularTDAgent) {
+                System.out.println(((TabularTDAgent) agent).summary());
+            }
 
             System.out.println("\n=== Analyse de l'agent " + agentNumber + " ===\n");
             AgentAnalyzer.analyze(agent);
@@ -191,8 +542,125 @@ public class App {
             agentNumber++;
         }
 
+        if (env != null && env.getTracer() != null) {
+            env.getTracer().close();
+            System.out.println("[Trace] " + env.getTracer().summary());
+        }
+
+        if (MetricsRegistry.ENABLED) {
+            System.out.println(MetricsRegistry.get().summary());
+        }
+        if (FormulaProfiler.ENABLED) {
+            System.out.println(FormulaProfiler.report());
+            Path dump = Paths.get("profiles", "formulas.csv");
+            try {
+                FormulaProfiler.dump(dump);
+                System.out.println("[Profil] Formules écrites dans " + dump);
+            } catch (IOException e) {
+                System.out.println("[Profil] Écriture impossible : " + e.getMessage());
+            }
+        }
+
         System.out.println("\n=== Fin de l'expérience ===");
         scanner.close();
         System.exit(0);
     }
+
+    /**
+     * Traits creux du modèle Scheduler : appartenance de chaque processus à
+     * active, ready et waiting, codage en tuiles de ses compteurs d'attente
+     * et de latence, et inactivité du processeur.
+     *
+     * @return extracteur de traits pour scheduler_main.mch
+     */
+    private static FeatureExtractor schedulerFeatures() {
+        String[] pids = { "process1", "process2", "process3", "process4", "process5" };
+        SparseFeatureExtractor features = new SparseFeatureExtractor()
+                .bias()
+                .oneHot("active", pids)
+                .oneHot("ready", pids)
+                .oneHot("waiting", pids)
+                .flag("active = {}");
+        for (String pid : pids) {
+            features.tiles("waiting_time(" + pid + ")", 0, 20, 5, 2)
+                    .tiles("latency_time(" + pid + ")", 0, 20, 5, 2);
+        }
+        return features;
+    }
+
+    /**
+     * Retourne le chemin de la machine B de l'environnement choisi.
+     *
+     * @param envChoice environnement choisi (1 SimpleRL, 2 YouTube, 3 TicTacToe,
+     *                  4 Scheduler)
+     * @return chemin de la machine dans les ressources
+     */
+    private static String machinePath(int envChoice) {
+        if (envChoice == 1) {
+            return SimpleRunner.MACHINE;
+        } else if (envChoice == 2) {
+            return YouTubeRunner.MACHINE;
+        } else if (envChoice == 4) {
+            return SchedulerRunner.MACHINE;
+        }
+        return TicTacToeRunner.MACHINE;
+    }
+
+    /**
+     * Charge et initialise la machine B de l'environnement choisi, en
+     * réutilisant l'instance ProB préchauffée si elle existe.
+     *
+     * @param envChoice environnement choisi (1 SimpleRL, 2 YouTube, 3 TicTacToe,
+     *                  4 Scheduler)
+     * @return runner initialisé
+     * @throws Exception en cas d'erreur de chargement
+     */
+    private static Runner createRunner(int envChoice) throws Exception {
+        if (envChoice == 1) {
+            return new SimpleRunner();
+        } else if (envChoice == 2) {
+            return new YouTubeRunner();
+        } else if (envChoice == 4) {
+            return new SchedulerRunner();
+        }
+        return new TicTacToeRunner();
+    }
+
+    /**
+     * Demande à l'utilisateur l'adversaire (joueur 1) utilisé pour
+     * l'entraînement des agents Q-Learning au TicTacToe.
+     *
+     * @param scanner lecteur de l'entrée standard
+     * @return adversaire choisi (aléatoire par défaut), ou null pour le mode
+     *         self-play
+     */
+    private static Opponent chooseOpponent(Scanner scanner, boolean selfPlay) {
+        System.out.println("\n=== Choisissez l'adversaire (joueur 1) ===");
+        System.out.println("[1] Aléatoire");
+        System.out.println("[2] Epsilon-Minimax");
+        System.out.println("[3] Minimax parfait");
+        if (selfPlay) {
+            System.out.println("[4] Self-play (Q-Learning uniquement)");
+        }
+
+        String choice = scanner.nextLine().trim();
+        while (choice.equals("4") && !selfPlay) {
+            System.out.println("Self-play non pris en charge par les agents choisis (Q-Learning uniquement).");
+            System.out.print("Adversaire : ");
+            choice = scanner.nextLine().trim();
+        }
+        Random random = new Random();
+        switch (choice) {
+            case "2":
+                System.out.print("Epsilon pour l'adversaire : ");
+                double epsilon = Double.parseDouble(scanner.nextLine().replace(",", "."));
+                return new EpsilonMinimaxOpponent(epsilon, random);
+            case "3":
+                return new MinimaxOpponent(random);
+            case "4":
+                return null;
+            default:
+                return new RandomOpponent(random);
+        }
+    }
 }
@@ -1,10 +1,24 @@
 package fr.polytech.mnia;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import de.prob.animator.command.FindStateCommand;
+import de.prob.animator.domainobjects.AbstractEvalResult;
+import de.prob.animator.domainobjects.ClassicalB;
+import de.prob.animator.domainobjects.FormulaExpand;
+import de.prob.animator.domainobjects.IEvalElement;
 import de.prob.statespace.State;
+import de.prob.statespace.StateSpace;
 import de.prob.statespace.Transition;
+import fr.polytech.mnia.metrics.MetricsRegistry;
+import fr.polytech.mnia.metrics.Timer;
 import fr.polytech.mnia.reward.RewardFunction;
+import fr.polytech.mnia.statespace.StateGraph;
+import fr.polytech.mnia.statespace.StateSpaceEnumerator;
+import fr.polytech.mnia.trace.TraceLogger;
 
 /**
  * Evironnement.java
@@ -14,7 +28,7 @@ import fr.polytech.mnia.reward.RewardFunction;
  *
  * Il fournit :
  * - l'état courant et initial,
- * - la liste des actions disponibles,
+ * - la liste des actions disponibles (via un cache de successeurs),
  * - la récompense associée à un état,
  * - l'information de terminaison d'un épisode,
  * - un accès direct à l'animateur ProB pour l'affichage.
@@ -26,12 +40,26 @@ import fr.polytech.mnia.reward.RewardFunction;
  */
 public class Evironnement {
 
+    // === Métriques ===
+    private static final Timer STEP = MetricsRegistry.get().timer("env.step");
+    private static final Timer REWARD = MetricsRegistry.get().timer("reward.compute");
+    private static final Timer TERMINAL = MetricsRegistry.get().timer("reward.terminal");
+
     // === Champs ===
     private State state; // État courant de l'environnement
-    private final State initial; // État initial de l'environnement
+    private State initial; // État initial de l'environnement (remplacé après compaction)
     private final RewardFunction rewardFunction; // Fonction de récompense spécifique
     private final MyProb animator; // Accès direct à l'animateur ProB
     private final String rewardVariable; // Nom de la variable de récompense (ex: "res", "step", etc.)
+    private final SuccessorCache successors; // Transitions et destinations déjà résolues par état
+    private SuccessorPrefetcher prefetcher; // Préchargement spéculatif, null si désactivé
+    private TraceLogger tracer; // Journal de trace échantillonné, null pour l'affichage direct
+    private int stateBudget = 0; // Nombre maximal d'états ProB conservés, 0 si illimité
+    private final Set<String> retained = new HashSet<>(); // États visités depuis la dernière compaction
+    private long compactions = 0;
+    private long discarded = 0; // Nombre total d'états libérés par compaction
+    private long heapBaseline = 0; // Mémoire utilisée juste après la dernière compaction
+    private long bytesPerState = 0; // Croissance mémoire par état retenu, mesurée à la dernière compaction
 
     // === Constructeur ===
 
@@ -49,18 +77,62 @@ public class Evironnement {
      *                       SimpleRewardFunction(), "res");
      */
     public Evironnement(Runner runner, RewardFunction rewardFunction, String rewardVariable) {
+        this(runner, rewardFunction, rewardVariable, new SuccessorCache());
+    }
+
+    /**
+     * Initialise l'environnement avec un cache de successeurs configuré.
+     *
+     * @param runner         Runner chargé de l'initialisation de la machine B
+     * @param rewardFunction Fonction de récompense spécifique à l'environnement
+     * @param rewardVariable Nom de la variable à évaluer pour obtenir les
+     *                       récompenses
+     * @param successors     cache des successeurs (capacité, éviction)
+     *
+     *                       Exemple :
+     *                       Evironnement env = new Evironnement(runner, reward,
+     *                       "res", new SuccessorCache(10_000,
+     *                       SuccessorCache.Eviction.FIFO));
+     */
+    public Evironnement(Runner runner, RewardFunction rewardFunction, String rewardVariable,
+            SuccessorCache successors) {
         this.state = runner.getState();
         this.initial = runner.getInitialState();
         this.rewardFunction = rewardFunction;
         this.animator = runner.animator;
         this.rewardVariable = rewardVariable;
+        this.successors = successors;
+        MetricsRegistry.get().gauge("cache.successors.size", successors::size);
+    }
+
+    /**
+     * Initialise l'environnement directement sur un animateur déjà chargé,
+     * par exemple une instance prêtée par un ProBInstancePool.
+     *
+     * @param animator       animateur ProB chargé sur la machine B
+     * @param rewardFunction Fonction de récompense spécifique à l'environnement
+     * @param rewardVariable Nom de la variable à évaluer pour obtenir les
+     *                       récompenses
+     *
+     *                       Exemple :
+     *                       Evironnement env = new Evironnement(lease.get(),
+     *                       new TicTacToeRewardFunction(), "square");
+     */
+    public Evironnement(MyProb animator, RewardFunction rewardFunction, String rewardVariable) {
+        this.initial = initialState(animator);
+        this.state = this.initial;
+        this.rewardFunction = rewardFunction;
+        this.animator = animator;
+        this.rewardVariable = rewardVariable;
+        this.successors = new SuccessorCache();
     }
 
     // === Méthodes principales ===
 
     /**
      * Applique une action (transition) sur l'environnement et met à jour l'état
-     * courant.
+     * courant. La fonction de récompense est prévenue de l'action
+     * (RewardFunction.onAction) avant le changement d'état.
      *
      * @param t transition à appliquer
      *
@@ -68,7 +140,31 @@ public class Evironnement {
      *          env.runAction(transition);
      */
     public void runAction(Transition t) {
-        state = t.getDestination().explore();
+        long start = STEP.start();
+        rewardFunction.onAction(t);
+        state = successors.getDestination(t);
+        if (stateBudget > 0 && retained.add(state.getId()) && retained.size() > stateBudget) {
+            compact();
+        }
+        if (prefetcher != null) {
+            prefetcher.arrive(state);
+        }
+        STEP.stop(start);
+    }
+
+    /**
+     * Retourne l'état atteint par une transition sans modifier l'état courant.
+     * La destination est lue dans le cache de successeurs ; ProB n'est
+     * interrogé qu'à la première visite de l'état source.
+     *
+     * @param t transition à évaluer
+     * @return état de destination exploré
+     *
+     *         Exemple :
+     *         State next = env.getSuccessor(transition);
+     */
+    public State getSuccessor(Transition t) {
+        return successors.getDestination(t);
     }
 
     /**
@@ -80,7 +176,7 @@ public class Evironnement {
      *         List<Transition> actions = env.getActions();
      */
     public List<Transition> getActions() {
-        return this.state.getOutTransitions();
+        return getActions(this.state);
     }
 
     /**
@@ -93,7 +189,7 @@ public class Evironnement {
      *         List<Transition> actions = env.getActions(state);
      */
     public List<Transition> getActions(State s) {
-        return s.getOutTransitions();
+        return successors.get(s).getTransitions();
     }
 
     /**
@@ -130,7 +226,15 @@ public class Evironnement {
      *         double reward = env.getReward(state);
      */
     public double getReward(State s) {
-        return rewardFunction.getReward(s);
+        if (prefetcher != null) {
+            Double reward = prefetcher.getReward(s);
+            if (reward != null)
+                return reward;
+        }
+        long start = REWARD.start();
+        double reward = rewardFunction.getReward(s);
+        REWARD.stop(start);
+        return reward;
     }
 
     /**
@@ -143,7 +247,15 @@ public class Evironnement {
      *         boolean terminal = env.isTerminal(state);
      */
     public boolean isTerminal(State s) {
-        return rewardFunction.isTerminal(s);
+        if (prefetcher != null) {
+            Boolean terminal = prefetcher.isTerminal(s);
+            if (terminal != null)
+                return terminal;
+        }
+        long start = TERMINAL.start();
+        boolean terminal = rewardFunction.isTerminal(s);
+        TERMINAL.stop(start);
+        return terminal;
     }
 
     /**
@@ -182,6 +294,270 @@ public class Evironnement {
         return rewardFunction;
     }
 
+    /**
+     * Retourne le cache de successeurs de l'environnement.
+     *
+     * @return cache de successeurs
+     *
+     *         Exemple :
+     *         System.out.println(env.getSuccessorCache().summary());
+     */
+    public SuccessorCache getSuccessorCache() {
+        return successors;
+    }
+
+    /**
+     * Active le mode mémoire bornée pour les longues exécutions (bandits,
+     * MCTS, horizon glissant) : au-delà de maxStates états distincts visités,
+     * l'espace d'états ProB est compacté (voir compact), ce qui borne le
+     * nombre d'états ProB vivants. Les historiques de récompenses et
+     * d'actions conservés par les agents continuent en revanche de croître
+     * avec le nombre de pas.
+     *
+     * Seuls les agents qui ne gardent aucun State d'un pas à l'autre (les
+     * bandits relisent l'état courant à chaque pas) ou qui surveillent
+     * getCompactions (MCTS, horizon glissant) supportent ce mode : les autres
+     * garderaient des états périmés.
+     *
+     * @param maxStates nombre maximal d'états conservés (0 pour illimité)
+     *
+     *                  Exemple :
+     *                  env.enableBoundedMemory(50_000);
+     */
+    public void enableBoundedMemory(int maxStates) {
+        this.stateBudget = Math.max(0, maxStates);
+        this.retained.clear();
+        this.retained.add(state.getId());
+        this.heapBaseline = usedHeap();
+    }
+
+    /**
+     * Libère tous les états ProB déjà visités : la machine est rechargée dans
+     * un espace d'états vide (nouveau processus probcli), les caches de
+     * successeurs sont vidés, et l'état courant est retrouvé dans le nouvel
+     * espace par résolution de contraintes sur les valeurs de ses variables.
+     * Les états passés ne sont plus référencés et peuvent être récupérés par
+     * le ramasse-miettes.
+     *
+     * Toutes les références State obtenues avant l'appel (état courant,
+     * destinations, arbres de recherche des agents) deviennent périmées : elles
+     * appartiennent à l'ancien espace d'états et ne doivent plus être utilisées.
+     * Les appelants détectent la compaction par getCompactions.
+     *
+     * @throws IllegalStateException si le modèle ne peut pas être rechargé ou
+     *                               si l'état courant est introuvable dans le
+     *                               nouvel espace d'états
+     *
+     * Exemple :
+     * env.compact();
+     */
+    public void compact() {
+        long before = usedHeap();
+        int count = retained.size();
+        String predicate = valuesPredicate(state);
+
+        if (prefetcher != null) {
+            prefetcher.clear();
+        }
+        successors.clear();
+        try {
+            animator.reload();
+        } catch (Exception e) {
+            throw new IllegalStateException("Impossible de recharger le modèle lors de la compaction", e);
+        }
+        initial = initialState(animator);
+        state = findState(predicate);
+
+        retained.clear();
+        retained.add(state.getId());
+        compactions++;
+        discarded += count;
+        if (count > 0 && before > heapBaseline) {
+            bytesPerState = (before - heapBaseline) / count;
+        }
+        heapBaseline = usedHeap();
+    }
+
+    /**
+     * Résumé de l'occupation mémoire en mode mémoire bornée.
+     *
+     * @return états retenus, compactions, états libérés, mémoire par état
+     *
+     *         Exemple :
+     *         System.out.println(env.memoryReport());
+     */
+    public String memoryReport() {
+        return String.format(
+                "états retenus=%d/%s, compactions=%d, états libérés=%d, ~%d octets par état retenu, tas utilisé=%d Mo",
+                retained.size(), stateBudget > 0 ? String.valueOf(stateBudget) : "illimité", compactions, discarded,
+                bytesPerState, usedHeap() / (1024 * 1024));
+    }
+
+    /**
+     * Retourne le nombre de compactions effectuées. Après une compaction, les
+     * états ProB obtenus auparavant n'appartiennent plus à l'espace d'états
+     * courant et ne doivent plus être utilisés.
+     *
+     * @return nombre de compactions
+     *
+     *         Exemple :
+     *         long seen = env.getCompactions();
+     */
+    public long getCompactions() {
+        return compactions;
+    }
+
+    /**
+     * Retrouve dans l'espace d'états courant un état satisfaisant un
+     * prédicat.
+     *
+     * @param predicate prédicat B sur les variables, vide pour l'état initial
+     * @return état exploré
+     * @throws IllegalStateException si aucun état ne satisfait le prédicat
+     */
+    private State findState(String predicate) {
+        if (predicate.isEmpty())
+            return initial;
+        StateSpace space = animator.getStateSpace();
+        FindStateCommand command = new FindStateCommand(space, new ClassicalB(predicate, FormulaExpand.EXPAND), true);
+        space.execute(command);
+        if (command.getResult() == FindStateCommand.ResultType.STATE_FOUND) {
+            return command.getTrace(space).getCurrentState().exploreIfNeeded();
+        }
+        // Repartir de l'état initial fausserait silencieusement l'épisode en cours
+        throw new IllegalStateException("État courant introuvable après compaction (" + command.getResult()
+                + ") : " + predicate);
+    }
+
+    /**
+     * Construit le prédicat "x = v & y = w ..." décrivant les valeurs des
+     * variables d'un état.
+     *
+     * @param s état à décrire
+     * @return prédicat B (vide si la machine n'a pas de variables)
+     */
+    private static String valuesPredicate(State s) {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<IEvalElement, AbstractEvalResult> entry : s.getVariableValues(FormulaExpand.EXPAND)
+                .entrySet()) {
+            if (sb.length() > 0)
+                sb.append(" & ");
+            sb.append(entry.getKey().getCode()).append(" = ").append(entry.getValue());
+        }
+        return sb.toString();
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Énumère en bloc tous les états accessibles depuis l'état initial (model
+     * checker ProB puis import par niveaux) et remplit le cache de
+     * successeurs : les parcours complets de l'espace d'états (Value
+     * Iteration, Policy Iteration) n'interrogent alors plus ProB état par état.
+     * L'énumération est bornée par les limites par défaut de
+     * StateSpaceEnumerator.
+     *
+     * @return graphe des états accessibles
+     * @throws IllegalStateException si l'espace d'états dépasse ces limites
+     *
+     *         Exemple :
+     *         StateGraph graph = env.enumerateStateSpace();
+     */
+    public StateGraph enumerateStateSpace() {
+        StateSpaceEnumerator enumerator = new StateSpaceEnumerator();
+        StateGraph graph = enumerator.enumerate(animator.getStateSpace(), initial);
+        graph.fill(successors);
+        System.out.println("[Enumeration] " + enumerator.summary(graph));
+        return graph;
+    }
+
+    /**
+     * Active le préchargement spéculatif des successeurs : à chaque état
+     * atteint, la couche suivante est explorée en arrière-plan.
+     *
+     * @param threads nombre de threads de préchargement
+     * @param window  nombre maximal de préchargements simultanés
+     *
+     *                Exemple :
+     *                env.enablePrefetching(1, 16);
+     */
+    public void enablePrefetching(int threads, int window) {
+        if (prefetcher != null) {
+            prefetcher.close();
+        }
+        prefetcher = new SuccessorPrefetcher(successors, rewardFunction, threads, window);
+        prefetcher.arrive(state);
+    }
+
+    /**
+     * Retourne le préchargeur de successeurs.
+     *
+     * @return préchargeur, null si le préchargement est désactivé
+     *
+     *         Exemple :
+     *         System.out.println(env.getPrefetcher().summary());
+     */
+    public SuccessorPrefetcher getPrefetcher() {
+        return prefetcher;
+    }
+
+    /**
+     * Redirige l'affichage détaillé vers un journal de trace échantillonné et
+     * asynchrone.
+     *
+     * @param tracer journal de trace, null pour revenir à l'affichage direct
+     *
+     *               Exemple :
+     *               env.enableTracing(new TraceLogger(Paths.get("traces",
+     *               "run.jsonl"), 100, 0, 4096));
+     */
+    public void enableTracing(TraceLogger tracer) {
+        this.tracer = tracer;
+    }
+
+    /**
+     * Retourne le journal de trace.
+     *
+     * @return journal de trace, null si l'affichage détaillé est direct
+     *
+     *         Exemple :
+     *         System.out.println(env.getTracer().summary());
+     */
+    public TraceLogger getTracer() {
+        return tracer;
+    }
+
+    /**
+     * Trace un pas d'entraînement en mode détaillé. Avec un journal de trace,
+     * le pas n'est retenu que s'il est échantillonné et il est écrit en
+     * arrière-plan ; sinon l'état et les actions disponibles sont affichés
+     * immédiatement.
+     *
+     * @param agent  nom de l'agent
+     * @param step   numéro du pas
+     * @param chosen action jouée
+     * @param reward récompense obtenue
+     *
+     *               Exemple :
+     *               env.traceStep("UCBAgent", step, chosen, reward);
+     */
+    public void traceStep(String agent, long step, Transition chosen, double reward) {
+        if (tracer != null) {
+            if (tracer.sample()) {
+                tracer.log(agent, step, state, chosen, reward, getActions());
+            }
+            return;
+        }
+        System.out.println("Evaluation : " + state.eval(rewardVariable));
+        System.out.println("State ID : " + state.getId());
+        animator.printState(state);
+        animator.printActions(getActions());
+        System.out.println();
+    }
+
     /**
      * Réinitialise l'environnement à l'état initial.
      *
@@ -189,6 +565,20 @@ public class Evironnement {
      * env.reset();
      */
     public void reset() {
+        this.state = initialState(animator);
+        if (prefetcher != null) {
+            prefetcher.arrive(this.state);
+        }
+    }
+
+    /**
+     * Calcule l'état initial d'une machine chargée (constantes puis
+     * initialisation), exploré.
+     *
+     * @param animator animateur ProB chargé
+     * @return état initial
+     */
+    private static State initialState(MyProb animator) {
         State state = animator.getStateSpace().getRoot();
         Transition setup = state.findTransition(Transition.SETUP_CONSTANTS_NAME);
         if (setup != null) {
@@ -198,6 +588,6 @@ public class Evironnement {
         if (initialise != null) {
             state = initialise.getDestination();
         }
-        this.state = state.exploreIfNeeded();
+        return state.exploreIfNeeded();
     }
 }
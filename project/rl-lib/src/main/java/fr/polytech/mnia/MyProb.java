@@ -6,6 +6,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
@@ -21,37 +25,151 @@ import de.prob.scripting.Api;
 import de.prob.statespace.State;
 import de.prob.statespace.StateSpace;
 import de.prob.statespace.Transition;
+import fr.polytech.mnia.metrics.StartupTimeline;
 
 public class MyProb {
-    static Injector INJECTOR = 
-        Guice.createInjector(Stage.PRODUCTION, 
-            new AbstractModule(){
-                @Override
-                protected void configure() {
-                    install(new MainModule()); 
-                    // Install ProB 2.0 Injection bindings
-                }
-            }
-        );
+    /*
+     * L'injecteur Guice (et donc toute la pile ProB) n'est créé qu'au premier
+     * appel de injector() : le simple chargement de la classe ne coûte rien.
+     */
+    private static final class InjectorHolder {
+        static final Injector INJECTOR = createInjector() ;
+    }
+
+    /*
+     * Instances en cours de préchauffage, par chemin de machine
+     */
+    private static final Map<String, Future<MyProb>> PREWARMED = new ConcurrentHashMap<>() ;
+
     private Api api;
     private StateSpace stateSpace ;
+    private String machinePath ; // dernière machine chargée, pour reload()
 
 	@Inject
 	public MyProb(Api api, String file) {
 		this.api = api;
 	}
 
+    static Injector injector(){
+        return InjectorHolder.INJECTOR ;
+    }
+
+    private static Injector createInjector(){
+        try (StartupTimeline.Phase phase = StartupTimeline.begin("Création de l'injecteur Guice")) {
+            return Guice.createInjector(Stage.PRODUCTION, 
+                new AbstractModule(){
+                    @Override
+                    protected void configure() {
+                        install(new MainModule()); 
+                        // Install ProB 2.0 Injection bindings
+                    }
+                }
+            );
+        }
+    }
+
+    /*
+     * Lance en arrière-plan la création de la pile ProB et le chargement
+     * d'une machine, pour recouvrir ce coût par autre chose (saisies de
+     * l'utilisateur, lecture de caches...). L'instance est récupérée par
+     * acquire(bMachinePath). Sans effet si le préchauffage est désactivé
+     * (-Dprob.prewarm=false) ou déjà lancé pour cette machine.
+     */
+    public static void prewarm(String bMachinePath){
+        if (!Boolean.parseBoolean(System.getProperty("prob.prewarm", "true"))) return ;
+        PREWARMED.computeIfAbsent(bMachinePath, path -> {
+            FutureTask<MyProb> task = new FutureTask<>(() -> {
+                MyProb prob = injector().getInstance(MyProb.class) ;
+                prob.load(path) ;
+                return prob ;
+            }) ;
+            Thread thread = new Thread(task, "prob-prewarm") ;
+            thread.setDaemon(true) ;
+            thread.start() ;
+            return task ;
+        }) ;
+    }
+
+    /*
+     * Retourne une instance chargée sur la machine : celle préchauffée si
+     * elle existe (en attendant la fin de son chargement), sinon une
+     * nouvelle instance chargée immédiatement.
+     */
+    public static MyProb acquire(String bMachinePath) throws Exception{
+        Future<MyProb> prewarmed = PREWARMED.remove(bMachinePath) ;
+        if (prewarmed != null) {
+            try (StartupTimeline.Phase phase = StartupTimeline.begin("Attente du préchauffage")) {
+                return prewarmed.get() ;
+            } catch (ExecutionException e) {
+                System.out.println("Préchauffage échoué, nouveau chargement : " + e.getCause()) ;
+            }
+        }
+        MyProb prob = injector().getInstance(MyProb.class) ;
+        prob.load(bMachinePath) ;
+        return prob ;
+    }
+
     public void load(String bMachinePath) throws Exception{
         System.out.println("Load classical B Machine");
         Path path = Paths.get(getClass().getResource(bMachinePath).toURI());
-        stateSpace = api.b_load(path.toAbsolutePath().toString());
+        // b_load lance le processus probcli puis y charge la machine
+        try (StartupTimeline.Phase phase = StartupTimeline.begin("Lancement de probcli et chargement de " + bMachinePath)) {
+            stateSpace = api.b_load(path.toAbsolutePath().toString());
+        }
+        this.machinePath = bMachinePath ;
         System.out.println("Load success");
     }
 
+    /*
+     * Arrête le processus probcli et recharge la dernière machine dans un
+     * nouvel espace d'états vide : toute la mémoire des états déjà visités
+     * (côté probcli comme côté Java) est libérée.
+     */
+    public void reload() throws Exception{
+        if (machinePath == null) throw new IllegalStateException("Aucune machine chargée") ;
+        kill() ;
+        load(machinePath) ;
+    }
+
     public StateSpace getStateSpace(){
         return this.stateSpace ;
     }
 
+    /*
+     * Chemin (dans les ressources) de la dernière machine chargée, null si
+     * aucune machine n'a été chargée.
+     */
+    public String getMachinePath(){
+        return this.machinePath ;
+    }
+
+    /*
+     * Vérifie que le processus probcli associé répond encore, en évaluant
+     * un prédicat trivial sur la racine de l'espace d'états.
+     */
+    public boolean isAlive(){
+        if (stateSpace == null) return false ;
+        try {
+            return "TRUE".equals(stateSpace.getRoot().eval("1=1").toString()) ;
+        } catch (Exception e) {
+            return false ;
+        }
+    }
+
+    /*
+     * Arrête le processus probcli associé à l'espace d'états chargé.
+     */
+    public void kill(){
+        if (stateSpace != null) {
+            try {
+                stateSpace.kill() ;
+            } catch (Exception e) {
+                // processus déjà arrêté
+            }
+            stateSpace = null ;
+        }
+    }
+
     public void printActions(List<Transition> actions){
         System.out.println();
 		for (Transition transition : actions) {
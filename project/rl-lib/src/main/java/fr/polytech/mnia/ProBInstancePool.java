@@ -0,0 +1,272 @@
+package fr.polytech.mnia;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ProBInstancePool.java
+ *
+ * Pool d'animateurs ProB isolés, tous chargés sur la même machine B.
+ *
+ * Chaque instance possède son propre StateSpace, donc son propre processus
+ * probcli : plusieurs environnements peuvent ainsi être utilisés en parallèle
+ * (entraînements ou expériences concurrentes) sans partager d'animateur.
+ *
+ * Les instances sont démarrées en parallèle à la construction, puis prêtées
+ * et rendues. À chaque prêt, l'instance est vérifiée ; si son processus
+ * probcli ne répond plus, elle est arrêtée et rechargée. Une instance dont le
+ * rechargement échoue est retirée définitivement et le pool rétrécit ; quand
+ * il n'en reste plus aucune, les emprunts échouent.
+ *
+ * Exemple d'utilisation :
+ * try (ProBInstancePool pool = new ProBInstancePool("/TicTacToe/tictac.mch", 4)) {
+ * try (ProBInstancePool.Lease lease = pool.lease()) {
+ * Evironnement env = new Evironnement(lease.get(), reward, "square");
+ * ...
+ * }
+ * }
+ */
+public class ProBInstancePool implements AutoCloseable {
+
+    /**
+     * Prêt d'une instance, rendu au pool à la fermeture.
+     */
+    public final class Lease implements AutoCloseable {
+        private MyProb animator;
+
+        private Lease(MyProb animator) {
+            this.animator = animator;
+        }
+
+        /**
+         * @return animateur prêté
+         */
+        public MyProb get() {
+            if (animator == null) {
+                throw new IllegalStateException("Instance déjà rendue au pool");
+            }
+            return animator;
+        }
+
+        /**
+         * Rend l'instance au pool. Sans effet si elle est déjà rendue.
+         */
+        @Override
+        public void close() {
+            if (animator != null) {
+                release(animator);
+                animator = null;
+            }
+        }
+    }
+
+    private final String machinePath;
+    private final AtomicInteger size;
+    private final BlockingQueue<MyProb> idle;
+    private final List<MyProb> instances = new ArrayList<>();
+    private final long startupMillis;
+    private final AtomicLong restarts = new AtomicLong();
+    private volatile boolean closed;
+
+    /**
+     * Démarre un pool de n instances chargées sur une machine B.
+     *
+     * @param machinePath chemin de la machine dans les ressources (ex:
+     *                    "/Simple/SimpleRL.mch")
+     * @param size        nombre d'instances
+     * @throws Exception si une instance ne peut pas être démarrée
+     *
+     *                   Exemple :
+     *                   ProBInstancePool pool = new ProBInstancePool("/Simple/SimpleRL.mch", 4);
+     */
+    public ProBInstancePool(String machinePath, int size) throws Exception {
+        if (size < 1) {
+            throw new IllegalArgumentException("Le pool doit contenir au moins une instance");
+        }
+        this.machinePath = machinePath;
+        this.size = new AtomicInteger(size);
+        this.idle = new LinkedBlockingQueue<>(size);
+
+        long start = System.nanoTime();
+        ExecutorService starter = Executors.newFixedThreadPool(size);
+        try {
+            List<Future<MyProb>> started = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                started.add(starter.submit(this::start));
+            }
+            for (Future<MyProb> future : started) {
+                try {
+                    MyProb animator = future.get();
+                    instances.add(animator);
+                    idle.add(animator);
+                } catch (ExecutionException e) {
+                    abort(started);
+                    throw new IllegalStateException("Échec du démarrage d'une instance ProB", e.getCause());
+                }
+            }
+        } finally {
+            starter.shutdown();
+        }
+        this.startupMillis = (System.nanoTime() - start) / 1_000_000;
+        System.out.println("[ProBPool] " + size + " instances prêtes en " + startupMillis + " ms");
+    }
+
+    /**
+     * Emprunte une instance, en attendant qu'une soit libre.
+     *
+     * @return prêt à fermer pour rendre l'instance
+     * @throws InterruptedException si l'attente est interrompue
+     *
+     *                              Exemple :
+     *                              try (ProBInstancePool.Lease lease = pool.lease()) { ... }
+     */
+    public Lease lease() throws InterruptedException {
+        while (true) {
+            checkOpen();
+            // Attente par tranches pour s'apercevoir que le pool s'est vidé
+            MyProb animator = idle.poll(100, TimeUnit.MILLISECONDS);
+            if (animator != null)
+                return new Lease(healthy(animator));
+        }
+    }
+
+    /**
+     * Emprunte une instance en attendant au plus le délai indiqué.
+     *
+     * @param timeout délai maximal
+     * @param unit    unité du délai
+     * @return prêt, ou null si aucune instance ne s'est libérée à temps
+     * @throws InterruptedException si l'attente est interrompue
+     */
+    public Lease lease(long timeout, TimeUnit unit) throws InterruptedException {
+        checkOpen();
+        MyProb animator = idle.poll(timeout, unit);
+        return animator == null ? null : new Lease(healthy(animator));
+    }
+
+    /**
+     * Rend une instance au pool.
+     *
+     * @param animator instance empruntée à ce pool
+     */
+    private void release(MyProb animator) {
+        if (closed) {
+            animator.kill();
+        } else {
+            idle.add(animator);
+        }
+    }
+
+    /**
+     * Vérifie une instance avant de la prêter et la redémarre si son
+     * processus probcli ne répond plus. Si le redémarrage échoue, l'instance
+     * est retirée du pool, qui compte alors une instance de moins.
+     *
+     * @param animator instance à vérifier
+     * @return instance opérationnelle
+     * @throws IllegalStateException si l'instance n'a pas pu être redémarrée
+     */
+    private MyProb healthy(MyProb animator) {
+        if (animator.isAlive())
+            return animator;
+        System.out.println("[ProBPool] Instance inactive, redémarrage de probcli");
+        animator.kill();
+        try {
+            animator.load(machinePath);
+        } catch (Exception e) {
+            animator.kill();
+            synchronized (instances) {
+                instances.remove(animator);
+            }
+            int left = size.decrementAndGet();
+            System.out.println("[ProBPool] Instance retirée du pool, " + left + " restante(s)");
+            throw new IllegalStateException("Impossible de redémarrer l'instance ProB", e);
+        }
+        restarts.incrementAndGet();
+        return animator;
+    }
+
+    private MyProb start() throws Exception {
+        MyProb animator = MyProb.injector().getInstance(MyProb.class);
+        animator.load(machinePath);
+        return animator;
+    }
+
+    /**
+     * Arrête toutes les instances déjà démarrées après un échec de démarrage.
+     *
+     * @param started démarrages lancés
+     */
+    private void abort(List<Future<MyProb>> started) {
+        close();
+        for (Future<MyProb> future : started) {
+            try {
+                MyProb animator = future.get();
+                if (!idle.contains(animator)) {
+                    animator.kill();
+                }
+            } catch (Exception e) {
+                // instance non démarrée
+            }
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Le pool est fermé");
+        }
+        if (size.get() == 0) {
+            throw new IllegalStateException("Plus aucune instance ProB dans le pool");
+        }
+    }
+
+    /**
+     * @return nombre total d'instances encore dans le pool
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * @return nombre d'instances actuellement libres
+     */
+    public int available() {
+        return idle.size();
+    }
+
+    /**
+     * @return durée du démarrage de toutes les instances, en millisecondes
+     */
+    public long getStartupMillis() {
+        return startupMillis;
+    }
+
+    /**
+     * @return nombre d'instances redémarrées depuis la création du pool
+     */
+    public long getRestarts() {
+        return restarts.get();
+    }
+
+    /**
+     * Arrête toutes les instances libres ; les instances encore prêtées sont
+     * arrêtées à leur retour.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        MyProb animator;
+        while ((animator = idle.poll()) != null) {
+            animator.kill();
+        }
+    }
+}
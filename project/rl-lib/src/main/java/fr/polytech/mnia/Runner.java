@@ -3,15 +3,20 @@ package fr.polytech.mnia;
 import de.prob.statespace.State;
 import de.prob.statespace.StateSpace;
 import de.prob.statespace.Transition;
+import fr.polytech.mnia.metrics.StartupTimeline;
 
 public abstract class Runner {
-    protected MyProb animator = MyProb.INJECTOR.getInstance(MyProb.class);
+    protected MyProb animator ;
     protected State initial ; // état initial
     protected State state ;   // ce champ représente l'état courant
 
+    /*
+     * La pile ProB n'est créée qu'ici, à la construction du premier Runner ;
+     * une instance préchauffée (MyProb.prewarm) est réutilisée si elle existe.
+     */
     public Runner(String filePath){
         try {
-            animator.load(filePath) ;
+            animator = MyProb.acquire(filePath) ;
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -19,17 +24,21 @@ public abstract class Runner {
     }
 
     public void initialise(){
-        Transition setup = initial.findTransition(Transition.SETUP_CONSTANTS_NAME);
-        if (setup != null) {
-            initial = setup.getDestination();
-        }
+        try (StartupTimeline.Phase phase = StartupTimeline.begin("SETUP_CONSTANTS / INITIALISATION")) {
+            Transition setup = initial.findTransition(Transition.SETUP_CONSTANTS_NAME);
+            if (setup != null) {
+                initial = setup.getDestination();
+            }
 
-        Transition initialisation = initial.findTransition(Transition.INITIALISE_MACHINE_NAME);
-        if (initialisation != null) {
-            initial = initialisation.getDestination();
+            Transition initialisation = initial.findTransition(Transition.INITIALISE_MACHINE_NAME);
+            if (initialisation != null) {
+                initial = initialisation.getDestination();
+            }
         }
 
-        this.state = initial.exploreIfNeeded() ;
+        try (StartupTimeline.Phase phase = StartupTimeline.begin("Première exploration")) {
+            this.state = initial.exploreIfNeeded() ;
+        }
     }
 
     public State getState(){
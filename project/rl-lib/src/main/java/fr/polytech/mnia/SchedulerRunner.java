@@ -1,12 +1,17 @@
 package fr.polytech.mnia;
 
 public class SchedulerRunner extends Runner {
+    /*
+     * Chemin de la machine B dans les ressources
+     */
+    public static final String MACHINE = "/Scheduler/scheduler_main.mch" ;
+
     /*
      * Le constructeur lance ProB sur la machine scheduler_main.mch
      * ensuite initialise les constantes et les variables 
      */
     public SchedulerRunner(){
-        super("/Scheduler/scheduler_main.mch") ;
+        super(MACHINE) ;
         this.initialise();
     } 
 
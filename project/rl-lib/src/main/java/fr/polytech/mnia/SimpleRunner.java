@@ -4,12 +4,17 @@ package fr.polytech.mnia;
  * Cette classe illustre l'exécution de SimpleRL.mch
  */
 public class SimpleRunner extends Runner{
+    /*
+     * Chemin de la machine B dans les ressources
+     */
+    public static final String MACHINE = "/Simple/SimpleRL.mch" ;
+
     /*
      * Le constructeur lance ProB sur la machine SimpleRL.mch
      * et initialise la machine
      */
     public SimpleRunner() throws Exception{
-        super("/Simple/SimpleRL.mch") ;
+        super(MACHINE) ;
         this.initialise(); ; 
     } 
 
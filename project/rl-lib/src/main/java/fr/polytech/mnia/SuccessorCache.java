@@ -0,0 +1,363 @@
+package fr.polytech.mnia;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.prob.statespace.State;
+import de.prob.statespace.Transition;
+import fr.polytech.mnia.metrics.Counter;
+import fr.polytech.mnia.metrics.MetricsRegistry;
+import fr.polytech.mnia.metrics.Timer;
+
+/**
+ * SuccessorCache.java
+ *
+ * Cache des successeurs d'un état, indexé par l'identifiant ProB de l'état.
+ *
+ * Pour chaque état, une seule requête ProB est faite : la liste des
+ * transitions sortantes est récupérée et l'identifiant et le prédicat de
+ * chaque action sont résolus une fois pour toutes. Une destination n'est
+ * explorée que lorsqu'elle est demandée pour la première fois, puis conservée.
+ * Les visites suivantes ne coûtent qu'une recherche dans une table de hachage.
+ *
+ * La capacité est bornée ; au-delà, l'entrée la moins récemment utilisée (LRU)
+ * ou la plus ancienne (FIFO) est évincée. Les nombres de succès, d'échecs et
+ * d'évictions sont comptés pour mesurer l'efficacité du cache.
+ *
+ * Exemple d'utilisation :
+ * SuccessorCache cache = new SuccessorCache(50_000, SuccessorCache.Eviction.LRU);
+ * SuccessorCache.Successors next = cache.get(state);
+ * State destination = next.getDestination(0);
+ * System.out.println(cache.summary());
+ */
+public class SuccessorCache {
+
+    private static final Timer EXPLORE = MetricsRegistry.get().timer("prob.explore");
+    private static final Counter EXPLORED = MetricsRegistry.get().counter("prob.explore.states");
+    private static final Counter HITS = MetricsRegistry.get().counter("cache.successors.hits");
+    private static final Counter MISSES = MetricsRegistry.get().counter("cache.successors.misses");
+
+    /** Capacité par défaut, suffisante pour les modèles fournis. */
+    public static final int DEFAULT_CAPACITY = 100_000;
+
+    /** Politique d'éviction lorsque la capacité est atteinte. */
+    public enum Eviction {
+        /** Évince l'état le moins récemment consulté. */
+        LRU,
+        /** Évince l'état le plus anciennement inséré. */
+        FIFO
+    }
+
+    /**
+     * Successeurs résolus d'un état : transitions, destinations (explorées à
+     * la demande), identifiants et prédicats des actions, tous alignés par
+     * indice.
+     */
+    public static final class Successors {
+        private final List<Transition> transitions;
+        private final State[] destinations;
+        private final String[] actionIds;
+        private final String[] predicates;
+
+        private Successors(List<Transition> transitions) {
+            this(transitions, null);
+        }
+
+        private Successors(List<Transition> transitions, State[] resolved) {
+            int n = transitions.size();
+            this.transitions = Collections.unmodifiableList(new ArrayList<>(transitions));
+            this.destinations = new State[n];
+            this.actionIds = new String[n];
+            this.predicates = new String[n];
+            for (int i = 0; i < n; i++) {
+                Transition t = transitions.get(i);
+                destinations[i] = resolved != null ? resolved[i] : null;
+                actionIds[i] = t.getId();
+                predicates[i] = t.getParameterPredicate();
+            }
+        }
+
+        /**
+         * @return transitions sortantes (liste non modifiable)
+         */
+        public List<Transition> getTransitions() {
+            return transitions;
+        }
+
+        /**
+         * @return nombre de transitions sortantes
+         */
+        public int size() {
+            return destinations.length;
+        }
+
+        /**
+         * @param i indice de la transition
+         * @return état de destination, exploré au premier appel
+         */
+        public synchronized State getDestination(int i) {
+            State destination = destinations[i];
+            if (destination == null) {
+                long start = EXPLORE.start();
+                destination = transitions.get(i).getDestination().exploreIfNeeded();
+                EXPLORE.stop(start);
+                EXPLORED.increment();
+                destinations[i] = destination;
+            }
+            return destination;
+        }
+
+        /**
+         * @param i indice de la transition
+         * @return identifiant ProB de la transition
+         */
+        public String getActionId(int i) {
+            return actionIds[i];
+        }
+
+        /**
+         * @param i indice de la transition
+         * @return prédicat des paramètres de la transition
+         */
+        public String getPredicate(int i) {
+            return predicates[i];
+        }
+
+        /**
+         * Retourne l'indice d'une transition de cet état.
+         *
+         * @param t transition recherchée
+         * @return indice, ou -1 si la transition n'en fait pas partie
+         */
+        public int indexOf(Transition t) {
+            String id = t.getId();
+            for (int i = 0; i < actionIds.length; i++) {
+                if (actionIds[i].equals(id))
+                    return i;
+            }
+            return -1;
+        }
+    }
+
+    private final int capacity;
+    private final Eviction eviction;
+    private final LinkedHashMap<String, Successors> entries;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Crée un cache LRU de capacité par défaut.
+     */
+    public SuccessorCache() {
+        this(DEFAULT_CAPACITY, Eviction.LRU);
+    }
+
+    /**
+     * Crée un cache de capacité et de politique d'éviction données.
+     *
+     * @param capacity nombre maximal d'états conservés
+     * @param eviction politique d'éviction
+     */
+    public SuccessorCache(int capacity, Eviction eviction) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("La capacité doit être strictement positive");
+        }
+        this.capacity = capacity;
+        this.eviction = eviction;
+        this.entries = new LinkedHashMap<String, Successors>(16, 0.75f, eviction == Eviction.LRU) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Successors> eldest) {
+                if (size() > SuccessorCache.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Retourne les successeurs d'un état, en interrogeant ProB uniquement si
+     * l'état n'est pas en cache.
+     *
+     * La requête ProB est faite hors verrou pour ne pas bloquer les autres
+     * lecteurs ; si deux threads la font simultanément, la première entrée
+     * insérée est conservée.
+     *
+     * @param state état dont on veut les successeurs
+     * @return successeurs résolus
+     *
+     *         Exemple :
+     *         List<Transition> actions = cache.get(state).getTransitions();
+     */
+    public Successors get(State state) {
+        return lookup(state, true);
+    }
+
+    /**
+     * Charge les successeurs d'un état sans compter la recherche comme un
+     * succès ou un échec (utilisé par le préchargement, qui n'est pas une
+     * consultation de l'agent).
+     *
+     * @param state état à charger
+     * @return successeurs résolus
+     */
+    Successors load(State state) {
+        return lookup(state, false);
+    }
+
+    private Successors lookup(State state, boolean counted) {
+        String id = state.getId();
+        synchronized (this) {
+            Successors cached = entries.get(id);
+            if (cached != null) {
+                if (counted) {
+                    hits++;
+                    HITS.increment();
+                }
+                return cached;
+            }
+            if (counted) {
+                misses++;
+                MISSES.increment();
+            }
+        }
+        long start = EXPLORE.start();
+        Successors computed = new Successors(state.exploreIfNeeded().getOutTransitions());
+        EXPLORE.stop(start);
+        synchronized (this) {
+            Successors existing = entries.putIfAbsent(id, computed);
+            return existing != null ? existing : computed;
+        }
+    }
+
+    /**
+     * Insère des successeurs déjà résolus ailleurs (par exemple importés en
+     * bloc depuis ProB), sans nouvelle requête.
+     *
+     * @param state        état source
+     * @param transitions  transitions sortantes de l'état
+     * @param destinations destinations, alignées sur les transitions
+     *
+     *                     Exemple :
+     *                     cache.put(state, transitions, destinations);
+     */
+    public void put(State state, List<Transition> transitions, State[] destinations) {
+        if (transitions.size() != destinations.length) {
+            throw new IllegalArgumentException("Transitions et destinations de tailles différentes");
+        }
+        Successors successors = new Successors(transitions, destinations);
+        synchronized (this) {
+            entries.put(state.getId(), successors);
+        }
+    }
+
+    /**
+     * Retourne l'état atteint par une transition, depuis le cache de son état
+     * source s'il y figure. Cette résolution n'est pas comptée comme une
+     * recherche : si la source n'est pas en cache, seule la destination est
+     * explorée.
+     *
+     * @param t transition appliquée
+     * @return état de destination exploré
+     *
+     *         Exemple :
+     *         State next = cache.getDestination(transition);
+     */
+    public State getDestination(Transition t) {
+        Successors successors;
+        synchronized (this) {
+            successors = entries.get(t.getSource().getId());
+        }
+        int i = successors != null ? successors.indexOf(t) : -1;
+        return i >= 0 ? successors.getDestination(i) : t.getDestination().explore();
+    }
+
+    /**
+     * Indique si les successeurs d'un état sont en cache (sans modifier
+     * l'ordre LRU ni les compteurs).
+     *
+     * @param state état testé
+     * @return true si l'état est en cache
+     */
+    public synchronized boolean contains(State state) {
+        return entries.containsKey(state.getId());
+    }
+
+    /**
+     * @return nombre d'états actuellement en cache
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return capacité maximale du cache
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return politique d'éviction du cache
+     */
+    public Eviction getEviction() {
+        return eviction;
+    }
+
+    /**
+     * @return nombre de recherches servies par le cache
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return nombre de recherches ayant nécessité une requête ProB
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return nombre d'états évincés faute de place
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return proportion de recherches servies par le cache, entre 0 et 1
+     */
+    public synchronized double hitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    /**
+     * Vide le cache et remet les compteurs à zéro.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    /**
+     * Résumé lisible de l'état du cache.
+     *
+     * @return taille, taux de succès et nombre d'évictions
+     *
+     *         Exemple :
+     *         System.out.println(cache.summary());
+     */
+    public synchronized String summary() {
+        return String.format("%d/%d états, succès=%.1f%% (%d/%d), évictions=%d",
+                entries.size(), capacity, 100.0 * hitRate(), hits, hits + misses, evictions);
+    }
+}
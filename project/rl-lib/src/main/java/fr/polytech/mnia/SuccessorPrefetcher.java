@@ -0,0 +1,317 @@
+package fr.polytech.mnia;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.prob.statespace.State;
+import de.prob.statespace.Transition;
+import fr.polytech.mnia.reward.RewardFunction;
+
+/**
+ * SuccessorPrefetcher.java
+ *
+ * Préchargement spéculatif des successeurs : dès qu'un état est atteint, ses
+ * transitions puis les successeurs de chacune de ses destinations possibles
+ * sont explorés en arrière-plan pendant que l'agent choisit son action. Quand l'action est
+ * appliquée, l'état atteint a donc le plus souvent ses transitions déjà en
+ * cache et la requête ProB ne se trouve plus sur le chemin critique.
+ *
+ * Si la fonction de récompense est sans état (voir
+ * RewardFunction.isStateless), la récompense et la terminaison des états
+ * préchargés sont aussi évaluées à l'avance.
+ *
+ * Le nombre de préchargements simultanés est borné par une fenêtre ; les
+ * demandes qui la dépassent sont abandonnées. Les évaluations anticipées sont
+ * conservées dans une table de même capacité et de même politique d'éviction
+ * que le cache de successeurs. Les métriques indiquent combien d'arrivées dans
+ * un état ont été entièrement masquées (état chargé par le préchargement),
+ * partiellement masquées (préchargement encore en cours) ou non anticipées ;
+ * les retours dans un état déjà en cache pour une autre raison sont comptés à
+ * part.
+ *
+ * Exemple d'utilisation :
+ * env.enablePrefetching(1, 16);
+ * agent.train(env, 1000, false);
+ * System.out.println(env.getPrefetcher().summary());
+ */
+public class SuccessorPrefetcher implements AutoCloseable {
+
+    private final SuccessorCache cache;
+    private final RewardFunction rewardFunction; // null si la récompense n'est pas anticipable
+    private final int capacity;
+    private final ExecutorService executor;
+    private final Semaphore window;
+    private final Map<String, Future<?>> pending = new ConcurrentHashMap<>();
+    private final Map<String, Evaluation> evaluations; // protégée par son propre verrou
+    private final Set<String> loaded; // États chargés par le préchargement, protégé par son propre verrou
+    private volatile String latest; // Dernier état atteint, null après clear
+    private volatile Future<?> advancing; // Dernière tâche lancée par arrive
+
+    private final AtomicLong issued = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong hidden = new AtomicLong();
+    private final AtomicLong partial = new AtomicLong();
+    private final AtomicLong missed = new AtomicLong();
+    private final AtomicLong revisited = new AtomicLong();
+
+    /** Récompense et terminaison évaluées à l'avance pour un état. */
+    private static final class Evaluation {
+        final double reward;
+        final boolean terminal;
+
+        Evaluation(double reward, boolean terminal) {
+            this.reward = reward;
+            this.terminal = terminal;
+        }
+    }
+
+    /**
+     * Crée un préchargeur sur un cache de successeurs.
+     *
+     * @param cache          cache alimenté par le préchargement
+     * @param rewardFunction fonction de récompense de l'environnement
+     * @param threads        nombre de threads de préchargement
+     * @param window         nombre maximal de préchargements en cours
+     *
+     *                       Exemple :
+     *                       SuccessorPrefetcher p = new SuccessorPrefetcher(cache,
+     *                       reward, 1, 16);
+     */
+    public SuccessorPrefetcher(SuccessorCache cache, RewardFunction rewardFunction, int threads, int window) {
+        if (threads < 1 || window < 1) {
+            throw new IllegalArgumentException("threads et window doivent être strictement positifs");
+        }
+        this.cache = cache;
+        this.rewardFunction = rewardFunction.isStateless() ? rewardFunction : null;
+        this.capacity = cache.getCapacity();
+        this.evaluations = new LinkedHashMap<String, Evaluation>(16, 0.75f,
+                cache.getEviction() == SuccessorCache.Eviction.LRU) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Evaluation> eldest) {
+                return size() > capacity;
+            }
+        };
+        this.loaded = Collections.newSetFromMap(new LinkedHashMap<String, Boolean>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > capacity;
+            }
+        });
+        this.window = new Semaphore(window);
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "successor-prefetch");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Signale l'arrivée dans un état : met à jour les métriques puis confie à
+     * un thread de préchargement le chargement de l'état (après un éventuel
+     * préchargement en cours) et le lancement de la couche suivante.
+     * L'appelant n'attend jamais.
+     *
+     * @param state état atteint
+     *
+     *              Exemple :
+     *              prefetcher.arrive(nextState);
+     */
+    public void arrive(State state) {
+        String id = state.getId();
+        boolean prefetched;
+        synchronized (loaded) {
+            prefetched = loaded.remove(id);
+        }
+        if (pending.containsKey(id)) {
+            partial.incrementAndGet();
+        } else if (prefetched) {
+            hidden.incrementAndGet();
+        } else if (cache.contains(state)) {
+            revisited.incrementAndGet();
+        } else {
+            missed.incrementAndGet();
+        }
+        latest = id;
+        advancing = executor.submit(() -> advance(state));
+    }
+
+    /**
+     * Tâche d'arrivée : attend le préchargement éventuel de l'état, le charge
+     * puis précharge ses destinations. Abandonnée si l'agent a déjà quitté
+     * l'état. Les tâches sont servies dans l'ordre de soumission, donc le
+     * préchargement attendu a déjà démarré sur un autre thread.
+     *
+     * @param state état atteint
+     */
+    private void advance(State state) {
+        String id = state.getId();
+        Future<?> inFlight = pending.get(id);
+        if (inFlight != null) {
+            await(inFlight);
+        }
+        if (!id.equals(latest))
+            return;
+        SuccessorCache.Successors successors = cache.load(state);
+        // Les destinations ne sont pas explorées ici : l'identifiant suffit et
+        // l'exploration se fait dans la tâche de préchargement
+        for (Transition t : successors.getTransitions()) {
+            if (!id.equals(latest))
+                return;
+            prefetch(t.getDestination());
+        }
+    }
+
+    /**
+     * Retourne la récompense évaluée à l'avance pour un état.
+     *
+     * @param state état évalué
+     * @return récompense, null si elle n'a pas été préchargée
+     */
+    public Double getReward(State state) {
+        Evaluation e = evaluation(state.getId());
+        return e != null ? e.reward : null;
+    }
+
+    /**
+     * Retourne la terminaison évaluée à l'avance pour un état.
+     *
+     * @param state état évalué
+     * @return terminaison, null si elle n'a pas été préchargée
+     */
+    public Boolean isTerminal(State state) {
+        Evaluation e = evaluation(state.getId());
+        return e != null ? e.terminal : null;
+    }
+
+    private Evaluation evaluation(String id) {
+        synchronized (evaluations) {
+            return evaluations.get(id);
+        }
+    }
+
+    /**
+     * Lance en arrière-plan l'exploration des successeurs d'un état s'ils ne
+     * sont ni en cache ni déjà en cours de chargement, et si la fenêtre le
+     * permet.
+     *
+     * @param state état à précharger
+     */
+    private void prefetch(State state) {
+        String id = state.getId();
+        if (pending.containsKey(id) || (cache.contains(state) && evaluated(id)))
+            return;
+        if (!window.tryAcquire()) {
+            dropped.incrementAndGet();
+            return;
+        }
+        issued.incrementAndGet();
+        // Le verrou garantit que la tâche ne retire pas son entrée avant son insertion
+        synchronized (pending) {
+            pending.put(id, executor.submit(() -> {
+                try {
+                    if (!cache.contains(state)) {
+                        cache.load(state);
+                        // Arrivée déjà comptée comme partielle si l'agent y est déjà
+                        if (!id.equals(latest)) {
+                            synchronized (loaded) {
+                                loaded.add(id);
+                            }
+                        }
+                    }
+                    if (rewardFunction != null) {
+                        Evaluation e = new Evaluation(rewardFunction.getReward(state),
+                                rewardFunction.isTerminal(state));
+                        synchronized (evaluations) {
+                            evaluations.put(id, e);
+                        }
+                    }
+                } finally {
+                    synchronized (pending) {
+                        pending.remove(id);
+                    }
+                    window.release();
+                }
+            }));
+        }
+    }
+
+    private boolean evaluated(String id) {
+        if (rewardFunction == null)
+            return true;
+        synchronized (evaluations) {
+            return evaluations.containsKey(id);
+        }
+    }
+
+    private static void await(Future<?> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // L'état sera exploré de façon synchrone par le cache
+        }
+    }
+
+    /**
+     * Attend la fin des préchargements en cours puis oublie les récompenses
+     * et terminaisons déjà évaluées (par exemple avant de remplacer l'espace
+     * d'états ProB).
+     */
+    public void clear() {
+        latest = null;
+        Future<?> last = advancing;
+        if (last != null) {
+            await(last);
+        }
+        for (Future<?> inFlight : pending.values()) {
+            await(inFlight);
+        }
+        synchronized (evaluations) {
+            evaluations.clear();
+        }
+        synchronized (loaded) {
+            loaded.clear();
+        }
+    }
+
+    /**
+     * @return proportion des arrivées dans un état hors cache dont le
+     *         préchargement était terminé ou en cours
+     */
+    public double coverage() {
+        long total = hidden.get() + partial.get() + missed.get();
+        return total == 0 ? 0.0 : (double) (hidden.get() + partial.get()) / total;
+    }
+
+    /**
+     * Résumé des métriques de préchargement.
+     *
+     * @return arrivées masquées, partielles, manquées, déjà en cache, demandes
+     *         lancées et abandonnées
+     *
+     *         Exemple :
+     *         System.out.println(prefetcher.summary());
+     */
+    public String summary() {
+        return String.format(
+                "couverture=%.1f%% (masquées=%d, partielles=%d, manquées=%d), déjà en cache=%d, lancés=%d, "
+                        + "abandonnés=%d",
+                100.0 * coverage(), hidden.get(), partial.get(), missed.get(), revisited.get(), issued.get(),
+                dropped.get());
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
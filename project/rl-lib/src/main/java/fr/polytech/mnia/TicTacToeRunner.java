@@ -7,11 +7,16 @@ package fr.polytech.mnia;
  */
 public class TicTacToeRunner extends Runner {
 
+    /**
+     * Chemin de la machine B dans les ressources.
+     */
+    public static final String MACHINE = "/TicTacToe/tictac.mch";
+
     /**
      * Constructeur : charge et initialise la machine B tictac.mch.
      */
     public TicTacToeRunner() {
-        super("/TicTacToe/tictac.mch");
+        super(MACHINE);
         this.initialise();
     }
 
@@ -4,12 +4,17 @@ package fr.polytech.mnia;
  * Cette classe illustre l'exécution de YouTube.mch
  */
 public class YouTubeRunner extends Runner {
+    /*
+     * Chemin de la machine B dans les ressources
+     */
+    public static final String MACHINE = "/Simple/YouTube.mch" ;
+
     /*
      * Le constructeur lance ProB sur la machine YouTube.mch
      * et initialise la machine
      */
     public YouTubeRunner() throws Exception {
-        super("/Simple/YouTube.mch");
+        super(MACHINE);
         this.initialise();
     }
 
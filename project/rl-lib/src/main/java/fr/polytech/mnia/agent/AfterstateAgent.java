@@ -0,0 +1,326 @@
+package fr.polytech.mnia.agent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import fr.polytech.mnia.Evironnement;
+import fr.polytech.mnia.checkpoint.Checkpoint;
+import fr.polytech.mnia.checkpoint.CheckpointWriter;
+import fr.polytech.mnia.checkpoint.Checkpointable;
+import fr.polytech.mnia.checkpoint.ResumableRandom;
+import fr.polytech.mnia.encoding.StateEncoder;
+import fr.polytech.mnia.encoding.VariableStateEncoder;
+import fr.polytech.mnia.metrics.MetricsRegistry;
+import fr.polytech.mnia.metrics.Timer;
+import fr.polytech.mnia.tictactoe.Opponent;
+import de.prob.statespace.State;
+import de.prob.statespace.Transition;
+
+/**
+ * AfterstateAgent.java
+ *
+ * Agent TD sur les états d'après-coup (afterstates) pour les modèles B au tour
+ * par tour : il apprend V(état atteint par le coup de l'agent), avant la
+ * réponse de l'autre camp, au lieu de Q(état, coup).
+ *
+ * Au Tic-Tac-Toe, plusieurs couples (plateau, coup) mènent au même plateau :
+ * ils partagent ici une seule valeur, ce qui réduit la table et le nombre de
+ * parties simulées par ProB avant convergence.
+ *
+ * Les coups de l'agent sont déclarés par un AgentMoves ; quand aucun n'est
+ * disponible, l'adversaire joue. Mise à jour, après la réponse adverse :
+ * V(après) += alpha * (r + gamma * max V(après') - V(après))
+ * où après' parcourt les états d'après-coup atteignables au tour suivant.
+ *
+ * Exemple d'utilisation :
+ * AfterstateAgent agent = new AfterstateAgent(0.2, 0.9, 0.1, 20, AgentMoves.of("place0"),
+ * new RandomOpponent(new Random()));
+ * agent.train(env, 5000, false);
+ */
+public class AfterstateAgent implements Agent, Checkpointable {
+
+    private static final Timer UPDATE = MetricsRegistry.get().timer("agent.update");
+
+    private final double alpha;
+    private final double gamma;
+    private final double epsilon;
+    private final int maxEpisodeLength;
+    private final AgentMoves moves;
+    private Opponent opponent;
+    private final StateEncoder encoder = new VariableStateEncoder();
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> keys = new ArrayList<>();
+    private double[] values = new double[1024];
+
+    private final ResumableRandom random = new ResumableRandom();
+    private int[] candidates = new int[16]; // Identifiants des états d'après-coup candidats
+    private long episodesDone = 0;
+    private long updates = 0;
+    private final List<Double> rewards = new ArrayList<>();
+    private final List<String> actionsChosen = new ArrayList<>();
+
+    /**
+     * Construit un agent sur états d'après-coup.
+     *
+     * @param alpha            taux d'apprentissage
+     * @param gamma            facteur d'actualisation
+     * @param epsilon          probabilité d'exploration
+     * @param maxEpisodeLength nombre maximal de coups de l'agent par épisode
+     * @param moves            opérations jouées par l'agent
+     * @param opponent         joueur des autres opérations
+     *
+     *                         Exemple :
+     *                         new AfterstateAgent(0.3, 0.9, 0.1, 20,
+     *                         AgentMoves.of("place0"), new MinimaxOpponent(random));
+     */
+    public AfterstateAgent(double alpha, double gamma, double epsilon, int maxEpisodeLength, AgentMoves moves,
+            Opponent opponent) {
+        this.alpha = alpha;
+        this.gamma = gamma;
+        this.epsilon = epsilon;
+        this.maxEpisodeLength = maxEpisodeLength;
+        this.moves = moves;
+        this.opponent = opponent;
+    }
+
+    /**
+     * Remplace l'adversaire.
+     *
+     * @param opponent nouvel adversaire
+     */
+    public void setOpponent(Opponent opponent) {
+        this.opponent = opponent;
+    }
+
+    /**
+     * Entraîne l'agent sur un nombre de parties. Une partie s'arrête sur un
+     * état terminal, quand plus personne ne peut jouer, ou après
+     * maxEpisodeLength coups de l'agent.
+     *
+     * @param env     environnement d'apprentissage
+     * @param nbSteps nombre de parties
+     * @param verbose true pour tracer chaque coup
+     * @throws Exception en cas d'erreur ProB
+     *
+     *                   Exemple :
+     *                   agent.train(env, 5000, false);
+     */
+    @Override
+    public void train(Evironnement env, int nbSteps, boolean verbose) throws Exception {
+        TurnPolicy turns = turns(env);
+        for (int episode = 0; episode < nbSteps; episode++) {
+            env.reset();
+            turns.playOthers(env);
+            List<Transition> mine = moves.select(env.getActions());
+            if (mine.isEmpty()) {
+                continue;
+            }
+            int n = candidates(env, mine);
+            int chosen = choose(n);
+            actionsChosen.add(mine.get(chosen).getName() + "(" + mine.get(chosen).getParameterPredicate() + ")");
+            double episodeReturn = 0.0;
+
+            for (int t = 0; t < maxEpisodeLength; t++) {
+                int after = candidates[chosen];
+                env.runAction(mine.get(chosen));
+                State state = turns.playOthers(env);
+                double reward = env.getReward(state);
+                episodeReturn += reward;
+                if (verbose) {
+                    env.traceStep(getClass().getSimpleName(), t, mine.get(chosen), reward);
+                }
+
+                mine = env.isTerminal(state) ? null : moves.select(env.getActions());
+                double target = reward;
+                if (mine != null && !mine.isEmpty()) {
+                    n = candidates(env, mine);
+                    target += gamma * values[candidates[best(n)]];
+                    chosen = choose(n);
+                } else {
+                    mine = null;
+                }
+
+                long start = UPDATE.start();
+                values[after] += alpha * (target - values[after]);
+                updates++;
+                UPDATE.stop(start);
+
+                if (mine == null) {
+                    break;
+                }
+            }
+            rewards.add(episodeReturn);
+            episodesDone++;
+        }
+    }
+
+    /**
+     * Règle de tour de cet agent : il joue dès qu'un de ses coups est
+     * disponible, l'adversaire sinon.
+     */
+    private TurnPolicy turns(Evironnement env) {
+        return new TurnPolicy() {
+            @Override
+            public boolean isAgentTurn(State state) {
+                return !moves.select(env.getActions(state)).isEmpty();
+            }
+
+            @Override
+            public Transition otherMove(State state, List<Transition> actions) {
+                if (opponent == null) {
+                    throw new IllegalStateException("Aucun adversaire pour les opérations hors " + moves);
+                }
+                return opponent.chooseMove(state, actions);
+            }
+        };
+    }
+
+    /**
+     * Range dans candidates l'identifiant de l'état d'après-coup de chaque
+     * coup, lu dans le cache de successeurs.
+     *
+     * @return nombre de candidats
+     */
+    private int candidates(Evironnement env, List<Transition> mine) {
+        if (candidates.length < mine.size()) {
+            candidates = new int[Math.max(mine.size(), candidates.length * 2)];
+        }
+        for (int i = 0; i < mine.size(); i++) {
+            candidates[i] = id(encoder.encode(env.getSuccessor(mine.get(i))));
+        }
+        return mine.size();
+    }
+
+    /**
+     * Choix epsilon-glouton parmi les candidats.
+     */
+    private int choose(int n) {
+        return random.nextDouble() < epsilon ? random.nextInt(n) : best(n);
+    }
+
+    /**
+     * Candidat de plus grande valeur, au hasard entre les égalités.
+     */
+    private int best(int n) {
+        int best = 0;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        int ties = 0;
+        for (int i = 0; i < n; i++) {
+            double v = values[candidates[i]];
+            if (v > bestValue) {
+                bestValue = v;
+                best = i;
+                ties = 1;
+            } else if (v == bestValue && random.nextInt(++ties) == 0) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private int id(String key) {
+        Integer id = ids.get(key);
+        if (id == null) {
+            id = keys.size();
+            ids.put(key, id);
+            keys.add(key);
+            if (id >= values.length) {
+                values = Arrays.copyOf(values, values.length * 2);
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Valeur apprise d'un état d'après-coup.
+     *
+     * @param afterstate état atteint par un coup de l'agent
+     * @return V(afterstate), 0.0 si jamais visité
+     *
+     *         Exemple :
+     *         double v = agent.getValue(env.getSuccessor(coup));
+     */
+    public double getValue(State afterstate) {
+        Integer id = ids.get(encoder.encode(afterstate));
+        return id == null ? 0.0 : values[id];
+    }
+
+    /**
+     * Résumé affiché en fin d'exécution.
+     *
+     * @return taille de la table et nombre de mises à jour
+     *
+     *         Exemple :
+     *         System.out.println(agent.summary());
+     */
+    public String summary() {
+        return String.format("%d états d'après-coup (coups : %s), %d mises à jour sur %d parties", keys.size(),
+                moves, updates, episodesDone);
+    }
+
+    /**
+     * Sauvegarde les valeurs (section "V", une entrée par état d'après-coup),
+     * le générateur aléatoire et le nombre de parties jouées.
+     *
+     * @param writer checkpoint en cours de construction
+     *
+     *               Exemple :
+     *               agent.saveCheckpoint(writer);
+     */
+    @Override
+    public void saveCheckpoint(CheckpointWriter writer) {
+        for (int i = 0; i < keys.size(); i++) {
+            writer.putDouble("V", keys.get(i), values[i]);
+        }
+        writer.putLong("meta", "rng", random.getState());
+        writer.putLong("meta", "episodes", episodesDone);
+    }
+
+    /**
+     * Reprend l'apprentissage depuis un checkpoint.
+     *
+     * @param checkpoint checkpoint ouvert
+     *
+     *                   Exemple :
+     *                   agent.loadCheckpoint(Checkpoint.open(path));
+     */
+    @Override
+    public void loadCheckpoint(Checkpoint checkpoint) {
+        checkpoint.forEach("V", (key, value) -> {
+            int id = id(key); // Peut agrandir values
+            values[id] = value.getDouble(0);
+        });
+        random.setState(checkpoint.getLong("meta", "rng", random.getState()));
+        episodesDone = checkpoint.getLong("meta", "episodes", 0);
+    }
+
+    /**
+     * Retourne le retour (somme des récompenses) de chaque partie.
+     *
+     * @return liste des retours (Double)
+     *
+     *         Exemple :
+     *         List<Double> retours = agent.getRewards();
+     */
+    @Override
+    public List<Double> getRewards() {
+        return rewards;
+    }
+
+    /**
+     * Retourne le premier coup de chaque partie.
+     *
+     * @return liste d'actions choisies (String)
+     *
+     *         Exemple :
+     *         List<String> actions = agent.getActionsChosen();
+     */
+    @Override
+    public List<String> getActionsChosen() {
+        return actionsChosen;
+    }
+}
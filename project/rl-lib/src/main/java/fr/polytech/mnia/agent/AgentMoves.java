@@ -0,0 +1,86 @@
+package fr.polytech.mnia.agent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import de.prob.statespace.Transition;
+
+/**
+ * AgentMoves.java
+ *
+ * Déclare quelles opérations d'une machine B sont des coups de l'agent. Les
+ * autres opérations (coups de l'adversaire, événements de l'environnement)
+ * sont jouées par l'autre camp.
+ *
+ * Exemple d'utilisation :
+ * AgentMoves moves = AgentMoves.of("place0"); // tictac.mch, joueur 0
+ * List<Transition> mine = moves.select(env.getActions());
+ */
+public final class AgentMoves {
+
+    private final Set<String> operations; // null : toutes les opérations
+
+    private AgentMoves(Set<String> operations) {
+        this.operations = operations;
+    }
+
+    /**
+     * Déclare les opérations de l'agent par leur nom.
+     *
+     * @param operations noms des opérations B jouées par l'agent
+     * @return déclaration
+     *
+     *         Exemple :
+     *         AgentMoves.of("place0");
+     */
+    public static AgentMoves of(String... operations) {
+        return new AgentMoves(Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(operations))));
+    }
+
+    /**
+     * Toutes les opérations sont des coups de l'agent (modèle à un joueur).
+     *
+     * @return déclaration
+     */
+    public static AgentMoves all() {
+        return new AgentMoves(null);
+    }
+
+    /**
+     * Indique si une transition est un coup de l'agent.
+     *
+     * @param t transition
+     * @return true si son opération est déclarée
+     */
+    public boolean isAgentMove(Transition t) {
+        return operations == null || operations.contains(t.getName());
+    }
+
+    /**
+     * Garde les coups de l'agent parmi des actions.
+     *
+     * @param actions actions disponibles
+     * @return coups de l'agent, vide si c'est à l'autre camp de jouer
+     */
+    public List<Transition> select(List<Transition> actions) {
+        if (operations == null) {
+            return actions;
+        }
+        List<Transition> mine = new ArrayList<>();
+        for (Transition t : actions) {
+            if (operations.contains(t.getName())) {
+                mine.add(t);
+            }
+        }
+        return mine;
+    }
+
+    @Override
+    public String toString() {
+        return operations == null ? "*" : String.join(", ", operations);
+    }
+}
@@ -4,10 +4,14 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
 
 import fr.polytech.mnia.Evironnement;
-import fr.polytech.mnia.reward.YouTubeRewardFunction;
+import fr.polytech.mnia.checkpoint.Checkpoint;
+import fr.polytech.mnia.checkpoint.CheckpointWriter;
+import fr.polytech.mnia.checkpoint.Checkpointable;
+import fr.polytech.mnia.checkpoint.ResumableRandom;
+import fr.polytech.mnia.metrics.MetricsRegistry;
+import fr.polytech.mnia.metrics.Timer;
 import de.prob.statespace.State;
 import de.prob.statespace.Transition;
 
@@ -25,11 +29,14 @@ import de.prob.statespace.Transition;
  * Agent agent = new BanditGradientAgent(0.1);
  * agent.train(env, 1000, true);
  */
-public class BanditGradientAgent implements Agent {
+public class BanditGradientAgent implements Agent, Checkpointable {
+
+    private static final Timer UPDATE = MetricsRegistry.get().timer("agent.update");
 
     private final double alpha;
     private final Map<String, Double> preferences = new HashMap<>();
-    private final Random random = new Random();
+    private final ResumableRandom random = new ResumableRandom();
+    private long steps = 0; // Nombre total d'étapes jouées, reprise comprise
 
     private final List<Double> rewards = new ArrayList<>();
     private final List<String> actionsChosen = new ArrayList<>();
@@ -67,10 +74,6 @@ public class BanditGradientAgent implements Agent {
 
             Transition chosen = softmaxSample(actions);
 
-            if (env.getRewardFunction() instanceof YouTubeRewardFunction) {
-                ((YouTubeRewardFunction) env.getRewardFunction()).updateChosenVideo(chosen);
-            }
-
             env.runAction(chosen);
             state = env.getState();
 
@@ -79,18 +82,18 @@ public class BanditGradientAgent implements Agent {
             actionsChosen.add(chosen.getParameterPredicate());
 
             if (verbose) {
-                System.out.println("Evaluation : " + state.eval(env.getRewardVariable()));
-                System.out.println("State ID :" + state.getId());
-                env.getAnimator().printState(state);
-                env.getAnimator().printActions(env.getActions());
+                env.traceStep(getClass().getSimpleName(), steps, chosen, reward);
             }
 
+            long start = UPDATE.start();
             for (Transition t : actions) {
                 String key = t.getName() + t.getParameterPredicate();
                 double prob = softmaxProbability(t, actions);
                 double update = alpha * (reward - baseline()) * ((t.equals(chosen) ? 1 : 0) - prob);
                 preferences.put(key, preferences.getOrDefault(key, 0.0) + update);
             }
+            UPDATE.stop(start);
+            steps++;
         }
     }
 
@@ -153,6 +156,41 @@ public class BanditGradientAgent implements Agent {
         return 0.0;
     }
 
+    /**
+     * Sauvegarde les préférences par action, l'état du générateur aléatoire et
+     * le nombre d'étapes jouées.
+     *
+     * @param writer checkpoint en cours de construction
+     *
+     *               Exemple :
+     *               agent.saveCheckpoint(writer);
+     */
+    @Override
+    public void saveCheckpoint(CheckpointWriter writer) {
+        for (Map.Entry<String, Double> entry : preferences.entrySet()) {
+            writer.putDouble("preferences", entry.getKey(), entry.getValue());
+        }
+        writer.putLong("meta", "rng", random.getState());
+        writer.putLong("meta", "steps", steps);
+    }
+
+    /**
+     * Reprend l'apprentissage depuis un checkpoint. Les tables d'un bandit étant
+     * petites, elles sont relues entièrement.
+     *
+     * @param checkpoint checkpoint ouvert
+     *
+     *                   Exemple :
+     *                   agent.loadCheckpoint(Checkpoint.open(path));
+     */
+    @Override
+    public void loadCheckpoint(Checkpoint checkpoint) {
+        preferences.clear();
+        checkpoint.forEach("preferences", (key, value) -> preferences.put(key, value.getDouble(0)));
+        random.setState(checkpoint.getLong("meta", "rng", random.getState()));
+        steps = checkpoint.getLong("meta", "steps", 0);
+    }
+
     /**
      * Retourne la liste des récompenses obtenues au cours de l'entraînement.
      *
@@ -0,0 +1,295 @@
+package fr.polytech.mnia.agent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import fr.polytech.mnia.Evironnement;
+
+/**
+ * DynaQAgent.java
+ *
+ * Agent Dyna-Q : le moteur TD tabulaire (TabularTDAgent, variante
+ * Q_LEARNING) joue les pas réels, simulés par ProB donc coûteux ; chaque mise
+ * à jour réelle est en plus enregistrée dans un modèle appris
+ * (état, action) -> (état suivant, récompense). Un thread de planification
+ * rejoue en arrière-plan des transitions tirées au hasard dans ce modèle et
+ * applique des mises à jour Q-Learning simulées pendant que le thread
+ * principal attend ProB.
+ *
+ * Le rythme de planification est borné : au plus planningRate mises à jour
+ * simulées par mise à jour réelle. La table Q et le modèle sont partagés
+ * sous un verrou tenu seulement pendant les mises à jour, jamais pendant un
+ * appel ProB.
+ *
+ * Le modèle compte, pour chaque couple, les issues observées (état suivant,
+ * récompense) : face à un adversaire aléatoire, une même action mène à
+ * plusieurs états, et la planification tire une issue en proportion de sa
+ * fréquence observée. Il n'est pas sauvegardé dans les checkpoints et se
+ * reconstruit avec l'expérience.
+ *
+ * Exemple d'utilisation :
+ * DynaQAgent agent = new DynaQAgent(0.2, 0.9, 0.1, 20, 10, turns);
+ * agent.train(env, 2000, false);
+ * System.out.println(agent.summary());
+ */
+public class DynaQAgent extends TabularTDAgent {
+
+    private static final int PLANNING_BATCH = 32; // Mises à jour simulées par prise du verrou
+
+    private final double planningRate;
+
+    // Partagé avec le thread de planification, protégé par lock
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition work = lock.newCondition();
+    private final List<int[]> stateActions = new ArrayList<>(); // Actions observées par état
+    private final Map<Long, Integer> modelIndex = new HashMap<>();
+    private long[] modelKeys = new long[1024]; // (état << 32 | action)
+    private int[] modelVisits = new int[1024]; // Nombre d'observations du couple
+    private int[][] modelNext = new int[1024][]; // États suivants observés, -1 si terminal
+    private double[][] modelReward = new double[1024][];
+    private int[][] modelCount = new int[1024][]; // Nombre d'observations de chaque issue
+    private int[] modelOutcomes = new int[1024]; // Nombre d'issues distinctes
+    private int modelSize = 0;
+    private long outcomeCount = 0;
+    private long simulatedUpdates = 0;
+    private boolean planning = false;
+
+    /**
+     * Construit un agent Dyna-Q.
+     *
+     * @param alpha            taux d'apprentissage
+     * @param gamma            facteur d'actualisation
+     * @param epsilon          probabilité d'exploration
+     * @param maxEpisodeLength nombre maximal de coups de l'agent par épisode
+     * @param planningRate     mises à jour simulées par mise à jour réelle (0
+     *                         : Q-Learning seul)
+     * @param turns            règle de tour
+     *
+     *                         Exemple :
+     *                         new DynaQAgent(0.3, 0.9, 0.1, 20, 20,
+     *                         new TicTacToeTurnPolicy(opponent));
+     */
+    public DynaQAgent(double alpha, double gamma, double epsilon, int maxEpisodeLength, double planningRate,
+            TurnPolicy turns) {
+        super(Variant.Q_LEARNING, alpha, gamma, epsilon, maxEpisodeLength, turns);
+        this.planningRate = planningRate;
+    }
+
+    /**
+     * Entraîne l'agent sur un nombre d'épisodes, avec le thread de
+     * planification actif pendant toute la durée de l'appel.
+     *
+     * @param env     environnement d'apprentissage
+     * @param nbSteps nombre d'épisodes
+     * @param verbose true pour tracer chaque coup
+     * @throws Exception en cas d'erreur ProB
+     *
+     *                   Exemple :
+     *                   agent.train(env, 1000, false);
+     */
+    @Override
+    public void train(Evironnement env, int nbSteps, boolean verbose) throws Exception {
+        Thread planner = startPlanner();
+        try {
+            super.train(env, nbSteps, verbose);
+        } finally {
+            stopPlanner(planner);
+        }
+    }
+
+    @Override
+    protected void lockValues() {
+        lock.lock();
+    }
+
+    @Override
+    protected void unlockValues() {
+        lock.unlock();
+    }
+
+    /**
+     * Enregistre la transition réelle dans le modèle et réveille le thread de
+     * planification (verrou tenu).
+     */
+    @Override
+    protected void afterUpdate(int s, int a, double reward, int s2, int[] ids, int n) {
+        if (s2 >= 0) {
+            observeActions(s2, ids, n);
+        }
+        record(s, a, s2, reward);
+        work.signal();
+    }
+
+    /**
+     * Compte une issue observée d'un couple (verrou tenu).
+     */
+    private void record(int s, int a, int s2, double reward) {
+        long key = ((long) s << 32) | (a & 0xffffffffL);
+        Integer index = modelIndex.get(key);
+        if (index == null) {
+            index = modelSize++;
+            modelIndex.put(key, index);
+            if (index >= modelKeys.length) {
+                int capacity = modelKeys.length * 2;
+                modelKeys = Arrays.copyOf(modelKeys, capacity);
+                modelVisits = Arrays.copyOf(modelVisits, capacity);
+                modelNext = Arrays.copyOf(modelNext, capacity);
+                modelReward = Arrays.copyOf(modelReward, capacity);
+                modelCount = Arrays.copyOf(modelCount, capacity);
+                modelOutcomes = Arrays.copyOf(modelOutcomes, capacity);
+            }
+            modelKeys[index] = key;
+            modelNext[index] = new int[2];
+            modelReward[index] = new double[2];
+            modelCount[index] = new int[2];
+        }
+        modelVisits[index]++;
+        int n = modelOutcomes[index];
+        for (int j = 0; j < n; j++) {
+            if (modelNext[index][j] == s2 && Double.compare(modelReward[index][j], reward) == 0) {
+                modelCount[index][j]++;
+                return;
+            }
+        }
+        if (n == modelNext[index].length) {
+            modelNext[index] = Arrays.copyOf(modelNext[index], n * 2);
+            modelReward[index] = Arrays.copyOf(modelReward[index], n * 2);
+            modelCount[index] = Arrays.copyOf(modelCount[index], n * 2);
+        }
+        modelNext[index][n] = s2;
+        modelReward[index][n] = reward;
+        modelCount[index][n] = 1;
+        modelOutcomes[index] = n + 1;
+        outcomeCount++;
+    }
+
+    /**
+     * Tire une issue d'un couple en proportion de sa fréquence observée
+     * (verrou tenu).
+     *
+     * @return indice de l'issue dans les tableaux du couple
+     */
+    private int sampleOutcome(int index, Random plannerRandom) {
+        int r = plannerRandom.nextInt(modelVisits[index]);
+        int j = 0;
+        while (r >= modelCount[index][j]) {
+            r -= modelCount[index][j];
+            j++;
+        }
+        return j;
+    }
+
+    /**
+     * Mémorise les actions disponibles d'un état à sa première visite
+     * (verrou tenu).
+     */
+    private void observeActions(int s, int[] ids, int n) {
+        while (stateActions.size() <= s) {
+            stateActions.add(null);
+        }
+        if (stateActions.get(s) == null) {
+            stateActions.set(s, Arrays.copyOf(ids, n));
+        }
+    }
+
+    private Thread startPlanner() {
+        lock.lock();
+        try {
+            planning = true;
+        } finally {
+            lock.unlock();
+        }
+        Random plannerRandom = new Random(random.nextLong());
+        Thread planner = new Thread(() -> plan(plannerRandom), "dyna-planner");
+        planner.setDaemon(true);
+        planner.start();
+        return planner;
+    }
+
+    private void stopPlanner(Thread planner) throws InterruptedException {
+        lock.lock();
+        try {
+            planning = false;
+            work.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        planner.join();
+    }
+
+    /**
+     * Boucle du thread de planification : tire des couples du modèle, puis
+     * une issue de chacun selon les fréquences observées, et applique des
+     * mises à jour simulées, par lots, sans dépasser
+     * planningRate mises à jour simulées par mise à jour réelle.
+     */
+    private void plan(Random plannerRandom) {
+        while (true) {
+            lock.lock();
+            try {
+                while (planning && (modelSize == 0 || simulatedUpdates >= planningRate * getUpdates())) {
+                    work.awaitUninterruptibly();
+                }
+                if (!planning) {
+                    return;
+                }
+                for (int k = 0; k < PLANNING_BATCH && simulatedUpdates < planningRate * getUpdates(); k++) {
+                    int i = plannerRandom.nextInt(modelSize);
+                    int j = sampleOutcome(i, plannerRandom);
+                    long key = modelKeys[i];
+                    int s2 = modelNext[i][j];
+                    int[] ids = s2 >= 0 ? stateActions.get(s2) : null;
+                    replay((int) (key >>> 32), (int) key, modelReward[i][j], s2, ids, ids == null ? 0 : ids.length);
+                    simulatedUpdates++;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Rapport entre mises à jour simulées et réelles.
+     *
+     * @return simulées / réelles, 0 avant le premier pas
+     *
+     *         Exemple :
+     *         double ratio = agent.getPlanningRatio();
+     */
+    public double getPlanningRatio() {
+        lock.lock();
+        try {
+            long realUpdates = getUpdates();
+            return realUpdates == 0 ? 0.0 : (double) simulatedUpdates / realUpdates;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Résumé affiché en fin d'exécution : celui du moteur TD, suivi des
+     * mises à jour simulées et de la taille du modèle.
+     *
+     * @return résumé TD et planification
+     *
+     *         Exemple :
+     *         System.out.println(agent.summary());
+     */
+    @Override
+    public String summary() {
+        lock.lock();
+        try {
+            return String.format("%s ; Dyna : %d mises à jour simulées (ratio %.1f), modèle de %d couples "
+                    + "(%d issues)", super.summary(), simulatedUpdates, getPlanningRatio(), modelSize,
+                    outcomeCount);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
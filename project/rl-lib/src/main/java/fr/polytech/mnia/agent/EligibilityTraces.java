@@ -0,0 +1,170 @@
+package fr.polytech.mnia.agent;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import de.prob.statespace.State;
+import de.prob.statespace.Transition;
+
+/**
+ * EligibilityTraces.java
+ *
+ * Traces d'éligibilité creuses pour les agents TD(λ) tabulaires.
+ *
+ * Seules les paires (état, action) dont la trace est active sont conservées,
+ * dans des tableaux parallèles compacts ; une table de hachage donne la
+ * position d'une paire (la transition ProB identifie à elle seule son état
+ * source et son action). Après chaque décroissance, les traces passées sous le
+ * seuil sont retirées par échange avec la dernière : le coût d'un pas est
+ * proportionnel au nombre de traces actives, jamais à la taille de la table Q.
+ *
+ * Exemple d'utilisation :
+ * EligibilityTraces traces = new EligibilityTraces(EligibilityTraces.Kind.REPLACING, 0.01);
+ * traces.visit(state, action);
+ * traces.forEach((s, a, e) -> Q.put(s, a, Q.get(s, a) + alpha * delta * e));
+ * traces.decay(gamma * lambda);
+ */
+public class EligibilityTraces {
+
+    /**
+     * Règle appliquée lors d'une nouvelle visite d'une paire.
+     */
+    public enum Kind {
+        /** La trace est remise à 1. */
+        REPLACING,
+        /** La trace est augmentée de 1. */
+        ACCUMULATING
+    }
+
+    /**
+     * Reçoit chaque trace active.
+     */
+    public interface Visitor {
+        /**
+         * @param state       état de la paire
+         * @param action      action de la paire
+         * @param eligibility valeur de la trace
+         */
+        void visit(State state, Transition action, double eligibility);
+    }
+
+    private final Kind kind;
+    private final double threshold;
+    private final Map<Transition, Integer> positions = new HashMap<>();
+    private State[] states = new State[16];
+    private Transition[] actions = new Transition[16];
+    private double[] values = new double[16];
+    private int size = 0;
+    private int peak = 0; // Plus grand nombre de traces actives simultanément
+
+    /**
+     * Construit un ensemble de traces vide.
+     *
+     * @param kind      traces remplaçantes ou cumulatives
+     * @param threshold valeur en dessous de laquelle une trace est supprimée
+     *
+     *                  Exemple :
+     *                  new EligibilityTraces(EligibilityTraces.Kind.ACCUMULATING, 1e-3);
+     */
+    public EligibilityTraces(Kind kind, double threshold) {
+        this.kind = kind;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Enregistre une visite de la paire (état, action).
+     *
+     * @param state  état
+     * @param action action jouée dans cet état
+     */
+    public void visit(State state, Transition action) {
+        Integer position = positions.get(action);
+        if (position != null) {
+            values[position] = kind == Kind.REPLACING ? 1.0 : values[position] + 1.0;
+            return;
+        }
+        if (size == values.length) {
+            states = Arrays.copyOf(states, size * 2);
+            actions = Arrays.copyOf(actions, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        states[size] = state;
+        actions[size] = action;
+        values[size] = 1.0;
+        positions.put(action, size);
+        size++;
+        peak = Math.max(peak, size);
+    }
+
+    /**
+     * Parcourt les traces actives.
+     *
+     * @param visitor reçoit chaque paire et sa trace
+     */
+    public void forEach(Visitor visitor) {
+        for (int i = 0; i < size; i++) {
+            visitor.visit(states[i], actions[i], values[i]);
+        }
+    }
+
+    /**
+     * Multiplie toutes les traces par un facteur (γλ) et supprime celles qui
+     * passent sous le seuil.
+     *
+     * @param factor facteur de décroissance
+     */
+    public void decay(double factor) {
+        int i = 0;
+        while (i < size) {
+            double value = values[i] * factor;
+            if (value < threshold) {
+                removeAt(i); // La dernière trace prend la place i, examinée au tour suivant
+            } else {
+                values[i++] = value;
+            }
+        }
+    }
+
+    private void removeAt(int i) {
+        positions.remove(actions[i]);
+        int last = --size;
+        if (i != last) {
+            states[i] = states[last];
+            actions[i] = actions[last];
+            values[i] = values[last];
+            positions.put(actions[i], i);
+        }
+        states[last] = null;
+        actions[last] = null;
+    }
+
+    /**
+     * Supprime toutes les traces (fin d'épisode, ou action exploratoire en
+     * Q(λ) de Watkins).
+     */
+    public void clear() {
+        Arrays.fill(states, 0, size, null);
+        Arrays.fill(actions, 0, size, null);
+        positions.clear();
+        size = 0;
+    }
+
+    /**
+     * Nombre de traces actives.
+     *
+     * @return traces actives
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Plus grand nombre de traces actives observé.
+     *
+     * @return pic de traces actives
+     */
+    public int getPeak() {
+        return peak;
+    }
+}
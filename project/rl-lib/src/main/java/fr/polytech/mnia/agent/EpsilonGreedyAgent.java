@@ -4,10 +4,14 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
 
 import fr.polytech.mnia.Evironnement;
-import fr.polytech.mnia.reward.YouTubeRewardFunction;
+import fr.polytech.mnia.checkpoint.Checkpoint;
+import fr.polytech.mnia.checkpoint.CheckpointWriter;
+import fr.polytech.mnia.checkpoint.Checkpointable;
+import fr.polytech.mnia.checkpoint.ResumableRandom;
+import fr.polytech.mnia.metrics.MetricsRegistry;
+import fr.polytech.mnia.metrics.Timer;
 import de.prob.statespace.State;
 import de.prob.statespace.Transition;
 
@@ -25,14 +29,17 @@ import de.prob.statespace.Transition;
  * Agent agent = new EpsilonGreedyAgent(0.1);
  * agent.train(env, 1000, true);
  */
-public class EpsilonGreedyAgent implements Agent {
+public class EpsilonGreedyAgent implements Agent, Checkpointable {
+
+    private static final Timer UPDATE = MetricsRegistry.get().timer("agent.update");
 
     private final double epsilon;
     private final Map<String, Double> estimates = new HashMap<>();
     private final Map<String, Integer> counts = new HashMap<>();
-    private final Random random = new Random();
+    private final ResumableRandom random = new ResumableRandom();
     private final List<Double> rewards = new ArrayList<>();
     private final List<String> actionsChosen = new ArrayList<>();
+    private long steps = 0; // Nombre total d'étapes jouées, reprise comprise
 
     /**
      * Construit un agent Epsilon-Greedy avec une probabilité ε d'exploration.
@@ -72,10 +79,6 @@ public class EpsilonGreedyAgent implements Agent {
                 chosen = bestAction(actions);
             }
 
-            if (env.getRewardFunction() instanceof YouTubeRewardFunction) {
-                ((YouTubeRewardFunction) env.getRewardFunction()).updateChosenVideo(chosen);
-            }
-
             env.runAction(chosen);
             state = env.getState();
 
@@ -84,18 +87,17 @@ public class EpsilonGreedyAgent implements Agent {
             actionsChosen.add(chosen.getParameterPredicate());
 
             if (verbose) {
-                System.out.println("Evaluation : " + state.eval(env.getRewardVariable()));
-                System.out.println("State ID : " + state.getId());
-                env.getAnimator().printState(state);
-                env.getAnimator().printActions(env.getActions());
-                System.out.println();
+                env.traceStep(getClass().getSimpleName(), steps, chosen, reward);
             }
 
+            long start = UPDATE.start();
             String key = chosen.getName() + chosen.getParameterPredicate();
             counts.put(key, counts.getOrDefault(key, 0) + 1);
             double oldEstimate = estimates.getOrDefault(key, 0.0);
             double newEstimate = oldEstimate + (1.0 / counts.get(key)) * (reward - oldEstimate);
             estimates.put(key, newEstimate);
+            UPDATE.stop(start);
+            steps++;
         }
     }
 
@@ -122,6 +124,46 @@ public class EpsilonGreedyAgent implements Agent {
         return best;
     }
 
+    /**
+     * Sauvegarde les estimations et les compteurs par action, l'état du
+     * générateur aléatoire et le nombre d'étapes jouées.
+     *
+     * @param writer checkpoint en cours de construction
+     *
+     *               Exemple :
+     *               agent.saveCheckpoint(writer);
+     */
+    @Override
+    public void saveCheckpoint(CheckpointWriter writer) {
+        for (Map.Entry<String, Double> entry : estimates.entrySet()) {
+            writer.putDouble("estimates", entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            writer.putLong("counts", entry.getKey(), entry.getValue());
+        }
+        writer.putLong("meta", "rng", random.getState());
+        writer.putLong("meta", "steps", steps);
+    }
+
+    /**
+     * Reprend l'apprentissage depuis un checkpoint. Les tables d'un bandit étant
+     * petites, elles sont relues entièrement.
+     *
+     * @param checkpoint checkpoint ouvert
+     *
+     *                   Exemple :
+     *                   agent.loadCheckpoint(Checkpoint.open(path));
+     */
+    @Override
+    public void loadCheckpoint(Checkpoint checkpoint) {
+        estimates.clear();
+        checkpoint.forEach("estimates", (key, value) -> estimates.put(key, value.getDouble(0)));
+        counts.clear();
+        checkpoint.forEach("counts", (key, value) -> counts.put(key, (int) value.getLong(0)));
+        random.setState(checkpoint.getLong("meta", "rng", random.getState()));
+        steps = checkpoint.getLong("meta", "steps", 0);
+    }
+
     /**
      * Retourne la liste des récompenses obtenues au cours de l'entraînement.
      *
@@ -0,0 +1,33 @@
+package fr.polytech.mnia.agent;
+
+import fr.polytech.mnia.statespace.CompactStateGraph;
+
+/**
+ * GraphPlanningAgent.java
+ *
+ * Agent de planification capable de travailler directement sur un graphe
+ * d'états déjà énuméré (par exemple relu depuis le cache disque), sans
+ * environnement ProB.
+ *
+ * Le résultat (récompenses et actions de la trajectoire simulée) est le même
+ * que celui de train(env, ...) sur le même modèle.
+ *
+ * Exemple d'utilisation :
+ * GraphPlanningAgent agent = new ValueIterationAgent(0.9, 0.01);
+ * agent.plan(graph, 1000, false);
+ */
+public interface GraphPlanningAgent extends Agent {
+
+    /**
+     * Calcule la politique sur le graphe puis simule la trajectoire optimale
+     * depuis l'état 0.
+     *
+     * @param graph   graphe des états accessibles
+     * @param nbSteps nombre maximal d'itérations
+     * @param verbose true pour un affichage détaillé
+     *
+     *                Exemple :
+     *                agent.plan(graph, 500, false);
+     */
+    void plan(CompactStateGraph graph, int nbSteps, boolean verbose);
+}
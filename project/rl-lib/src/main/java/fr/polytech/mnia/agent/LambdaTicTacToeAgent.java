@@ -0,0 +1,243 @@
+package fr.polytech.mnia.agent;
+
+import fr.polytech.mnia.Evironnement;
+import fr.polytech.mnia.checkpoint.ResumableRandom;
+import fr.polytech.mnia.metrics.FormulaProfiler;
+import fr.polytech.mnia.metrics.MetricsRegistry;
+import fr.polytech.mnia.metrics.Timer;
+import fr.polytech.mnia.tictactoe.Opponent;
+import fr.polytech.mnia.tictactoe.RandomOpponent;
+import fr.polytech.mnia.tictactoe.TicTacToeEpisodeManager;
+import de.prob.statespace.State;
+import de.prob.statespace.Transition;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * LambdaTicTacToeAgent.java
+ *
+ * Agent SARSA(λ) ou Q(λ) (Watkins) à traces d'éligibilité pour le jeu du
+ * Tic-Tac-Toe, joué comme joueur 0 contre un adversaire interchangeable.
+ *
+ * Une transition relie deux états où c'est à l'agent de jouer (le coup de
+ * l'adversaire fait partie de la dynamique) ; la récompense est celle de
+ * l'état atteint. Grâce aux traces, la récompense de fin de partie est
+ * propagée à tous les coups de l'épisode en une seule partie, au lieu d'un
+ * coup par partie avec une mise à jour à un pas.
+ *
+ * Les traces sont creuses (EligibilityTraces) : chaque pas coûte un temps
+ * proportionnel au nombre de traces actives.
+ *
+ * Exemple d'utilisation :
+ * Agent agent = new LambdaTicTacToeAgent(0.3, 0.9, 0.1, 0.8, false, EligibilityTraces.Kind.REPLACING);
+ * agent.train(env, 1000, false);
+ */
+public class LambdaTicTacToeAgent implements Agent {
+
+    private static final Timer UPDATE = MetricsRegistry.get().timer("agent.update");
+    private static final double TRACE_THRESHOLD = 1e-3;
+
+    private final double alpha;
+    private final double gamma;
+    private final double epsilon;
+    private final double lambda;
+    private final boolean watkins; // true : Q(λ), false : SARSA(λ)
+    private final QTable Q = new QTable();
+    private final EligibilityTraces traces;
+    private final ResumableRandom random = new ResumableRandom();
+    private Opponent opponent = new RandomOpponent(random);
+    private long updates = 0;
+    private long traceUpdates = 0; // Nombre total de valeurs Q mises à jour par les traces
+    private final List<Double> rewards = new ArrayList<>();
+    private final List<String> actionsChosen = new ArrayList<>();
+
+    /**
+     * Construit un agent à traces d'éligibilité.
+     *
+     * @param alpha   taux d'apprentissage
+     * @param gamma   facteur d'actualisation
+     * @param epsilon probabilité d'exploration
+     * @param lambda  facteur de décroissance des traces (0 = un pas, 1 = Monte
+     *                Carlo)
+     * @param watkins true pour Q(λ) de Watkins, false pour SARSA(λ)
+     * @param kind    traces remplaçantes ou cumulatives
+     *
+     *                Exemple :
+     *                LambdaTicTacToeAgent agent = new LambdaTicTacToeAgent(0.3,
+     *                0.9, 0.1, 0.8, true,
+     *                EligibilityTraces.Kind.ACCUMULATING);
+     */
+    public LambdaTicTacToeAgent(double alpha, double gamma, double epsilon, double lambda, boolean watkins,
+            EligibilityTraces.Kind kind) {
+        this.alpha = alpha;
+        this.gamma = gamma;
+        this.epsilon = epsilon;
+        this.lambda = lambda;
+        this.watkins = watkins;
+        this.traces = new EligibilityTraces(kind, TRACE_THRESHOLD);
+    }
+
+    /**
+     * Remplace l'adversaire contre lequel l'agent s'entraîne.
+     *
+     * @param opponent adversaire jouant le rôle du joueur 1
+     *
+     *                 Exemple :
+     *                 agent.setOpponent(new MinimaxOpponent(new Random()));
+     */
+    public void setOpponent(Opponent opponent) {
+        this.opponent = opponent;
+    }
+
+    /**
+     * Entraîne l'agent pendant un certain nombre de parties.
+     *
+     * @param env        environnement du jeu
+     * @param nbEpisodes nombre de parties
+     * @param verbose    true pour afficher la grille après chaque coup
+     * @throws Exception en cas d'erreur pendant l'exécution
+     *
+     *                   Exemple :
+     *                   agent.train(env, 1000, false);
+     */
+    @Override
+    public void train(Evironnement env, int nbEpisodes, boolean verbose) throws Exception {
+        TicTacToeEpisodeManager manager = new TicTacToeEpisodeManager(env);
+        for (int episode = 0; episode < nbEpisodes; episode++) {
+            env.reset();
+            traces.clear();
+            State state = agentTurn(env, env.getInitialState(), verbose, manager);
+            if (env.isTerminal(state)) {
+                continue;
+            }
+            List<Transition> actions = env.getActions(state);
+            Transition action = chooseAction(state, actions);
+
+            while (true) {
+                env.runAction(action);
+                actionsChosen.add(action.getParameterPredicate());
+                if (verbose) {
+                    System.out.println("\n[Agent 0 joue] : " + action.getName() + " " + action.getParameterPredicate());
+                    manager.prettyPrintGrid();
+                }
+                State next = agentTurn(env, env.getState(), verbose, manager);
+                double reward = env.getReward(next);
+                rewards.add(reward);
+
+                boolean terminal = env.isTerminal(next);
+                List<Transition> nextActions = terminal ? null : env.getActions(next);
+                Transition nextAction = null;
+                double target = reward;
+                boolean greedy = true;
+                if (nextActions != null && !nextActions.isEmpty()) {
+                    nextAction = chooseAction(next, nextActions);
+                    Transition best = Q.best(next, nextActions);
+                    greedy = Q.get(next, nextAction) == Q.get(next, best);
+                    target += gamma * (watkins ? Q.get(next, best) : Q.get(next, nextAction));
+                }
+
+                long start = UPDATE.start();
+                update(target - Q.get(state, action), state, action);
+                if (watkins && !greedy) {
+                    traces.clear(); // Action exploratoire : la suite ne suit plus la politique gloutonne
+                } else {
+                    traces.decay(gamma * lambda);
+                }
+                UPDATE.stop(start);
+
+                if (nextAction == null) {
+                    break;
+                }
+                state = next;
+                action = nextAction;
+            }
+        }
+    }
+
+    /**
+     * Applique l'erreur TD à toutes les paires dont la trace est active.
+     */
+    private void update(double delta, State state, Transition action) {
+        traces.visit(state, action);
+        double step = alpha * delta;
+        traces.forEach((s, a, e) -> Q.put(s, a, Q.get(s, a) + step * e));
+        traceUpdates += traces.size();
+        updates++;
+    }
+
+    /**
+     * Fait jouer l'adversaire jusqu'au tour de l'agent ou à la fin de la
+     * partie.
+     *
+     * @return état où l'agent doit jouer, ou état terminal
+     */
+    private State agentTurn(Evironnement env, State state, boolean verbose, TicTacToeEpisodeManager manager) {
+        while (!env.isTerminal(state) && !FormulaProfiler.eval(state, "turn").toString().trim().equals("0")) {
+            List<Transition> actions = env.getActions(state);
+            if (actions.isEmpty()) {
+                break;
+            }
+            Transition move = opponent.chooseMove(state, actions);
+            env.runAction(move);
+            state = env.getState();
+            if (verbose) {
+                System.out.println("\n[Joueur 1 (" + opponent.getName() + ") joue] : " + move.getName() + " "
+                        + move.getParameterPredicate());
+                manager.prettyPrintGrid();
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Choix ε-glouton selon la table Q.
+     */
+    private Transition chooseAction(State state, List<Transition> actions) {
+        if (random.nextDouble() < epsilon) {
+            return actions.get(random.nextInt(actions.size()));
+        }
+        return Q.best(state, actions);
+    }
+
+    /**
+     * Résumé : mises à jour TD, valeurs Q modifiées par mise à jour et pic de
+     * traces actives.
+     *
+     * @return ligne de résumé
+     *
+     *         Exemple :
+     *         System.out.println(agent.summary());
+     */
+    public String summary() {
+        return String.format("%s, λ=%.2f, mises à jour=%d, %.1f valeurs Q par mise à jour, pic de traces=%d, états=%d",
+                watkins ? "Q(λ)" : "SARSA(λ)", lambda, updates, updates == 0 ? 0.0 : (double) traceUpdates / updates,
+                traces.getPeak(), Q.size());
+    }
+
+    /**
+     * Retourne les récompenses obtenues après chaque coup de l'agent.
+     *
+     * @return liste des récompenses (Double)
+     *
+     *         Exemple :
+     *         List<Double> recompenses = agent.getRewards();
+     */
+    @Override
+    public List<Double> getRewards() {
+        return rewards;
+    }
+
+    /**
+     * Retourne les coups joués par l'agent.
+     *
+     * @return liste d'actions choisies (String)
+     *
+     *         Exemple :
+     *         List<String> actions = agent.getActionsChosen();
+     */
+    @Override
+    public List<String> getActionsChosen() {
+        return actionsChosen;
+    }
+}
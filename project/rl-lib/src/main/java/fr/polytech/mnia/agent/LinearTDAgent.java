@@ -0,0 +1,317 @@
+package fr.polytech.mnia.agent;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import fr.polytech.mnia.Evironnement;
+import fr.polytech.mnia.checkpoint.Checkpoint;
+import fr.polytech.mnia.checkpoint.CheckpointWriter;
+import fr.polytech.mnia.checkpoint.Checkpointable;
+import fr.polytech.mnia.checkpoint.ResumableRandom;
+import fr.polytech.mnia.encoding.FeatureExtractor;
+import fr.polytech.mnia.metrics.MetricsRegistry;
+import fr.polytech.mnia.metrics.Timer;
+import de.prob.statespace.State;
+import de.prob.statespace.Transition;
+
+/**
+ * LinearTDAgent.java
+ *
+ * Agent SARSA ou Q-Learning semi-gradient à approximation linéaire :
+ * Q(s, a) = somme des poids w[a][f] des traits f actifs dans s.
+ *
+ * Les traits sont calculés par un FeatureExtractor (un appel ProB groupé par
+ * état) ; les poids sont rangés dans un tableau de double, un bloc de
+ * dimension() poids par action rencontrée (clé nom + paramètres). La mémoire
+ * dépend donc du nombre de traits et d'actions, jamais du nombre d'états, ce
+ * qui convient aux modèles comme Scheduler.
+ *
+ * Mise à jour, pour chaque trait actif f de s :
+ * w[a][f] += (alpha / nombre de traits actifs) * (cible - Q(s, a))
+ * avec cible = r + gamma * Q(s', a') (SARSA) ou r + gamma * max Q(s', .)
+ * (Q-Learning).
+ *
+ * Exemple d'utilisation :
+ * Agent agent = new LinearTDAgent(features, LinearTDAgent.Mode.SARSA, 0.1, 0.95, 0.1, 200);
+ * agent.train(env, 500, false);
+ */
+public class LinearTDAgent implements Agent, Checkpointable {
+
+    /**
+     * Cible de la mise à jour TD.
+     */
+    public enum Mode {
+        /** Valeur de l'action effectivement choisie ensuite (on-policy). */
+        SARSA,
+        /** Meilleure valeur de l'état suivant (off-policy). */
+        Q_LEARNING
+    }
+
+    private static final Timer UPDATE = MetricsRegistry.get().timer("agent.update");
+
+    private final FeatureExtractor features;
+    private final Mode mode;
+    private final double alpha;
+    private final double gamma;
+    private final double epsilon;
+    private final int maxEpisodeLength;
+    private final int dimension;
+    private final ResumableRandom random = new ResumableRandom();
+    private final Map<String, Integer> actionIndex = new HashMap<>();
+    private double[] weights; // Bloc [a * dimension, (a + 1) * dimension) pour l'action a
+    private int[] phi; // Traits actifs de l'état courant
+    private int[] phiNext; // Traits actifs de l'état suivant
+    private long episodesDone = 0;
+    private final List<Double> rewards = new ArrayList<>();
+    private final List<String> actionsChosen = new ArrayList<>();
+
+    /**
+     * Construit un agent TD linéaire.
+     *
+     * @param features         extracteur de traits
+     * @param mode             SARSA ou Q_LEARNING
+     * @param alpha            taux d'apprentissage (réparti entre les traits
+     *                         actifs)
+     * @param gamma            facteur d'actualisation
+     * @param epsilon          probabilité d'exploration
+     * @param maxEpisodeLength nombre maximal de pas par épisode
+     *
+     *                         Exemple :
+     *                         LinearTDAgent agent = new LinearTDAgent(features,
+     *                         LinearTDAgent.Mode.Q_LEARNING, 0.2, 0.9, 0.05,
+     *                         100);
+     */
+    public LinearTDAgent(FeatureExtractor features, Mode mode, double alpha, double gamma, double epsilon,
+            int maxEpisodeLength) {
+        this.features = features;
+        this.mode = mode;
+        this.alpha = alpha;
+        this.gamma = gamma;
+        this.epsilon = epsilon;
+        this.maxEpisodeLength = maxEpisodeLength;
+        this.dimension = features.dimension();
+        this.weights = new double[dimension * 8];
+        this.phi = new int[features.maxActive()];
+        this.phiNext = new int[features.maxActive()];
+    }
+
+    /**
+     * Entraîne l'agent sur un nombre d'épisodes. Chaque épisode part de l'état
+     * initial et s'arrête sur un état terminal, sans action, ou après
+     * maxEpisodeLength pas.
+     *
+     * @param env     environnement d'apprentissage
+     * @param nbSteps nombre d'épisodes
+     * @param verbose true pour tracer chaque pas
+     * @throws Exception en cas d'erreur ProB
+     *
+     *                   Exemple :
+     *                   agent.train(env, 1000, false);
+     */
+    @Override
+    public void train(Evironnement env, int nbSteps, boolean verbose) throws Exception {
+        for (int episode = 0; episode < nbSteps; episode++) {
+            env.reset();
+            List<Transition> actions = env.getActions();
+            if (actions.isEmpty()) {
+                continue;
+            }
+            int n = features.extract(env.getState(), phi);
+            int a = choose(actions, phi, n);
+            actionsChosen.add(key(actions.get(a)));
+            double episodeReturn = 0.0;
+
+            for (int t = 0; t < maxEpisodeLength; t++) {
+                int ai = index(actions.get(a));
+                env.runAction(actions.get(a));
+                State next = env.getState();
+                double reward = env.getReward(next);
+                episodeReturn += reward;
+                if (verbose) {
+                    env.traceStep(getClass().getSimpleName(), t, actions.get(a), reward);
+                }
+
+                List<Transition> nextActions = env.isTerminal(next) ? null : env.getActions();
+                double target = reward;
+                int nextA = -1;
+                int nNext = 0;
+                if (nextActions != null && !nextActions.isEmpty()) {
+                    nNext = features.extract(next, phiNext);
+                    nextA = choose(nextActions, phiNext, nNext);
+                    target += gamma * (mode == Mode.SARSA ? q(phiNext, nNext, index(nextActions.get(nextA)))
+                            : maxQ(nextActions, phiNext, nNext));
+                }
+
+                long start = UPDATE.start();
+                update(phi, n, ai, target);
+                UPDATE.stop(start);
+
+                if (nextA < 0) {
+                    break;
+                }
+                int[] swap = phi;
+                phi = phiNext;
+                phiNext = swap;
+                n = nNext;
+                actions = nextActions;
+                a = nextA;
+            }
+            rewards.add(episodeReturn);
+            episodesDone++;
+        }
+    }
+
+    /**
+     * Q(s, a) : somme des poids des traits actifs dans le bloc de l'action.
+     */
+    private double q(int[] active, int n, int action) {
+        int base = action * dimension;
+        double sum = 0.0;
+        for (int i = 0; i < n; i++) {
+            sum += weights[base + active[i]];
+        }
+        return sum;
+    }
+
+    private double maxQ(List<Transition> actions, int[] active, int n) {
+        double best = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < actions.size(); i++) {
+            best = Math.max(best, q(active, n, index(actions.get(i))));
+        }
+        return best;
+    }
+
+    /**
+     * Descente de gradient sur les poids des traits actifs.
+     */
+    private void update(int[] active, int n, int action, double target) {
+        if (n == 0) {
+            return;
+        }
+        int base = action * dimension;
+        double step = alpha / n * (target - q(active, n, action));
+        for (int i = 0; i < n; i++) {
+            weights[base + active[i]] += step;
+        }
+    }
+
+    /**
+     * Choix epsilon-glouton, au hasard entre les actions de même valeur.
+     *
+     * @return indice de l'action dans actions
+     */
+    private int choose(List<Transition> actions, int[] active, int n) {
+        if (random.nextDouble() < epsilon) {
+            return random.nextInt(actions.size());
+        }
+        int best = 0;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        int ties = 0;
+        for (int i = 0; i < actions.size(); i++) {
+            double value = q(active, n, index(actions.get(i)));
+            if (value > bestValue) {
+                bestValue = value;
+                best = i;
+                ties = 1;
+            } else if (value == bestValue && random.nextInt(++ties) == 0) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Indice du bloc de poids d'une action, alloué à la première rencontre.
+     */
+    private int index(Transition t) {
+        return index(key(t));
+    }
+
+    private int index(String key) {
+        Integer index = actionIndex.get(key);
+        if (index == null) {
+            index = actionIndex.size();
+            actionIndex.put(key, index);
+            if ((index + 1) * dimension > weights.length) {
+                weights = Arrays.copyOf(weights, weights.length * 2);
+            }
+        }
+        return index;
+    }
+
+    private static String key(Transition t) {
+        return t.getName() + "(" + t.getParameterPredicate() + ")";
+    }
+
+    /**
+     * Sauvegarde les poids (un bloc par action), le générateur aléatoire et
+     * le nombre d'épisodes joués.
+     *
+     * @param writer checkpoint en cours de construction
+     *
+     *               Exemple :
+     *               agent.saveCheckpoint(writer);
+     */
+    @Override
+    public void saveCheckpoint(CheckpointWriter writer) {
+        for (Map.Entry<String, Integer> entry : actionIndex.entrySet()) {
+            ByteBuffer block = ByteBuffer.allocate(dimension * Double.BYTES);
+            block.asDoubleBuffer().put(weights, entry.getValue() * dimension, dimension);
+            writer.put("weights", entry.getKey(), block.array());
+        }
+        writer.putLong("meta", "dimension", dimension);
+        writer.putLong("meta", "rng", random.getState());
+        writer.putLong("meta", "episodes", episodesDone);
+    }
+
+    /**
+     * Reprend l'apprentissage depuis un checkpoint. Les poids ne sont relus
+     * que si le checkpoint a été écrit avec le même nombre de traits.
+     *
+     * @param checkpoint checkpoint ouvert
+     *
+     *                   Exemple :
+     *                   agent.loadCheckpoint(Checkpoint.open(path));
+     */
+    @Override
+    public void loadCheckpoint(Checkpoint checkpoint) {
+        if (checkpoint.getLong("meta", "dimension", -1) == dimension) {
+            checkpoint.forEach("weights", (key, value) -> {
+                int offset = index(key) * dimension; // Peut agrandir weights
+                value.duplicate().asDoubleBuffer().get(weights, offset, dimension);
+            });
+        }
+        random.setState(checkpoint.getLong("meta", "rng", random.getState()));
+        episodesDone = checkpoint.getLong("meta", "episodes", 0);
+    }
+
+    /**
+     * Retourne le retour (somme des récompenses) de chaque épisode.
+     *
+     * @return liste des retours (Double)
+     *
+     *         Exemple :
+     *         List<Double> retours = agent.getRewards();
+     */
+    @Override
+    public List<Double> getRewards() {
+        return rewards;
+    }
+
+    /**
+     * Retourne la première action de chaque épisode.
+     *
+     * @return liste d'actions choisies (String)
+     *
+     *         Exemple :
+     *         List<String> actions = agent.getActionsChosen();
+     */
+    @Override
+    public List<String> getActionsChosen() {
+        return actionsChosen;
+    }
+}
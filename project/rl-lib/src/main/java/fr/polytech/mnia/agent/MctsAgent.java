@@ -0,0 +1,510 @@
+package fr.polytech.mnia.agent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import fr.polytech.mnia.Evironnement;
+import fr.polytech.mnia.ProBInstancePool;
+import de.prob.statespace.State;
+import de.prob.statespace.Transition;
+
+/**
+ * MctsAgent.java
+ *
+ * Agent de planification en ligne par recherche arborescente Monte Carlo
+ * (MCTS), pour les modèles trop grands pour être énumérés.
+ *
+ * À chaque coup, l'agent construit un arbre depuis l'état courant :
+ * - sélection par UCT (moyenne + c * sqrt(ln N / n)),
+ * - expansion d'un seul enfant par simulation,
+ * - simulation (rollout) par une RolloutPolicy sur au plus rolloutDepth pas,
+ * - rétropropagation de la somme actualisée des récompenses.
+ * Un TurnPolicy indique à qui est le tour : dans les nœuds de l'autre camp,
+ * UCT choisit le coup qui minimise la valeur de l'agent (recherche
+ * minimax), et pendant la partie réelle ses coups sont joués par
+ * TurnPolicy.otherMove. Avec TurnPolicy.single(), toutes les transitions du
+ * modèle sont des choix de l'agent, comme pour ValueIterationAgent.
+ *
+ * Parallélisation à la racine : chaque thread de recherche possède son propre
+ * environnement (une instance ProB prêtée par un ProBInstancePool) et son
+ * propre arbre ; les visites des actions de la racine sont additionnées entre
+ * les arbres pour choisir le coup. Les arbres sont identifiés par action (nom
+ * et paramètres), pas par identifiant d'état ProB, qui diffère d'une instance
+ * à l'autre.
+ *
+ * Réutilisation de l'arbre : après un coup, le sous-arbre de l'action jouée
+ * devient la nouvelle racine de chaque arbre, avec ses statistiques.
+ *
+ * Exemple d'utilisation :
+ * MctsAgent agent = new MctsAgent(2000, 4, 1.4, 0.95, 20, RolloutPolicy.random());
+ * agent.train(env, 50, false);
+ * System.out.println(agent.summary());
+ */
+public class MctsAgent implements Agent {
+
+    /**
+     * Nœud d'un arbre : état atteint, récompense à l'arrivée et statistiques
+     * des simulations passées par ce nœud (valeurs comptées après l'arrivée).
+     */
+    private static final class Node {
+        final State state;
+        final double reward;
+        final boolean terminal;
+        final boolean agentTurn; // false si l'autre camp joue depuis ce nœud
+        List<Transition> actions; // null tant que le nœud n'est pas développé
+        Node[] children;
+        int expanded = 0; // Les enfants [0, expanded) sont créés
+        long visits = 0;
+        double total = 0.0;
+
+        Node(State state, double reward, boolean terminal, boolean agentTurn) {
+            this.state = state;
+            this.reward = reward;
+            this.terminal = terminal;
+            this.agentTurn = agentTurn;
+        }
+    }
+
+    /**
+     * Thread de recherche : un environnement, un arbre et un générateur
+     * aléatoire propres.
+     */
+    private final class Worker implements Callable<Void> {
+        final Evironnement env;
+        final ProBInstancePool.Lease lease; // null pour l'environnement principal
+        final Random random = new Random();
+        final List<Node> path = new ArrayList<>();
+        Node root;
+        int budget;
+
+        Worker(Evironnement env, ProBInstancePool.Lease lease) {
+            this.env = env;
+            this.lease = lease;
+        }
+
+        Node node(State state) {
+            boolean terminal = env.isTerminal(state);
+            return new Node(state, env.getReward(state), terminal, terminal || turns.isAgentTurn(state));
+        }
+
+        void reset() {
+            env.reset();
+            root = node(env.getState());
+        }
+
+        @Override
+        public Void call() {
+            for (int i = 0; i < budget; i++) {
+                simulate();
+            }
+            return null;
+        }
+
+        /**
+         * Une simulation : sélection, expansion, rollout, rétropropagation.
+         */
+        void simulate() {
+            path.clear();
+            Node node = root;
+            path.add(node);
+            while (!node.terminal) {
+                if (node.actions == null) {
+                    node.actions = env.getActions(node.state);
+                    node.children = new Node[node.actions.size()];
+                }
+                if (node.actions.isEmpty()) {
+                    break;
+                }
+                if (node.expanded < node.actions.size()) {
+                    Node child = node(env.getSuccessor(node.actions.get(node.expanded)));
+                    node.children[node.expanded++] = child;
+                    node = child;
+                    path.add(node);
+                    break;
+                }
+                node = select(node);
+                path.add(node);
+            }
+
+            double g = rollout(node);
+            for (int i = path.size() - 1; i >= 0; i--) {
+                Node n = path.get(i);
+                n.visits++;
+                n.total += g;
+                g = n.reward + gamma * g;
+            }
+        }
+
+        Node select(Node node) {
+            double logN = Math.log(node.visits);
+            // L'autre camp cherche à minimiser la valeur de l'agent
+            double sign = node.agentTurn ? 1.0 : -1.0;
+            Node best = null;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (Node child : node.children) {
+                double score = sign * value(child) + exploration * Math.sqrt(logN / child.visits);
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = child;
+                }
+            }
+            return best;
+        }
+
+        double rollout(Node leaf) {
+            if (leaf.terminal) {
+                return 0.0;
+            }
+            State state = leaf.state;
+            double g = 0.0;
+            double discount = 1.0;
+            for (int d = 0; d < rolloutDepth; d++) {
+                List<Transition> actions = env.getActions(state);
+                if (actions.isEmpty()) {
+                    break;
+                }
+                state = env.getSuccessor(policy.choose(env, state, actions, random));
+                g += discount * env.getReward(state);
+                discount *= gamma;
+                if (env.isTerminal(state)) {
+                    break;
+                }
+            }
+            return g;
+        }
+
+        /**
+         * Descend d'un niveau après un coup joué, en gardant le sous-arbre
+         * correspondant s'il existe.
+         */
+        void advance(String key) {
+            for (int i = 0; i < root.expanded; i++) {
+                if (key(root.actions.get(i)).equals(key)) {
+                    reusedVisits += root.children[i].visits;
+                    root = root.children[i];
+                    return;
+                }
+            }
+            for (Transition t : env.getActions(root.state)) {
+                if (key(t).equals(key)) {
+                    root = node(env.getSuccessor(t));
+                    return;
+                }
+            }
+            throw new IllegalStateException("Action " + key + " introuvable dans l'instance ProB de recherche");
+        }
+    }
+
+    private final int rolloutsPerMove;
+    private final int workers;
+    private final double exploration;
+    private final double gamma;
+    private final int rolloutDepth;
+    private final RolloutPolicy policy;
+    private TurnPolicy turns;
+    private final List<Double> rewards = new ArrayList<>();
+    private final List<String> actionsChosen = new ArrayList<>();
+
+    // Statistiques
+    private int activeWorkers = 0;
+    private long rollouts = 0;
+    private long searchNanos = 0;
+    private long reusedVisits = 0;
+
+    /**
+     * Construit un agent MCTS.
+     *
+     * @param rolloutsPerMove nombre total de simulations par coup (réparties
+     *                        entre les threads)
+     * @param workers         nombre de threads de recherche (1 = pas de
+     *                        parallélisme)
+     * @param exploration     constante c d'UCT, à l'échelle des récompenses
+     * @param gamma           facteur d'actualisation (entre 0 et 1)
+     * @param rolloutDepth    nombre maximal de pas par simulation
+     * @param policy          politique de simulation
+     *
+     *                        Exemple :
+     *                        MctsAgent agent = new MctsAgent(1000, 2, 1.0, 0.9,
+     *                        15, RolloutPolicy.greedy());
+     */
+    public MctsAgent(int rolloutsPerMove, int workers, double exploration, double gamma, int rolloutDepth,
+            RolloutPolicy policy) {
+        this(rolloutsPerMove, workers, exploration, gamma, rolloutDepth, policy, TurnPolicy.single());
+    }
+
+    /**
+     * Construit un agent MCTS pour un jeu à deux camps.
+     *
+     * @param rolloutsPerMove nombre total de simulations par coup
+     * @param workers         nombre de threads de recherche
+     * @param exploration     constante c d'UCT, à l'échelle des récompenses
+     * @param gamma           facteur d'actualisation (entre 0 et 1)
+     * @param rolloutDepth    nombre maximal de pas par simulation
+     * @param policy          politique de simulation
+     * @param turns           règle de tour et coups de l'autre camp
+     *
+     *                        Exemple :
+     *                        MctsAgent agent = new MctsAgent(1000, 1, 1.0, 0.9,
+     *                        15, RolloutPolicy.random(), new
+     *                        TicTacToeTurnPolicy(new RandomOpponent(new Random())));
+     */
+    public MctsAgent(int rolloutsPerMove, int workers, double exploration, double gamma, int rolloutDepth,
+            RolloutPolicy policy, TurnPolicy turns) {
+        if (rolloutsPerMove < 1 || workers < 1) {
+            throw new IllegalArgumentException("Au moins une simulation et un thread sont nécessaires");
+        }
+        this.rolloutsPerMove = rolloutsPerMove;
+        this.workers = workers;
+        this.exploration = exploration;
+        this.gamma = gamma;
+        this.rolloutDepth = rolloutDepth;
+        this.policy = policy;
+        this.turns = turns;
+    }
+
+    /**
+     * Remplace la règle de tour (par exemple pour changer d'adversaire).
+     *
+     * @param turns nouvelle règle
+     */
+    public void setTurnPolicy(TurnPolicy turns) {
+        this.turns = turns;
+    }
+
+    /**
+     * Retourne la règle de tour courante.
+     *
+     * @return règle de tour
+     */
+    public TurnPolicy getTurnPolicy() {
+        return turns;
+    }
+
+    /**
+     * Joue nbSteps coups depuis l'état initial, une recherche MCTS par coup.
+     * Les coups de l'autre camp sont joués entre deux recherches et la
+     * récompense d'un coup est lue après sa réponse. Un état terminal (ou
+     * sans action) ramène l'environnement à l'état initial.
+     *
+     * @param env     environnement principal, sur lequel les coups sont joués
+     * @param nbSteps nombre de coups
+     * @param verbose true pour tracer chaque coup
+     * @throws Exception en cas d'erreur ProB ou de démarrage des instances de
+     *                   recherche
+     *
+     *                   Exemple :
+     *                   agent.train(env, 100, false);
+     */
+    @Override
+    public void train(Evironnement env, int nbSteps, boolean verbose) throws Exception {
+        int threads = workers;
+        if (threads > 1 && !env.getRewardFunction().isStateless()) {
+            System.out.println("[MCTS] Fonction de récompense avec état : recherche sur un seul thread");
+            threads = 1;
+        }
+
+        ProBInstancePool pool = threads > 1 ? new ProBInstancePool(env.getAnimator().getMachinePath(), threads - 1)
+                : null;
+        List<Worker> team = new ArrayList<>();
+        ExecutorService executor = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+        try {
+            team.add(new Worker(env, null));
+            for (int i = 1; i < threads; i++) {
+                ProBInstancePool.Lease lease = pool.lease();
+                team.add(new Worker(new Evironnement(lease.get(), env.getRewardFunction(), env.getRewardVariable()),
+                        lease));
+            }
+            activeWorkers = team.size();
+            for (Worker worker : team) {
+                worker.budget = (rolloutsPerMove + team.size() - 1) / team.size();
+            }
+            restart(env, team);
+            long seenCompactions = env.getCompactions();
+
+            for (int step = 0; step < nbSteps; step++) {
+                if (env.getCompactions() != seenCompactions) {
+                    // Les états de l'arbre principal appartiennent à l'ancien espace d'états
+                    team.get(0).root = team.get(0).node(env.getState());
+                    seenCompactions = env.getCompactions();
+                }
+
+                long start = System.nanoTime();
+                search(team, executor);
+                searchNanos += System.nanoTime() - start;
+                rollouts += (long) team.get(0).budget * team.size();
+
+                String key = bestAction(team);
+                Transition chosen = null;
+                if (key != null) {
+                    for (Transition t : env.getActions()) {
+                        if (key(t).equals(key)) {
+                            chosen = t;
+                            break;
+                        }
+                    }
+                }
+                if (chosen == null) {
+                    restart(env, team);
+                    continue;
+                }
+
+                env.runAction(chosen);
+                List<String> played = new ArrayList<>();
+                played.add(key);
+                turns.playOthers(env, other -> played.add(key(other)));
+                double reward = env.getReward(env.getState());
+                rewards.add(reward);
+                actionsChosen.add(key);
+                if (verbose) {
+                    env.traceStep(getClass().getSimpleName(), step, chosen, reward);
+                }
+
+                if (env.isTerminal(env.getState())) {
+                    restart(env, team);
+                } else {
+                    for (Worker worker : team) {
+                        for (String move : played) {
+                            worker.advance(move);
+                        }
+                    }
+                }
+            }
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+            for (Worker worker : team) {
+                if (worker.lease != null) {
+                    worker.lease.close();
+                }
+            }
+            if (pool != null) {
+                pool.close();
+            }
+        }
+    }
+
+    /**
+     * Ramène tous les arbres à l'état initial puis fait jouer l'autre camp
+     * s'il commence.
+     */
+    private void restart(Evironnement env, List<Worker> team) {
+        for (Worker worker : team) {
+            worker.reset();
+        }
+        List<String> played = new ArrayList<>();
+        turns.playOthers(env, other -> played.add(key(other)));
+        for (Worker worker : team) {
+            for (String move : played) {
+                worker.advance(move);
+            }
+        }
+    }
+
+    /**
+     * Lance les simulations d'un coup, en parallèle si plusieurs threads.
+     */
+    private void search(List<Worker> team, ExecutorService executor) throws Exception {
+        if (executor == null) {
+            team.get(0).call();
+            return;
+        }
+        for (Future<Void> future : executor.invokeAll(team)) {
+            future.get();
+        }
+    }
+
+    /**
+     * Additionne les visites des actions de la racine de tous les arbres et
+     * retourne l'action la plus visitée (à égalité, la meilleure valeur
+     * moyenne).
+     *
+     * @return clé de l'action, null si la racine n'a aucune action
+     */
+    private String bestAction(List<Worker> team) {
+        Map<String, double[]> merged = new HashMap<>(); // clé -> {visites, somme des valeurs}
+        for (Worker worker : team) {
+            Node root = worker.root;
+            for (int i = 0; i < root.expanded; i++) {
+                Node child = root.children[i];
+                double[] stats = merged.computeIfAbsent(key(root.actions.get(i)), k -> new double[2]);
+                stats[0] += child.visits;
+                stats[1] += child.visits * value(child);
+            }
+        }
+        String best = null;
+        double bestVisits = -1;
+        double bestMean = Double.NEGATIVE_INFINITY;
+        for (Map.Entry<String, double[]> entry : merged.entrySet()) {
+            double visits = entry.getValue()[0];
+            double mean = visits == 0 ? Double.NEGATIVE_INFINITY : entry.getValue()[1] / visits;
+            if (visits > bestVisits || (visits == bestVisits && mean > bestMean)) {
+                best = entry.getKey();
+                bestVisits = visits;
+                bestMean = mean;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Valeur d'un nœud vue de son parent : récompense à l'arrivée plus valeur
+     * moyenne actualisée des simulations.
+     */
+    private double value(Node node) {
+        return node.reward + gamma * (node.visits == 0 ? 0.0 : node.total / node.visits);
+    }
+
+    private static String key(Transition t) {
+        return t.getName() + "(" + t.getParameterPredicate() + ")";
+    }
+
+    /**
+     * Résumé de la recherche : threads, simulations, vitesse et part des
+     * visites héritées des coups précédents.
+     *
+     * @return ligne de résumé
+     *
+     *         Exemple :
+     *         System.out.println(agent.summary());
+     */
+    public String summary() {
+        double seconds = searchNanos / 1e9;
+        return String.format("threads=%d, simulations=%d, %.0f simulations/s, visites réutilisées=%d (%.1f%%)",
+                activeWorkers, rollouts, seconds == 0 ? 0.0 : rollouts / seconds, reusedVisits,
+                rollouts == 0 ? 0.0 : 100.0 * reusedVisits / rollouts);
+    }
+
+    /**
+     * Retourne la liste des récompenses obtenues à chaque coup.
+     *
+     * @return liste de récompenses (Double)
+     *
+     *         Exemple :
+     *         List<Double> recompenses = agent.getRewards();
+     */
+    @Override
+    public List<Double> getRewards() {
+        return rewards;
+    }
+
+    /**
+     * Retourne la liste des actions jouées.
+     *
+     * @return liste d'actions choisies (String)
+     *
+     *         Exemple :
+     *         List<String> actions = agent.getActionsChosen();
+     */
+    @Override
+    public List<String> getActionsChosen() {
+        return actionsChosen;
+    }
+}
@@ -0,0 +1,307 @@
+package fr.polytech.mnia.agent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import fr.polytech.mnia.Evironnement;
+import fr.polytech.mnia.checkpoint.ResumableRandom;
+import fr.polytech.mnia.encoding.FeatureExtractor;
+import fr.polytech.mnia.metrics.MetricsRegistry;
+import fr.polytech.mnia.metrics.Timer;
+import fr.polytech.mnia.nn.DenseKernels;
+import fr.polytech.mnia.nn.Mlp;
+import fr.polytech.mnia.replay.ExperienceReplayBuffer;
+import fr.polytech.mnia.replay.ReplayBatch;
+import de.prob.statespace.State;
+import de.prob.statespace.Transition;
+
+/**
+ * NeuralQAgent.java
+ *
+ * Agent Q-Learning dont la fonction Q est un petit perceptron multicouche
+ * (Mlp) entraîné sur CPU : entrée = traits de l'état (FeatureExtractor), une
+ * sortie par action (clé nom + paramètres, au plus maxActions).
+ *
+ * L'apprentissage reprend les ingrédients habituels du DQN :
+ * - tampon de rejeu (ExperienceReplayBuffer) et mini-batchs tirés
+ * uniformément ;
+ * - réseau cible recopié périodiquement pour calculer max Q(s', .) ;
+ * - perte de Huber.
+ * Le maximum n'est pris que sur les actions effectivement disponibles dans
+ * l'état suivant.
+ *
+ * Les calculs utilisent les noyaux SIMD de l'API Vector quand ils sont
+ * disponibles (voir DenseKernels.best()), sinon des boucles scalaires.
+ *
+ * Exemple d'utilisation :
+ * Agent agent = new NeuralQAgent(features, 32, 64, 0.001, 0.95, 0.1, 200);
+ * agent.train(env, 500, false);
+ */
+public class NeuralQAgent implements Agent {
+
+    private static final Timer UPDATE = MetricsRegistry.get().timer("agent.update");
+    private static final int BATCH_SIZE = 32;
+    private static final int CAPACITY = 10_000;
+    private static final int TARGET_SYNC = 500; // Pas d'apprentissage entre deux copies du réseau cible
+
+    private final FeatureExtractor features;
+    private final int maxActions;
+    private final float learningRate;
+    private final double gamma;
+    private final double epsilon;
+    private final int maxEpisodeLength;
+    private final Mlp online;
+    private final Mlp target;
+    private final ResumableRandom random = new ResumableRandom();
+    private final ExperienceReplayBuffer buffer = new ExperienceReplayBuffer(CAPACITY, random);
+    private final ReplayBatch batch = new ReplayBatch(BATCH_SIZE);
+    private final Map<String, Integer> actionIndex = new HashMap<>();
+    private final float[] input;
+
+    // Traits des transitions stockées, indexés par position dans le tampon
+    private final int[][] observations;
+    private final int[] observationSizes;
+    private final int[][] nextObservations;
+    private final int[] nextObservationSizes;
+    private final int[][] nextActions; // Indices des actions disponibles dans l'état suivant
+
+    private int[] phi;
+    private int[] phiNext;
+    private long updates = 0;
+    private final List<Double> rewards = new ArrayList<>();
+    private final List<String> actionsChosen = new ArrayList<>();
+
+    /**
+     * Construit un agent Q neuronal à deux couches cachées.
+     *
+     * @param features         extracteur de traits (entrée du réseau)
+     * @param maxActions       nombre maximal d'actions distinctes (sorties)
+     * @param hidden           nombre de neurones par couche cachée
+     * @param learningRate     pas de la descente de gradient
+     * @param gamma            facteur d'actualisation
+     * @param epsilon          probabilité d'exploration
+     * @param maxEpisodeLength nombre maximal de pas par épisode
+     *
+     *                         Exemple :
+     *                         NeuralQAgent agent = new NeuralQAgent(features, 32,
+     *                         128, 0.0005, 0.99, 0.05, 100);
+     */
+    public NeuralQAgent(FeatureExtractor features, int maxActions, int hidden, double learningRate, double gamma,
+            double epsilon, int maxEpisodeLength) {
+        this.features = features;
+        this.maxActions = maxActions;
+        this.learningRate = (float) learningRate;
+        this.gamma = gamma;
+        this.epsilon = epsilon;
+        this.maxEpisodeLength = maxEpisodeLength;
+        DenseKernels kernels = DenseKernels.best();
+        this.online = new Mlp(kernels, 1, features.dimension(), hidden, hidden, maxActions);
+        this.target = new Mlp(kernels, 1, features.dimension(), hidden, hidden, maxActions);
+        this.input = new float[features.dimension()];
+        this.phi = new int[features.maxActive()];
+        this.phiNext = new int[features.maxActive()];
+        this.observations = new int[CAPACITY][features.maxActive()];
+        this.observationSizes = new int[CAPACITY];
+        this.nextObservations = new int[CAPACITY][features.maxActive()];
+        this.nextObservationSizes = new int[CAPACITY];
+        this.nextActions = new int[CAPACITY][];
+    }
+
+    /**
+     * Entraîne l'agent sur un nombre d'épisodes. Chaque épisode part de l'état
+     * initial et s'arrête sur un état terminal, sans action, ou après
+     * maxEpisodeLength pas ; un mini-batch est rejoué après chaque pas.
+     *
+     * @param env     environnement d'apprentissage
+     * @param nbSteps nombre d'épisodes
+     * @param verbose true pour tracer chaque pas
+     * @throws Exception en cas d'erreur ProB
+     *
+     *                   Exemple :
+     *                   agent.train(env, 1000, false);
+     */
+    @Override
+    public void train(Evironnement env, int nbSteps, boolean verbose) throws Exception {
+        for (int episode = 0; episode < nbSteps; episode++) {
+            env.reset();
+            List<Transition> actions = env.getActions();
+            if (actions.isEmpty()) {
+                continue;
+            }
+            int n = features.extract(env.getState(), phi);
+            double episodeReturn = 0.0;
+
+            for (int t = 0; t < maxEpisodeLength; t++) {
+                Transition chosen = actions.get(choose(actions, phi, n));
+                if (t == 0) {
+                    actionsChosen.add(key(chosen));
+                }
+                env.runAction(chosen);
+                State next = env.getState();
+                double reward = env.getReward(next);
+                episodeReturn += reward;
+                if (verbose) {
+                    env.traceStep(getClass().getSimpleName(), t, chosen, reward);
+                }
+
+                boolean terminal = env.isTerminal(next);
+                List<Transition> following = terminal ? null : env.getActions();
+                int nNext = following == null || following.isEmpty() ? 0 : features.extract(next, phiNext);
+                store(phi, n, index(chosen), reward, phiNext, nNext, following, terminal);
+
+                long start = UPDATE.start();
+                replay();
+                UPDATE.stop(start);
+
+                if (following == null || following.isEmpty()) {
+                    break;
+                }
+                int[] swap = phi;
+                phi = phiNext;
+                phiNext = swap;
+                n = nNext;
+                actions = following;
+            }
+            rewards.add(episodeReturn);
+        }
+    }
+
+    /**
+     * Enregistre une transition dans le tampon et ses traits dans les
+     * tableaux associés.
+     */
+    private void store(int[] state, int n, int action, double reward, int[] next, int nNext,
+            List<Transition> following, boolean terminal) {
+        int slot = buffer.add(0, action, reward, 0, terminal || following == null || following.isEmpty());
+        System.arraycopy(state, 0, observations[slot], 0, n);
+        observationSizes[slot] = n;
+        System.arraycopy(next, 0, nextObservations[slot], 0, nNext);
+        nextObservationSizes[slot] = nNext;
+        int[] valid = new int[following == null ? 0 : following.size()];
+        for (int i = 0; i < valid.length; i++) {
+            valid[i] = index(following.get(i));
+        }
+        nextActions[slot] = valid;
+    }
+
+    /**
+     * Rejoue un mini-batch : cibles calculées par le réseau cible, une
+     * descente de gradient sur le réseau principal.
+     */
+    private void replay() {
+        if (buffer.size() < BATCH_SIZE) {
+            return;
+        }
+        buffer.sample(batch);
+        for (int i = 0; i < batch.size(); i++) {
+            int slot = batch.slots[i];
+            double y = batch.rewards[i];
+            if (!batch.terminals[i]) {
+                float[] q = target.forward(densify(nextObservations[slot], nextObservationSizes[slot]));
+                float best = Float.NEGATIVE_INFINITY;
+                for (int a : nextActions[slot]) {
+                    best = Math.max(best, q[a]);
+                }
+                y += gamma * best;
+            }
+            online.accumulate(densify(observations[slot], observationSizes[slot]), batch.actions[i], (float) y);
+        }
+        online.apply(learningRate);
+        if (++updates % TARGET_SYNC == 0) {
+            target.copyFrom(online);
+        }
+    }
+
+    /**
+     * Choix epsilon-glouton selon le réseau principal.
+     *
+     * @return indice de l'action dans actions
+     */
+    private int choose(List<Transition> actions, int[] active, int n) {
+        if (random.nextDouble() < epsilon) {
+            return random.nextInt(actions.size());
+        }
+        float[] q = online.forward(densify(active, n));
+        int best = 0;
+        for (int i = 1; i < actions.size(); i++) {
+            if (q[index(actions.get(i))] > q[index(actions.get(best))]) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Entrée dense du réseau à partir des traits actifs.
+     */
+    private float[] densify(int[] active, int n) {
+        Arrays.fill(input, 0f);
+        for (int i = 0; i < n; i++) {
+            input[active[i]] = 1f;
+        }
+        return input;
+    }
+
+    /**
+     * Indice de sortie d'une action, attribué à la première rencontre.
+     */
+    private int index(Transition t) {
+        String key = key(t);
+        Integer index = actionIndex.get(key);
+        if (index == null) {
+            if (actionIndex.size() == maxActions) {
+                throw new IllegalStateException("Plus de " + maxActions + " actions distinctes : " + key);
+            }
+            index = actionIndex.size();
+            actionIndex.put(key, index);
+        }
+        return index;
+    }
+
+    private static String key(Transition t) {
+        return t.getName() + "(" + t.getParameterPredicate() + ")";
+    }
+
+    /**
+     * Résumé : noyaux de calcul, actions distinctes et nombre de mini-batchs
+     * rejoués.
+     *
+     * @return ligne de résumé
+     *
+     *         Exemple :
+     *         System.out.println(agent.summary());
+     */
+    public String summary() {
+        return String.format("noyaux=%s, actions=%d/%d, mini-batchs=%d, transitions stockées=%d",
+                online.getKernels().name(), actionIndex.size(), maxActions, updates, buffer.size());
+    }
+
+    /**
+     * Retourne le retour (somme des récompenses) de chaque épisode.
+     *
+     * @return liste des retours (Double)
+     *
+     *         Exemple :
+     *         List<Double> retours = agent.getRewards();
+     */
+    @Override
+    public List<Double> getRewards() {
+        return rewards;
+    }
+
+    /**
+     * Retourne la première action de chaque épisode.
+     *
+     * @return liste d'actions choisies (String)
+     *
+     *         Exemple :
+     *         List<String> actions = agent.getActionsChosen();
+     */
+    @Override
+    public List<String> getActionsChosen() {
+        return actionsChosen;
+    }
+}
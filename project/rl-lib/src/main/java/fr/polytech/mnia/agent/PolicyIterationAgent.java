@@ -1,6 +1,15 @@
 package fr.polytech.mnia.agent;
 
 import fr.polytech.mnia.Evironnement;
+import fr.polytech.mnia.checkpoint.Checkpoint;
+import fr.polytech.mnia.checkpoint.CheckpointWriter;
+import fr.polytech.mnia.checkpoint.Checkpointable;
+import fr.polytech.mnia.checkpoint.ResumableRandom;
+import fr.polytech.mnia.encoding.ActionEncoder;
+import fr.polytech.mnia.encoding.StateEncoder;
+import fr.polytech.mnia.encoding.VariableStateEncoder;
+import fr.polytech.mnia.statespace.Bisimulation;
+import fr.polytech.mnia.statespace.CompactStateGraph;
 import de.prob.statespace.State;
 import de.prob.statespace.Transition;
 
@@ -16,19 +25,32 @@ import java.util.*;
  * comme SimpleRL, YouTube ou TicTacToe.
  * Il explore l'espace des états pour estimer la meilleure politique, puis
  * exécute cette politique.
+ * La politique et les valeurs peuvent être sauvegardées dans un checkpoint et
+ * servir de point de départ à une exécution suivante.
+ * Il peut aussi planifier directement sur un graphe d'états en cache, sans
+ * ProB (voir plan), éventuellement réduit au préalable par bisimulation
+ * (voir setMinimization).
  * 
  * Exemple d'utilisation :
  * Agent agent = new PolicyIterationAgent(0.9);
  * agent.train(env, 1000, true);
  */
-public class PolicyIterationAgent implements Agent {
+public class PolicyIterationAgent implements GraphPlanningAgent, Checkpointable {
 
     private final double gamma;
     private final Map<State, Transition> policy = new HashMap<>();
     private final Map<State, Double> V = new HashMap<>();
     private final List<Double> rewards = new ArrayList<>();
     private final List<String> actionsChosen = new ArrayList<>();
-    private final Random random = new Random();
+    private final ResumableRandom random = new ResumableRandom();
+    private final StateEncoder encoder = new VariableStateEncoder();
+    private Checkpoint warmStart = null; // Politique et valeurs initiales, lues à la demande
+    private long iterations = 0; // Nombre total d'itérations effectuées
+    private CompactStateGraph graph = null; // Graphe utilisé par plan, null sinon
+    private double[] graphValues = null; // Valeurs V indexées par état du graphe
+    private int[] graphPolicy = null; // Arc choisi par état du graphe, -1 si aucun
+    private boolean minimize = false; // Planifier sur le quotient par bisimulation
+    private Bisimulation bisimulation = null; // Dernière minimisation, null sinon
 
     /**
      * Construit un agent Policy Iteration avec un facteur d'actualisation donné.
@@ -60,11 +82,12 @@ public class PolicyIterationAgent implements Agent {
         State initialState = env.getInitialState();
         explore(initialState, env);
 
-        // Initialisation aléatoire de la politique
+        // Initialisation de la politique : reprise du checkpoint, sinon aléatoire
         for (State s : V.keySet()) {
             List<Transition> actions = env.getActions(s);
             if (!actions.isEmpty()) {
-                policy.put(s, actions.get(random.nextInt(actions.size())));
+                Transition saved = savedAction(s, actions);
+                policy.put(s, saved != null ? saved : actions.get(random.nextInt(actions.size())));
             }
         }
 
@@ -80,7 +103,7 @@ public class PolicyIterationAgent implements Agent {
                 }
                 Transition t = policy.get(s);
                 if (t != null && t.getSource().equals(s)) {
-                    State next = t.getDestination().explore();
+                    State next = env.getSuccessor(t);
                     double reward = env.getReward(next);
                     V.put(s, reward + gamma * V.getOrDefault(next, 0.0));
                 }
@@ -102,6 +125,7 @@ public class PolicyIterationAgent implements Agent {
             }
 
             steps++;
+            iterations++;
             if (steps >= nbSteps)
                 break;
         } while (!stable);
@@ -126,6 +150,177 @@ public class PolicyIterationAgent implements Agent {
         }
     }
 
+    /**
+     * Active la minimisation du graphe par bisimulation avant plan : Policy
+     * Iteration porte sur le quotient, puis valeurs et politique sont
+     * recopiées sur chaque état du graphe d'origine.
+     *
+     * @param minimize true pour planifier sur le quotient
+     *
+     *                 Exemple :
+     *                 agent.setMinimization(true);
+     */
+    public void setMinimization(boolean minimize) {
+        this.minimize = minimize;
+    }
+
+    /**
+     * @return dernière minimisation effectuée par plan, null si aucune
+     */
+    public Bisimulation getBisimulation() {
+        return bisimulation;
+    }
+
+    /**
+     * Policy Iteration directement sur un graphe d'états en cache, sans ProB.
+     * Même initialisation, mêmes étapes d'évaluation et d'amélioration et même
+     * simulation finale que train.
+     *
+     * @param graph   graphe des états accessibles (état 0 = état initial)
+     * @param nbSteps nombre maximum d'itérations de Policy Iteration
+     * @param verbose non utilisé
+     *
+     *                Exemple :
+     *                agent.plan(graph, 500, false);
+     */
+    @Override
+    public void plan(CompactStateGraph graph, int nbSteps, boolean verbose) {
+        bisimulation = minimize ? Bisimulation.minimize(graph) : null;
+        CompactStateGraph work = bisimulation == null ? graph : bisimulation.quotient();
+        double[] values = new double[work.size()];
+        int[] chosen = new int[work.size()];
+        iterate(work, nbSteps, values, chosen);
+        if (bisimulation != null) {
+            chosen = liftPolicy(graph, chosen);
+            values = bisimulation.expand(values);
+        }
+        this.graph = graph;
+        this.graphValues = values;
+        this.graphPolicy = chosen;
+
+        // Simulation de la politique finale sur le graphe
+        int state = 0;
+        while (!graph.isTerminal(state)) {
+            int e = chosen[state];
+            if (e < 0)
+                break;
+            actionsChosen.add(graph.getActionPredicate(e));
+            state = graph.getTarget(e);
+            rewards.add(graph.getReward(state));
+        }
+    }
+
+    /**
+     * Étapes d'évaluation et d'amélioration de Policy Iteration sur un graphe.
+     *
+     * @param values valeurs V par état du graphe (remplies)
+     * @param chosen arc choisi par état du graphe (rempli)
+     */
+    private void iterate(CompactStateGraph graph, int nbSteps, double[] values, int[] chosen) {
+        int n = graph.size();
+        for (int s = 0; s < n; s++) {
+            if (warmStart != null) {
+                values[s] = warmStart.getDouble("V", graph.getStateKey(s), 0.0);
+            }
+            int start = graph.edgeStart(s);
+            int count = graph.edgeEnd(s) - start;
+            if (count == 0) {
+                chosen[s] = -1;
+            } else {
+                int saved = savedEdge(graph, s);
+                chosen[s] = saved >= 0 ? saved : start + random.nextInt(count);
+            }
+        }
+        int steps = 0;
+        boolean stable;
+
+        do {
+            // Policy Evaluation
+            for (int s = 0; s < n; s++) {
+                if (graph.isTerminal(s)) {
+                    values[s] = graph.getReward(s);
+                } else if (chosen[s] >= 0) {
+                    int next = graph.getTarget(chosen[s]);
+                    values[s] = graph.getReward(next) + gamma * values[next];
+                }
+            }
+
+            // Policy Improvement
+            stable = true;
+            for (int s = 0; s < n; s++) {
+                if (graph.isTerminal(s))
+                    continue;
+                int best = -1;
+                double bestValue = Double.NEGATIVE_INFINITY;
+                for (int e = graph.edgeStart(s); e < graph.edgeEnd(s); e++) {
+                    int next = graph.getTarget(e);
+                    double value = graph.getReward(next) + gamma * values[next];
+                    if (value > bestValue) {
+                        best = e;
+                        bestValue = value;
+                    }
+                }
+                if (best >= 0 && best != chosen[s]) {
+                    chosen[s] = best;
+                    stable = false;
+                }
+            }
+
+            steps++;
+            iterations++;
+            if (steps >= nbSteps)
+                break;
+        } while (!stable);
+    }
+
+    /**
+     * Recopie la politique du quotient sur le graphe d'origine : chaque état
+     * prend un de ses arcs menant à la classe choisie pour sa propre classe.
+     *
+     * @param graph  graphe d'origine
+     * @param chosen arc choisi par classe du quotient
+     * @return arc choisi par état d'origine, -1 si aucun
+     */
+    private int[] liftPolicy(CompactStateGraph graph, int[] chosen) {
+        CompactStateGraph quotient = bisimulation.quotient();
+        int[] lifted = new int[graph.size()];
+        for (int s = 0; s < lifted.length; s++) {
+            int edge = chosen[bisimulation.blockOf(s)];
+            lifted[s] = -1;
+            if (edge < 0 || graph.isTerminal(s))
+                continue;
+            int target = quotient.getTarget(edge);
+            for (int e = graph.edgeStart(s); e < graph.edgeEnd(s) && lifted[s] < 0; e++) {
+                if (bisimulation.blockOf(graph.getTarget(e)) == target) {
+                    lifted[s] = e;
+                }
+            }
+        }
+        return lifted;
+    }
+
+    /**
+     * Retrouve parmi les arcs d'un état du graphe celui enregistré dans le
+     * checkpoint de départ.
+     *
+     * @param graph graphe des états
+     * @param s     indice de l'état
+     * @return indice de l'arc, -1 si aucun
+     */
+    private int savedEdge(CompactStateGraph graph, int s) {
+        if (warmStart == null)
+            return -1;
+        String key = warmStart.getString("policy", graph.getStateKey(s));
+        if (key == null)
+            return -1;
+        for (int e = graph.edgeStart(s); e < graph.edgeEnd(s); e++) {
+            if (key.equals(graph.getActionKey(e))) {
+                return e;
+            }
+        }
+        return -1;
+    }
+
     /**
      * Explore récursivement tous les états accessibles à partir d'un état donné.
      *
@@ -138,12 +333,81 @@ public class PolicyIterationAgent implements Agent {
     private void explore(State state, Evironnement env) {
         if (V.containsKey(state))
             return;
-        V.put(state, 0.0);
+        V.put(state, warmStart == null ? 0.0 : warmStart.getDouble("V", encoder.encode(state), 0.0));
         for (Transition t : env.getActions(state)) {
-            explore(t.getDestination().explore(), env);
+            explore(env.getSuccessor(t), env);
         }
     }
 
+    /**
+     * Retrouve parmi les actions d'un état celle enregistrée dans le checkpoint
+     * de départ.
+     *
+     * @param s       état
+     * @param actions actions disponibles dans cet état
+     * @return transition correspondante, null si aucune
+     */
+    private Transition savedAction(State s, List<Transition> actions) {
+        if (warmStart == null)
+            return null;
+        String key = warmStart.getString("policy", encoder.encode(s));
+        if (key == null)
+            return null;
+        for (Transition t : actions) {
+            if (key.equals(ActionEncoder.NAME_AND_PARAMETERS.encode(t))) {
+                return t;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Sauvegarde la politique, les valeurs V, l'état du générateur aléatoire et
+     * le nombre d'itérations effectuées.
+     *
+     * @param writer checkpoint en cours de construction
+     *
+     *               Exemple :
+     *               agent.saveCheckpoint(writer);
+     */
+    @Override
+    public void saveCheckpoint(CheckpointWriter writer) {
+        for (Map.Entry<State, Double> entry : V.entrySet()) {
+            writer.putDouble("V", encoder.encode(entry.getKey()), entry.getValue());
+        }
+        for (Map.Entry<State, Transition> entry : policy.entrySet()) {
+            writer.putString("policy", encoder.encode(entry.getKey()),
+                    ActionEncoder.NAME_AND_PARAMETERS.encode(entry.getValue()));
+        }
+        if (graphPolicy != null) {
+            for (int s = 0; s < graphPolicy.length; s++) {
+                String key = graph.getStateKey(s);
+                writer.putDouble("V", key, graphValues[s]);
+                if (graphPolicy[s] >= 0) {
+                    writer.putString("policy", key, graph.getActionKey(graphPolicy[s]));
+                }
+            }
+        }
+        writer.putLong("meta", "rng", random.getState());
+        writer.putLong("meta", "iterations", iterations);
+    }
+
+    /**
+     * Utilise un checkpoint comme point de départ : politique et valeurs sont
+     * lues à la première rencontre de chaque état.
+     *
+     * @param checkpoint checkpoint ouvert
+     *
+     *                   Exemple :
+     *                   agent.loadCheckpoint(Checkpoint.open(path));
+     */
+    @Override
+    public void loadCheckpoint(Checkpoint checkpoint) {
+        this.warmStart = checkpoint;
+        this.random.setState(checkpoint.getLong("meta", "rng", random.getState()));
+        this.iterations = checkpoint.getLong("meta", "iterations", 0);
+    }
+
     /**
      * Sélectionne la meilleure action depuis un état donné en maximisant la valeur
      * attendue.
@@ -160,7 +424,7 @@ public class PolicyIterationAgent implements Agent {
         Transition best = null;
         double bestValue = Double.NEGATIVE_INFINITY;
         for (Transition t : actions) {
-            State next = t.getDestination().explore();
+            State next = env.getSuccessor(t);
             double reward = env.getReward(next);
             double value = reward + gamma * V.getOrDefault(next, 0.0);
             if (value > bestValue) {
@@ -0,0 +1,74 @@
+package fr.polytech.mnia.agent;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Random;
+
+/**
+ * PolicyPool.java
+ *
+ * Réserve d'instantanés figés de table Q, utilisés comme adversaires en
+ * self-play.
+ *
+ * Quand la réserve est pleine, l'instantané le plus ancien est retiré. Les
+ * instantanés partageant leurs données avec la table vivante (copie sur
+ * écriture), la réserve ne coûte que les lignes modifiées depuis chaque
+ * instantané.
+ *
+ * Exemple d'utilisation :
+ * PolicyPool pool = new PolicyPool(10);
+ * pool.add(q.snapshot());
+ * QTable opponent = pool.sample(random);
+ */
+public class PolicyPool {
+
+    private final int maxSize;
+    private final Deque<QTable> snapshots = new ArrayDeque<>();
+
+    /**
+     * Construit une réserve d'instantanés.
+     *
+     * @param maxSize nombre maximal d'instantanés conservés
+     */
+    public PolicyPool(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Ajoute un instantané, en retirant le plus ancien si la réserve est pleine.
+     *
+     * @param snapshot instantané figé
+     */
+    public void add(QTable snapshot) {
+        if (snapshots.size() >= maxSize) {
+            snapshots.removeFirst();
+        }
+        snapshots.addLast(snapshot);
+    }
+
+    /**
+     * Tire un instantané uniformément dans la réserve.
+     *
+     * @param random générateur aléatoire
+     * @return instantané tiré, null si la réserve est vide
+     */
+    public QTable sample(Random random) {
+        if (snapshots.isEmpty())
+            return null;
+        int index = random.nextInt(snapshots.size());
+        for (QTable snapshot : snapshots) {
+            if (index-- == 0)
+                return snapshot;
+        }
+        return snapshots.getLast();
+    }
+
+    /**
+     * Retourne le nombre d'instantanés conservés.
+     *
+     * @return taille de la réserve
+     */
+    public int size() {
+        return snapshots.size();
+    }
+}
@@ -0,0 +1,465 @@
+package fr.polytech.mnia.agent;
+
+import fr.polytech.mnia.Evironnement;
+import fr.polytech.mnia.checkpoint.Checkpoint;
+import fr.polytech.mnia.checkpoint.CheckpointWriter;
+import fr.polytech.mnia.checkpoint.Checkpointable;
+import fr.polytech.mnia.encoding.StateEncoder;
+import fr.polytech.mnia.encoding.VariableStateEncoder;
+import fr.polytech.mnia.statespace.Bisimulation;
+import fr.polytech.mnia.statespace.CompactStateGraph;
+import de.prob.statespace.State;
+import de.prob.statespace.Transition;
+
+import java.util.*;
+
+/**
+ * PrioritizedSweepingAgent.java
+ *
+ * Planification par balayage prioritaire (prioritized sweeping) pour un MDP
+ * déterministe : mêmes valeurs que ValueIterationAgent, mais au lieu de
+ * balayer tous les états à chaque itération, seuls les états dont l'erreur
+ * de Bellman |max_a (r(s') + gamma V(s')) - V(s)| dépasse theta sont mis à
+ * jour, du plus grand écart au plus petit.
+ *
+ * Après la mise à jour d'un état, l'erreur de ses prédécesseurs (listes
+ * construites pendant l'exploration) est recalculée et leur priorité
+ * relevée dans un tas indexé. La planification s'arrête quand la plus haute
+ * priorité passe sous theta, ou après nbSteps * (nombre d'états) mises à
+ * jour, soit le budget de nbSteps balayages complets.
+ * Comme ValueIterationAgent, plan peut d'abord réduire le graphe par
+ * bisimulation (voir setMinimization).
+ *
+ * Exemple d'utilisation :
+ * PrioritizedSweepingAgent agent = new PrioritizedSweepingAgent(0.9, 0.01);
+ * agent.train(env, 100, false);
+ * System.out.println(agent.summary());
+ */
+public class PrioritizedSweepingAgent implements GraphPlanningAgent, Checkpointable {
+
+    private final double gamma;
+    private final double theta;
+    private final StateEncoder encoder = new VariableStateEncoder();
+    private final List<Double> rewards = new ArrayList<>();
+    private final List<String> actionsChosen = new ArrayList<>();
+    private Checkpoint warmStart = null; // Valeurs initiales de V
+    private String[] stateKeys = new String[0];
+    private double[] values = new double[0];
+    private int plannedStates = 0; // États réellement balayés (quotient si minimisé)
+    private long backups = 0; // Mises à jour de V
+    private long residuals = 0; // Calculs d'erreur de Bellman
+    private long totalBackups = 0; // Mises à jour de V, reprise comprise
+    private boolean minimize = false; // Planifier sur le quotient par bisimulation
+    private Bisimulation bisimulation = null; // Dernière minimisation, null sinon
+
+    /**
+     * Construit un planificateur par balayage prioritaire.
+     *
+     * @param gamma facteur d'actualisation (entre 0 et 1)
+     * @param theta seuil d'arrêt sur l'erreur de Bellman
+     *
+     *              Exemple :
+     *              new PrioritizedSweepingAgent(0.95, 0.001);
+     */
+    public PrioritizedSweepingAgent(double gamma, double theta) {
+        this.gamma = gamma;
+        this.theta = theta;
+    }
+
+    /**
+     * Explore les états accessibles avec ProB, planifie puis simule la
+     * politique gloutonne.
+     *
+     * @param env     environnement de travail
+     * @param nbSteps budget exprimé en balayages complets
+     * @param verbose non utilisé
+     * @throws Exception en cas d'erreur ProB
+     *
+     *                   Exemple :
+     *                   agent.train(env, 100, false);
+     */
+    @Override
+    public void train(Evironnement env, int nbSteps, boolean verbose) throws Exception {
+        // Exploration en largeur : les arcs de l'état s sont contigus
+        Map<State, Integer> ids = new HashMap<>();
+        List<State> states = new ArrayList<>();
+        List<Transition> edgeActions = new ArrayList<>();
+        int[] edgeStart = new int[1024];
+        int[] targets = new int[1024];
+        int edges = 0;
+        State initial = env.getInitialState();
+        ids.put(initial, 0);
+        states.add(initial);
+        for (int s = 0; s < states.size(); s++) {
+            if (s + 1 >= edgeStart.length) {
+                edgeStart = Arrays.copyOf(edgeStart, edgeStart.length * 2);
+            }
+            edgeStart[s] = edges;
+            for (Transition t : env.getActions(states.get(s))) {
+                State next = env.getSuccessor(t);
+                Integer id = ids.get(next);
+                if (id == null) {
+                    id = states.size();
+                    ids.put(next, id);
+                    states.add(next);
+                }
+                if (edges == targets.length) {
+                    targets = Arrays.copyOf(targets, targets.length * 2);
+                }
+                targets[edges++] = id;
+                edgeActions.add(t);
+            }
+        }
+        int n = states.size();
+        edgeStart[n] = edges;
+
+        double[] reward = new double[n];
+        boolean[] terminal = new boolean[n];
+        stateKeys = new String[n];
+        for (int s = 0; s < n; s++) {
+            reward[s] = env.getReward(states.get(s));
+            terminal[s] = env.isTerminal(states.get(s));
+            stateKeys[s] = encoder.encode(states.get(s));
+        }
+
+        sweep(n, edgeStart, targets, reward, terminal, (long) nbSteps * n);
+
+        // Simulation de la politique gloutonne
+        env.reset();
+        int state = 0;
+        while (!terminal[state]) {
+            int best = bestEdge(state, edgeStart, targets, reward);
+            if (best < 0)
+                break;
+            Transition action = edgeActions.get(best);
+            actionsChosen.add(action.getParameterPredicate());
+            env.runAction(action);
+            state = targets[best];
+            rewards.add(env.getReward(env.getState()));
+        }
+    }
+
+    /**
+     * Balayage prioritaire directement sur un graphe d'états en cache, sans
+     * ProB.
+     *
+     * @param graph   graphe des états accessibles (état 0 = état initial)
+     * @param nbSteps budget exprimé en balayages complets
+     * @param verbose non utilisé
+     *
+     *                Exemple :
+     *                agent.plan(graph, 100, false);
+     */
+    @Override
+    public void plan(CompactStateGraph graph, int nbSteps, boolean verbose) {
+        bisimulation = minimize ? Bisimulation.minimize(graph) : null;
+        CompactStateGraph work = bisimulation == null ? graph : bisimulation.quotient();
+        int n = work.size();
+        int[] edgeStart = new int[n + 1];
+        int[] targets = new int[work.edgeCount()];
+        double[] reward = new double[n];
+        boolean[] terminal = new boolean[n];
+        stateKeys = new String[n];
+        for (int s = 0; s < n; s++) {
+            edgeStart[s] = work.edgeStart(s);
+            for (int e = work.edgeStart(s); e < work.edgeEnd(s); e++) {
+                targets[e] = work.getTarget(e);
+            }
+            reward[s] = work.getReward(s);
+            terminal[s] = work.isTerminal(s);
+            stateKeys[s] = work.getStateKey(s);
+        }
+        edgeStart[n] = work.edgeCount();
+
+        sweep(n, edgeStart, targets, reward, terminal, (long) nbSteps * n);
+
+        if (bisimulation != null) {
+            values = bisimulation.expand(values);
+            stateKeys = new String[graph.size()];
+            for (int s = 0; s < stateKeys.length; s++) {
+                stateKeys[s] = graph.getStateKey(s);
+            }
+        }
+
+        // Simulation de la politique gloutonne sur le graphe d'origine
+        int state = 0;
+        while (!graph.isTerminal(state)) {
+            int best = -1;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (int e = graph.edgeStart(state); e < graph.edgeEnd(state); e++) {
+                int next = graph.getTarget(e);
+                double q = graph.getReward(next) + gamma * values[next];
+                if (q > bestValue) {
+                    bestValue = q;
+                    best = e;
+                }
+            }
+            if (best < 0)
+                break;
+            actionsChosen.add(graph.getActionPredicate(best));
+            state = graph.getTarget(best);
+            rewards.add(graph.getReward(state));
+        }
+    }
+
+    /**
+     * Active la minimisation du graphe par bisimulation avant plan.
+     *
+     * @param minimize true pour planifier sur le quotient
+     *
+     *                 Exemple :
+     *                 agent.setMinimization(true);
+     */
+    public void setMinimization(boolean minimize) {
+        this.minimize = minimize;
+    }
+
+    /**
+     * @return dernière minimisation effectuée par plan, null si aucune
+     */
+    public Bisimulation getBisimulation() {
+        return bisimulation;
+    }
+
+    /**
+     * Cœur du balayage prioritaire sur un graphe en tableaux (arcs de s dans
+     * [edgeStart[s], edgeStart[s + 1])).
+     */
+    private void sweep(int n, int[] edgeStart, int[] targets, double[] reward, boolean[] terminal,
+            long maxBackups) {
+        values = new double[n];
+        plannedStates = n;
+        if (warmStart != null) {
+            for (int s = 0; s < n; s++) {
+                values[s] = warmStart.getDouble("V", stateKeys[s], 0.0);
+            }
+        }
+
+        // Listes de prédécesseurs, au format des arcs
+        int[] predStart = new int[n + 1];
+        for (int e = 0; e < edgeStart[n]; e++) {
+            predStart[targets[e] + 1]++;
+        }
+        for (int s = 0; s < n; s++) {
+            predStart[s + 1] += predStart[s];
+        }
+        int[] preds = new int[edgeStart[n]];
+        int[] fill = Arrays.copyOf(predStart, n);
+        for (int s = 0; s < n; s++) {
+            for (int e = edgeStart[s]; e < edgeStart[s + 1]; e++) {
+                preds[fill[targets[e]]++] = s;
+            }
+        }
+
+        Heap heap = new Heap(n);
+        for (int s = 0; s < n; s++) {
+            double error = Math.abs(backup(s, edgeStart, targets, reward, terminal) - values[s]);
+            residuals++;
+            if (error > theta) {
+                heap.raise(s, error);
+            }
+        }
+
+        backups = 0;
+        while (!heap.isEmpty() && heap.topPriority() > theta && backups < maxBackups) {
+            int s = heap.pop();
+            values[s] = backup(s, edgeStart, targets, reward, terminal);
+            backups++;
+            for (int i = predStart[s]; i < predStart[s + 1]; i++) {
+                int p = preds[i];
+                double error = Math.abs(backup(p, edgeStart, targets, reward, terminal) - values[p]);
+                residuals++;
+                if (error > theta) {
+                    heap.raise(p, error);
+                }
+            }
+        }
+        totalBackups += backups;
+    }
+
+    /**
+     * Membre droit de l'équation de Bellman pour s (sa valeur si aucun arc).
+     */
+    private double backup(int s, int[] edgeStart, int[] targets, double[] reward, boolean[] terminal) {
+        if (terminal[s]) {
+            return reward[s];
+        }
+        if (edgeStart[s] == edgeStart[s + 1]) {
+            return values[s];
+        }
+        double maxQ = Double.NEGATIVE_INFINITY;
+        for (int e = edgeStart[s]; e < edgeStart[s + 1]; e++) {
+            int next = targets[e];
+            maxQ = Math.max(maxQ, reward[next] + gamma * values[next]);
+        }
+        return maxQ;
+    }
+
+    private int bestEdge(int s, int[] edgeStart, int[] targets, double[] reward) {
+        int best = -1;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int e = edgeStart[s]; e < edgeStart[s + 1]; e++) {
+            double q = reward[targets[e]] + gamma * values[targets[e]];
+            if (q > bestValue) {
+                bestValue = q;
+                best = e;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Tas max indexé par état : chaque état y figure au plus une fois et sa
+     * priorité ne peut qu'augmenter tant qu'il y reste.
+     */
+    private static final class Heap {
+        private final int[] heap;
+        private final int[] position; // -1 hors du tas
+        private final double[] priority;
+        private int size = 0;
+
+        Heap(int n) {
+            heap = new int[n];
+            position = new int[n];
+            priority = new double[n];
+            Arrays.fill(position, -1);
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        double topPriority() {
+            return priority[heap[0]];
+        }
+
+        void raise(int s, double p) {
+            if (position[s] < 0) {
+                position[s] = size;
+                heap[size++] = s;
+                priority[s] = p;
+            } else if (p > priority[s]) {
+                priority[s] = p;
+            } else {
+                return;
+            }
+            up(position[s]);
+        }
+
+        int pop() {
+            int top = heap[0];
+            position[top] = -1;
+            size--;
+            if (size > 0) {
+                heap[0] = heap[size];
+                position[heap[0]] = 0;
+                down(0);
+            }
+            return top;
+        }
+
+        private void up(int i) {
+            int s = heap[i];
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (priority[heap[parent]] >= priority[s])
+                    break;
+                heap[i] = heap[parent];
+                position[heap[i]] = i;
+                i = parent;
+            }
+            heap[i] = s;
+            position[s] = i;
+        }
+
+        private void down(int i) {
+            int s = heap[i];
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size)
+                    break;
+                if (child + 1 < size && priority[heap[child + 1]] > priority[heap[child]])
+                    child++;
+                if (priority[heap[child]] <= priority[s])
+                    break;
+                heap[i] = heap[child];
+                position[heap[i]] = i;
+                i = child;
+            }
+            heap[i] = s;
+            position[s] = i;
+        }
+    }
+
+    /**
+     * Résumé affiché en fin d'exécution.
+     *
+     * @return nombre de mises à jour, comparé à un balayage complet des
+     *         états planifiés (le quotient si le graphe a été minimisé)
+     *
+     *         Exemple :
+     *         System.out.println(agent.summary());
+     */
+    public String summary() {
+        int n = plannedStates;
+        return String.format("%d mises à jour de V sur %d états (%.2f balayages complets), "
+                + "%d calculs d'erreur de Bellman", backups, n, n == 0 ? 0.0 : (double) backups / n, residuals);
+    }
+
+    /**
+     * Sauvegarde les valeurs V (indexées par clé d'état stable) et le nombre
+     * de mises à jour effectuées.
+     *
+     * @param writer checkpoint en cours de construction
+     *
+     *               Exemple :
+     *               agent.saveCheckpoint(writer);
+     */
+    @Override
+    public void saveCheckpoint(CheckpointWriter writer) {
+        for (int s = 0; s < values.length; s++) {
+            writer.putDouble("V", stateKeys[s], values[s]);
+        }
+        writer.putLong("meta", "backups", totalBackups);
+    }
+
+    /**
+     * Utilise un checkpoint comme point de départ des valeurs V.
+     *
+     * @param checkpoint checkpoint ouvert
+     *
+     *                   Exemple :
+     *                   agent.loadCheckpoint(Checkpoint.open(path));
+     */
+    @Override
+    public void loadCheckpoint(Checkpoint checkpoint) {
+        this.warmStart = checkpoint;
+        this.totalBackups = checkpoint.getLong("meta", "backups", 0);
+    }
+
+    /**
+     * Retourne la liste des récompenses obtenues pendant la simulation.
+     *
+     * @return liste des récompenses (Double)
+     *
+     *         Exemple :
+     *         List<Double> recompenses = agent.getRewards();
+     */
+    @Override
+    public List<Double> getRewards() {
+        return rewards;
+    }
+
+    /**
+     * Retourne la liste des actions choisies pendant la simulation.
+     *
+     * @return liste des actions (String)
+     *
+     *         Exemple :
+     *         List<String> actions = agent.getActionsChosen();
+     */
+    @Override
+    public List<String> getActionsChosen() {
+        return actionsChosen;
+    }
+}
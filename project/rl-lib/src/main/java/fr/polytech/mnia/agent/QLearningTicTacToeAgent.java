@@ -1,10 +1,24 @@
 package fr.polytech.mnia.agent;
 
 import fr.polytech.mnia.Evironnement;
+import fr.polytech.mnia.checkpoint.Checkpoint;
+import fr.polytech.mnia.checkpoint.CheckpointWriter;
+import fr.polytech.mnia.checkpoint.Checkpointable;
+import fr.polytech.mnia.checkpoint.ResumableRandom;
+import fr.polytech.mnia.encoding.ActionEncoder;
+import fr.polytech.mnia.encoding.StateEncoder;
+import fr.polytech.mnia.encoding.VariableStateEncoder;
+import fr.polytech.mnia.metrics.FormulaProfiler;
+import fr.polytech.mnia.metrics.MetricsRegistry;
+import fr.polytech.mnia.metrics.Timer;
+import fr.polytech.mnia.tictactoe.FrozenPolicyOpponent;
+import fr.polytech.mnia.tictactoe.Opponent;
+import fr.polytech.mnia.tictactoe.RandomOpponent;
 import fr.polytech.mnia.tictactoe.TicTacToeEpisodeManager;
 import de.prob.statespace.State;
 import de.prob.statespace.Transition;
 
+import java.nio.ByteBuffer;
 import java.util.*;
 
 /**
@@ -14,20 +28,33 @@ import java.util.*;
  * 
  * Caractéristiques :
  * - L'agent apprend en jouant le rôle du joueur 0.
- * - Le joueur 1 joue de manière aléatoire.
+ * - Le joueur 1 est un adversaire interchangeable (aléatoire par défaut).
  * - L'entraînement se fait par nombre d'épisodes complets (matchs).
+ * - En mode self-play, l'agent joue alternativement les deux camps contre des
+ *   instantanés figés de sa propre table Q.
+ * - La table Q, le générateur aléatoire et le nombre d'épisodes joués peuvent
+ *   être sauvegardés dans un checkpoint pour reprendre l'entraînement.
  * 
  * Exemple d'utilisation :
  *     Agent agent = new QLearningTicTacToeAgent(0.5, 0.9, 0.1);
  *     agent.train(env, 1000, true);
  */
-public class QLearningTicTacToeAgent implements Agent {
+public class QLearningTicTacToeAgent implements Agent, Checkpointable {
+
+    private static final Timer UPDATE = MetricsRegistry.get().timer("agent.update");
 
     private final double alpha;
     private final double gamma;
     private final double epsilon;
-    private final Map<State, Map<Transition, Double>> Q = new HashMap<>();
-    private final Random random = new Random();
+    private final QTable Q = new QTable();
+    private final ResumableRandom random = new ResumableRandom();
+    private Opponent opponent = new RandomOpponent(random);
+    private PolicyPool pool = null; // Non null en mode self-play
+    private int snapshotInterval = 0;
+    private long episodesDone = 0; // Nombre total d'épisodes joués, reprise comprise
+    private final StateEncoder encoder = new VariableStateEncoder();
+    private Checkpoint warmStart = null; // Valeurs Q de départ, lues à la demande
+    private final Set<State> warmed = new HashSet<>(); // États déjà relus dans warmStart
     private final List<Double> rewards = new ArrayList<>();
     private final List<String> actionsChosen = new ArrayList<>();
 
@@ -47,6 +74,38 @@ public class QLearningTicTacToeAgent implements Agent {
         this.epsilon = epsilon;
     }
 
+    /**
+     * Remplace l'adversaire contre lequel l'agent s'entraîne.
+     *
+     * @param opponent adversaire jouant le rôle du joueur 1
+     *
+     * Exemple :
+     *     agent.setOpponent(new MinimaxOpponent(new Random()));
+     */
+    public void setOpponent(Opponent opponent) {
+        this.opponent = opponent;
+    }
+
+    /**
+     * Active le mode self-play : l'agent joue les deux camps (alternativement
+     * d'un épisode à l'autre) contre des adversaires tirés d'une réserve
+     * d'instantanés figés de sa table Q.
+     *
+     * @param snapshotInterval nombre d'épisodes entre deux instantanés (au moins 1)
+     * @param poolSize nombre maximal d'instantanés conservés dans la réserve
+     * @throws IllegalArgumentException si snapshotInterval est inférieur à 1
+     *
+     * Exemple :
+     *     agent.enableSelfPlay(100, 10);
+     */
+    public void enableSelfPlay(int snapshotInterval, int poolSize) {
+        if (snapshotInterval < 1) {
+            throw new IllegalArgumentException("L'intervalle entre instantanés doit être au moins 1");
+        }
+        this.snapshotInterval = snapshotInterval;
+        this.pool = new PolicyPool(poolSize);
+    }
+
     /**
      * Entraîne l'agent dans l'environnement Tic-Tac-Toe pendant un certain nombre d'épisodes.
      *
@@ -61,6 +120,10 @@ public class QLearningTicTacToeAgent implements Agent {
     @Override
     public void train(Evironnement env, int nbEpisodes, boolean verbose) throws Exception {
         TicTacToeEpisodeManager manager = new TicTacToeEpisodeManager(env);
+        if (pool != null) {
+            trainSelfPlay(env, nbEpisodes, verbose, manager);
+            return;
+        }
 
         for (int episode = 0; episode < nbEpisodes; episode++) {
             env.reset();
@@ -72,7 +135,7 @@ public class QLearningTicTacToeAgent implements Agent {
             }
 
             while (!env.isTerminal(state)) {
-                String turn = state.eval("turn").toString().trim();
+                String turn = FormulaProfiler.eval(state, "turn").toString().trim();
 
                 List<Transition> actions = env.getActions(state);
                 if (actions.isEmpty())
@@ -98,13 +161,13 @@ public class QLearningTicTacToeAgent implements Agent {
 
                     state = nextState;
                 } else {
-                    // Tour du joueur 1 (adversaire aléatoire)
-                    Transition randomMove = actions.get(random.nextInt(actions.size()));
-                    env.runAction(randomMove);
+                    // Tour du joueur 1 (adversaire)
+                    Transition opponentMove = opponent.chooseMove(state, actions);
+                    env.runAction(opponentMove);
                     state = env.getState();
 
                     if (verbose) {
-                        System.out.println("\n[Joueur 1 (aléatoire) joue] : " + randomMove.getName() + " " + randomMove.getParameterPredicate());
+                        System.out.println("\n[Joueur 1 (" + opponent.getName() + ") joue] : " + opponentMove.getName() + " " + opponentMove.getParameterPredicate());
                         manager.prettyPrintGrid();
                     }
                 }
@@ -114,9 +177,101 @@ public class QLearningTicTacToeAgent implements Agent {
                 System.out.println("\n=== Fin de l'épisode " + (episode + 1) + " ===");
                 manager.prettyPrintGrid();
             }
+            episodesDone++;
         }
     }
 
+    /**
+     * Entraînement en self-play. Du point de vue du camp joué par l'agent, une
+     * transition relie deux états où c'est à lui de jouer ; la valeur Q d'un
+     * état est donc toujours exprimée pour le joueur dont c'est le tour, et la
+     * même table sert aux deux camps.
+     *
+     * @param env environnement du jeu
+     * @param nbEpisodes nombre d'épisodes d'entraînement
+     * @param verbose true pour afficher les étapes du jeu, false sinon
+     * @param manager gestionnaire utilisé pour l'affichage
+     */
+    private void trainSelfPlay(Evironnement env, int nbEpisodes, boolean verbose, TicTacToeEpisodeManager manager) {
+        for (int episode = 0; episode < nbEpisodes; episode++) {
+            if (episodesDone % snapshotInterval == 0) {
+                pool.add(Q.snapshot());
+            }
+            String seat = String.valueOf(episodesDone % 2);
+            Opponent frozen = new FrozenPolicyOpponent(pool.sample(random), warmStart, random);
+
+            env.reset();
+            State state = env.getInitialState();
+            State pendingState = null;
+            Transition pendingAction = null;
+
+            if (verbose) {
+                System.out.println("\n=== Début de l'épisode " + (episode + 1) + " (agent = joueur " + seat + ") ===");
+                manager.prettyPrintGrid();
+            }
+
+            while (!env.isTerminal(state)) {
+                List<Transition> actions = env.getActions(state);
+                if (actions.isEmpty())
+                    break;
+
+                String turn = FormulaProfiler.eval(state, "turn").toString().trim();
+                Transition move;
+                if (turn.equals(seat)) {
+                    if (pendingState != null) {
+                        double reward = rewardFor(seat, env, state);
+                        updateQValue(pendingState, pendingAction, reward, state);
+                        rewards.add(reward);
+                    }
+                    move = chooseAction(state, actions);
+                    pendingState = state;
+                    pendingAction = move;
+                    actionsChosen.add(move.getParameterPredicate());
+                } else {
+                    move = frozen.chooseMove(state, actions);
+                }
+
+                env.runAction(move);
+                state = env.getState();
+
+                if (verbose) {
+                    String who = turn.equals(seat) ? "Agent" : "Adversaire (" + frozen.getName() + ")";
+                    System.out.println("\n[" + who + " joue] : " + move.getName() + " " + move.getParameterPredicate());
+                    manager.prettyPrintGrid();
+                }
+            }
+
+            if (pendingState != null) {
+                double reward = rewardFor(seat, env, state);
+                updateQValue(pendingState, pendingAction, reward, state);
+                rewards.add(reward);
+            }
+
+            if (verbose) {
+                System.out.println("\n=== Fin de l'épisode " + (episode + 1) + " ===");
+                manager.prettyPrintGrid();
+            }
+            episodesDone++;
+        }
+    }
+
+    /**
+     * Retourne la récompense d'un état du point de vue d'un camp : les
+     * récompenses de fin de partie sont inversées pour le joueur 1.
+     *
+     * @param seat camp de l'agent ("0" ou "1")
+     * @param env environnement du jeu
+     * @param state état atteint
+     * @return récompense pour ce camp
+     */
+    private double rewardFor(String seat, Evironnement env, State state) {
+        double reward = env.getReward(state);
+        if (seat.equals("1") && env.isTerminal(state)) {
+            return -reward;
+        }
+        return reward;
+    }
+
     /**
      * Met à jour la valeur Q pour une paire (état, action).
      *
@@ -129,10 +284,13 @@ public class QLearningTicTacToeAgent implements Agent {
      *     agent.updateQValue(etat, action, 1.0, etatSuivant);
      */
     private void updateQValue(State state, Transition action, double reward, State nextState) {
-        double oldQ = Q.getOrDefault(state, new HashMap<>()).getOrDefault(action, 0.0);
+        long start = UPDATE.start();
+        warm(state);
+        double oldQ = Q.get(state, action);
         double nextMaxQ = maxQ(nextState);
         double newQ = oldQ + alpha * (reward + gamma * nextMaxQ - oldQ);
-        Q.computeIfAbsent(state, k -> new HashMap<>()).put(action, newQ);
+        Q.put(state, action, newQ);
+        UPDATE.stop(start);
     }
 
     /**
@@ -163,16 +321,8 @@ public class QLearningTicTacToeAgent implements Agent {
      *     Transition meilleureAction = agent.bestAction(etat, actionsDisponibles);
      */
     private Transition bestAction(State state, List<Transition> actions) {
-        Transition best = actions.get(0);
-        double bestValue = Q.getOrDefault(state, new HashMap<>()).getOrDefault(best, 0.0);
-        for (Transition t : actions) {
-            double value = Q.getOrDefault(state, new HashMap<>()).getOrDefault(t, 0.0);
-            if (value > bestValue) {
-                best = t;
-                bestValue = value;
-            }
-        }
-        return best;
+        warm(state);
+        return Q.best(state, actions);
     }
 
     /**
@@ -185,10 +335,79 @@ public class QLearningTicTacToeAgent implements Agent {
      *     double maxQValue = agent.maxQ(etat);
      */
     private double maxQ(State state) {
-        return Q.getOrDefault(state, new HashMap<>())
-                .values().stream()
-                .mapToDouble(v -> v)
-                .max().orElse(0.0);
+        warm(state);
+        return Q.max(state);
+    }
+
+    /**
+     * Recopie dans la table Q les valeurs du checkpoint de départ pour un état,
+     * à sa première rencontre.
+     *
+     * @param state état rencontré
+     */
+    private void warm(State state) {
+        if (warmStart == null || !warmed.add(state))
+            return;
+        Map<String, Double> row = warmStart.getRow("Q", encoder.encode(state));
+        if (row == null)
+            return;
+        for (Transition t : state.getOutTransitions()) {
+            Double value = row.get(ActionEncoder.NAME_AND_PARAMETERS.encode(t));
+            if (value != null) {
+                Q.put(state, t, value);
+            }
+        }
+    }
+
+    /**
+     * Sauvegarde la table Q (indexée par clés d'état et d'action stables),
+     * l'état du générateur aléatoire et le nombre d'épisodes joués.
+     *
+     * @param writer checkpoint en cours de construction
+     *
+     * Exemple :
+     *     agent.saveCheckpoint(writer);
+     */
+    @Override
+    public void saveCheckpoint(CheckpointWriter writer) {
+        if (warmStart != null) {
+            // Les états du checkpoint de départ jamais revisités sont conservés
+            warmStart.forEach("Q", (key, value) -> writer.put("Q", key, toBytes(value)));
+        }
+        Q.forEach((state, values) -> {
+            Map<String, Double> row = new LinkedHashMap<>();
+            for (Map.Entry<Transition, Double> entry : values.entrySet()) {
+                row.put(ActionEncoder.NAME_AND_PARAMETERS.encode(entry.getKey()), entry.getValue());
+            }
+            writer.putRow("Q", encoder.encode(state), row);
+        });
+        writer.putLong("meta", "rng", random.getState());
+        writer.putLong("meta", "episodes", episodesDone);
+    }
+
+    /**
+     * Reprend l'apprentissage depuis un checkpoint : les valeurs Q sont lues à
+     * la première rencontre de chaque état, le générateur aléatoire et le
+     * compteur d'épisodes sont restaurés. La réserve d'adversaires du mode
+     * self-play n'est pas sauvegardée et repart de la table rechargée.
+     *
+     * @param checkpoint checkpoint ouvert
+     *
+     * Exemple :
+     *     agent.loadCheckpoint(Checkpoint.open(path));
+     */
+    @Override
+    public void loadCheckpoint(Checkpoint checkpoint) {
+        this.warmStart = checkpoint;
+        this.warmed.clear();
+        this.random.setState(checkpoint.getLong("meta", "rng", random.getState()));
+        this.episodesDone = checkpoint.getLong("meta", "episodes", 0);
+    }
+
+    private static byte[] toBytes(ByteBuffer value) {
+        byte[] bytes = new byte[value.remaining()];
+        value.duplicate().get(bytes);
+        return bytes;
     }
 
     /**
@@ -239,7 +458,7 @@ public class QLearningTicTacToeAgent implements Agent {
             Transition bestAction = bestAction(state, actions);
             optimalPath.add(bestAction.getParameterPredicate());
 
-            state = bestAction.getDestination().explore();
+            state = env.getSuccessor(bestAction);
         }
 
         return optimalPath;
@@ -0,0 +1,222 @@
+package fr.polytech.mnia.agent;
+
+import de.prob.statespace.State;
+import de.prob.statespace.Transition;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * QTable.java
+ *
+ * Table des valeurs Q(état, action) avec instantanés en copie sur écriture.
+ *
+ * Caractéristiques :
+ * - Les lignes (une par état) sont réparties dans un nombre fixe de segments.
+ * - snapshot() ne copie que le tableau des segments : l'instantané partage
+ * les segments et les lignes avec la table vivante.
+ * - Après un instantané, la première écriture dans un segment (puis dans une
+ * ligne) en fait une copie privée ; les parties jamais modifiées restent
+ * partagées.
+ * - Un instantané est figé : toute écriture lève une exception.
+ *
+ * Exemple d'utilisation :
+ * QTable q = new QTable();
+ * q.put(state, transition, 0.5);
+ * QTable frozen = q.snapshot();
+ * double value = frozen.get(state, transition);
+ */
+public class QTable {
+
+    private static final int SEGMENTS = 64;
+
+    private final Segment[] segments;
+    private final boolean frozen;
+    private int epoch = 0; // Version courante ; les éléments d'une version antérieure sont partagés
+
+    /**
+     * Construit une table Q vide (toutes les valeurs valent 0.0).
+     */
+    public QTable() {
+        this.segments = new Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(0, new HashMap<>());
+        }
+        this.frozen = false;
+    }
+
+    private QTable(Segment[] segments) {
+        this.segments = segments;
+        this.frozen = true;
+    }
+
+    /**
+     * Retourne la valeur Q d'une paire (état, action).
+     *
+     * @param state  état
+     * @param action action
+     * @return valeur Q, 0.0 si la paire n'a jamais été mise à jour
+     *
+     *         Exemple :
+     *         double q = table.get(state, transition);
+     */
+    public double get(State state, Transition action) {
+        Row row = segmentOf(state).rows.get(state);
+        if (row == null)
+            return 0.0;
+        return row.values.getOrDefault(action, 0.0);
+    }
+
+    /**
+     * Indique si un état a au moins une valeur dans la table.
+     *
+     * @param state état
+     * @return true si une ligne existe pour cet état
+     */
+    public boolean contains(State state) {
+        return segmentOf(state).rows.containsKey(state);
+    }
+
+    /**
+     * Retourne la meilleure valeur Q connue pour un état.
+     *
+     * @param state état
+     * @return maximum des valeurs de l'état, 0.0 si aucune valeur n'est connue
+     */
+    public double max(State state) {
+        Row row = segmentOf(state).rows.get(state);
+        if (row == null || row.values.isEmpty())
+            return 0.0;
+        double max = Double.NEGATIVE_INFINITY;
+        for (double v : row.values.values()) {
+            if (v > max)
+                max = v;
+        }
+        return max;
+    }
+
+    /**
+     * Sélectionne l'action de plus grande valeur parmi une liste.
+     *
+     * @param state   état
+     * @param actions actions disponibles, non vide
+     * @return action de valeur maximale (la première en cas d'égalité)
+     */
+    public Transition best(State state, List<Transition> actions) {
+        Transition best = actions.get(0);
+        double bestValue = get(state, best);
+        for (Transition t : actions) {
+            double value = get(state, t);
+            if (value > bestValue) {
+                best = t;
+                bestValue = value;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Fixe la valeur Q d'une paire (état, action), en copiant au préalable le
+     * segment et la ligne s'ils sont partagés avec un instantané.
+     *
+     * @param state  état
+     * @param action action
+     * @param value  nouvelle valeur
+     *
+     *               Exemple :
+     *               table.put(state, transition, 0.5);
+     */
+    public void put(State state, Transition action, double value) {
+        if (frozen) {
+            throw new UnsupportedOperationException("Un instantané de table Q est en lecture seule");
+        }
+        int index = segmentIndex(state);
+        Segment segment = segments[index];
+        if (segment.epoch != epoch) {
+            segment = new Segment(epoch, new HashMap<>(segment.rows));
+            segments[index] = segment;
+        }
+        Row row = segment.rows.get(state);
+        if (row == null) {
+            row = new Row(epoch, new HashMap<>());
+            segment.rows.put(state, row);
+        } else if (row.epoch != epoch) {
+            row = new Row(epoch, new HashMap<>(row.values));
+            segment.rows.put(state, row);
+        }
+        row.values.put(action, value);
+    }
+
+    /**
+     * Crée un instantané figé de la table, en temps constant.
+     *
+     * @return vue en lecture seule de la table dans son état actuel
+     *
+     *         Exemple :
+     *         QTable frozen = table.snapshot();
+     */
+    public QTable snapshot() {
+        if (frozen)
+            return this;
+        epoch++;
+        return new QTable(segments.clone());
+    }
+
+    /**
+     * Retourne le nombre d'états ayant au moins une valeur Q.
+     *
+     * @return nombre de lignes de la table
+     */
+    public int size() {
+        int n = 0;
+        for (Segment segment : segments) {
+            n += segment.rows.size();
+        }
+        return n;
+    }
+
+    /**
+     * Parcourt toutes les lignes de la table.
+     *
+     * @param visitor reçoit chaque état et ses valeurs par action (lecture seule)
+     */
+    public void forEach(BiConsumer<State, Map<Transition, Double>> visitor) {
+        for (Segment segment : segments) {
+            for (Map.Entry<State, Row> entry : segment.rows.entrySet()) {
+                visitor.accept(entry.getKey(), Collections.unmodifiableMap(entry.getValue().values));
+            }
+        }
+    }
+
+    private Segment segmentOf(State state) {
+        return segments[segmentIndex(state)];
+    }
+
+    private static int segmentIndex(State state) {
+        int h = state.hashCode();
+        return (h ^ (h >>> 16)) & (SEGMENTS - 1);
+    }
+
+    private static final class Segment {
+        final int epoch;
+        final Map<State, Row> rows;
+
+        Segment(int epoch, Map<State, Row> rows) {
+            this.epoch = epoch;
+            this.rows = rows;
+        }
+    }
+
+    private static final class Row {
+        final int epoch;
+        final Map<Transition, Double> values;
+
+        Row(int epoch, Map<Transition, Double> values) {
+            this.epoch = epoch;
+            this.values = values;
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package fr.polytech.mnia.agent;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import fr.polytech.mnia.Evironnement;
+import de.prob.statespace.State;
+import de.prob.statespace.Transition;
+
+/**
+ * RecedingHorizonAgent.java
+ *
+ * Agent de planification à horizon glissant, pour les modèles dont l'espace
+ * d'états est trop grand pour être exploré entièrement (par exemple
+ * Scheduler).
+ *
+ * À chaque décision, l'agent n'explore que jusqu'à la profondeur H depuis
+ * l'état courant, calcule par programmation dynamique la meilleure somme
+ * actualisée des récompenses sur H pas, joue la première action du meilleur
+ * plan puis recommence depuis l'état atteint.
+ *
+ * Les nœuds explorés (récompense, terminaison, successeurs) sont conservés
+ * d'une décision à la suivante : seule la nouvelle couche de profondeur H est
+ * explorée. Lorsque le nombre de nœuds dépasse maxNodes, ceux qui ne sont plus
+ * atteignables en H pas depuis l'état courant sont oubliés.
+ *
+ * Exemple d'utilisation :
+ * Agent agent = new RecedingHorizonAgent(3, 0.9, 50000);
+ * agent.train(env, 200, false);
+ */
+public class RecedingHorizonAgent implements Agent {
+
+    /**
+     * Nœud du graphe exploré : un état ProB et ses successeurs une fois
+     * développé.
+     */
+    private static final class Node {
+        final State state;
+        final double reward;
+        final boolean terminal;
+        List<Transition> actions; // null tant que le nœud n'est pas développé
+        Node[] children;
+
+        Node(State state, double reward, boolean terminal) {
+            this.state = state;
+            this.reward = reward;
+            this.terminal = terminal;
+        }
+    }
+
+    private final int horizon;
+    private final double gamma;
+    private final int maxNodes;
+    private final Map<String, Node> nodes = new HashMap<>();
+    private final List<Double> rewards = new ArrayList<>();
+    private final List<String> actionsChosen = new ArrayList<>();
+    private long seenCompactions = 0;
+
+    // Statistiques
+    private long created = 0;
+    private long reused = 0;
+    private long pruned = 0;
+
+    /**
+     * Construit un agent à horizon glissant.
+     *
+     * @param horizon  profondeur H de la recherche (au moins 1)
+     * @param gamma    facteur d'actualisation (entre 0 et 1)
+     * @param maxNodes nombre de nœuds conservés au-delà duquel l'arbre est
+     *                 élagué autour de l'état courant
+     *
+     *                 Exemple :
+     *                 RecedingHorizonAgent agent = new RecedingHorizonAgent(4,
+     *                 0.95, 100000);
+     */
+    public RecedingHorizonAgent(int horizon, double gamma, int maxNodes) {
+        if (horizon < 1) {
+            throw new IllegalArgumentException("L'horizon doit être au moins 1");
+        }
+        this.horizon = horizon;
+        this.gamma = gamma;
+        this.maxNodes = maxNodes;
+    }
+
+    /**
+     * Joue nbSteps décisions depuis l'état courant de l'environnement. Un
+     * état terminal (ou sans action) ramène l'environnement à l'état initial.
+     *
+     * @param env     environnement de travail
+     * @param nbSteps nombre de décisions
+     * @param verbose true pour tracer chaque décision
+     * @throws Exception en cas d'erreur ProB
+     *
+     *                   Exemple :
+     *                   agent.train(env, 200, true);
+     */
+    @Override
+    public void train(Evironnement env, int nbSteps, boolean verbose) throws Exception {
+        for (int step = 0; step < nbSteps; step++) {
+            if (env.getCompactions() != seenCompactions) {
+                // Les états des nœuds appartiennent à l'ancien espace d'états
+                nodes.clear();
+                seenCompactions = env.getCompactions();
+            }
+
+            Node root = node(env, env.getState());
+            int best = root.terminal ? -1 : decide(env, root);
+            if (best < 0) {
+                env.reset();
+                continue;
+            }
+
+            Transition chosen = root.actions.get(best);
+            env.runAction(chosen);
+            double reward = env.getReward(env.getState());
+            rewards.add(reward);
+            actionsChosen.add(chosen.getName() + "(" + chosen.getParameterPredicate() + ")");
+
+            if (verbose) {
+                env.traceStep(getClass().getSimpleName(), step, chosen, reward);
+            }
+
+            if (nodes.size() > maxNodes) {
+                prune(node(env, env.getState()));
+            }
+            if (env.isTerminal(env.getState())) {
+                env.reset();
+            }
+        }
+    }
+
+    /**
+     * Choisit l'action de la racine qui maximise la somme actualisée des
+     * récompenses sur l'horizon.
+     *
+     * @return indice de l'action, -1 si aucune action n'est possible
+     */
+    private int decide(Evironnement env, Node root) {
+        expand(env, root);
+        Map<Node, double[]> memo = new IdentityHashMap<>();
+        int best = -1;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < root.children.length; i++) {
+            Node child = root.children[i];
+            double value = child.reward + gamma * value(env, child, horizon - 1, memo);
+            if (value > bestValue) {
+                bestValue = value;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Meilleure somme actualisée des récompenses sur depth pas depuis un
+     * nœud, mémorisée par (nœud, profondeur) pour la décision en cours.
+     */
+    private double value(Evironnement env, Node node, int depth, Map<Node, double[]> memo) {
+        if (depth == 0 || node.terminal) {
+            return 0.0;
+        }
+        double[] cached = memo.get(node);
+        if (cached == null) {
+            cached = new double[horizon];
+            Arrays.fill(cached, Double.NaN);
+            memo.put(node, cached);
+        } else if (!Double.isNaN(cached[depth])) {
+            return cached[depth];
+        }
+
+        expand(env, node);
+        double best = 0.0;
+        if (node.children.length > 0) {
+            best = Double.NEGATIVE_INFINITY;
+            for (Node child : node.children) {
+                best = Math.max(best, child.reward + gamma * value(env, child, depth - 1, memo));
+            }
+        }
+        cached[depth] = best;
+        return best;
+    }
+
+    /**
+     * Retourne le nœud d'un état, en le créant (récompense et terminaison
+     * évaluées une seule fois) s'il n'a pas encore été rencontré.
+     */
+    private Node node(Evironnement env, State state) {
+        Node node = nodes.get(state.getId());
+        if (node != null) {
+            reused++;
+            return node;
+        }
+        node = new Node(state, env.getReward(state), env.isTerminal(state));
+        nodes.put(state.getId(), node);
+        created++;
+        return node;
+    }
+
+    /**
+     * Développe un nœud : actions disponibles et nœuds successeurs.
+     */
+    private void expand(Evironnement env, Node node) {
+        if (node.actions != null) {
+            return;
+        }
+        List<Transition> actions = env.getActions(node.state);
+        Node[] children = new Node[actions.size()];
+        for (int i = 0; i < children.length; i++) {
+            children[i] = node(env, env.getSuccessor(actions.get(i)));
+        }
+        node.children = children;
+        node.actions = actions;
+    }
+
+    /**
+     * Ne conserve que les nœuds atteignables en au plus H pas depuis la
+     * racine. Les nœuds conservés à la profondeur H redeviennent non
+     * développés : ils ne référencent plus de sous-arbre élagué, et un
+     * nouveau développement passera par la table des nœuds.
+     */
+    private void prune(Node root) {
+        Set<Node> kept = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Node> level = new ArrayDeque<>();
+        level.add(root);
+        kept.add(root);
+        for (int depth = 0; depth < horizon && !level.isEmpty(); depth++) {
+            Deque<Node> next = new ArrayDeque<>();
+            for (Node node : level) {
+                if (node.children == null) {
+                    continue;
+                }
+                for (Node child : node.children) {
+                    if (kept.add(child)) {
+                        next.add(child);
+                    }
+                }
+            }
+            level = next;
+        }
+        // Nœuds de profondeur H : leurs enfants ont pu être élagués
+        for (Node frontier : level) {
+            frontier.actions = null;
+            frontier.children = null;
+        }
+        int before = nodes.size();
+        nodes.values().removeIf(node -> !kept.contains(node));
+        pruned += before - nodes.size();
+    }
+
+    /**
+     * Résumé de l'exploration : nœuds conservés, créés, réutilisés et
+     * élagués.
+     *
+     * @return ligne de résumé
+     *
+     *         Exemple :
+     *         System.out.println(agent.summary());
+     */
+    public String summary() {
+        long lookups = created + reused;
+        return String.format("H=%d, nœuds conservés=%d/%d, créés=%d, réutilisés=%d (%.1f%%), élagués=%d", horizon,
+                nodes.size(), maxNodes, created, reused, lookups == 0 ? 0.0 : 100.0 * reused / lookups, pruned);
+    }
+
+    /**
+     * Retourne la liste des récompenses obtenues à chaque décision.
+     *
+     * @return liste de récompenses (Double)
+     *
+     *         Exemple :
+     *         List<Double> recompenses = agent.getRewards();
+     */
+    @Override
+    public List<Double> getRewards() {
+        return rewards;
+    }
+
+    /**
+     * Retourne la liste des actions jouées.
+     *
+     * @return liste d'actions choisies (String)
+     *
+     *         Exemple :
+     *         List<String> actions = agent.getActionsChosen();
+     */
+    @Override
+    public List<String> getActionsChosen() {
+        return actionsChosen;
+    }
+}
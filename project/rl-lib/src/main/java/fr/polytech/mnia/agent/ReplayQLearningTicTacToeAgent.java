@@ -0,0 +1,288 @@
+package fr.polytech.mnia.agent;
+
+import fr.polytech.mnia.Evironnement;
+import fr.polytech.mnia.metrics.FormulaProfiler;
+import fr.polytech.mnia.metrics.MetricsRegistry;
+import fr.polytech.mnia.metrics.Timer;
+import fr.polytech.mnia.replay.ExperienceReplayBuffer;
+import fr.polytech.mnia.replay.PrioritizedReplayBuffer;
+import fr.polytech.mnia.replay.ReplayBatch;
+import fr.polytech.mnia.tictactoe.Opponent;
+import fr.polytech.mnia.tictactoe.RandomOpponent;
+import fr.polytech.mnia.tictactoe.TicTacToeEpisodeManager;
+import de.prob.statespace.State;
+import de.prob.statespace.Transition;
+
+import java.util.*;
+
+/**
+ * ReplayQLearningTicTacToeAgent.java
+ *
+ * Variante du Q-Learning pour le Tic-Tac-Toe qui mémorise chaque transition
+ * dans un tampon de rejeu et apprend par mini-batchs.
+ *
+ * Caractéristiques :
+ * - L'agent joue le rôle du joueur 0, le joueur 1 est un adversaire
+ * interchangeable (aléatoire par défaut).
+ * - Une transition relie deux états où c'est à l'agent de jouer (le coup de
+ * l'adversaire fait partie de la dynamique de l'environnement).
+ * - Les états sont numérotés à leur première visite ; la table Q est un
+ * tableau de valeurs par état, indexé par la position de l'action dans la
+ * liste des transitions sortantes.
+ * - Chaque pas coûteux de ProB est ainsi réutilisé par plusieurs mises à jour.
+ *
+ * Exemple d'utilisation :
+ * Agent agent = new ReplayQLearningTicTacToeAgent(0.1, 0.9, 0.1, 10000, 32, true);
+ * agent.train(env, 1000, false);
+ */
+public class ReplayQLearningTicTacToeAgent implements Agent {
+
+    private static final Timer UPDATE = MetricsRegistry.get().timer("agent.update");
+
+    private final double alpha;
+    private final double gamma;
+    private final double epsilon;
+    private final int batchSize;
+    private final ExperienceReplayBuffer buffer;
+    private final ReplayBatch batch;
+    private final double[] tdErrors;
+
+    private final Map<State, Integer> stateIds = new HashMap<>();
+    private final List<double[]> qValues = new ArrayList<>(); // Q[s][a], indexé par identifiant d'état
+    private final Random random = new Random();
+    private Opponent opponent = new RandomOpponent(random);
+    private final List<Double> rewards = new ArrayList<>();
+    private final List<String> actionsChosen = new ArrayList<>();
+
+    /**
+     * Construit un agent Q-Learning avec rejeu d'expérience.
+     *
+     * @param alpha       taux d'apprentissage (0 ≤ alpha ≤ 1)
+     * @param gamma       facteur d'actualisation (0 ≤ gamma ≤ 1)
+     * @param epsilon     probabilité d'exploration aléatoire (0 ≤ epsilon ≤ 1)
+     * @param capacity    nombre maximal de transitions conservées
+     * @param batchSize   taille des mini-batchs rejoués à chaque pas
+     * @param prioritized true pour un tirage prioritaire selon l'erreur TD,
+     *                    false pour un tirage uniforme
+     *
+     *                    Exemple :
+     *                    new ReplayQLearningTicTacToeAgent(0.1, 0.9, 0.1, 10000, 32, true);
+     */
+    public ReplayQLearningTicTacToeAgent(double alpha, double gamma, double epsilon,
+            int capacity, int batchSize, boolean prioritized) {
+        this.alpha = alpha;
+        this.gamma = gamma;
+        this.epsilon = epsilon;
+        this.batchSize = batchSize;
+        this.buffer = prioritized
+                ? new PrioritizedReplayBuffer(capacity, 0.6, 0.4, random)
+                : new ExperienceReplayBuffer(capacity, random);
+        this.batch = new ReplayBatch(batchSize);
+        this.tdErrors = new double[batchSize];
+    }
+
+    /**
+     * Remplace l'adversaire contre lequel l'agent s'entraîne.
+     *
+     * @param opponent adversaire jouant le rôle du joueur 1
+     *
+     *                 Exemple :
+     *                 agent.setOpponent(new MinimaxOpponent(new Random()));
+     */
+    public void setOpponent(Opponent opponent) {
+        this.opponent = opponent;
+    }
+
+    /**
+     * Entraîne l'agent pendant un certain nombre d'épisodes.
+     *
+     * @param env        environnement du jeu
+     * @param nbEpisodes nombre d'épisodes d'entraînement
+     * @param verbose    true pour afficher les étapes du jeu, false sinon
+     * @throws Exception en cas d'erreur pendant l'exécution
+     *
+     *                   Exemple :
+     *                   agent.train(env, 1000, true);
+     */
+    @Override
+    public void train(Evironnement env, int nbEpisodes, boolean verbose) throws Exception {
+        TicTacToeEpisodeManager manager = new TicTacToeEpisodeManager(env);
+
+        for (int episode = 0; episode < nbEpisodes; episode++) {
+            env.reset();
+            State state = playOpponent(env, env.getInitialState(), manager, verbose);
+
+            if (verbose) {
+                System.out.println("\n=== Début de l'épisode " + (episode + 1) + " ===");
+                manager.prettyPrintGrid();
+            }
+
+            while (!env.isTerminal(state)) {
+                List<Transition> actions = env.getActions(state);
+                if (actions.isEmpty())
+                    break;
+
+                int s = stateId(state, actions.size());
+                int a = chooseAction(s);
+                Transition chosen = actions.get(a);
+
+                env.runAction(chosen);
+                if (verbose) {
+                    System.out.println("\n[Agent 0 joue] : " + chosen.getName() + " " + chosen.getParameterPredicate());
+                    manager.prettyPrintGrid();
+                }
+
+                State nextState = playOpponent(env, env.getState(), manager, verbose);
+                List<Transition> nextActions = env.getActions(nextState);
+                boolean terminal = env.isTerminal(nextState) || nextActions.isEmpty();
+                double reward = env.getReward(nextState);
+                int sNext = stateId(nextState, terminal ? 0 : nextActions.size());
+
+                buffer.add(s, a, reward, sNext, terminal);
+                replay();
+
+                rewards.add(reward);
+                actionsChosen.add(chosen.getParameterPredicate());
+
+                state = nextState;
+            }
+
+            if (verbose) {
+                System.out.println("\n=== Fin de l'épisode " + (episode + 1) + " ===");
+                manager.prettyPrintGrid();
+            }
+        }
+    }
+
+    /**
+     * Fait jouer le joueur 1 (adversaire) tant que c'est son tour et que la partie
+     * n'est pas finie.
+     *
+     * @param env     environnement du jeu
+     * @param state   état courant
+     * @param manager gestionnaire utilisé pour l'affichage
+     * @param verbose true pour afficher les coups joués
+     * @return premier état où c'est à l'agent de jouer (ou état terminal)
+     */
+    private State playOpponent(Evironnement env, State state, TicTacToeEpisodeManager manager, boolean verbose) {
+        while (!env.isTerminal(state) && !FormulaProfiler.eval(state, "turn").toString().trim().equals("0")) {
+            List<Transition> actions = env.getActions(state);
+            if (actions.isEmpty())
+                break;
+
+            Transition opponentMove = opponent.chooseMove(state, actions);
+            env.runAction(opponentMove);
+            state = env.getState();
+
+            if (verbose) {
+                System.out.println("\n[Joueur 1 (" + opponent.getName() + ") joue] : " + opponentMove.getName() + " "
+                        + opponentMove.getParameterPredicate());
+                manager.prettyPrintGrid();
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Rejoue un mini-batch tiré du tampon et applique les mises à jour de
+     * Q-Learning correspondantes.
+     *
+     * Exemple :
+     * agent.replay();
+     */
+    private void replay() {
+        if (buffer.size() < batchSize)
+            return;
+
+        long start = UPDATE.start();
+        buffer.sample(batch);
+        for (int i = 0; i < batchSize; i++) {
+            double[] q = qValues.get(batch.states[i]);
+            int a = batch.actions[i];
+            double target = batch.rewards[i];
+            if (!batch.terminals[i]) {
+                target += gamma * maxQ(qValues.get(batch.nextStates[i]));
+            }
+            double td = target - q[a];
+            q[a] += alpha * batch.weights[i] * td;
+            tdErrors[i] = td;
+        }
+        buffer.updatePriorities(batch, tdErrors);
+        UPDATE.stop(start);
+    }
+
+    /**
+     * Retourne l'identifiant d'un état, en le numérotant à sa première visite.
+     *
+     * @param state     état à identifier
+     * @param nbActions nombre d'actions disponibles dans cet état
+     * @return identifiant dense de l'état
+     */
+    private int stateId(State state, int nbActions) {
+        Integer id = stateIds.get(state);
+        if (id == null) {
+            id = qValues.size();
+            stateIds.put(state, id);
+            qValues.add(new double[nbActions]);
+        }
+        return id;
+    }
+
+    /**
+     * Choisit une action selon une stratégie ε-Greedy.
+     *
+     * @param s identifiant de l'état courant
+     * @return position de l'action choisie dans la liste des transitions
+     */
+    private int chooseAction(int s) {
+        double[] q = qValues.get(s);
+        if (random.nextDouble() < epsilon) {
+            return random.nextInt(q.length);
+        }
+        int best = 0;
+        for (int a = 1; a < q.length; a++) {
+            if (q[a] > q[best]) {
+                best = a;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Renvoie la meilleure valeur Q d'une ligne de la table.
+     *
+     * @param q valeurs Q d'un état
+     * @return maximum des valeurs, 0.0 si l'état n'a pas d'action
+     */
+    private static double maxQ(double[] q) {
+        if (q.length == 0)
+            return 0.0;
+        double max = q[0];
+        for (int a = 1; a < q.length; a++) {
+            if (q[a] > max) {
+                max = q[a];
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Retourne la liste des récompenses obtenues pendant l'entraînement.
+     *
+     * @return liste des récompenses (Double)
+     */
+    @Override
+    public List<Double> getRewards() {
+        return rewards;
+    }
+
+    /**
+     * Retourne la liste des actions choisies par l'agent pendant l'entraînement.
+     *
+     * @return liste des actions choisies (String)
+     */
+    @Override
+    public List<String> getActionsChosen() {
+        return actionsChosen;
+    }
+}
@@ -0,0 +1,84 @@
+package fr.polytech.mnia.agent;
+
+import java.util.List;
+import java.util.Random;
+
+import fr.polytech.mnia.Evironnement;
+import de.prob.statespace.State;
+import de.prob.statespace.Transition;
+
+/**
+ * RolloutPolicy.java
+ *
+ * Politique de simulation utilisée par MctsAgent pour estimer la valeur d'une
+ * feuille de l'arbre : elle choisit l'action suivante d'une simulation.
+ *
+ * Une implémentation est appelée en parallèle par les différents threads de
+ * recherche, chacun avec son propre environnement et son propre générateur
+ * aléatoire : elle ne doit donc pas modifier d'état partagé.
+ *
+ * Exemple d'utilisation :
+ * RolloutPolicy greedy = (env, state, actions, random) -> ...;
+ * Agent agent = new MctsAgent(2000, 4, 1.4, 0.95, 20, greedy);
+ */
+public interface RolloutPolicy {
+
+    /**
+     * Choisit une action pour la simulation.
+     *
+     * @param env     environnement du thread de recherche
+     * @param state   état courant de la simulation
+     * @param actions actions disponibles (non vide)
+     * @param random  générateur aléatoire du thread de recherche
+     * @return action choisie parmi actions
+     *
+     *         Exemple :
+     *         Transition t = policy.choose(env, state, actions, random);
+     */
+    Transition choose(Evironnement env, State state, List<Transition> actions, Random random);
+
+    /**
+     * Politique uniforme : une action au hasard parmi les actions
+     * disponibles.
+     *
+     * @return politique aléatoire
+     *
+     *         Exemple :
+     *         Agent agent = new MctsAgent(2000, 1, 1.4, 0.95, 20,
+     *         RolloutPolicy.random());
+     */
+    static RolloutPolicy random() {
+        return (env, state, actions, random) -> actions.get(random.nextInt(actions.size()));
+    }
+
+    /**
+     * Politique gloutonne à un pas : l'action dont le successeur a la
+     * meilleure récompense immédiate (au hasard entre ex aequo). Plus coûteuse
+     * qu'une politique aléatoire (une récompense évaluée par action), mais
+     * moins bruitée.
+     *
+     * @return politique gloutonne
+     *
+     *         Exemple :
+     *         Agent agent = new MctsAgent(500, 4, 1.4, 0.95, 10,
+     *         RolloutPolicy.greedy());
+     */
+    static RolloutPolicy greedy() {
+        return (env, state, actions, random) -> {
+            Transition best = null;
+            double bestReward = Double.NEGATIVE_INFINITY;
+            int ties = 0;
+            for (Transition t : actions) {
+                double reward = env.getReward(env.getSuccessor(t));
+                if (reward > bestReward) {
+                    bestReward = reward;
+                    best = t;
+                    ties = 1;
+                } else if (reward == bestReward && random.nextInt(++ties) == 0) {
+                    best = t;
+                }
+            }
+            return best;
+        };
+    }
+}
@@ -0,0 +1,508 @@
+package fr.polytech.mnia.agent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import fr.polytech.mnia.Evironnement;
+import fr.polytech.mnia.checkpoint.Checkpoint;
+import fr.polytech.mnia.checkpoint.CheckpointWriter;
+import fr.polytech.mnia.checkpoint.Checkpointable;
+import fr.polytech.mnia.checkpoint.ResumableRandom;
+import fr.polytech.mnia.encoding.ActionEncoder;
+import fr.polytech.mnia.encoding.StateEncoder;
+import fr.polytech.mnia.encoding.VariableStateEncoder;
+import fr.polytech.mnia.metrics.MetricsRegistry;
+import fr.polytech.mnia.metrics.Timer;
+import de.prob.statespace.State;
+import de.prob.statespace.Transition;
+
+/**
+ * TabularTDAgent.java
+ *
+ * Moteur TD tabulaire générique, indépendant du modèle B : Q-Learning, SARSA,
+ * Expected SARSA et Double Q-Learning partagent la même boucle d'épisode et
+ * le même chemin de mise à jour
+ * Q(s, a) += alpha * (cible - Q(s, a)) ;
+ * seule la cible change d'une variante à l'autre.
+ *
+ * Ce qui dépend du modèle est injecté :
+ * - un TurnPolicy dit quand l'agent joue et fait jouer l'autre camp
+ * (TurnPolicy.single() pour SimpleRL, YouTube ou Scheduler,
+ * TicTacToeTurnPolicy pour le Tic-Tac-Toe) ;
+ * - un StateEncoder et un ActionEncoder donnent les clés stables.
+ *
+ * Les clés sont converties une fois en identifiants entiers ; les valeurs
+ * sont rangées dans un TabularValues (tableaux primitifs, sans Map par état).
+ *
+ * Une sous-classe peut observer chaque mise à jour réelle (afterUpdate) et
+ * rejouer des transitions (replay), par exemple pour planifier depuis un
+ * modèle appris (DynaQAgent). Les accès aux tables passent par
+ * lockValues/unlockValues, sans effet par défaut, pour qu'elle puisse les
+ * partager avec un autre thread.
+ *
+ * Exemple d'utilisation :
+ * Agent agent = new TabularTDAgent(TabularTDAgent.Variant.EXPECTED_SARSA, 0.1, 0.9, 0.1, 100,
+ * TurnPolicy.single());
+ * agent.train(env, 1000, false);
+ */
+public class TabularTDAgent implements Agent, Checkpointable {
+
+    /**
+     * Cible de la mise à jour TD.
+     */
+    public enum Variant {
+        /** r + gamma * max Q(s', .) */
+        Q_LEARNING,
+        /** r + gamma * Q(s', a') avec a' l'action choisie ensuite */
+        SARSA,
+        /** r + gamma * espérance de Q(s', .) sous la politique epsilon-gloutonne */
+        EXPECTED_SARSA,
+        /** deux tables : argmax dans l'une, valeur dans l'autre */
+        DOUBLE_Q
+    }
+
+    private static final Timer UPDATE = MetricsRegistry.get().timer("agent.update");
+
+    private final Variant variant;
+    private final double alpha;
+    private final double gamma;
+    private final double epsilon;
+    private final int maxEpisodeLength;
+    private TurnPolicy turns;
+    private final StateEncoder stateEncoder;
+    private final ActionEncoder actionEncoder;
+
+    private final Map<String, Integer> stateIds = new HashMap<>();
+    private final List<String> stateKeys = new ArrayList<>();
+    private final Map<String, Integer> actionIds = new HashMap<>();
+    private final List<String> actionKeys = new ArrayList<>();
+    private final TabularValues qa = new TabularValues();
+    private final TabularValues qb; // Seconde table du Double Q-Learning, null sinon
+
+    protected final ResumableRandom random = new ResumableRandom();
+    private int[] current = new int[16]; // Identifiants des actions de l'état courant
+    private int[] next = new int[16]; // Identifiants des actions de l'état suivant
+    private long episodesDone = 0;
+    private long updates = 0;
+    private final List<Double> rewards = new ArrayList<>();
+    private final List<String> actionsChosen = new ArrayList<>();
+
+    /**
+     * Construit un moteur TD avec les encodeurs par défaut
+     * (VariableStateEncoder, ActionEncoder.NAME_AND_PARAMETERS).
+     *
+     * @param variant          variante de la cible
+     * @param alpha            taux d'apprentissage
+     * @param gamma            facteur d'actualisation
+     * @param epsilon          probabilité d'exploration
+     * @param maxEpisodeLength nombre maximal de coups de l'agent par épisode
+     * @param turns            règle de tour
+     *
+     *                         Exemple :
+     *                         new TabularTDAgent(TabularTDAgent.Variant.DOUBLE_Q,
+     *                         0.2, 0.95, 0.1, 50, TurnPolicy.single());
+     */
+    public TabularTDAgent(Variant variant, double alpha, double gamma, double epsilon, int maxEpisodeLength,
+            TurnPolicy turns) {
+        this(variant, alpha, gamma, epsilon, maxEpisodeLength, turns, new VariableStateEncoder(),
+                ActionEncoder.NAME_AND_PARAMETERS);
+    }
+
+    /**
+     * Construit un moteur TD avec des encodeurs choisis.
+     *
+     * @param variant          variante de la cible
+     * @param alpha            taux d'apprentissage
+     * @param gamma            facteur d'actualisation
+     * @param epsilon          probabilité d'exploration
+     * @param maxEpisodeLength nombre maximal de coups de l'agent par épisode
+     * @param turns            règle de tour
+     * @param stateEncoder     clé stable d'un état
+     * @param actionEncoder    clé stable d'une action
+     */
+    public TabularTDAgent(Variant variant, double alpha, double gamma, double epsilon, int maxEpisodeLength,
+            TurnPolicy turns, StateEncoder stateEncoder, ActionEncoder actionEncoder) {
+        this.variant = variant;
+        this.alpha = alpha;
+        this.gamma = gamma;
+        this.epsilon = epsilon;
+        this.maxEpisodeLength = maxEpisodeLength;
+        this.turns = turns;
+        this.stateEncoder = stateEncoder;
+        this.actionEncoder = actionEncoder;
+        this.qb = variant == Variant.DOUBLE_Q ? new TabularValues() : null;
+    }
+
+    /**
+     * Remplace la règle de tour (par exemple pour changer d'adversaire).
+     *
+     * @param turns nouvelle règle
+     */
+    public void setTurnPolicy(TurnPolicy turns) {
+        this.turns = turns;
+    }
+
+    /**
+     * Retourne la règle de tour courante.
+     *
+     * @return règle de tour
+     */
+    public TurnPolicy getTurnPolicy() {
+        return turns;
+    }
+
+    /**
+     * Entraîne l'agent sur un nombre d'épisodes. Un épisode part de l'état
+     * initial, joue au moins une action puis s'arrête sur un état terminal,
+     * sans action, ou après maxEpisodeLength coups de l'agent.
+     *
+     * @param env     environnement d'apprentissage
+     * @param nbSteps nombre d'épisodes
+     * @param verbose true pour tracer chaque coup
+     * @throws Exception en cas d'erreur ProB
+     *
+     *                   Exemple :
+     *                   agent.train(env, 1000, false);
+     */
+    @Override
+    public void train(Evironnement env, int nbSteps, boolean verbose) throws Exception {
+        for (int episode = 0; episode < nbSteps; episode++) {
+            env.reset();
+            State state = turns.playOthers(env);
+            List<Transition> actions = env.getActions();
+            if (actions.isEmpty()) {
+                continue;
+            }
+            int s = stateId(state);
+            current = ids(actions, current);
+            int a;
+            lockValues();
+            try {
+                a = choose(s, current, actions.size());
+            } finally {
+                unlockValues();
+            }
+            actionsChosen.add(actionEncoder.encode(actions.get(a)));
+            double episodeReturn = 0.0;
+
+            for (int t = 0; t < maxEpisodeLength; t++) {
+                Transition chosen = actions.get(a);
+                env.runAction(chosen);
+                State nextState = turns.playOthers(env);
+                double reward = env.getReward(nextState);
+                episodeReturn += reward;
+                if (verbose) {
+                    env.traceStep(getClass().getSimpleName(), t, chosen, reward);
+                }
+
+                List<Transition> nextActions = env.isTerminal(nextState) ? null : env.getActions();
+                int s2 = -1;
+                int n2 = 0;
+                if (nextActions != null && !nextActions.isEmpty()) {
+                    s2 = stateId(nextState);
+                    n2 = nextActions.size();
+                    next = ids(nextActions, next);
+                }
+
+                long start = UPDATE.start();
+                int a2 = -1;
+                lockValues();
+                try {
+                    boolean flip = variant == Variant.DOUBLE_Q && random.nextBoolean();
+                    double target = reward;
+                    if (s2 >= 0) {
+                        a2 = choose(s2, next, n2);
+                        target += gamma * bootstrap(s2, next, n2, a2, flip);
+                    }
+                    update(flip ? qb : qa, s, current[a], target);
+                    afterUpdate(s, current[a], reward, s2, next, n2);
+                } finally {
+                    unlockValues();
+                }
+                UPDATE.stop(start);
+
+                if (a2 < 0) {
+                    break;
+                }
+                int[] swap = current;
+                current = next;
+                next = swap;
+                s = s2;
+                actions = nextActions;
+                a = a2;
+            }
+            rewards.add(episodeReturn);
+            episodesDone++;
+        }
+    }
+
+    /**
+     * Valeur de l'état suivant selon la variante.
+     *
+     * @param s    état suivant
+     * @param ids  actions de l'état suivant
+     * @param n    nombre d'actions
+     * @param next action choisie ensuite (SARSA)
+     * @param flip table mise à jour (Double Q) : qb si vrai, qa sinon
+     */
+    private double bootstrap(int s, int[] ids, int n, int next, boolean flip) {
+        switch (variant) {
+            case SARSA:
+                return qa.get(s, ids[next]);
+            case EXPECTED_SARSA:
+                double sum = 0.0;
+                for (int i = 0; i < n; i++) {
+                    sum += qa.get(s, ids[i]);
+                }
+                return (1.0 - epsilon) * qa.max(s, ids, n) + epsilon * sum / n;
+            case DOUBLE_Q:
+                TabularValues selector = flip ? qb : qa;
+                TabularValues evaluator = flip ? qa : qb;
+                return evaluator.get(s, ids[selector.argmax(s, ids, n)]);
+            default:
+                return qa.max(s, ids, n);
+        }
+    }
+
+    /**
+     * Chemin de mise à jour unique de toutes les variantes.
+     */
+    private void update(TabularValues table, int s, int a, double target) {
+        table.add(s, a, alpha * (target - table.get(s, a)));
+        updates++;
+    }
+
+    /**
+     * Appelé après chaque mise à jour réelle, tables verrouillées. Rien par
+     * défaut.
+     *
+     * @param s      état de départ
+     * @param a      action jouée
+     * @param reward récompense observée
+     * @param s2     état suivant, -1 s'il est terminal ou sans action
+     * @param ids    actions de l'état suivant (tampon réutilisé, à copier)
+     * @param n      nombre d'actions de l'état suivant
+     */
+    protected void afterUpdate(int s, int a, double reward, int s2, int[] ids, int n) {
+    }
+
+    /**
+     * Mise à jour simulée avec la cible du Q-Learning, sur la table
+     * principale ; à appeler tables verrouillées. Non comptée dans les mises
+     * à jour réelles.
+     *
+     * @param s      état de départ
+     * @param a      action
+     * @param reward récompense
+     * @param s2     état suivant, -1 s'il est terminal
+     * @param ids    actions de l'état suivant
+     * @param n      nombre d'actions de l'état suivant
+     *
+     *               Exemple :
+     *               replay(s, a, 1.0, s2, actions, actions.length);
+     */
+    protected void replay(int s, int a, double reward, int s2, int[] ids, int n) {
+        double target = reward;
+        if (s2 >= 0) {
+            target += gamma * qa.max(s2, ids, n);
+        }
+        qa.add(s, a, alpha * (target - qa.get(s, a)));
+    }
+
+    /**
+     * Début d'un accès aux tables. Rien par défaut ; une sous-classe qui les
+     * partage avec un autre thread y prend son verrou.
+     */
+    protected void lockValues() {
+    }
+
+    /**
+     * Fin d'un accès aux tables commencé par lockValues.
+     */
+    protected void unlockValues() {
+    }
+
+    /**
+     * Nombre de mises à jour réelles ; à lire tables verrouillées si un autre
+     * thread y accède.
+     *
+     * @return mises à jour réelles
+     */
+    protected long getUpdates() {
+        return updates;
+    }
+
+    /**
+     * Valeur utilisée pour agir : Q, ou QA + QB pour le Double Q-Learning.
+     */
+    private double value(int s, int a) {
+        return qb == null ? qa.get(s, a) : qa.get(s, a) + qb.get(s, a);
+    }
+
+    /**
+     * Choix epsilon-glouton, au hasard entre les actions de même valeur.
+     *
+     * @return indice de l'action dans ids
+     */
+    private int choose(int s, int[] ids, int n) {
+        if (random.nextDouble() < epsilon) {
+            return random.nextInt(n);
+        }
+        int best = 0;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        int ties = 0;
+        for (int i = 0; i < n; i++) {
+            double v = value(s, ids[i]);
+            if (v > bestValue) {
+                bestValue = v;
+                best = i;
+                ties = 1;
+            } else if (v == bestValue && random.nextInt(++ties) == 0) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private int stateId(State state) {
+        return intern(stateEncoder.encode(state), stateIds, stateKeys);
+    }
+
+    private int[] ids(List<Transition> actions, int[] buffer) {
+        if (buffer.length < actions.size()) {
+            buffer = Arrays.copyOf(buffer, Math.max(actions.size(), buffer.length * 2));
+        }
+        for (int i = 0; i < actions.size(); i++) {
+            buffer[i] = intern(actionEncoder.encode(actions.get(i)), actionIds, actionKeys);
+        }
+        return buffer;
+    }
+
+    private static int intern(String key, Map<String, Integer> ids, List<String> keys) {
+        Integer id = ids.get(key);
+        if (id == null) {
+            id = keys.size();
+            ids.put(key, id);
+            keys.add(key);
+        }
+        return id;
+    }
+
+    /**
+     * Résumé affiché en fin d'exécution.
+     *
+     * @return variante, taille de la table et nombre de mises à jour
+     *
+     *         Exemple :
+     *         System.out.println(agent.summary());
+     */
+    public String summary() {
+        int entries;
+        lockValues();
+        try {
+            entries = qa.size() + (qb == null ? 0 : qb.size());
+        } finally {
+            unlockValues();
+        }
+        return String.format("[TD] %s : %d états, %d actions, %d valeurs, %d mises à jour", variant,
+                stateKeys.size(), actionKeys.size(), entries, updates);
+    }
+
+    /**
+     * Sauvegarde la table Q (section "Q", une ligne par état, lisible par
+     * PolicyLookup ; section "Q2" pour la seconde table du Double Q-Learning),
+     * le générateur aléatoire et le nombre d'épisodes joués.
+     *
+     * @param writer checkpoint en cours de construction
+     *
+     *               Exemple :
+     *               agent.saveCheckpoint(writer);
+     */
+    @Override
+    public void saveCheckpoint(CheckpointWriter writer) {
+        lockValues();
+        try {
+            writeTable(writer, "Q", qa);
+            if (qb != null) {
+                writeTable(writer, "Q2", qb);
+            }
+        } finally {
+            unlockValues();
+        }
+        writer.putLong("meta", "rng", random.getState());
+        writer.putLong("meta", "episodes", episodesDone);
+    }
+
+    private void writeTable(CheckpointWriter writer, String section, TabularValues table) {
+        Map<Integer, Map<String, Double>> rows = new HashMap<>();
+        table.forEach((s, a, v) -> rows.computeIfAbsent(s, k -> new HashMap<>()).put(actionKeys.get(a), v));
+        for (Map.Entry<Integer, Map<String, Double>> row : rows.entrySet()) {
+            writer.putRow(section, stateKeys.get(row.getKey()), row.getValue());
+        }
+    }
+
+    /**
+     * Reprend l'apprentissage depuis un checkpoint. Les identifiants entiers
+     * sont reconstruits à partir des clés stables.
+     *
+     * @param checkpoint checkpoint ouvert
+     *
+     *                   Exemple :
+     *                   agent.loadCheckpoint(Checkpoint.open(path));
+     */
+    @Override
+    public void loadCheckpoint(Checkpoint checkpoint) {
+        lockValues();
+        try {
+            readTable(checkpoint, "Q", qa);
+            if (qb != null) {
+                readTable(checkpoint, "Q2", qb);
+            }
+        } finally {
+            unlockValues();
+        }
+        random.setState(checkpoint.getLong("meta", "rng", random.getState()));
+        episodesDone = checkpoint.getLong("meta", "episodes", 0);
+    }
+
+    private void readTable(Checkpoint checkpoint, String section, TabularValues table) {
+        if (!checkpoint.hasSection(section)) {
+            return;
+        }
+        checkpoint.forEach(section, (key, value) -> {
+            int s = intern(key, stateIds, stateKeys);
+            for (Map.Entry<String, Double> entry : Checkpoint.decodeRow(value).entrySet()) {
+                table.put(s, intern(entry.getKey(), actionIds, actionKeys), entry.getValue());
+            }
+        });
+    }
+
+    /**
+     * Retourne le retour (somme des récompenses) de chaque épisode.
+     *
+     * @return liste des retours (Double)
+     *
+     *         Exemple :
+     *         List<Double> retours = agent.getRewards();
+     */
+    @Override
+    public List<Double> getRewards() {
+        return rewards;
+    }
+
+    /**
+     * Retourne la première action de chaque épisode.
+     *
+     * @return liste d'actions choisies (String)
+     *
+     *         Exemple :
+     *         List<String> actions = agent.getActionsChosen();
+     */
+    @Override
+    public List<String> getActionsChosen() {
+        return actionsChosen;
+    }
+}
@@ -0,0 +1,176 @@
+package fr.polytech.mnia.agent;
+
+import java.util.Arrays;
+
+/**
+ * TabularValues.java
+ *
+ * Table de valeurs Q(état, action) sur identifiants entiers, en adressage
+ * ouvert : clés (état << 32 | action) dans un tableau de long, valeurs dans un
+ * tableau de double, sans objet par entrée. Les valeurs absentes valent 0.0.
+ *
+ * Sert de stockage unique aux variantes du moteur TD tabulaire.
+ *
+ * Exemple d'utilisation :
+ * TabularValues q = new TabularValues();
+ * q.add(state, action, alpha * (target - q.get(state, action)));
+ * int best = q.argmax(state, actions, n);
+ */
+public class TabularValues {
+
+    /**
+     * Reçoit chaque entrée de la table.
+     */
+    public interface Visitor {
+        /**
+         * @param state  identifiant de l'état
+         * @param action identifiant de l'action
+         * @param value  valeur Q
+         */
+        void visit(int state, int action, double value);
+    }
+
+    private static final long EMPTY = -1L;
+
+    private long[] keys = new long[1024];
+    private double[] values = new double[1024];
+    private int size = 0;
+
+    /**
+     * Construit une table vide.
+     */
+    public TabularValues() {
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * Retourne la valeur d'une paire.
+     *
+     * @param state  identifiant de l'état (positif)
+     * @param action identifiant de l'action (positif)
+     * @return valeur Q, 0.0 si absente
+     */
+    public double get(int state, int action) {
+        int slot = find(key(state, action));
+        return keys[slot] == EMPTY ? 0.0 : values[slot];
+    }
+
+    /**
+     * Ajoute delta à la valeur d'une paire.
+     *
+     * @param state  identifiant de l'état
+     * @param action identifiant de l'action
+     * @param delta  incrément
+     * @return nouvelle valeur
+     */
+    public double add(int state, int action, double delta) {
+        long key = key(state, action);
+        int slot = find(key);
+        if (keys[slot] == EMPTY) {
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+                slot = find(key);
+            }
+            keys[slot] = key;
+            values[slot] = 0.0;
+            size++;
+        }
+        return values[slot] += delta;
+    }
+
+    /**
+     * Fixe la valeur d'une paire.
+     *
+     * @param state  identifiant de l'état
+     * @param action identifiant de l'action
+     * @param value  nouvelle valeur
+     */
+    public void put(int state, int action, double value) {
+        add(state, action, value - get(state, action));
+    }
+
+    /**
+     * Indice (dans actions) de l'action de plus grande valeur, la première en
+     * cas d'égalité.
+     *
+     * @param state   identifiant de l'état
+     * @param actions identifiants des actions disponibles
+     * @param n       nombre d'actions (au moins 1)
+     * @return indice dans actions
+     */
+    public int argmax(int state, int[] actions, int n) {
+        int best = 0;
+        double bestValue = get(state, actions[0]);
+        for (int i = 1; i < n; i++) {
+            double value = get(state, actions[i]);
+            if (value > bestValue) {
+                bestValue = value;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Plus grande valeur parmi des actions.
+     *
+     * @param state   identifiant de l'état
+     * @param actions identifiants des actions disponibles
+     * @param n       nombre d'actions (au moins 1)
+     * @return valeur maximale
+     */
+    public double max(int state, int[] actions, int n) {
+        return get(state, actions[argmax(state, actions, n)]);
+    }
+
+    /**
+     * Nombre d'entrées.
+     *
+     * @return nombre de paires stockées
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Parcourt toutes les entrées.
+     *
+     * @param visitor reçoit chaque paire et sa valeur
+     */
+    public void forEach(Visitor visitor) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                visitor.visit((int) (keys[i] >>> 32), (int) keys[i], values[i]);
+            }
+        }
+    }
+
+    private static long key(int state, int action) {
+        return ((long) state << 32) | (action & 0xffffffffL);
+    }
+
+    private int find(long key) {
+        int mask = keys.length - 1;
+        long h = key * 0x9E3779B97F4A7C15L;
+        int slot = (int) (h ^ (h >>> 32)) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        double[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new double[oldKeys.length * 2];
+        Arrays.fill(keys, EMPTY);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
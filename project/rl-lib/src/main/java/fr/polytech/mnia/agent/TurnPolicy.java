@@ -0,0 +1,104 @@
+package fr.polytech.mnia.agent;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import fr.polytech.mnia.Evironnement;
+import de.prob.statespace.State;
+import de.prob.statespace.Transition;
+
+/**
+ * TurnPolicy.java
+ *
+ * Règle de tour utilisée par les agents au tour par tour (TabularTDAgent,
+ * DynaQAgent, AfterstateAgent, MctsAgent) : elle indique si c'est à l'agent
+ * de jouer dans un état et, sinon, quel coup joue l'autre camp (adversaire,
+ * environnement...). Les coups de l'autre camp font partie de la dynamique
+ * vue par l'agent ; playOthers les joue sur l'environnement.
+ *
+ * Exemple d'utilisation :
+ * TurnPolicy single = TurnPolicy.single();
+ * TurnPolicy game = new TicTacToeTurnPolicy(new RandomOpponent(random));
+ */
+public interface TurnPolicy {
+
+    /**
+     * Indique si l'agent doit jouer dans cet état.
+     *
+     * @param state état courant (non terminal)
+     * @return true si c'est le tour de l'agent
+     */
+    boolean isAgentTurn(State state);
+
+    /**
+     * Coup de l'autre camp, appelé seulement si isAgentTurn est faux.
+     *
+     * @param state   état courant
+     * @param actions actions disponibles (non vide)
+     * @return coup joué
+     */
+    Transition otherMove(State state, List<Transition> actions);
+
+    /**
+     * Joue les coups de l'autre camp jusqu'au tour de l'agent ou à la fin de
+     * la partie.
+     *
+     * @param env environnement sur lequel jouer
+     * @return état où l'agent doit jouer (ou état final)
+     *
+     *         Exemple :
+     *         State state = turns.playOthers(env);
+     */
+    default State playOthers(Evironnement env) {
+        return playOthers(env, null);
+    }
+
+    /**
+     * Joue les coups de l'autre camp jusqu'au tour de l'agent ou à la fin de
+     * la partie, en signalant chaque coup joué.
+     *
+     * @param env    environnement sur lequel jouer
+     * @param played reçoit chaque coup de l'autre camp, dans l'ordre (null
+     *               pour ignorer)
+     * @return état où l'agent doit jouer (ou état final)
+     *
+     *         Exemple :
+     *         turns.playOthers(env, move -> history.add(move));
+     */
+    default State playOthers(Evironnement env, Consumer<Transition> played) {
+        State state = env.getState();
+        while (!env.isTerminal(state) && !isAgentTurn(state)) {
+            List<Transition> actions = env.getActions();
+            if (actions.isEmpty()) {
+                break;
+            }
+            Transition other = otherMove(state, actions);
+            env.runAction(other);
+            if (played != null) {
+                played.accept(other);
+            }
+            state = env.getState();
+        }
+        return state;
+    }
+
+    /**
+     * Règle à un seul joueur : l'agent joue dans tous les états (SimpleRL,
+     * YouTube, Scheduler).
+     *
+     * @return règle à un joueur
+     */
+    static TurnPolicy single() {
+        return new TurnPolicy() {
+            @Override
+            public boolean isAgentTurn(State state) {
+                return true;
+            }
+
+            @Override
+            public Transition otherMove(State state, List<Transition> actions) {
+                throw new IllegalStateException("Aucun autre joueur");
+            }
+        };
+    }
+}
@@ -4,10 +4,13 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
 
 import fr.polytech.mnia.Evironnement;
-import fr.polytech.mnia.reward.YouTubeRewardFunction;
+import fr.polytech.mnia.checkpoint.Checkpoint;
+import fr.polytech.mnia.checkpoint.CheckpointWriter;
+import fr.polytech.mnia.checkpoint.Checkpointable;
+import fr.polytech.mnia.metrics.MetricsRegistry;
+import fr.polytech.mnia.metrics.Timer;
 import de.prob.statespace.State;
 import de.prob.statespace.Transition;
 
@@ -24,12 +27,15 @@ import de.prob.statespace.Transition;
  * Agent agent = new UCBAgent();
  * agent.train(env, 1000, true);
  */
-public class UCBAgent implements Agent {
+public class UCBAgent implements Agent, Checkpointable {
+
+    private static final Timer UPDATE = MetricsRegistry.get().timer("agent.update");
 
     private final Map<String, Double> estimates = new HashMap<>();
     private final Map<String, Integer> counts = new HashMap<>();
     private final List<Double> rewards = new ArrayList<>();
     private final List<String> actionsChosen = new ArrayList<>();
+    private int totalActions = 0; // Nombre total d'actions jouées, reprise comprise (métadonnée)
 
     /**
      * Entraîne l'agent dans un environnement donné sur un nombre fixé d'étapes.
@@ -44,16 +50,12 @@ public class UCBAgent implements Agent {
      */
     @Override
     public void train(Evironnement env, int nbSteps, boolean verbose) throws Exception {
-        int totalActions = 0;
+        // Le terme d'exploration repart de zéro à chaque appel, comme avant la reprise
         for (int episode = 0; episode < nbSteps; episode++) {
             State state = env.getInitialState();
             List<Transition> actions = env.getActions();
 
-            Transition chosen = ucbSelect(actions, totalActions);
-
-            if (env.getRewardFunction() instanceof YouTubeRewardFunction) {
-                ((YouTubeRewardFunction) env.getRewardFunction()).updateChosenVideo(chosen);
-            }
+            Transition chosen = ucbSelect(actions, episode);
 
             env.runAction(chosen);
             state = env.getState();
@@ -63,18 +65,16 @@ public class UCBAgent implements Agent {
             actionsChosen.add(chosen.getParameterPredicate());
 
             if (verbose) {
-                System.out.println("Evaluation : " + state.eval(env.getRewardVariable()));
-                System.out.println("State ID : " + state.getId());
-                env.getAnimator().printState(state);
-                env.getAnimator().printActions(env.getActions());
-                System.out.println();
+                env.traceStep(getClass().getSimpleName(), totalActions, chosen, reward);
             }
 
+            long start = UPDATE.start();
             String key = chosen.getName() + chosen.getParameterPredicate();
             counts.put(key, counts.getOrDefault(key, 0) + 1);
             double oldEstimate = estimates.getOrDefault(key, 0.0);
             double newEstimate = oldEstimate + (1.0 / counts.get(key)) * (reward - oldEstimate);
             estimates.put(key, newEstimate);
+            UPDATE.stop(start);
 
             totalActions++;
         }
@@ -122,6 +122,44 @@ public class UCBAgent implements Agent {
         return mean + Math.sqrt(2 * Math.log(Math.max(1, total)) / n);
     }
 
+    /**
+     * Sauvegarde les estimations et les compteurs par action ainsi que le
+     * nombre total d'actions jouées.
+     *
+     * @param writer checkpoint en cours de construction
+     *
+     *               Exemple :
+     *               agent.saveCheckpoint(writer);
+     */
+    @Override
+    public void saveCheckpoint(CheckpointWriter writer) {
+        for (Map.Entry<String, Double> entry : estimates.entrySet()) {
+            writer.putDouble("estimates", entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            writer.putLong("counts", entry.getKey(), entry.getValue());
+        }
+        writer.putLong("meta", "totalActions", totalActions);
+    }
+
+    /**
+     * Reprend l'apprentissage depuis un checkpoint. Les tables d'un bandit étant
+     * petites, elles sont relues entièrement.
+     *
+     * @param checkpoint checkpoint ouvert
+     *
+     *                   Exemple :
+     *                   agent.loadCheckpoint(Checkpoint.open(path));
+     */
+    @Override
+    public void loadCheckpoint(Checkpoint checkpoint) {
+        estimates.clear();
+        checkpoint.forEach("estimates", (key, value) -> estimates.put(key, value.getDouble(0)));
+        counts.clear();
+        checkpoint.forEach("counts", (key, value) -> counts.put(key, (int) value.getLong(0)));
+        totalActions = (int) checkpoint.getLong("meta", "totalActions", 0);
+    }
+
     /**
      * Retourne la liste des récompenses obtenues pendant l'entraînement.
      *
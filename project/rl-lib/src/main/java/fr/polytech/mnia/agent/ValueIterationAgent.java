@@ -1,6 +1,13 @@
 package fr.polytech.mnia.agent;
 
 import fr.polytech.mnia.Evironnement;
+import fr.polytech.mnia.checkpoint.Checkpoint;
+import fr.polytech.mnia.checkpoint.CheckpointWriter;
+import fr.polytech.mnia.checkpoint.Checkpointable;
+import fr.polytech.mnia.encoding.StateEncoder;
+import fr.polytech.mnia.encoding.VariableStateEncoder;
+import fr.polytech.mnia.statespace.Bisimulation;
+import fr.polytech.mnia.statespace.CompactStateGraph;
 import de.prob.statespace.State;
 import de.prob.statespace.Transition;
 
@@ -16,18 +23,30 @@ import java.util.*;
  * TicTacToe.
  * Il calcule la valeur optimale des états avant de simuler une trajectoire
  * optimale.
+ * Les valeurs V peuvent être sauvegardées dans un checkpoint et servir de
+ * point de départ à une exécution suivante.
+ * Il peut aussi planifier directement sur un graphe d'états en cache, sans
+ * ProB (voir plan), éventuellement réduit au préalable par bisimulation
+ * (voir setMinimization).
  * 
  * Exemple d'utilisation :
  * Agent agent = new ValueIterationAgent(0.9, 0.01);
  * agent.train(env, 1000, true);
  */
-public class ValueIterationAgent implements Agent {
+public class ValueIterationAgent implements GraphPlanningAgent, Checkpointable {
 
     private final double gamma;
     private final double theta;
     private final Map<State, Double> V = new HashMap<>();
     private final List<Double> rewards = new ArrayList<>();
     private final List<String> actionsChosen = new ArrayList<>();
+    private final StateEncoder encoder = new VariableStateEncoder();
+    private Checkpoint warmStart = null; // Valeurs initiales de V, lues à la demande
+    private long iterations = 0; // Nombre total d'itérations effectuées
+    private CompactStateGraph graph = null; // Graphe utilisé par plan, null sinon
+    private double[] graphValues = null; // Valeurs V indexées par état du graphe
+    private boolean minimize = false; // Planifier sur le quotient par bisimulation
+    private Bisimulation bisimulation = null; // Dernière minimisation, null sinon
 
     /**
      * Construit un agent Value Iteration avec les paramètres spécifiés.
@@ -71,7 +90,7 @@ public class ValueIterationAgent implements Agent {
                 }
                 double maxQ = Double.NEGATIVE_INFINITY;
                 for (Transition t : env.getActions(s)) {
-                    State next = t.getDestination().explore();
+                    State next = env.getSuccessor(t);
                     double reward = env.getReward(next);
                     double q = reward + gamma * V.getOrDefault(next, 0.0);
                     if (q > maxQ) {
@@ -85,6 +104,7 @@ public class ValueIterationAgent implements Agent {
                 V.put(s, maxQ);
             }
             steps++;
+            iterations++;
             if (steps >= nbSteps)
                 break;
         } while (!converged);
@@ -101,7 +121,7 @@ public class ValueIterationAgent implements Agent {
             Transition bestAction = null;
             double bestValue = Double.NEGATIVE_INFINITY;
             for (Transition t : actions) {
-                State next = t.getDestination().explore();
+                State next = env.getSuccessor(t);
                 double reward = env.getReward(next);
                 double q = reward + gamma * V.getOrDefault(next, 0.0);
                 if (q > bestValue) {
@@ -124,6 +144,114 @@ public class ValueIterationAgent implements Agent {
         }
     }
 
+    /**
+     * Active la minimisation du graphe par bisimulation avant plan : les
+     * itérations portent sur le quotient et les valeurs sont recopiées sur
+     * chaque état du graphe d'origine.
+     *
+     * @param minimize true pour planifier sur le quotient
+     *
+     *                 Exemple :
+     *                 agent.setMinimization(true);
+     */
+    public void setMinimization(boolean minimize) {
+        this.minimize = minimize;
+    }
+
+    /**
+     * @return dernière minimisation effectuée par plan, null si aucune
+     */
+    public Bisimulation getBisimulation() {
+        return bisimulation;
+    }
+
+    /**
+     * Value Iteration directement sur un graphe d'états en cache, sans ProB.
+     * Mêmes mises à jour et même simulation finale que train.
+     *
+     * @param graph   graphe des états accessibles (état 0 = état initial)
+     * @param nbSteps nombre maximum d'itérations avant arrêt
+     * @param verbose non utilisé
+     *
+     *                Exemple :
+     *                agent.plan(graph, 500, false);
+     */
+    @Override
+    public void plan(CompactStateGraph graph, int nbSteps, boolean verbose) {
+        bisimulation = minimize ? Bisimulation.minimize(graph) : null;
+        double[] values = bisimulation == null ? iterate(graph, nbSteps)
+                : bisimulation.expand(iterate(bisimulation.quotient(), nbSteps));
+        this.graph = graph;
+        this.graphValues = values;
+
+        // Simulation de la politique optimale sur le graphe
+        int state = 0;
+        while (!graph.isTerminal(state)) {
+            int bestEdge = -1;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (int e = graph.edgeStart(state); e < graph.edgeEnd(state); e++) {
+                int next = graph.getTarget(e);
+                double q = graph.getReward(next) + gamma * values[next];
+                if (q > bestValue) {
+                    bestValue = q;
+                    bestEdge = e;
+                }
+            }
+            if (bestEdge < 0)
+                break;
+
+            actionsChosen.add(graph.getActionPredicate(bestEdge));
+            state = graph.getTarget(bestEdge);
+            rewards.add(graph.getReward(state));
+        }
+    }
+
+    /**
+     * Itérations de Value Iteration sur un graphe.
+     *
+     * @return valeurs V indexées par état du graphe
+     */
+    private double[] iterate(CompactStateGraph graph, int nbSteps) {
+        int n = graph.size();
+        double[] values = new double[n];
+        if (warmStart != null) {
+            for (int s = 0; s < n; s++) {
+                values[s] = warmStart.getDouble("V", graph.getStateKey(s), 0.0);
+            }
+        }
+        int steps = 0;
+        boolean converged;
+
+        do {
+            converged = true;
+            for (int s = 0; s < n; s++) {
+                if (graph.isTerminal(s)) {
+                    values[s] = graph.getReward(s);
+                    continue;
+                }
+                if (graph.edgeStart(s) == graph.edgeEnd(s))
+                    continue;
+                double maxQ = Double.NEGATIVE_INFINITY;
+                for (int e = graph.edgeStart(s); e < graph.edgeEnd(s); e++) {
+                    int next = graph.getTarget(e);
+                    double q = graph.getReward(next) + gamma * values[next];
+                    if (q > maxQ) {
+                        maxQ = q;
+                    }
+                }
+                if (Math.abs(maxQ - values[s]) > theta) {
+                    converged = false;
+                }
+                values[s] = maxQ;
+            }
+            steps++;
+            iterations++;
+            if (steps >= nbSteps)
+                break;
+        } while (!converged);
+        return values;
+    }
+
     /**
      * Explore récursivement tous les états accessibles à partir de l'état donné.
      *
@@ -136,12 +264,49 @@ public class ValueIterationAgent implements Agent {
     private void explore(State state, Evironnement env) {
         if (V.containsKey(state))
             return;
-        V.put(state, 0.0);
+        V.put(state, warmStart == null ? 0.0 : warmStart.getDouble("V", encoder.encode(state), 0.0));
         for (Transition t : env.getActions(state)) {
-            explore(t.getDestination().explore(), env);
+            explore(env.getSuccessor(t), env);
         }
     }
 
+    /**
+     * Sauvegarde les valeurs V (indexées par clé d'état stable) et le nombre
+     * d'itérations effectuées.
+     *
+     * @param writer checkpoint en cours de construction
+     *
+     *               Exemple :
+     *               agent.saveCheckpoint(writer);
+     */
+    @Override
+    public void saveCheckpoint(CheckpointWriter writer) {
+        for (Map.Entry<State, Double> entry : V.entrySet()) {
+            writer.putDouble("V", encoder.encode(entry.getKey()), entry.getValue());
+        }
+        if (graphValues != null) {
+            for (int s = 0; s < graphValues.length; s++) {
+                writer.putDouble("V", graph.getStateKey(s), graphValues[s]);
+            }
+        }
+        writer.putLong("meta", "iterations", iterations);
+    }
+
+    /**
+     * Utilise un checkpoint comme point de départ : les valeurs V sont lues à
+     * la première rencontre de chaque état pendant l'exploration.
+     *
+     * @param checkpoint checkpoint ouvert
+     *
+     *                   Exemple :
+     *                   agent.loadCheckpoint(Checkpoint.open(path));
+     */
+    @Override
+    public void loadCheckpoint(Checkpoint checkpoint) {
+        this.warmStart = checkpoint;
+        this.iterations = checkpoint.getLong("meta", "iterations", 0);
+    }
+
     /**
      * Retourne la liste des récompenses obtenues pendant la simulation.
      *
@@ -0,0 +1,271 @@
+package fr.polytech.mnia.checkpoint;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Checkpoint.java
+ *
+ * Checkpoint ouvert en lecture par projection mémoire (voir CheckpointFormat).
+ *
+ * Caractéristiques :
+ * - L'ouverture ne lit que le répertoire des sections : elle est quasi
+ * instantanée quelle que soit la taille des tables.
+ * - Chaque recherche sonde la table de hachage de la section directement dans
+ * le fichier projeté, sans rien désérialiser d'autre que la valeur trouvée.
+ * - Les lectures n'utilisent que des accès absolus : un checkpoint peut être
+ * partagé entre plusieurs threads.
+ * - Taille maximale : 2 Go.
+ *
+ * Exemple d'utilisation :
+ * Checkpoint checkpoint = Checkpoint.open(Paths.get("checkpoints/agent.ckpt"));
+ * double v = checkpoint.getDouble("V", encoder.encode(state), 0.0);
+ */
+public class Checkpoint {
+
+    private final ByteBuffer data;
+    private final Map<String, Section> sections = new HashMap<>();
+
+    private Checkpoint(ByteBuffer data) {
+        this.data = data;
+        if (data.getInt(0) != CheckpointFormat.MAGIC) {
+            throw new IllegalArgumentException("Fichier de checkpoint invalide");
+        }
+        if (data.getInt(4) != CheckpointFormat.VERSION) {
+            throw new IllegalArgumentException("Version de checkpoint non supportée : " + data.getInt(4));
+        }
+        int position = (int) data.getLong(data.capacity() - 8);
+        int count = data.getInt(position);
+        position += 4;
+        for (int i = 0; i < count; i++) {
+            int nameLength = data.getInt(position);
+            String name = readString(position + 4, nameLength);
+            position += 4 + nameLength;
+            int entries = data.getInt(position);
+            int slots = data.getInt(position + 4);
+            int tableOffset = (int) data.getLong(position + 8);
+            position += 16;
+            sections.put(name, new Section(entries, slots, tableOffset));
+        }
+    }
+
+    /**
+     * Ouvre un checkpoint par projection mémoire.
+     *
+     * @param path fichier de checkpoint
+     * @return checkpoint ouvert
+     * @throws IOException en cas d'erreur de lecture
+     *
+     *                     Exemple :
+     *                     Checkpoint checkpoint = Checkpoint.open(path);
+     */
+    public static Checkpoint open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new Checkpoint(data);
+        }
+    }
+
+    /**
+     * Indique si une section est présente.
+     *
+     * @param section nom de la section
+     * @return true si la section existe
+     */
+    public boolean hasSection(String section) {
+        return sections.containsKey(section);
+    }
+
+    /**
+     * Retourne le nombre d'entrées d'une section.
+     *
+     * @param section nom de la section
+     * @return nombre d'entrées, 0 si la section est absente
+     */
+    public int size(String section) {
+        Section s = sections.get(section);
+        return s == null ? 0 : s.entries;
+    }
+
+    /**
+     * Lit une valeur réelle.
+     *
+     * @param section      nom de la section
+     * @param key          clé stable
+     * @param defaultValue valeur retournée si la clé est absente
+     * @return valeur lue ou defaultValue
+     */
+    public double getDouble(String section, String key, double defaultValue) {
+        int value = find(section, key);
+        return value < 0 ? defaultValue : data.getDouble(value + 4);
+    }
+
+    /**
+     * Lit une valeur entière.
+     *
+     * @param section      nom de la section
+     * @param key          clé stable
+     * @param defaultValue valeur retournée si la clé est absente
+     * @return valeur lue ou defaultValue
+     */
+    public long getLong(String section, String key, long defaultValue) {
+        int value = find(section, key);
+        return value < 0 ? defaultValue : data.getLong(value + 4);
+    }
+
+    /**
+     * Lit une chaîne de caractères.
+     *
+     * @param section nom de la section
+     * @param key     clé stable
+     * @return valeur lue, null si la clé est absente
+     */
+    public String getString(String section, String key) {
+        int value = find(section, key);
+        return value < 0 ? null : readString(value + 4, data.getInt(value));
+    }
+
+    /**
+     * Lit une ligne de table (clé d'action vers valeur).
+     *
+     * @param section nom de la section
+     * @param key     clé stable de l'état
+     * @return valeurs par clé d'action, null si la clé est absente
+     */
+    public Map<String, Double> getRow(String section, String key) {
+        int value = find(section, key);
+        return value < 0 ? null : readRow(value + 4);
+    }
+
+    /**
+     * Lit une valeur binaire brute.
+     *
+     * @param section nom de la section
+     * @param key     clé stable
+     * @return copie des octets de la valeur, null si la clé est absente
+     */
+    public byte[] getBytes(String section, String key) {
+        int value = find(section, key);
+        if (value < 0)
+            return null;
+        byte[] bytes = new byte[data.getInt(value)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = data.get(value + 4 + i);
+        }
+        return bytes;
+    }
+
+    /**
+     * Parcourt toutes les entrées d'une section, dans un ordre quelconque.
+     *
+     * @param section nom de la section
+     * @param visitor reçoit la clé et une vue en lecture seule sur la valeur
+     */
+    public void forEach(String section, BiConsumer<String, ByteBuffer> visitor) {
+        Section s = sections.get(section);
+        if (s == null)
+            return;
+        for (int slot = 0; slot < s.slots; slot++) {
+            int entry = (int) data.getLong(s.tableOffset + slot * CheckpointFormat.SLOT_SIZE + 8);
+            if (entry == 0)
+                continue;
+            int keyLength = data.getInt(entry);
+            String key = readString(entry + 4, keyLength);
+            int value = entry + 4 + keyLength;
+            ByteBuffer view = data.duplicate();
+            view.limit(value + 4 + data.getInt(value)).position(value + 4);
+            visitor.accept(key, view.slice().asReadOnlyBuffer());
+        }
+    }
+
+    /**
+     * Décode une ligne de table à partir d'une vue sur sa valeur.
+     *
+     * @param value vue positionnée au début de la valeur
+     * @return valeurs par clé d'action
+     */
+    public static Map<String, Double> decodeRow(ByteBuffer value) {
+        Map<String, Double> row = new LinkedHashMap<>();
+        int count = value.getInt(0);
+        int position = 4;
+        for (int i = 0; i < count; i++) {
+            byte[] action = new byte[value.getInt(position)];
+            for (int j = 0; j < action.length; j++) {
+                action[j] = value.get(position + 4 + j);
+            }
+            position += 4 + action.length;
+            row.put(new String(action, StandardCharsets.UTF_8), value.getDouble(position));
+            position += 8;
+        }
+        return row;
+    }
+
+    /**
+     * Cherche une clé dans la table de hachage d'une section.
+     *
+     * @return position de la longueur de la valeur, -1 si la clé est absente
+     */
+    private int find(String section, String key) {
+        Section s = sections.get(section);
+        if (s == null)
+            return -1;
+        byte[] k = CheckpointFormat.utf8(key);
+        long hash = CheckpointFormat.hash(k);
+        int slot = (int) hash & (s.slots - 1);
+        while (true) {
+            int base = s.tableOffset + slot * CheckpointFormat.SLOT_SIZE;
+            int entry = (int) data.getLong(base + 8);
+            if (entry == 0)
+                return -1;
+            if (data.getLong(base) == hash && keyEquals(entry, k)) {
+                return entry + 4 + k.length;
+            }
+            slot = (slot + 1) & (s.slots - 1);
+        }
+    }
+
+    private boolean keyEquals(int entry, byte[] key) {
+        if (data.getInt(entry) != key.length)
+            return false;
+        for (int i = 0; i < key.length; i++) {
+            if (data.get(entry + 4 + i) != key[i])
+                return false;
+        }
+        return true;
+    }
+
+    private Map<String, Double> readRow(int position) {
+        ByteBuffer view = data.duplicate();
+        view.position(position);
+        return decodeRow(view.slice());
+    }
+
+    private String readString(int position, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = data.get(position + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static final class Section {
+        final int entries;
+        final int slots;
+        final int tableOffset;
+
+        Section(int entries, int slots, int tableOffset) {
+            this.entries = entries;
+            this.slots = slots;
+            this.tableOffset = tableOffset;
+        }
+    }
+}
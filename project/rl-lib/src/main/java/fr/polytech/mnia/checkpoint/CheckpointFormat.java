@@ -0,0 +1,65 @@
+package fr.polytech.mnia.checkpoint;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * CheckpointFormat.java
+ *
+ * Constantes et fonctions communes au format binaire des checkpoints.
+ *
+ * Organisation d'un fichier :
+ * - en-tête : magic (int), version (int)
+ * - pour chaque section : ses entrées (longueur + clé UTF-8, longueur +
+ * valeur), puis sa table de hachage (slots de 16 octets : hachage de la clé,
+ * position de l'entrée, 0 pour un slot vide)
+ * - répertoire : nombre de sections, puis pour chacune son nom, son nombre
+ * d'entrées, son nombre de slots et la position de sa table
+ * - pied de fichier : position du répertoire (long)
+ *
+ * Le fichier est lu par projection mémoire : seul le répertoire est décodé à
+ * l'ouverture, les recherches sondent directement la table de hachage.
+ */
+final class CheckpointFormat {
+
+    static final int MAGIC = 0x524C434B; // "RLCK"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    static final int SLOT_SIZE = 16;
+
+    private CheckpointFormat() {
+    }
+
+    /**
+     * Hachage FNV-1a 64 bits d'une clé encodée en UTF-8.
+     *
+     * @param key octets de la clé
+     * @return hachage, jamais nul
+     */
+    static long hash(byte[] key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key) {
+            h ^= (b & 0xff);
+            h *= 0x100000001b3L;
+        }
+        return h == 0 ? 1 : h;
+    }
+
+    /**
+     * Nombre de slots d'une table : puissance de deux au moins double du
+     * nombre d'entrées.
+     *
+     * @param entries nombre d'entrées
+     * @return nombre de slots
+     */
+    static int slotCount(int entries) {
+        int slots = 2;
+        while (slots < 2 * entries) {
+            slots <<= 1;
+        }
+        return slots;
+    }
+
+    static byte[] utf8(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,227 @@
+package fr.polytech.mnia.checkpoint;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * CheckpointWriter.java
+ *
+ * Construit un checkpoint en mémoire puis l'écrit de façon atomique : le
+ * fichier est d'abord écrit et synchronisé sous un nom temporaire dans le même
+ * dossier, puis renommé. Un checkpoint interrompu ne remplace donc jamais le
+ * précédent.
+ *
+ * Les données sont rangées par sections nommées (ex: "V", "Q", "meta"), chaque
+ * section associant une clé texte stable à une valeur binaire.
+ *
+ * Exemple d'utilisation :
+ * CheckpointWriter writer = new CheckpointWriter();
+ * writer.putDouble("V", encoder.encode(state), 0.75);
+ * writer.putLong("meta", "episodes", 1000);
+ * writer.write(Paths.get("checkpoints/agent.ckpt"));
+ */
+public class CheckpointWriter {
+
+    private final Map<String, Map<String, byte[]>> sections = new LinkedHashMap<>();
+
+    /**
+     * Enregistre une valeur réelle.
+     *
+     * @param section nom de la section
+     * @param key     clé stable
+     * @param value   valeur
+     */
+    public void putDouble(String section, String key, double value) {
+        put(section, key, ByteBuffer.allocate(8).putDouble(value).array());
+    }
+
+    /**
+     * Enregistre une valeur entière.
+     *
+     * @param section nom de la section
+     * @param key     clé stable
+     * @param value   valeur
+     */
+    public void putLong(String section, String key, long value) {
+        put(section, key, ByteBuffer.allocate(8).putLong(value).array());
+    }
+
+    /**
+     * Enregistre une chaîne de caractères.
+     *
+     * @param section nom de la section
+     * @param key     clé stable
+     * @param value   valeur
+     */
+    public void putString(String section, String key, String value) {
+        put(section, key, CheckpointFormat.utf8(value));
+    }
+
+    /**
+     * Enregistre une ligne de table (clé d'action vers valeur), par exemple les
+     * valeurs Q d'un état.
+     *
+     * @param section nom de la section
+     * @param key     clé stable de l'état
+     * @param row     valeurs par clé d'action
+     */
+    public void putRow(String section, String key, Map<String, Double> row) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(row.size());
+            for (Map.Entry<String, Double> entry : row.entrySet()) {
+                byte[] action = CheckpointFormat.utf8(entry.getKey());
+                out.writeInt(action.length);
+                out.write(action);
+                out.writeDouble(entry.getValue());
+            }
+            put(section, key, bytes.toByteArray());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Enregistre une valeur binaire brute.
+     *
+     * @param section nom de la section
+     * @param key     clé stable
+     * @param value   octets de la valeur
+     */
+    public void put(String section, String key, byte[] value) {
+        sections.computeIfAbsent(section, k -> new LinkedHashMap<>()).put(key, value);
+    }
+
+    /**
+     * Écrit le checkpoint de façon atomique.
+     *
+     * @param target fichier de destination (remplacé s'il existe)
+     * @throws IOException en cas d'erreur d'écriture
+     *
+     *                     Exemple :
+     *                     writer.write(Paths.get("checkpoints/agent.ckpt"));
+     */
+    public void write(Path target) throws IOException {
+        Path dir = target.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, target.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream os = Files.newOutputStream(tmp, StandardOpenOption.WRITE);
+                    PositionedOutput out = new PositionedOutput(new BufferedOutputStream(os, 1 << 16))) {
+                writeTo(out);
+            }
+            try (java.nio.channels.FileChannel channel = java.nio.channels.FileChannel.open(tmp,
+                    StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            try {
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private void writeTo(PositionedOutput out) throws IOException {
+        out.writeInt(CheckpointFormat.MAGIC);
+        out.writeInt(CheckpointFormat.VERSION);
+
+        Map<String, long[]> directory = new LinkedHashMap<>(); // nom -> {entrées, slots, position}
+        for (Map.Entry<String, Map<String, byte[]>> section : sections.entrySet()) {
+            Map<String, byte[]> entries = section.getValue();
+            int slots = CheckpointFormat.slotCount(entries.size());
+            long[] slotHashes = new long[slots];
+            long[] slotOffsets = new long[slots];
+
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                byte[] key = CheckpointFormat.utf8(entry.getKey());
+                long hash = CheckpointFormat.hash(key);
+                int slot = (int) hash & (slots - 1);
+                while (slotOffsets[slot] != 0) {
+                    slot = (slot + 1) & (slots - 1);
+                }
+                slotHashes[slot] = hash;
+                slotOffsets[slot] = out.position();
+
+                out.writeInt(key.length);
+                out.write(key);
+                out.writeInt(entry.getValue().length);
+                out.write(entry.getValue());
+            }
+
+            long tableOffset = out.position();
+            for (int slot = 0; slot < slots; slot++) {
+                out.writeLong(slotHashes[slot]);
+                out.writeLong(slotOffsets[slot]);
+            }
+            directory.put(section.getKey(), new long[] { entries.size(), slots, tableOffset });
+        }
+
+        long directoryOffset = out.position();
+        out.writeInt(directory.size());
+        for (Map.Entry<String, long[]> section : directory.entrySet()) {
+            byte[] name = CheckpointFormat.utf8(section.getKey());
+            out.writeInt(name.length);
+            out.write(name);
+            out.writeInt((int) section.getValue()[0]);
+            out.writeInt((int) section.getValue()[1]);
+            out.writeLong(section.getValue()[2]);
+        }
+        out.writeLong(directoryOffset);
+    }
+
+    /**
+     * Flux de données qui compte les octets écrits sur 64 bits.
+     */
+    private static final class PositionedOutput extends DataOutputStream {
+        private final Counter counter;
+
+        PositionedOutput(OutputStream out) {
+            this(new Counter(out));
+        }
+
+        private PositionedOutput(Counter counter) {
+            super(counter);
+            this.counter = counter;
+        }
+
+        long position() {
+            return counter.position;
+        }
+    }
+
+    private static final class Counter extends FilterOutputStream {
+        private long position = 0;
+
+        Counter(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            position++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            position += len;
+        }
+    }
+}
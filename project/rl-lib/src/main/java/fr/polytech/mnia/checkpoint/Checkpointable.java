@@ -0,0 +1,33 @@
+package fr.polytech.mnia.checkpoint;
+
+/**
+ * Checkpointable.java
+ *
+ * Interface des agents dont l'apprentissage peut être sauvegardé puis repris.
+ *
+ * Un agent sauvegarde ses tables sous des clés stables (voir StateEncoder et
+ * ActionEncoder), son générateur aléatoire et ses compteurs de pas. Au
+ * rechargement, les tables indexées par état ProB sont lues à la demande dans
+ * le checkpoint projeté en mémoire, à la première rencontre de chaque état.
+ *
+ * Exemple d'utilisation :
+ * if (agent instanceof Checkpointable) {
+ * ((Checkpointable) agent).loadCheckpoint(Checkpoint.open(path));
+ * }
+ */
+public interface Checkpointable {
+
+    /**
+     * Écrit l'état d'apprentissage de l'agent.
+     *
+     * @param writer checkpoint en cours de construction
+     */
+    void saveCheckpoint(CheckpointWriter writer);
+
+    /**
+     * Restaure l'état d'apprentissage de l'agent.
+     *
+     * @param checkpoint checkpoint ouvert
+     */
+    void loadCheckpoint(Checkpoint checkpoint);
+}
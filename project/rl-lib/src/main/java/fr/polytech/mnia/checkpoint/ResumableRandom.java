@@ -0,0 +1,88 @@
+package fr.polytech.mnia.checkpoint;
+
+import java.util.Random;
+
+/**
+ * ResumableRandom.java
+ *
+ * Générateur aléatoire dont l'état interne peut être lu et restauré, pour
+ * reprendre un entraînement exactement là où il s'est arrêté.
+ *
+ * Il reproduit le générateur congruentiel de java.util.Random (mêmes
+ * séquences pour une même graine), mais conserve sa graine dans un champ
+ * accessible. nextGaussian ne met pas de valeur en cache, de sorte que la
+ * graine suffit à décrire tout l'état.
+ *
+ * Exemple d'utilisation :
+ * ResumableRandom random = new ResumableRandom();
+ * long state = random.getState();
+ * random.setState(state);
+ */
+public class ResumableRandom extends Random {
+
+    private static final long serialVersionUID = 1L;
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    private long seed; // Pas d'initialiseur : le champ est fixé par setSeed depuis le constructeur parent
+
+    /**
+     * Construit un générateur avec une graine arbitraire.
+     */
+    public ResumableRandom() {
+        super();
+    }
+
+    /**
+     * Construit un générateur avec une graine donnée.
+     *
+     * @param seed graine initiale
+     */
+    public ResumableRandom(long seed) {
+        super(seed);
+    }
+
+    @Override
+    public synchronized void setSeed(long seed) {
+        super.setSeed(seed);
+        this.seed = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    @Override
+    protected int next(int bits) {
+        seed = (seed * MULTIPLIER + ADDEND) & MASK;
+        return (int) (seed >>> (48 - bits));
+    }
+
+    @Override
+    public double nextGaussian() {
+        double v1;
+        double v2;
+        double s;
+        do {
+            v1 = 2 * nextDouble() - 1;
+            v2 = 2 * nextDouble() - 1;
+            s = v1 * v1 + v2 * v2;
+        } while (s >= 1 || s == 0);
+        return v1 * StrictMath.sqrt(-2 * StrictMath.log(s) / s);
+    }
+
+    /**
+     * Retourne l'état interne du générateur.
+     *
+     * @return graine courante (48 bits)
+     */
+    public long getState() {
+        return seed;
+    }
+
+    /**
+     * Restaure un état interne lu par getState.
+     *
+     * @param state graine à restaurer
+     */
+    public void setState(long state) {
+        this.seed = state & MASK;
+    }
+}
@@ -0,0 +1,31 @@
+package fr.polytech.mnia.encoding;
+
+import de.prob.statespace.Transition;
+
+/**
+ * ActionEncoder.java
+ *
+ * Interface d'encodage d'une transition ProB en une clé texte stable.
+ *
+ * L'encodage par défaut (NAME_AND_PARAMETERS) concatène le nom de l'opération
+ * et son prédicat de paramètres, comme le font déjà les agents bandits
+ * (ex: "choosevv = Gaming").
+ *
+ * Exemple d'utilisation :
+ * String key = ActionEncoder.NAME_AND_PARAMETERS.encode(transition);
+ */
+public interface ActionEncoder {
+
+    /**
+     * Encodage par nom d'opération suivi du prédicat de paramètres.
+     */
+    ActionEncoder NAME_AND_PARAMETERS = t -> t.getName() + t.getParameterPredicate();
+
+    /**
+     * Encode une transition en une clé stable.
+     *
+     * @param transition transition à encoder
+     * @return clé texte de l'action
+     */
+    String encode(Transition transition);
+}
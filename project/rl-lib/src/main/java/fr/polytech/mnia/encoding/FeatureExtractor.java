@@ -0,0 +1,50 @@
+package fr.polytech.mnia.encoding;
+
+import de.prob.statespace.State;
+
+/**
+ * FeatureExtractor.java
+ *
+ * Interface d'extraction de traits binaires creux d'un état ProB, pour les
+ * agents à approximation linéaire.
+ *
+ * Un état est représenté par la liste des indices de ses traits actifs (dans
+ * [0, dimension())) ; la valeur d'un état est alors la somme des poids de ces
+ * traits. La mémoire d'un agent dépend ainsi du nombre de traits, pas du
+ * nombre d'états rencontrés.
+ *
+ * Exemple d'utilisation :
+ * FeatureExtractor features = new SparseFeatureExtractor().bias().oneHot("active", pids);
+ * int[] active = new int[features.maxActive()];
+ * int n = features.extract(state, active);
+ */
+public interface FeatureExtractor {
+
+    /**
+     * Nombre total de traits.
+     *
+     * @return dimension de l'espace des traits
+     */
+    int dimension();
+
+    /**
+     * Nombre maximal de traits actifs simultanément, taille minimale du
+     * tableau passé à extract.
+     *
+     * @return nombre maximal de traits actifs
+     */
+    int maxActive();
+
+    /**
+     * Calcule les traits actifs d'un état.
+     *
+     * @param state  état à encoder
+     * @param active tableau recevant les indices des traits actifs (taille au
+     *               moins maxActive())
+     * @return nombre de traits actifs écrits dans active
+     *
+     *         Exemple :
+     *         int n = features.extract(state, active);
+     */
+    int extract(State state, int[] active);
+}
@@ -0,0 +1,217 @@
+package fr.polytech.mnia.encoding;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.prob.animator.domainobjects.AbstractEvalResult;
+import de.prob.animator.domainobjects.ClassicalB;
+import de.prob.animator.domainobjects.IEvalElement;
+import de.prob.statespace.State;
+
+import fr.polytech.mnia.metrics.FormulaProfiler;
+
+/**
+ * SparseFeatureExtractor.java
+ *
+ * Extracteur de traits binaires creux à partir de formules B, configuré par
+ * groupes de traits :
+ * - bias : un trait toujours actif ;
+ * - oneHot : appartenance d'éléments connus à un ensemble (ex: "active",
+ * "ready", "waiting") ;
+ * - tiles : codage en tuiles (tile coding) d'une valeur numérique (compteur),
+ * avec plusieurs pavages décalés ;
+ * - flag : valeur de vérité d'un prédicat.
+ *
+ * Toutes les formules d'un état sont évaluées en un seul appel à ProB.
+ *
+ * Exemple d'utilisation :
+ * FeatureExtractor features = new SparseFeatureExtractor()
+ * .bias()
+ * .oneHot("active", "process1", "process2")
+ * .tiles("waiting_time(process1)", 0, 20, 5, 2)
+ * .flag("ready = {}");
+ */
+public class SparseFeatureExtractor implements FeatureExtractor {
+
+    private static final int BIAS = 0;
+    private static final int ONE_HOT = 1;
+    private static final int TILES = 2;
+    private static final int FLAG = 3;
+
+    /**
+     * Groupe de traits associé à une formule.
+     */
+    private static final class Group {
+        final int kind;
+        final int offset; // Indice du premier trait du groupe
+        final Map<String, Integer> elements; // ONE_HOT : élément -> indice dans le groupe
+        final double min;
+        final double width; // TILES : largeur d'une tuile
+        final int tiles;
+        final int tilings;
+
+        Group(int kind, int offset, Map<String, Integer> elements, double min, double width, int tiles,
+                int tilings) {
+            this.kind = kind;
+            this.offset = offset;
+            this.elements = elements;
+            this.min = min;
+            this.width = width;
+            this.tiles = tiles;
+            this.tilings = tilings;
+        }
+    }
+
+    private final List<Group> groups = new ArrayList<>();
+    private final List<IEvalElement> batch = new ArrayList<>(); // Formules des groupes, évaluées ensemble
+    private int dimension = 0;
+    private int maxActive = 0;
+
+    /**
+     * Ajoute un trait toujours actif.
+     *
+     * @return cet extracteur
+     */
+    public SparseFeatureExtractor bias() {
+        add(new Group(BIAS, dimension, null, 0, 0, 0, 0), null, 1, 1);
+        return this;
+    }
+
+    /**
+     * Ajoute un trait par élément : actif si l'élément appartient à
+     * l'ensemble désigné par la formule.
+     *
+     * @param formula  expression B de type ensemble
+     * @param elements éléments possibles de l'ensemble
+     * @return cet extracteur
+     *
+     *         Exemple :
+     *         extractor.oneHot("waiting", "process1", "process2", "process3");
+     */
+    public SparseFeatureExtractor oneHot(String formula, String... elements) {
+        Map<String, Integer> index = new HashMap<>();
+        for (String element : elements) {
+            index.put(element, index.size());
+        }
+        add(new Group(ONE_HOT, dimension, index, 0, 0, 0, 0), formula, elements.length, elements.length);
+        return this;
+    }
+
+    /**
+     * Ajoute un codage en tuiles d'une valeur numérique : tilings pavages de
+     * tiles tuiles sur [min, max], chacun décalé d'une fraction de tuile. Un
+     * trait par pavage est actif ; les valeurs hors intervalle tombent dans
+     * la tuile extrême.
+     *
+     * @param formula expression B numérique
+     * @param min     borne basse
+     * @param max     borne haute
+     * @param tiles   nombre de tuiles par pavage
+     * @param tilings nombre de pavages
+     * @return cet extracteur
+     *
+     *         Exemple :
+     *         extractor.tiles("latency_time(process2)", 0, 20, 5, 2);
+     */
+    public SparseFeatureExtractor tiles(String formula, double min, double max, int tiles, int tilings) {
+        if (tiles < 1 || tilings < 1 || max <= min) {
+            throw new IllegalArgumentException("Codage en tuiles invalide pour " + formula);
+        }
+        // Une tuile de plus par pavage pour absorber le décalage
+        add(new Group(TILES, dimension, null, min, (max - min) / tiles, tiles, tilings), formula,
+                tilings * (tiles + 1), tilings);
+        return this;
+    }
+
+    /**
+     * Ajoute un trait actif lorsque le prédicat est vrai.
+     *
+     * @param predicate prédicat B
+     * @return cet extracteur
+     *
+     *         Exemple :
+     *         extractor.flag("active = {}");
+     */
+    public SparseFeatureExtractor flag(String predicate) {
+        add(new Group(FLAG, dimension, null, 0, 0, 0, 0), "bool(" + predicate + ")", 1, 1);
+        return this;
+    }
+
+    private void add(Group group, String formula, int size, int active) {
+        IEvalElement element = formula == null ? null : new ClassicalB(formula);
+        groups.add(group);
+        if (element != null) {
+            batch.add(element);
+        }
+        dimension += size;
+        maxActive += active;
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public int maxActive() {
+        return maxActive;
+    }
+
+    @Override
+    public int extract(State state, int[] active) {
+        List<AbstractEvalResult> results = batch.isEmpty() ? null : FormulaProfiler.evalAll(state, batch);
+        int n = 0;
+        int next = 0; // Prochain résultat de results
+        for (int g = 0; g < groups.size(); g++) {
+            Group group = groups.get(g);
+            if (group.kind == BIAS) {
+                active[n++] = group.offset;
+                continue;
+            }
+            String value = results.get(next++).toString();
+            switch (group.kind) {
+                case ONE_HOT:
+                    n = members(value, group, active, n);
+                    break;
+                case TILES:
+                    double x = Double.parseDouble(value);
+                    for (int t = 0; t < group.tilings; t++) {
+                        double shifted = (x - group.min) / group.width + (double) t / group.tilings;
+                        int tile = (int) Math.max(0, Math.min(group.tiles, Math.floor(shifted)));
+                        active[n++] = group.offset + t * (group.tiles + 1) + tile;
+                    }
+                    break;
+                default:
+                    if (value.equals("TRUE")) {
+                        active[n++] = group.offset;
+                    }
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Ajoute les traits des éléments connus présents dans un ensemble
+     * affiché par ProB (ex: "{process1,process3}").
+     */
+    private static int members(String value, Group group, int[] active, int n) {
+        int start = value.indexOf('{') + 1;
+        int end = value.lastIndexOf('}');
+        if (start <= 0 || end < start) {
+            return n;
+        }
+        int from = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || value.charAt(i) == ',') {
+                Integer index = group.elements.get(value.substring(from, i).trim());
+                if (index != null) {
+                    active[n++] = group.offset + index;
+                }
+                from = i + 1;
+            }
+        }
+        return n;
+    }
+}
@@ -0,0 +1,31 @@
+package fr.polytech.mnia.encoding;
+
+import de.prob.statespace.State;
+
+/**
+ * StateEncoder.java
+ *
+ * Interface d'encodage d'un état ProB en une clé texte stable.
+ *
+ * Contrairement à l'identifiant ProB (state.getId()), qui dépend de l'ordre
+ * d'exploration, la clé doit être identique d'une exécution à l'autre pour un
+ * même état du modèle B. Elle sert à sauvegarder et recharger les tables
+ * apprises.
+ *
+ * Exemple d'utilisation :
+ * StateEncoder encoder = new VariableStateEncoder();
+ * String key = encoder.encode(state);
+ */
+public interface StateEncoder {
+
+    /**
+     * Encode un état en une clé stable.
+     *
+     * @param state état à encoder
+     * @return clé texte de l'état
+     *
+     *         Exemple :
+     *         String key = encoder.encode(state);
+     */
+    String encode(State state);
+}
@@ -0,0 +1,88 @@
+package fr.polytech.mnia.encoding;
+
+import de.prob.animator.domainobjects.AbstractEvalResult;
+import de.prob.animator.domainobjects.FormulaExpand;
+import de.prob.animator.domainobjects.IEvalElement;
+import de.prob.statespace.State;
+import de.prob.statespace.StateSpace;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * VariableStateEncoder.java
+ *
+ * Encodeur générique : la clé d'un état est la liste de ses variables B et de
+ * leurs valeurs, triée par nom (ex: "square={(1↦1)↦0};turn=1").
+ *
+ * Les valeurs sont lues en un seul appel à ProB par état, puis mémorisées
+ * par identifiant d'état dans un cache LRU borné : le cache ne retient pas les
+ * objets State, et il est vidé dès qu'un état provient d'un autre espace
+ * d'états (par exemple après Evironnement.compact, où les identifiants
+ * repartent de zéro).
+ *
+ * Exemple d'utilisation :
+ * StateEncoder encoder = new VariableStateEncoder();
+ * String key = encoder.encode(state);
+ */
+public class VariableStateEncoder implements StateEncoder {
+
+    /** Nombre de clés mémorisées par défaut. */
+    public static final int DEFAULT_CAPACITY = 100_000;
+
+    private final Map<String, String> cache;
+    private StateSpace space; // Espace d'états des clés mémorisées
+
+    /**
+     * Crée un encodeur avec un cache de capacité par défaut.
+     */
+    public VariableStateEncoder() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Crée un encodeur avec un cache de capacité donnée.
+     *
+     * @param capacity nombre maximal de clés mémorisées
+     *
+     *                 Exemple :
+     *                 StateEncoder encoder = new VariableStateEncoder(10_000);
+     */
+    public VariableStateEncoder(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("La capacité doit être strictement positive");
+        }
+        this.cache = new LinkedHashMap<String, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    @Override
+    public String encode(State state) {
+        if (state.getStateSpace() != space) {
+            cache.clear();
+            space = state.getStateSpace();
+        }
+        String key = cache.get(state.getId());
+        if (key == null) {
+            Map<String, String> sorted = new TreeMap<>();
+            Map<IEvalElement, AbstractEvalResult> values = state.getVariableValues(FormulaExpand.EXPAND);
+            for (Map.Entry<IEvalElement, AbstractEvalResult> entry : values.entrySet()) {
+                sorted.put(entry.getKey().getCode(), entry.getValue().toString());
+            }
+            StringBuilder sb = new StringBuilder();
+            for (Map.Entry<String, String> entry : sorted.entrySet()) {
+                if (sb.length() > 0)
+                    sb.append(';');
+                sb.append(entry.getKey()).append('=').append(entry.getValue());
+            }
+            key = sb.toString();
+            cache.put(state.getId(), key);
+        }
+        return key;
+    }
+}
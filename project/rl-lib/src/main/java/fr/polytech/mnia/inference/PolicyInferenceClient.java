@@ -0,0 +1,93 @@
+package fr.polytech.mnia.inference;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * PolicyInferenceClient.java
+ *
+ * Client du serveur d'inférence (voir PolicyInferenceServer pour le
+ * protocole). Une instance correspond à une connexion et n'est pas partagée
+ * entre threads.
+ *
+ * Exemple d'utilisation :
+ * try (PolicyInferenceClient client = new PolicyInferenceClient(7070)) {
+ * List<String> actions = client.bestActions(List.of(key1, key2));
+ * }
+ */
+public class PolicyInferenceClient implements AutoCloseable {
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    /**
+     * Ouvre une connexion vers un serveur local.
+     *
+     * @param port port du serveur
+     * @throws IOException si la connexion échoue
+     */
+    public PolicyInferenceClient(int port) throws IOException {
+        this.socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        this.socket.setTcpNoDelay(true);
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+    }
+
+    /**
+     * Demande la meilleure action pour un seul état.
+     *
+     * @param stateKey clé stable de l'état
+     * @return clé de l'action, null si l'état est inconnu du serveur
+     * @throws IOException en cas d'erreur de communication
+     */
+    public String bestAction(String stateKey) throws IOException {
+        List<String> keys = new ArrayList<>(1);
+        keys.add(stateKey);
+        return bestActions(keys).get(0);
+    }
+
+    /**
+     * Demande en une seule requête la meilleure action pour plusieurs états.
+     *
+     * @param stateKeys clés stables des états
+     * @return clés des actions, dans le même ordre (null pour un état inconnu)
+     * @throws IOException en cas d'erreur de communication
+     */
+    public List<String> bestActions(List<String> stateKeys) throws IOException {
+        out.writeInt(stateKeys.size());
+        for (String key : stateKeys) {
+            byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+        out.flush();
+
+        int n = in.readInt();
+        List<String> actions = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            int length = in.readInt();
+            if (length < 0) {
+                actions.add(null);
+            } else {
+                byte[] bytes = new byte[length];
+                in.readFully(bytes);
+                actions.add(new String(bytes, StandardCharsets.UTF_8));
+            }
+        }
+        return actions;
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
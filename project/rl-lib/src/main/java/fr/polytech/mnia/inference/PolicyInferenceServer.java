@@ -0,0 +1,220 @@
+package fr.polytech.mnia.inference;
+
+import fr.polytech.mnia.checkpoint.Checkpoint;
+import fr.polytech.mnia.metrics.LatencyHistogram;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * PolicyInferenceServer.java
+ *
+ * Serveur d'inférence local : répond à des requêtes "meilleure action pour un
+ * état encodé" à partir d'une politique entraînée, sans passer par ProB.
+ *
+ * Protocole binaire (entiers big-endian, chaînes UTF-8) sur une socket TCP
+ * liée à l'interface locale :
+ * - requête : nombre d'états n (int), puis n fois [longueur (int), clé]
+ * - réponse : n (int), puis n fois [longueur (int), clé d'action] ; une
+ * longueur de -1 signifie que l'état est inconnu
+ *
+ * Une requête peut regrouper plusieurs états (batching) ; un client peut aussi
+ * envoyer plusieurs requêtes sans attendre les réponses, le serveur ne vidant
+ * son tampon d'écriture que lorsqu'il n'a plus de requête en attente.
+ *
+ * Les latences de traitement (par état et par requête) sont mesurées et
+ * résumées par leurs percentiles p50/p99.
+ *
+ * Exemple d'utilisation :
+ * mvn exec:java -Dexec.mainClass=fr.polytech.mnia.inference.PolicyInferenceServer
+ * -Dexec.args="checkpoints/QLearningTicTacToeAgent.ckpt 7070"
+ */
+public class PolicyInferenceServer implements AutoCloseable {
+
+    private static final int MAX_BATCH = 1 << 16;
+    private static final int MAX_KEY_BYTES = 1 << 20; // Taille maximale d'une clé d'état
+
+    private final PolicyLookup lookup;
+    private final ServerSocket serverSocket;
+    private final ExecutorService workers = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "inference-worker");
+        t.setDaemon(true);
+        return t;
+    });
+    private final LatencyHistogram lookupLatency = new LatencyHistogram();
+    private final LatencyHistogram requestLatency = new LatencyHistogram();
+    private final Set<Socket> clients = ConcurrentHashMap.newKeySet(); // Connexions ouvertes
+    private volatile boolean running = true;
+
+    /**
+     * Démarre un serveur sur l'interface locale.
+     *
+     * @param lookup recherche de politique utilisée pour répondre
+     * @param port   port d'écoute (0 pour un port libre quelconque)
+     * @throws IOException si la socket ne peut pas être ouverte
+     *
+     *                     Exemple :
+     *                     PolicyInferenceServer server = new PolicyInferenceServer(lookup, 7070);
+     */
+    public PolicyInferenceServer(PolicyLookup lookup, int port) throws IOException {
+        this.lookup = lookup;
+        this.serverSocket = new ServerSocket();
+        this.serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        Thread acceptor = new Thread(this::acceptLoop, "inference-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Retourne le port d'écoute effectif.
+     *
+     * @return port TCP
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Résumé des latences mesurées depuis le démarrage.
+     *
+     * @return rapport sur deux lignes (par état, par requête)
+     */
+    public String latencyReport() {
+        return "[Inference] par état   : " + lookupLatency.summary() + "\n"
+                + "[Inference] par requête : " + requestLatency.summary();
+    }
+
+    /**
+     * Arrête le serveur : ferme la socket d'écoute puis les connexions
+     * ouvertes, ce qui débloque les threads de traitement en lecture.
+     *
+     * @throws IOException si la socket d'écoute ne peut pas être fermée
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        serverSocket.close();
+        for (Socket client : clients) {
+            try {
+                client.close();
+            } catch (IOException e) {
+                // Connexion déjà fermée
+            }
+        }
+        workers.shutdownNow();
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                clients.add(socket);
+                if (!running) {
+                    socket.close(); // close() a pu parcourir clients avant l'ajout
+                    continue;
+                }
+                workers.execute(() -> serve(socket));
+            } catch (IOException e) {
+                if (running) {
+                    System.out.println("[Inference] Erreur d'acceptation : " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Traite les requêtes d'une connexion jusqu'à sa fermeture.
+     *
+     * @param socket connexion cliente
+     */
+    private void serve(Socket socket) {
+        try (Socket s = socket;
+                DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream(), 1 << 16));
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream(), 1 << 16))) {
+            byte[] buffer = new byte[256];
+            while (running) {
+                int n = in.readInt();
+                if (n < 0 || n > MAX_BATCH) {
+                    throw new IOException("Taille de requête invalide : " + n);
+                }
+                long requestStart = System.nanoTime();
+                out.writeInt(n);
+                for (int i = 0; i < n; i++) {
+                    int length = in.readInt();
+                    if (length < 0 || length > MAX_KEY_BYTES) {
+                        throw new IOException("Longueur de clé invalide : " + length);
+                    }
+                    if (length > buffer.length) {
+                        buffer = new byte[Math.max(length, 2 * buffer.length)];
+                    }
+                    in.readFully(buffer, 0, length);
+
+                    long start = System.nanoTime();
+                    String action = lookup.bestAction(new String(buffer, 0, length, StandardCharsets.UTF_8));
+                    lookupLatency.record(System.nanoTime() - start);
+
+                    if (action == null) {
+                        out.writeInt(-1);
+                    } else {
+                        byte[] bytes = action.getBytes(StandardCharsets.UTF_8);
+                        out.writeInt(bytes.length);
+                        out.write(bytes);
+                    }
+                }
+                requestLatency.record(System.nanoTime() - requestStart);
+                if (in.available() == 0) {
+                    out.flush();
+                }
+            }
+        } catch (EOFException | SocketException e) {
+            // Connexion fermée par le client
+        } catch (IOException e) {
+            if (running) {
+                System.out.println("[Inference] Erreur de connexion : " + e.getMessage());
+            }
+        } finally {
+            clients.remove(socket);
+        }
+    }
+
+    /**
+     * Lance le serveur sur un checkpoint et affiche périodiquement les
+     * latences.
+     *
+     * @param args chemin du checkpoint, puis port (7070 par défaut)
+     * @throws Exception en cas d'erreur d'ouverture
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.out.println("Usage : PolicyInferenceServer <checkpoint> [port]");
+            return;
+        }
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 7070;
+        PolicyLookup lookup = new PolicyLookup(Checkpoint.open(Paths.get(args[0])));
+
+        PolicyInferenceServer server = new PolicyInferenceServer(lookup, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> System.out.println(server.latencyReport())));
+        System.out.println("[Inference] En écoute sur 127.0.0.1:" + server.getPort());
+
+        while (true) {
+            Thread.sleep(10_000);
+            System.out.println(server.latencyReport());
+        }
+    }
+}
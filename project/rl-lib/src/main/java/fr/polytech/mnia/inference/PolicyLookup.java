@@ -0,0 +1,67 @@
+package fr.polytech.mnia.inference;
+
+import fr.polytech.mnia.checkpoint.Checkpoint;
+
+import java.util.Map;
+
+/**
+ * PolicyLookup.java
+ *
+ * Recherche de la meilleure action pour un état encodé, directement dans un
+ * checkpoint projeté en mémoire : aucune requête n'est envoyée à ProB.
+ *
+ * Sources utilisées, dans l'ordre :
+ * - section "policy" (PolicyIterationAgent) : action enregistrée pour l'état
+ * - section "Q" (QLearningTicTacToeAgent) : action de plus grande valeur Q
+ *
+ * Les clés d'état et d'action sont celles produites à l'entraînement par
+ * VariableStateEncoder et ActionEncoder.
+ *
+ * Exemple d'utilisation :
+ * PolicyLookup lookup = new PolicyLookup(Checkpoint.open(path));
+ * String action = lookup.bestAction("square={};turn=0");
+ */
+public class PolicyLookup {
+
+    private final Checkpoint checkpoint;
+
+    /**
+     * Construit une recherche sur un checkpoint ouvert.
+     *
+     * @param checkpoint checkpoint contenant une section "policy" ou "Q"
+     */
+    public PolicyLookup(Checkpoint checkpoint) {
+        if (!checkpoint.hasSection("policy") && !checkpoint.hasSection("Q")) {
+            throw new IllegalArgumentException("Le checkpoint ne contient ni politique ni table Q");
+        }
+        this.checkpoint = checkpoint;
+    }
+
+    /**
+     * Retourne la meilleure action connue pour un état encodé.
+     *
+     * @param stateKey clé stable de l'état
+     * @return clé de l'action, null si l'état est inconnu
+     *
+     *         Exemple :
+     *         String action = lookup.bestAction(stateKey);
+     */
+    public String bestAction(String stateKey) {
+        String action = checkpoint.getString("policy", stateKey);
+        if (action != null)
+            return action;
+
+        Map<String, Double> row = checkpoint.getRow("Q", stateKey);
+        if (row == null)
+            return null;
+        String best = null;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (Map.Entry<String, Double> entry : row.entrySet()) {
+            if (entry.getValue() > bestValue) {
+                best = entry.getKey();
+                bestValue = entry.getValue();
+            }
+        }
+        return best;
+    }
+}
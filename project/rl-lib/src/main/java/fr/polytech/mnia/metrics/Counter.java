@@ -0,0 +1,46 @@
+package fr.polytech.mnia.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counter.java
+ *
+ * Compteur monotone, sans verrou, utilisable sur un chemin critique. Sans
+ * effet lorsque les métriques sont désactivées.
+ *
+ * Exemple d'utilisation :
+ * Counter explored = MetricsRegistry.get().counter("prob.explore.states");
+ * explored.add(transitions.size());
+ */
+public final class Counter implements CounterMBean {
+
+    private final LongAdder count = new LongAdder();
+
+    Counter() {
+    }
+
+    /**
+     * Incrémente le compteur de 1.
+     */
+    public void increment() {
+        if (MetricsRegistry.ENABLED) {
+            count.increment();
+        }
+    }
+
+    /**
+     * Incrémente le compteur d'une quantité donnée.
+     *
+     * @param n quantité à ajouter
+     */
+    public void add(long n) {
+        if (MetricsRegistry.ENABLED) {
+            count.add(n);
+        }
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+}
@@ -0,0 +1,14 @@
+package fr.polytech.mnia.metrics;
+
+/**
+ * CounterMBean.java
+ *
+ * Interface JMX d'un compteur (voir Counter).
+ */
+public interface CounterMBean {
+
+    /**
+     * @return valeur courante du compteur
+     */
+    long getCount();
+}
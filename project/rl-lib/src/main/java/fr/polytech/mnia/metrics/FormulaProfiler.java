@@ -0,0 +1,229 @@
+package fr.polytech.mnia.metrics;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import de.prob.animator.domainobjects.AbstractEvalResult;
+import de.prob.animator.domainobjects.IEvalElement;
+import de.prob.statespace.State;
+
+/**
+ * FormulaProfiler.java
+ *
+ * Profilage des évaluations de formules ProB, par texte de formule : nombre
+ * d'appels, latence (totale et percentiles) et cardinalité du résultat
+ * (nombre d'éléments pour un ensemble ou une séquence, 1 sinon).
+ *
+ * Ces données indiquent quelles formules dominent le temps passé dans ProB et
+ * lesquelles mériteraient d'être mises en cache, regroupées ou recalculées en
+ * Java.
+ *
+ * Le profilage est activé par -Drl.profile.formulas=true ; sinon eval se
+ * contente d'évaluer la formule (et d'alimenter la métrique "prob.eval").
+ *
+ * Exemple d'utilisation :
+ * String turn = FormulaProfiler.eval(state, "turn").toString();
+ * ...
+ * System.out.println(FormulaProfiler.report());
+ * FormulaProfiler.dump(Paths.get("profiles", "formulas.csv"));
+ */
+public final class FormulaProfiler {
+
+    /** true si le profilage par formule est activé (-Drl.profile.formulas=true). */
+    public static final boolean ENABLED = Boolean.getBoolean("rl.profile.formulas");
+
+    private static final Timer EVAL = MetricsRegistry.get().timer("prob.eval");
+    private static final Map<String, FormulaStats> stats = new ConcurrentHashMap<>();
+
+    private FormulaProfiler() {
+    }
+
+    /**
+     * Statistiques d'une formule.
+     */
+    private static final class FormulaStats {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder cardinality = new LongAdder();
+        final AtomicLong maxCardinality = new AtomicLong();
+    }
+
+    /**
+     * Évalue une formule B dans un état, en enregistrant sa latence et la
+     * cardinalité de son résultat.
+     *
+     * @param state   état dans lequel évaluer
+     * @param formula texte de la formule
+     * @return résultat de l'évaluation
+     *
+     *         Exemple :
+     *         String win0 = FormulaProfiler.eval(state, "win(0)").toString();
+     */
+    public static AbstractEvalResult eval(State state, String formula) {
+        if (!ENABLED) {
+            long start = EVAL.start();
+            AbstractEvalResult result = state.eval(formula);
+            EVAL.stop(start);
+            return result;
+        }
+        long start = System.nanoTime();
+        AbstractEvalResult result = state.eval(formula);
+        long elapsed = System.nanoTime() - start;
+        if (MetricsRegistry.ENABLED) {
+            EVAL.getHistogram().record(elapsed);
+        }
+
+        record(formula, elapsed, result);
+        return result;
+    }
+
+    /**
+     * Évalue plusieurs formules en un seul appel à ProB. L'appel entier est
+     * mesuré par "prob.eval" ; dans le profil, chaque formule compte un appel
+     * et reçoit une part égale de la latence du lot.
+     *
+     * @param state    état dans lequel évaluer
+     * @param formulas formules, dans l'ordre des résultats voulus
+     * @return résultats, dans le même ordre que formulas
+     *
+     *         Exemple :
+     *         List<AbstractEvalResult> results = FormulaProfiler.evalAll(state, batch);
+     */
+    public static List<AbstractEvalResult> evalAll(State state, List<? extends IEvalElement> formulas) {
+        if (!ENABLED) {
+            long start = EVAL.start();
+            List<AbstractEvalResult> results = state.eval(formulas);
+            EVAL.stop(start);
+            return results;
+        }
+        long start = System.nanoTime();
+        List<AbstractEvalResult> results = state.eval(formulas);
+        long elapsed = System.nanoTime() - start;
+        if (MetricsRegistry.ENABLED) {
+            EVAL.getHistogram().record(elapsed);
+        }
+
+        long share = formulas.isEmpty() ? 0 : elapsed / formulas.size();
+        for (int i = 0; i < formulas.size(); i++) {
+            record(formulas.get(i).getCode(), share, results.get(i));
+        }
+        return results;
+    }
+
+    private static void record(String formula, long elapsed, AbstractEvalResult result) {
+        FormulaStats s = stats.computeIfAbsent(formula, f -> new FormulaStats());
+        s.latency.record(elapsed);
+        long cardinality = cardinality(String.valueOf(result));
+        s.cardinality.add(cardinality);
+        s.maxCardinality.accumulateAndGet(cardinality, Math::max);
+    }
+
+    /**
+     * Cardinalité d'une valeur B affichée : nombre d'éléments de premier
+     * niveau pour un ensemble {..} ou une séquence [..], 1 pour une valeur
+     * simple.
+     *
+     * @param value valeur affichée par ProB
+     * @return cardinalité
+     */
+    static long cardinality(String value) {
+        String v = value.trim();
+        if (v.length() < 2)
+            return 1;
+        char open = v.charAt(0);
+        char close = v.charAt(v.length() - 1);
+        if (!((open == '{' && close == '}') || (open == '[' && close == ']')))
+            return 1;
+        String inner = v.substring(1, v.length() - 1).trim();
+        if (inner.isEmpty())
+            return 0;
+        long count = 1;
+        int depth = 0;
+        for (int i = 0; i < inner.length(); i++) {
+            char c = inner.charAt(i);
+            if (c == '(' || c == '{' || c == '[') {
+                depth++;
+            } else if (c == ')' || c == '}' || c == ']') {
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Rapport texte, formules triées par temps total décroissant.
+     *
+     * @return tableau multi-lignes
+     */
+    public static String report() {
+        List<Map.Entry<String, FormulaStats>> entries = sorted();
+        double grandTotal = 0;
+        for (Map.Entry<String, FormulaStats> entry : entries) {
+            grandTotal += total(entry.getValue());
+        }
+        StringBuilder sb = new StringBuilder("=== Profil des formules ProB ===");
+        sb.append(String.format("%n  %-24s %9s %10s %6s %9s %9s %9s %7s",
+                "formule", "appels", "total(ms)", "part", "moy(µs)", "p50(µs)", "p99(µs)", "card"));
+        for (Map.Entry<String, FormulaStats> entry : entries) {
+            FormulaStats s = entry.getValue();
+            long calls = s.latency.count();
+            sb.append(String.format("%n  %-24s %9d %10.1f %5.1f%% %9.1f %9.1f %9.1f %7.1f",
+                    entry.getKey(), calls, total(s) / 1e6, grandTotal == 0 ? 0 : 100.0 * total(s) / grandTotal,
+                    s.latency.mean() / 1e3, s.latency.percentile(50.0) / 1e3, s.latency.percentile(99.0) / 1e3,
+                    calls == 0 ? 0.0 : (double) s.cardinality.sum() / calls));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Écrit les statistiques au format CSV (une ligne par formule, durées en
+     * nanosecondes).
+     *
+     * @param path fichier de destination (dossiers créés si besoin)
+     * @throws IOException en cas d'erreur d'écriture
+     */
+    public static void dump(Path path) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8))) {
+            out.println("formula,calls,total_ns,mean_ns,p50_ns,p99_ns,max_ns,mean_cardinality,max_cardinality");
+            for (Map.Entry<String, FormulaStats> entry : sorted()) {
+                FormulaStats s = entry.getValue();
+                long calls = s.latency.count();
+                out.printf(Locale.ROOT, "\"%s\",%d,%.0f,%.0f,%d,%d,%d,%.3f,%d%n",
+                        entry.getKey().replace("\"", "\"\""), calls, total(s), s.latency.mean(),
+                        s.latency.percentile(50.0), s.latency.percentile(99.0), s.latency.max(),
+                        calls == 0 ? 0.0 : (double) s.cardinality.sum() / calls, s.maxCardinality.get());
+            }
+        }
+    }
+
+    /**
+     * Oublie toutes les statistiques.
+     */
+    public static void reset() {
+        stats.clear();
+    }
+
+    private static double total(FormulaStats s) {
+        return s.latency.mean() * s.latency.count();
+    }
+
+    private static List<Map.Entry<String, FormulaStats>> sorted() {
+        List<Map.Entry<String, FormulaStats>> entries = new ArrayList<>(stats.entrySet());
+        entries.sort((a, b) -> Double.compare(total(b.getValue()), total(a.getValue())));
+        return entries;
+    }
+}
@@ -0,0 +1,26 @@
+package fr.polytech.mnia.metrics;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Gauge.java
+ *
+ * Jauge : valeur instantanée lue à la demande (taille d'un cache, mémoire
+ * utilisée...). Ne coûte rien tant qu'elle n'est pas consultée.
+ *
+ * Exemple d'utilisation :
+ * MetricsRegistry.get().gauge("cache.size", cache::size);
+ */
+public final class Gauge implements GaugeMBean {
+
+    private final LongSupplier supplier;
+
+    Gauge(LongSupplier supplier) {
+        this.supplier = supplier;
+    }
+
+    @Override
+    public long getValue() {
+        return supplier.getAsLong();
+    }
+}
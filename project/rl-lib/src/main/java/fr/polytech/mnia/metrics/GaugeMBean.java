@@ -0,0 +1,14 @@
+package fr.polytech.mnia.metrics;
+
+/**
+ * GaugeMBean.java
+ *
+ * Interface JMX d'une jauge (voir Gauge).
+ */
+public interface GaugeMBean {
+
+    /**
+     * @return valeur lue au moment de l'appel
+     */
+    long getValue();
+}
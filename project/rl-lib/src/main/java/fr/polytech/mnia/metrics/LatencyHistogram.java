@@ -0,0 +1,139 @@
+package fr.polytech.mnia.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * LatencyHistogram.java
+ *
+ * Histogramme de latences à échelle log-linéaire, dans l'esprit de
+ * HdrHistogram : chaque puissance de deux est découpée en 32 sous-intervalles,
+ * ce qui donne une précision relative d'environ 3 % sur toute la plage
+ * (de la nanoseconde à plusieurs minutes) avec un tableau de taille fixe.
+ *
+ * L'enregistrement est sans verrou et sans allocation : il peut être appelé
+ * depuis plusieurs threads sur un chemin critique.
+ *
+ * Exemple d'utilisation :
+ * LatencyHistogram histogram = new LatencyHistogram();
+ * long start = System.nanoTime();
+ * ...
+ * histogram.record(System.nanoTime() - start);
+ * long p99 = histogram.percentile(99.0);
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAGNITUDES = 64 - SUB_BUCKET_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray((MAGNITUDES + 1) * SUB_BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Enregistre une valeur (typiquement une durée en nanosecondes).
+     *
+     * @param value valeur positive ou nulle
+     */
+    public void record(long value) {
+        if (value < 0)
+            value = 0;
+        counts.incrementAndGet(indexOf(value));
+        total.incrementAndGet();
+        sum.addAndGet(value);
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            // Réessaie tant qu'un autre thread a modifié le maximum
+        }
+    }
+
+    /**
+     * Retourne la valeur en dessous de laquelle se trouvent p % des
+     * enregistrements (borne haute du sous-intervalle correspondant).
+     *
+     * @param p percentile entre 0 et 100
+     * @return valeur du percentile, 0 si l'histogramme est vide
+     */
+    public long percentile(double p) {
+        long n = total.get();
+        if (n == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(p / 100.0 * n));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Retourne le nombre de valeurs enregistrées.
+     *
+     * @return nombre d'enregistrements
+     */
+    public long count() {
+        return total.get();
+    }
+
+    /**
+     * Retourne la moyenne des valeurs enregistrées.
+     *
+     * @return moyenne, 0 si l'histogramme est vide
+     */
+    public double mean() {
+        long n = total.get();
+        return n == 0 ? 0.0 : (double) sum.get() / n;
+    }
+
+    /**
+     * Retourne la plus grande valeur enregistrée.
+     *
+     * @return maximum
+     */
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * Remet l'histogramme à zéro.
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        total.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    /**
+     * Résumé lisible des latences, en microsecondes.
+     *
+     * @return ligne de la forme "n=1000 moy=12.3µs p50=10.1µs p99=40.2µs max=80.0µs"
+     */
+    public String summary() {
+        return String.format("n=%d moy=%.1fµs p50=%.1fµs p99=%.1fµs max=%.1fµs",
+                count(), mean() / 1000.0, percentile(50) / 1000.0, percentile(99) / 1000.0, max() / 1000.0);
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS)
+            return (int) value;
+        int magnitude = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS + 1;
+        int sub = (int) (value >>> (magnitude - 1)) & (SUB_BUCKETS - 1);
+        return magnitude * SUB_BUCKETS + sub;
+    }
+
+    private static long upperBound(int index) {
+        int magnitude = index / SUB_BUCKETS;
+        long sub = index % SUB_BUCKETS;
+        if (magnitude == 0)
+            return sub;
+        return ((sub | SUB_BUCKETS) << (magnitude - 1)) + (1L << (magnitude - 1)) - 1;
+    }
+}
@@ -0,0 +1,189 @@
+package fr.polytech.mnia.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * MetricsRegistry.java
+ *
+ * Registre des métriques des chemins critiques : compteurs, jauges et
+ * chronomètres (histogrammes de latence), identifiés par un nom pointé
+ * (ex: "env.step", "prob.explore", "reward.compute", "agent.update").
+ *
+ * Les métriques sont activées par la propriété système -Drl.metrics=true. Le
+ * drapeau ENABLED étant une constante, le JIT élimine les mesures lorsqu'elles
+ * sont désactivées : le coût est alors quasi nul.
+ *
+ * Chaque métrique est publiée comme MBean JMX
+ * (fr.polytech.mnia:type=Timer,name=env.step), consultable avec jconsole ou
+ * VisualVM, et un résumé texte peut être affiché périodiquement.
+ *
+ * Exemple d'utilisation :
+ * private static final Timer STEP = MetricsRegistry.get().timer("env.step");
+ * long start = STEP.start();
+ * ...
+ * STEP.stop(start);
+ * System.out.println(MetricsRegistry.get().summary());
+ */
+public final class MetricsRegistry {
+
+    /** true si les métriques sont activées (-Drl.metrics=true). */
+    public static final boolean ENABLED = Boolean.getBoolean("rl.metrics");
+
+    private static final String DOMAIN = "fr.polytech.mnia";
+    private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, Gauge> gauges = new ConcurrentHashMap<>();
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private ScheduledExecutorService reporter;
+
+    private MetricsRegistry() {
+    }
+
+    /**
+     * @return registre global de l'application
+     */
+    public static MetricsRegistry get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Retourne le compteur de ce nom, créé au premier appel.
+     *
+     * @param name nom de la métrique
+     * @return compteur
+     */
+    public Counter counter(String name) {
+        return register(counters, name, "Counter", n -> new Counter());
+    }
+
+    /**
+     * Retourne le chronomètre de ce nom, créé au premier appel.
+     *
+     * @param name nom de la métrique
+     * @return chronomètre
+     */
+    public Timer timer(String name) {
+        return register(timers, name, "Timer", n -> new Timer());
+    }
+
+    /**
+     * Enregistre (ou remplace) une jauge.
+     *
+     * @param name     nom de la métrique
+     * @param supplier lecture de la valeur courante
+     * @return jauge
+     */
+    public Gauge gauge(String name, LongSupplier supplier) {
+        gauges.remove(name);
+        unpublish("Gauge", name);
+        return register(gauges, name, "Gauge", n -> new Gauge(supplier));
+    }
+
+    /**
+     * Affiche le résumé des métriques à intervalle régulier, sur un thread
+     * démon. Sans effet si les métriques sont désactivées.
+     *
+     * @param periodSeconds intervalle entre deux résumés
+     *
+     *                      Exemple :
+     *                      MetricsRegistry.get().startReporter(10);
+     */
+    public synchronized void startReporter(long periodSeconds) {
+        if (!ENABLED || reporter != null)
+            return;
+        reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metrics-reporter");
+            t.setDaemon(true);
+            return t;
+        });
+        reporter.scheduleAtFixedRate(() -> System.out.println(summary()), periodSeconds, periodSeconds,
+                TimeUnit.SECONDS);
+    }
+
+    /**
+     * Arrête l'affichage périodique.
+     */
+    public synchronized void stopReporter() {
+        if (reporter != null) {
+            reporter.shutdownNow();
+            reporter = null;
+        }
+    }
+
+    /**
+     * Résumé texte de toutes les métriques, triées par nom.
+     *
+     * @return rapport multi-lignes
+     */
+    public String summary() {
+        StringBuilder sb = new StringBuilder("=== Métriques ===");
+        for (Map.Entry<String, Timer> entry : new TreeMap<>(timers).entrySet()) {
+            Timer t = entry.getValue();
+            if (t.getCount() == 0)
+                continue;
+            sb.append(String.format("%n  %-22s n=%-9d total=%.1fms moy=%.1fµs p50=%.1fµs p99=%.1fµs max=%.1fµs",
+                    entry.getKey(), t.getCount(), t.getTotalMillis(), t.getMeanMicros(), t.getP50Micros(),
+                    t.getP99Micros(), t.getMaxMicros()));
+        }
+        for (Map.Entry<String, Counter> entry : new TreeMap<>(counters).entrySet()) {
+            sb.append(String.format("%n  %-22s %d", entry.getKey(), entry.getValue().getCount()));
+        }
+        for (Map.Entry<String, Gauge> entry : new TreeMap<>(gauges).entrySet()) {
+            sb.append(String.format("%n  %-22s %d", entry.getKey(), entry.getValue().getValue()));
+        }
+        return sb.toString();
+    }
+
+    private <M> M register(Map<String, M> metrics, String name, String type, Function<String, M> factory) {
+        return metrics.computeIfAbsent(name, n -> {
+            M metric = factory.apply(n);
+            if (ENABLED) {
+                publish(type, n, metric);
+            }
+            return metric;
+        });
+    }
+
+    private static void publish(String type, String name, Object metric) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = objectName(type, name);
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(metric, objectName);
+            }
+        } catch (JMException e) {
+            System.out.println("[Metrics] Publication JMX impossible pour " + name + " : " + e.getMessage());
+        }
+    }
+
+    private static void unpublish(String type, String name) {
+        if (!ENABLED)
+            return;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = objectName(type, name);
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            // déjà retiré
+        }
+    }
+
+    private static ObjectName objectName(String type, String name) throws JMException {
+        return new ObjectName(DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+    }
+}
@@ -0,0 +1,97 @@
+package fr.polytech.mnia.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * StartupTimeline.java
+ *
+ * Chronologie du démarrage de l'application : chaque phase coûteuse
+ * (création de l'injecteur Guice, lancement de probcli et chargement du
+ * modèle, initialisation de la machine, première exploration...) est mesurée
+ * et positionnée par rapport au lancement de la JVM.
+ *
+ * Les phases peuvent se chevaucher (préchauffage en arrière-plan) : le thread
+ * qui les a exécutées est indiqué dans le rapport.
+ *
+ * Exemple d'utilisation :
+ * try (StartupTimeline.Phase phase = StartupTimeline.begin("Chargement du modèle")) {
+ * api.b_load(path);
+ * }
+ * System.out.println(StartupTimeline.report());
+ */
+public final class StartupTimeline {
+
+    /** Instant (System.nanoTime) du lancement de la JVM. */
+    private static final long ORIGIN = System.nanoTime()
+            - ManagementFactory.getRuntimeMXBean().getUptime() * 1_000_000L;
+
+    private static final List<String> names = new ArrayList<>();
+    private static final List<String> threads = new ArrayList<>();
+    private static final List<long[]> spans = new ArrayList<>();
+
+    private StartupTimeline() {
+    }
+
+    /**
+     * Phase en cours de mesure, enregistrée à sa fermeture.
+     */
+    public static final class Phase implements AutoCloseable {
+        private final String name;
+        private final long start = System.nanoTime();
+
+        private Phase(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void close() {
+            record(name, start, System.nanoTime());
+        }
+    }
+
+    /**
+     * Commence la mesure d'une phase.
+     *
+     * @param name nom de la phase
+     * @return phase à fermer à la fin de l'étape
+     */
+    public static Phase begin(String name) {
+        return new Phase(name);
+    }
+
+    /**
+     * Enregistre une phase déjà mesurée.
+     *
+     * @param name       nom de la phase
+     * @param startNanos début (System.nanoTime)
+     * @param endNanos   fin (System.nanoTime)
+     */
+    public static synchronized void record(String name, long startNanos, long endNanos) {
+        names.add(name);
+        threads.add(Thread.currentThread().getName());
+        spans.add(new long[] { startNanos, endNanos });
+    }
+
+    /**
+     * Rapport lisible : pour chaque phase, son début depuis le lancement de la
+     * JVM, sa durée et son thread.
+     *
+     * @return rapport multi-lignes
+     *
+     *         Exemple :
+     *         System.out.println(StartupTimeline.report());
+     */
+    public static synchronized String report() {
+        StringBuilder sb = new StringBuilder("=== Chronologie du démarrage ===\n");
+        for (int i = 0; i < names.size(); i++) {
+            long[] span = spans.get(i);
+            sb.append(String.format("  +%6d ms  %7d ms  %s [%s]%n",
+                    (span[0] - ORIGIN) / 1_000_000, (span[1] - span[0]) / 1_000_000, names.get(i), threads.get(i)));
+        }
+        sb.append(String.format("  Temps écoulé depuis le lancement de la JVM : %d ms",
+                (System.nanoTime() - ORIGIN) / 1_000_000));
+        return sb.toString();
+    }
+}
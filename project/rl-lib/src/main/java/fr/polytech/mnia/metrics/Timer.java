@@ -0,0 +1,79 @@
+package fr.polytech.mnia.metrics;
+
+/**
+ * Timer.java
+ *
+ * Chronomètre : distribution des durées d'une opération, enregistrées dans un
+ * LatencyHistogram. Lorsque les métriques sont désactivées, start() renvoie 0
+ * sans lire l'horloge et stop() ne fait rien.
+ *
+ * Exemple d'utilisation :
+ * private static final Timer STEP = MetricsRegistry.get().timer("env.step");
+ * long start = STEP.start();
+ * ...
+ * STEP.stop(start);
+ */
+public final class Timer implements TimerMBean {
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    Timer() {
+    }
+
+    /**
+     * Commence une mesure.
+     *
+     * @return instant de début à passer à stop
+     */
+    public long start() {
+        return MetricsRegistry.ENABLED ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Termine une mesure commencée par start.
+     *
+     * @param start valeur renvoyée par start
+     */
+    public void stop(long start) {
+        if (MetricsRegistry.ENABLED) {
+            histogram.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @return histogramme sous-jacent (durées en nanosecondes)
+     */
+    public LatencyHistogram getHistogram() {
+        return histogram;
+    }
+
+    @Override
+    public long getCount() {
+        return histogram.count();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        return histogram.mean() / 1e3;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return histogram.percentile(50.0) / 1e3;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return histogram.percentile(99.0) / 1e3;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return histogram.max() / 1e3;
+    }
+
+    @Override
+    public double getTotalMillis() {
+        return histogram.mean() * histogram.count() / 1e6;
+    }
+}
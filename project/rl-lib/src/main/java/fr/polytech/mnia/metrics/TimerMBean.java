@@ -0,0 +1,40 @@
+package fr.polytech.mnia.metrics;
+
+/**
+ * TimerMBean.java
+ *
+ * Interface JMX d'un chronomètre (voir Timer). Les durées sont exprimées en
+ * microsecondes.
+ */
+public interface TimerMBean {
+
+    /**
+     * @return nombre de mesures
+     */
+    long getCount();
+
+    /**
+     * @return durée moyenne
+     */
+    double getMeanMicros();
+
+    /**
+     * @return médiane
+     */
+    double getP50Micros();
+
+    /**
+     * @return 99e percentile
+     */
+    double getP99Micros();
+
+    /**
+     * @return durée maximale
+     */
+    double getMaxMicros();
+
+    /**
+     * @return durée cumulée, en millisecondes
+     */
+    double getTotalMillis();
+}
@@ -0,0 +1,120 @@
+package fr.polytech.mnia.nn;
+
+import java.util.Arrays;
+
+/**
+ * DenseKernels.java
+ *
+ * Noyaux de calcul vectoriel utilisés par le réseau dense Mlp : produit
+ * scalaire et mise à jour y += a * x, d'où sont déduits les produits
+ * matrice-vecteur.
+ *
+ * Deux implémentations existent :
+ * - ScalarKernels : boucles Java simples, toujours disponibles ;
+ * - VectorKernels : instructions SIMD via l'API Vector (jdk.incubator.vector),
+ * compilée uniquement avec le profil Maven "vector" (JDK 17 ou plus) et
+ * chargée par réflexion.
+ *
+ * Exemple d'utilisation :
+ * DenseKernels kernels = DenseKernels.best();
+ * float s = kernels.dot(a, 0, b, 0, n);
+ */
+public interface DenseKernels {
+
+    /**
+     * Produit scalaire de a[aOff, aOff + n) et b[bOff, bOff + n).
+     *
+     * @param a    premier vecteur
+     * @param aOff début dans a
+     * @param b    second vecteur
+     * @param bOff début dans b
+     * @param n    longueur
+     * @return somme des a[i] * b[i]
+     */
+    float dot(float[] a, int aOff, float[] b, int bOff, int n);
+
+    /**
+     * y[yOff, yOff + n) += alpha * x[xOff, xOff + n).
+     *
+     * @param alpha coefficient
+     * @param x     vecteur ajouté
+     * @param xOff  début dans x
+     * @param y     vecteur modifié
+     * @param yOff  début dans y
+     * @param n     longueur
+     */
+    void axpy(float alpha, float[] x, int xOff, float[] y, int yOff, int n);
+
+    /**
+     * Nom de l'implémentation, pour les rapports.
+     *
+     * @return nom court
+     */
+    String name();
+
+    /**
+     * out = W x, pour W de rows lignes et cols colonnes rangée par lignes.
+     *
+     * @param w    matrice
+     * @param rows nombre de lignes
+     * @param cols nombre de colonnes
+     * @param x    vecteur de taille cols
+     * @param out  vecteur résultat de taille rows
+     */
+    default void matVec(float[] w, int rows, int cols, float[] x, float[] out) {
+        for (int r = 0; r < rows; r++) {
+            out[r] = dot(w, r * cols, x, 0, cols);
+        }
+    }
+
+    /**
+     * out = transposée(W) g, pour W de rows lignes et cols colonnes rangée
+     * par lignes.
+     *
+     * @param w    matrice
+     * @param rows nombre de lignes
+     * @param cols nombre de colonnes
+     * @param g    vecteur de taille rows
+     * @param out  vecteur résultat de taille cols
+     */
+    default void matTVec(float[] w, int rows, int cols, float[] g, float[] out) {
+        Arrays.fill(out, 0, cols, 0f);
+        for (int r = 0; r < rows; r++) {
+            if (g[r] != 0f) {
+                axpy(g[r], w, r * cols, out, 0, cols);
+            }
+        }
+    }
+
+    /**
+     * Implémentation scalaire.
+     *
+     * @return noyaux scalaires
+     */
+    static DenseKernels scalar() {
+        return new ScalarKernels();
+    }
+
+    /**
+     * Meilleure implémentation disponible : VectorKernels si la classe a été
+     * compilée (profil "vector") et si le module jdk.incubator.vector est
+     * chargé (--add-modules jdk.incubator.vector), sinon ScalarKernels.
+     * -Drl.nn.scalar=true force les noyaux scalaires.
+     *
+     * @return noyaux à utiliser
+     *
+     *         Exemple :
+     *         Mlp net = new Mlp(DenseKernels.best(), seed, 64, 128, 10);
+     */
+    static DenseKernels best() {
+        if (!Boolean.getBoolean("rl.nn.scalar")) {
+            try {
+                return (DenseKernels) Class.forName("fr.polytech.mnia.nn.VectorKernels")
+                        .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // Classe non compilée ou module jdk.incubator.vector absent
+            }
+        }
+        return scalar();
+    }
+}
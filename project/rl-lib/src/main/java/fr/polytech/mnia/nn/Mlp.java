@@ -0,0 +1,198 @@
+package fr.polytech.mnia.nn;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Mlp.java
+ *
+ * Perceptron multicouche compact, en float : couches denses, activation ReLU
+ * sur les couches cachées, sortie linéaire (une valeur Q par action).
+ *
+ * L'apprentissage se fait par mini-batch : accumulate ajoute le gradient
+ * d'une erreur sur une seule sortie (perte de Huber), apply applique la
+ * moyenne des gradients accumulés par descente de gradient. Tous les tableaux
+ * (poids, activations, gradients) sont alloués à la construction ; forward,
+ * accumulate et apply n'allouent rien.
+ *
+ * Les produits matrice-vecteur passent par des DenseKernels (SIMD si
+ * disponibles).
+ *
+ * Exemple d'utilisation :
+ * Mlp net = new Mlp(DenseKernels.best(), 42, 64, 128, 128, 10);
+ * float[] q = net.forward(input);
+ * net.accumulate(input, action, target);
+ * net.apply(0.001f);
+ */
+public class Mlp {
+
+    private final DenseKernels kernels;
+    private final int[] sizes;
+    private final float[][] weights; // weights[l] : sizes[l + 1] lignes x sizes[l] colonnes
+    private final float[][] biases;
+    private final float[][] gradWeights;
+    private final float[][] gradBiases;
+    private final float[][] activations; // activations[0] : entrée, activations[l + 1] : sortie de la couche l
+    private final float[][] deltas; // deltas[l] : gradient de la perte par rapport à la sortie de la couche l
+    private int accumulated = 0;
+
+    /**
+     * Construit un réseau initialisé aléatoirement (initialisation de He).
+     *
+     * @param kernels noyaux de calcul
+     * @param seed    graine de l'initialisation
+     * @param sizes   taille de chaque couche, entrée et sortie comprises
+     *
+     *                Exemple :
+     *                Mlp net = new Mlp(DenseKernels.scalar(), 1, 20, 32, 4);
+     */
+    public Mlp(DenseKernels kernels, long seed, int... sizes) {
+        if (sizes.length < 2) {
+            throw new IllegalArgumentException("Au moins une couche d'entrée et une couche de sortie");
+        }
+        this.kernels = kernels;
+        this.sizes = sizes.clone();
+        int layers = sizes.length - 1;
+        weights = new float[layers][];
+        biases = new float[layers][];
+        gradWeights = new float[layers][];
+        gradBiases = new float[layers][];
+        activations = new float[layers + 1][];
+        deltas = new float[layers][];
+        activations[0] = new float[sizes[0]];
+
+        Random random = new Random(seed);
+        for (int l = 0; l < layers; l++) {
+            int in = sizes[l];
+            int out = sizes[l + 1];
+            weights[l] = new float[in * out];
+            double scale = Math.sqrt(6.0 / in);
+            for (int i = 0; i < weights[l].length; i++) {
+                weights[l][i] = (float) ((random.nextDouble() * 2 - 1) * scale);
+            }
+            biases[l] = new float[out];
+            gradWeights[l] = new float[in * out];
+            gradBiases[l] = new float[out];
+            activations[l + 1] = new float[out];
+            deltas[l] = new float[out];
+        }
+    }
+
+    /**
+     * Propagation avant.
+     *
+     * @param input entrée de taille sizes[0]
+     * @return sorties du réseau (tableau interne, écrasé au prochain appel)
+     *
+     *         Exemple :
+     *         float q = net.forward(input)[action];
+     */
+    public float[] forward(float[] input) {
+        System.arraycopy(input, 0, activations[0], 0, sizes[0]);
+        int layers = weights.length;
+        for (int l = 0; l < layers; l++) {
+            float[] out = activations[l + 1];
+            kernels.matVec(weights[l], sizes[l + 1], sizes[l], activations[l], out);
+            float[] b = biases[l];
+            boolean hidden = l < layers - 1;
+            for (int i = 0; i < out.length; i++) {
+                float v = out[i] + b[i];
+                out[i] = hidden && v < 0f ? 0f : v;
+            }
+        }
+        return activations[layers];
+    }
+
+    /**
+     * Ajoute au mini-batch le gradient de la perte de Huber entre la sortie
+     * output et la cible.
+     *
+     * @param input  entrée
+     * @param output indice de la sortie concernée
+     * @param target valeur cible
+     * @return erreur (sortie - cible) avant écrêtage
+     *
+     *         Exemple :
+     *         net.accumulate(input, action, reward + gamma * maxNext);
+     */
+    public float accumulate(float[] input, int output, float target) {
+        int layers = weights.length;
+        float error = forward(input)[output] - target;
+        float[] top = deltas[layers - 1];
+        Arrays.fill(top, 0f);
+        top[output] = Math.max(-1f, Math.min(1f, error)); // Dérivée de la perte de Huber
+
+        for (int l = layers - 1; l >= 0; l--) {
+            int rows = sizes[l + 1];
+            int cols = sizes[l];
+            float[] delta = deltas[l];
+            float[] in = activations[l];
+            for (int r = 0; r < rows; r++) {
+                if (delta[r] != 0f) {
+                    kernels.axpy(delta[r], in, 0, gradWeights[l], r * cols, cols);
+                    gradBiases[l][r] += delta[r];
+                }
+            }
+            if (l > 0) {
+                float[] below = deltas[l - 1];
+                kernels.matTVec(weights[l], rows, cols, delta, below);
+                for (int i = 0; i < cols; i++) {
+                    if (in[i] <= 0f) {
+                        below[i] = 0f; // Dérivée de ReLU
+                    }
+                }
+            }
+        }
+        accumulated++;
+        return error;
+    }
+
+    /**
+     * Applique la moyenne des gradients accumulés puis les remet à zéro.
+     *
+     * @param learningRate pas de la descente de gradient
+     *
+     *                     Exemple :
+     *                     net.apply(0.001f);
+     */
+    public void apply(float learningRate) {
+        if (accumulated == 0) {
+            return;
+        }
+        float step = -learningRate / accumulated;
+        for (int l = 0; l < weights.length; l++) {
+            kernels.axpy(step, gradWeights[l], 0, weights[l], 0, weights[l].length);
+            kernels.axpy(step, gradBiases[l], 0, biases[l], 0, biases[l].length);
+            Arrays.fill(gradWeights[l], 0f);
+            Arrays.fill(gradBiases[l], 0f);
+        }
+        accumulated = 0;
+    }
+
+    /**
+     * Copie les poids d'un réseau de même architecture (réseau cible).
+     *
+     * @param other réseau source
+     *
+     *              Exemple :
+     *              target.copyFrom(online);
+     */
+    public void copyFrom(Mlp other) {
+        if (!Arrays.equals(sizes, other.sizes)) {
+            throw new IllegalArgumentException("Architectures différentes");
+        }
+        for (int l = 0; l < weights.length; l++) {
+            System.arraycopy(other.weights[l], 0, weights[l], 0, weights[l].length);
+            System.arraycopy(other.biases[l], 0, biases[l], 0, biases[l].length);
+        }
+    }
+
+    /**
+     * Noyaux de calcul utilisés.
+     *
+     * @return noyaux
+     */
+    public DenseKernels getKernels() {
+        return kernels;
+    }
+}
@@ -0,0 +1,110 @@
+package fr.polytech.mnia.nn;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * MlpBenchmark.java
+ *
+ * Banc d'essai des noyaux de calcul du réseau dense : compare les noyaux
+ * scalaires et les noyaux SIMD (si disponibles) sur la propagation avant et
+ * sur un pas d'apprentissage par mini-batch, et vérifie que les deux
+ * produisent les mêmes sorties (à l'arrondi près).
+ *
+ * Exemple d'utilisation (depuis le dossier du pom.xml) :
+ * mvn -Pvector compile
+ * java --add-modules jdk.incubator.vector -cp target/classes fr.polytech.mnia.nn.MlpBenchmark 64 256 256 16
+ */
+public class MlpBenchmark {
+
+    private static final int BATCH = 32;
+
+    /**
+     * Lance le banc d'essai.
+     *
+     * @param args tailles des couches (par défaut 64 256 256 16)
+     */
+    public static void main(String[] args) {
+        int[] sizes = args.length >= 2 ? new int[args.length] : new int[] { 64, 256, 256, 16 };
+        for (int i = 0; i < args.length && args.length >= 2; i++) {
+            sizes[i] = Integer.parseInt(args[i]);
+        }
+
+        DenseKernels scalar = DenseKernels.scalar();
+        DenseKernels best = DenseKernels.best();
+        System.out.println("Architecture : " + Arrays.toString(sizes));
+        System.out.println("Noyaux disponibles : " + best.name());
+
+        float[][] inputs = new float[BATCH][sizes[0]];
+        Random random = new Random(7);
+        for (float[] input : inputs) {
+            for (int i = 0; i < input.length; i++) {
+                input[i] = random.nextFloat();
+            }
+        }
+
+        Mlp a = new Mlp(scalar, 1, sizes);
+        Mlp b = new Mlp(best, 1, sizes);
+        float maxDiff = 0f;
+        for (float[] input : inputs) {
+            float[] qa = a.forward(input).clone();
+            float[] qb = b.forward(input);
+            for (int i = 0; i < qa.length; i++) {
+                maxDiff = Math.max(maxDiff, Math.abs(qa[i] - qb[i]));
+            }
+        }
+        System.out.printf("Écart maximal entre les sorties : %.2e%n", maxDiff);
+
+        double scalarForward = forward(a, inputs);
+        double bestForward = forward(b, inputs);
+        double scalarTrain = train(a, inputs);
+        double bestTrain = train(b, inputs);
+        System.out.printf("Propagation avant : %s %.1f µs, %s %.1f µs (x%.2f)%n", scalar.name(), scalarForward / 1e3,
+                best.name(), bestForward / 1e3, scalarForward / bestForward);
+        System.out.printf("Pas d'apprentissage (batch %d) : %s %.1f µs, %s %.1f µs (x%.2f)%n", BATCH, scalar.name(),
+                scalarTrain / 1e3, best.name(), bestTrain / 1e3, scalarTrain / bestTrain);
+    }
+
+    /**
+     * Durée moyenne (ns) d'une propagation avant, après échauffement.
+     */
+    private static double forward(Mlp net, float[][] inputs) {
+        float sink = 0f;
+        for (int i = 0; i < 20_000; i++) {
+            sink += net.forward(inputs[i % BATCH])[0];
+        }
+        int runs = 50_000;
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            sink += net.forward(inputs[i % BATCH])[0];
+        }
+        long elapsed = System.nanoTime() - start;
+        if (sink == Float.MIN_VALUE) {
+            System.out.println(sink);
+        }
+        return (double) elapsed / runs;
+    }
+
+    /**
+     * Durée moyenne (ns) d'un pas d'apprentissage sur un mini-batch, après
+     * échauffement.
+     */
+    private static double train(Mlp net, float[][] inputs) {
+        for (int i = 0; i < 500; i++) {
+            step(net, inputs);
+        }
+        int runs = 2_000;
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            step(net, inputs);
+        }
+        return (double) (System.nanoTime() - start) / runs;
+    }
+
+    private static void step(Mlp net, float[][] inputs) {
+        for (int j = 0; j < BATCH; j++) {
+            net.accumulate(inputs[j], j % 4, 0.5f);
+        }
+        net.apply(1e-4f);
+    }
+}
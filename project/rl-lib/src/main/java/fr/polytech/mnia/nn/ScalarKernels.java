@@ -0,0 +1,34 @@
+package fr.polytech.mnia.nn;
+
+/**
+ * ScalarKernels.java
+ *
+ * Noyaux de calcul en boucles Java simples, utilisés lorsque l'API Vector
+ * n'est pas disponible (et comme référence pour le banc d'essai).
+ *
+ * Exemple d'utilisation :
+ * DenseKernels kernels = DenseKernels.scalar();
+ */
+public class ScalarKernels implements DenseKernels {
+
+    @Override
+    public float dot(float[] a, int aOff, float[] b, int bOff, int n) {
+        float sum = 0f;
+        for (int i = 0; i < n; i++) {
+            sum += a[aOff + i] * b[bOff + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public void axpy(float alpha, float[] x, int xOff, float[] y, int yOff, int n) {
+        for (int i = 0; i < n; i++) {
+            y[yOff + i] += alpha * x[xOff + i];
+        }
+    }
+
+    @Override
+    public String name() {
+        return "scalaire";
+    }
+}
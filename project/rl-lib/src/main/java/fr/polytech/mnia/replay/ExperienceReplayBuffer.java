@@ -0,0 +1,164 @@
+package fr.polytech.mnia.replay;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+/**
+ * ExperienceReplayBuffer.java
+ *
+ * Tampon de rejeu circulaire de taille fixe, stocké hors du tas Java dans un
+ * ByteBuffer direct.
+ *
+ * Chaque transition occupe un enregistrement de 24 octets :
+ * - identifiant de l'état (int)
+ * - identifiant de l'action (int)
+ * - récompense (double)
+ * - identifiant de l'état suivant (int)
+ * - indicateur de fin d'épisode (byte, suivi de 3 octets de bourrage)
+ *
+ * Quand le tampon est plein, la transition la plus ancienne est écrasée.
+ * Le tirage est uniforme parmi les transitions stockées.
+ *
+ * Exemple d'utilisation :
+ * ExperienceReplayBuffer buffer = new ExperienceReplayBuffer(10000);
+ * buffer.add(s, a, reward, sNext, terminal);
+ * buffer.sample(batch);
+ */
+public class ExperienceReplayBuffer {
+
+    protected static final int RECORD_SIZE = 24;
+    private static final int STATE_OFFSET = 0;
+    private static final int ACTION_OFFSET = 4;
+    private static final int REWARD_OFFSET = 8;
+    private static final int NEXT_STATE_OFFSET = 16;
+    private static final int TERMINAL_OFFSET = 20;
+
+    protected final int capacity;
+    protected final Random random;
+    private final ByteBuffer data;
+    private int next = 0; // Prochaine position d'écriture
+    private int size = 0; // Nombre de transitions stockées
+
+    /**
+     * Construit un tampon de rejeu de capacité fixe.
+     *
+     * @param capacity nombre maximal de transitions conservées
+     *
+     *                 Exemple :
+     *                 ExperienceReplayBuffer buffer = new ExperienceReplayBuffer(10000);
+     */
+    public ExperienceReplayBuffer(int capacity) {
+        this(capacity, new Random());
+    }
+
+    /**
+     * Construit un tampon de rejeu avec un générateur aléatoire donné.
+     *
+     * @param capacity nombre maximal de transitions conservées
+     * @param random   générateur utilisé pour les tirages
+     */
+    public ExperienceReplayBuffer(int capacity, Random random) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("La capacité du tampon doit être positive : " + capacity);
+        }
+        this.capacity = capacity;
+        this.random = random;
+        this.data = ByteBuffer.allocateDirect(capacity * RECORD_SIZE).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Ajoute une transition au tampon, en écrasant la plus ancienne si le tampon
+     * est plein.
+     *
+     * @param state     identifiant de l'état de départ
+     * @param action    identifiant de l'action jouée
+     * @param reward    récompense obtenue
+     * @param nextState identifiant de l'état d'arrivée
+     * @param terminal  true si l'état d'arrivée termine l'épisode
+     * @return position de la transition dans le tampon
+     *
+     *         Exemple :
+     *         buffer.add(3, 1, -0.25, 7, false);
+     */
+    public int add(int state, int action, double reward, int nextState, boolean terminal) {
+        int slot = next;
+        int base = slot * RECORD_SIZE;
+        data.putInt(base + STATE_OFFSET, state);
+        data.putInt(base + ACTION_OFFSET, action);
+        data.putDouble(base + REWARD_OFFSET, reward);
+        data.putInt(base + NEXT_STATE_OFFSET, nextState);
+        data.put(base + TERMINAL_OFFSET, terminal ? (byte) 1 : (byte) 0);
+
+        next = (next + 1) % capacity;
+        if (size < capacity) {
+            size++;
+        }
+        return slot;
+    }
+
+    /**
+     * Remplit le mini-batch avec des transitions tirées uniformément (avec
+     * remise).
+     *
+     * @param batch mini-batch à remplir
+     *
+     *              Exemple :
+     *              buffer.sample(batch);
+     */
+    public void sample(ReplayBatch batch) {
+        if (size == 0) {
+            throw new IllegalStateException("Le tampon de rejeu est vide");
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            read(random.nextInt(size), batch, i);
+            batch.weights[i] = 1.0;
+        }
+    }
+
+    /**
+     * Met à jour les priorités des transitions d'un mini-batch à partir de leurs
+     * erreurs TD. Sans effet pour un tirage uniforme.
+     *
+     * @param batch    mini-batch dont les transitions ont été rejouées
+     * @param tdErrors erreurs TD associées, dans le même ordre que le mini-batch
+     */
+    public void updatePriorities(ReplayBatch batch, double[] tdErrors) {
+        // Tirage uniforme : aucune priorité à maintenir
+    }
+
+    /**
+     * Recopie la transition stockée à une position donnée dans le mini-batch.
+     *
+     * @param slot  position dans le tampon
+     * @param batch mini-batch de destination
+     * @param i     indice dans le mini-batch
+     */
+    protected void read(int slot, ReplayBatch batch, int i) {
+        int base = slot * RECORD_SIZE;
+        batch.slots[i] = slot;
+        batch.states[i] = data.getInt(base + STATE_OFFSET);
+        batch.actions[i] = data.getInt(base + ACTION_OFFSET);
+        batch.rewards[i] = data.getDouble(base + REWARD_OFFSET);
+        batch.nextStates[i] = data.getInt(base + NEXT_STATE_OFFSET);
+        batch.terminals[i] = data.get(base + TERMINAL_OFFSET) != 0;
+    }
+
+    /**
+     * Retourne le nombre de transitions actuellement stockées.
+     *
+     * @return nombre de transitions
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Retourne la capacité maximale du tampon.
+     *
+     * @return capacité
+     */
+    public int capacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,106 @@
+package fr.polytech.mnia.replay;
+
+import java.util.Random;
+
+/**
+ * PrioritizedReplayBuffer.java
+ *
+ * Tampon de rejeu prioritaire : les transitions sont tirées avec une
+ * probabilité proportionnelle à |erreur TD|^alpha, grâce à un SumTree.
+ *
+ * Caractéristiques :
+ * - Une nouvelle transition reçoit la priorité maximale observée, pour être
+ * rejouée au moins une fois.
+ * - Chaque tirage est corrigé par un poids d'importance (N * P(i))^-beta,
+ * normalisé par le poids maximal du mini-batch.
+ *
+ * Exemple d'utilisation :
+ * ExperienceReplayBuffer buffer = new PrioritizedReplayBuffer(10000, 0.6, 0.4);
+ * buffer.sample(batch);
+ * buffer.updatePriorities(batch, tdErrors);
+ */
+public class PrioritizedReplayBuffer extends ExperienceReplayBuffer {
+
+    private static final double MIN_PRIORITY = 1e-6;
+
+    private final double alpha; // Degré de priorisation (0 = uniforme)
+    private final double beta; // Degré de correction du biais d'échantillonnage
+    private final SumTree tree;
+    private double maxPriority = 1.0;
+
+    /**
+     * Construit un tampon de rejeu prioritaire.
+     *
+     * @param capacity nombre maximal de transitions conservées
+     * @param alpha    exposant appliqué aux erreurs TD (ex: 0.6)
+     * @param beta     exposant des poids d'importance (ex: 0.4)
+     *
+     *                 Exemple :
+     *                 PrioritizedReplayBuffer buffer = new PrioritizedReplayBuffer(10000, 0.6, 0.4);
+     */
+    public PrioritizedReplayBuffer(int capacity, double alpha, double beta) {
+        this(capacity, alpha, beta, new Random());
+    }
+
+    /**
+     * Construit un tampon de rejeu prioritaire avec un générateur donné.
+     *
+     * @param capacity nombre maximal de transitions conservées
+     * @param alpha    exposant appliqué aux erreurs TD
+     * @param beta     exposant des poids d'importance
+     * @param random   générateur utilisé pour les tirages
+     */
+    public PrioritizedReplayBuffer(int capacity, double alpha, double beta, Random random) {
+        super(capacity, random);
+        this.alpha = alpha;
+        this.beta = beta;
+        this.tree = new SumTree(capacity);
+    }
+
+    @Override
+    public int add(int state, int action, double reward, int nextState, boolean terminal) {
+        int slot = super.add(state, action, reward, nextState, terminal);
+        tree.set(slot, maxPriority);
+        return slot;
+    }
+
+    /**
+     * Tire un mini-batch par échantillonnage stratifié : la masse totale est
+     * découpée en segments égaux et une transition est tirée dans chacun.
+     *
+     * @param batch mini-batch à remplir (poids d'importance inclus)
+     */
+    @Override
+    public void sample(ReplayBatch batch) {
+        if (size() == 0) {
+            throw new IllegalStateException("Le tampon de rejeu est vide");
+        }
+        double total = tree.total();
+        double segment = total / batch.size();
+        double maxWeight = 0.0;
+
+        for (int i = 0; i < batch.size(); i++) {
+            double value = segment * (i + random.nextDouble());
+            int slot = Math.min(tree.find(value), size() - 1);
+            read(slot, batch, i);
+
+            double probability = tree.get(slot) / total;
+            double weight = Math.pow(size() * probability, -beta);
+            batch.weights[i] = weight;
+            maxWeight = Math.max(maxWeight, weight);
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            batch.weights[i] /= maxWeight;
+        }
+    }
+
+    @Override
+    public void updatePriorities(ReplayBatch batch, double[] tdErrors) {
+        for (int i = 0; i < batch.size(); i++) {
+            double priority = Math.pow(Math.abs(tdErrors[i]) + MIN_PRIORITY, alpha);
+            tree.set(batch.slots[i], priority);
+            maxPriority = Math.max(maxPriority, priority);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package fr.polytech.mnia.replay;
+
+/**
+ * ReplayBatch.java
+ *
+ * Mini-batch de transitions tirées d'un tampon de rejeu.
+ *
+ * Les champs sont des tableaux primitifs réutilisés d'un tirage à l'autre
+ * afin de ne rien allouer pendant l'entraînement.
+ *
+ * Exemple d'utilisation :
+ * ReplayBatch batch = new ReplayBatch(32);
+ * buffer.sample(batch);
+ * for (int i = 0; i < batch.size(); i++) { ... batch.states[i] ... }
+ */
+public class ReplayBatch {
+
+    public final int[] slots; // Position de chaque transition dans le tampon
+    public final int[] states; // Identifiant de l'état de départ
+    public final int[] actions; // Identifiant de l'action jouée
+    public final double[] rewards; // Récompense obtenue
+    public final int[] nextStates; // Identifiant de l'état d'arrivée
+    public final boolean[] terminals; // true si l'état d'arrivée est terminal
+    public final double[] weights; // Poids d'importance (1.0 pour un tirage uniforme)
+
+    /**
+     * Construit un mini-batch de taille fixe.
+     *
+     * @param size nombre de transitions tirées à chaque appel de sample
+     *
+     *             Exemple :
+     *             ReplayBatch batch = new ReplayBatch(32);
+     */
+    public ReplayBatch(int size) {
+        this.slots = new int[size];
+        this.states = new int[size];
+        this.actions = new int[size];
+        this.rewards = new double[size];
+        this.nextStates = new int[size];
+        this.terminals = new boolean[size];
+        this.weights = new double[size];
+    }
+
+    /**
+     * Retourne le nombre de transitions du mini-batch.
+     *
+     * @return taille du mini-batch
+     */
+    public int size() {
+        return slots.length;
+    }
+}
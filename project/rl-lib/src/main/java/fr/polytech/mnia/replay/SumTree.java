@@ -0,0 +1,93 @@
+package fr.polytech.mnia.replay;
+
+/**
+ * SumTree.java
+ *
+ * Arbre binaire de sommes utilisé par le rejeu prioritaire.
+ *
+ * Chaque feuille contient la priorité d'une position du tampon et chaque
+ * noeud interne la somme de ses fils. La mise à jour d'une priorité et la
+ * recherche d'une feuille à partir d'une somme cumulée se font en O(log n).
+ *
+ * Exemple d'utilisation :
+ * SumTree tree = new SumTree(1024);
+ * tree.set(5, 2.0);
+ * int slot = tree.find(random.nextDouble() * tree.total());
+ */
+public class SumTree {
+
+    private final int capacity;
+    private final double[] nodes; // Noeuds internes puis feuilles, racine à l'indice 0
+
+    /**
+     * Construit un arbre de sommes vide.
+     *
+     * @param capacity nombre de feuilles (positions du tampon)
+     */
+    public SumTree(int capacity) {
+        this.capacity = capacity;
+        this.nodes = new double[2 * capacity - 1];
+    }
+
+    /**
+     * Fixe la priorité d'une feuille et propage la différence jusqu'à la racine.
+     *
+     * @param slot     position de la feuille (0 ≤ slot < capacity)
+     * @param priority nouvelle priorité (positive)
+     *
+     *                 Exemple :
+     *                 tree.set(5, 2.0);
+     */
+    public void set(int slot, double priority) {
+        int node = slot + capacity - 1;
+        double delta = priority - nodes[node];
+        nodes[node] = priority;
+        while (node > 0) {
+            node = (node - 1) / 2;
+            nodes[node] += delta;
+        }
+    }
+
+    /**
+     * Retourne la priorité d'une feuille.
+     *
+     * @param slot position de la feuille
+     * @return priorité stockée
+     */
+    public double get(int slot) {
+        return nodes[slot + capacity - 1];
+    }
+
+    /**
+     * Retourne la feuille dont l'intervalle de somme cumulée contient la valeur
+     * donnée.
+     *
+     * @param value valeur entre 0 et total()
+     * @return position de la feuille trouvée
+     *
+     *         Exemple :
+     *         int slot = tree.find(random.nextDouble() * tree.total());
+     */
+    public int find(double value) {
+        int node = 0;
+        while (node < capacity - 1) {
+            int left = 2 * node + 1;
+            if (value < nodes[left] || nodes[left + 1] <= 0.0) {
+                node = left;
+            } else {
+                value -= nodes[left];
+                node = left + 1;
+            }
+        }
+        return node - (capacity - 1);
+    }
+
+    /**
+     * Retourne la somme de toutes les priorités.
+     *
+     * @return somme stockée à la racine
+     */
+    public double total() {
+        return nodes[0];
+    }
+}
@@ -1,6 +1,9 @@
 package fr.polytech.mnia.reward;
 
+import de.prob.animator.domainobjects.AbstractEvalResult;
 import de.prob.statespace.State;
+import de.prob.statespace.Transition;
+import fr.polytech.mnia.metrics.FormulaProfiler;
 
 /**
  * RewardFunction.java
@@ -11,6 +14,8 @@ import de.prob.statespace.State;
  * Cette interface permet de :
  * - calculer la récompense d'un état
  * - vérifier si un état est terminal (fin d'un épisode)
+ * - indiquer si la récompense ne dépend que de l'état (évaluation anticipée)
+ * - être prévenue des actions jouées, si la récompense en dépend
  *
  * Exemple d'utilisation :
  * public class MyRewardFunction implements RewardFunction {
@@ -42,4 +47,62 @@ public interface RewardFunction {
      *         if (rewardFunction.isTerminal(currentState)) { ... }
      */
     boolean isTerminal(State state);
+
+    /**
+     * Indique si la récompense et la terminaison ne dépendent que de l'état
+     * évalué (aucun historique interne). Seules ces fonctions peuvent être
+     * évaluées à l'avance, sur un autre thread, par le préchargement des
+     * successeurs.
+     *
+     * @return true si la fonction est sans état, false par défaut
+     *
+     *         Exemple :
+     *         if (rewardFunction.isStateless()) { ... }
+     */
+    default boolean isStateless() {
+        return false;
+    }
+
+    /**
+     * Signale une transition appliquée dans l'environnement
+     * (Evironnement.runAction), pour les fonctions de récompense qui
+     * dépendent de l'action jouée. Sans effet par défaut.
+     *
+     * @param t transition appliquée
+     *
+     *          Exemple :
+     *          rewardFunction.onAction(transition);
+     */
+    default void onAction(Transition t) {
+    }
+
+    /**
+     * Décrit les paramètres de la fonction de récompense. Deux instances de
+     * même classe et de même description doivent donner les mêmes
+     * récompenses : la description entre dans l'empreinte des graphes d'états
+     * en cache (voir StateGraphCache).
+     *
+     * @return description des paramètres, vide par défaut
+     *
+     *         Exemple :
+     *         String params = rewardFunction.describe();
+     */
+    default String describe() {
+        return "";
+    }
+
+    /**
+     * Évalue une formule B dans un état en mesurant la latence de l'appel à
+     * ProB (métrique "prob.eval" et profil par formule, voir FormulaProfiler).
+     *
+     * @param state   état dans lequel évaluer
+     * @param formula formule B
+     * @return résultat de l'évaluation
+     *
+     *         Exemple :
+     *         String res = RewardFunction.eval(state, "res").toString();
+     */
+    static AbstractEvalResult eval(State state, String formula) {
+        return FormulaProfiler.eval(state, formula);
+    }
 }
@@ -0,0 +1,107 @@
+package fr.polytech.mnia.reward;
+
+import de.prob.statespace.State;
+
+/**
+ * SchedulerRewardFunction.java
+ *
+ * Fonction de récompense pour l'environnement Scheduler (scheduler_main.mch).
+ *
+ * Chaque état est pénalisé selon trois critères :
+ * - attente : nombre de processus en attente ou prêts (waiting \/ ready),
+ * chacun accumulant une unité de waiting_time au prochain step ;
+ * - latence : nombre de processus dont latency_time dépasse un seuil ;
+ * - inactivité : processeur sans processus actif (active = {}).
+ *
+ * Un épisode se termine lorsque l'horloge tic atteint une durée maximale.
+ *
+ * Exemple d'utilisation :
+ * RewardFunction rewardFunction = new SchedulerRewardFunction(1.0, 5, 2.0, 3.0, 50);
+ * double r = rewardFunction.getReward(state);
+ */
+public class SchedulerRewardFunction implements RewardFunction {
+
+    private final double waitingWeight;
+    private final int latencyThreshold;
+    private final double latencyWeight;
+    private final double idleWeight;
+    private final int maxTicks;
+
+    /**
+     * Construit la fonction de récompense avec les poids par défaut : attente
+     * 1.0, latence 2.0 au-delà de 5 ticks, inactivité 3.0, épisodes de 50
+     * ticks.
+     *
+     * Exemple :
+     * RewardFunction rewardFunction = new SchedulerRewardFunction();
+     */
+    public SchedulerRewardFunction() {
+        this(1.0, 5, 2.0, 3.0, 50);
+    }
+
+    /**
+     * Construit la fonction de récompense.
+     *
+     * @param waitingWeight    pénalité par processus en attente ou prêt
+     * @param latencyThreshold latence (en ticks) au-delà de laquelle un
+     *                         processus est pénalisé
+     * @param latencyWeight    pénalité par processus au-delà du seuil de
+     *                         latence
+     * @param idleWeight       pénalité lorsque le processeur est inactif
+     * @param maxTicks         valeur de tic qui termine un épisode
+     *
+     *                         Exemple :
+     *                         new SchedulerRewardFunction(1.0, 3, 5.0, 1.0, 100);
+     */
+    public SchedulerRewardFunction(double waitingWeight, int latencyThreshold, double latencyWeight,
+            double idleWeight, int maxTicks) {
+        this.waitingWeight = waitingWeight;
+        this.latencyThreshold = latencyThreshold;
+        this.latencyWeight = latencyWeight;
+        this.idleWeight = idleWeight;
+        this.maxTicks = maxTicks;
+    }
+
+    /**
+     * Calcule la récompense (négative ou nulle) associée à l'état.
+     *
+     * @param state l'état à évaluer
+     * @return -(attente + latence + inactivité), pondérées
+     *
+     *         Exemple :
+     *         double reward = rewardFunction.getReward(state);
+     */
+    @Override
+    public double getReward(State state) {
+        int waiting = Integer.parseInt(RewardFunction.eval(state, "card(waiting \\/ ready)").toString());
+        int late = Integer.parseInt(RewardFunction.eval(state,
+                "card({pp | pp : PID & latency_time(pp) > " + latencyThreshold + "})").toString());
+        boolean idle = RewardFunction.eval(state, "bool(active = {})").toString().equals("TRUE");
+        return -(waitingWeight * waiting + latencyWeight * late + (idle ? idleWeight : 0.0));
+    }
+
+    /**
+     * Détermine si l'épisode est terminé (horloge tic arrivée à maxTicks).
+     *
+     * @param state l'état à vérifier
+     * @return true si tic >= maxTicks
+     *
+     *         Exemple :
+     *         boolean fini = rewardFunction.isTerminal(state);
+     */
+    @Override
+    public boolean isTerminal(State state) {
+        return Integer.parseInt(RewardFunction.eval(state, "tic").toString()) >= maxTicks;
+    }
+
+    /**
+     * La récompense ne dépend que des variables de l'état : elle peut être
+     * évaluée à l'avance.
+     *
+     * @return toujours true
+     */
+    @Override
+    public boolean isStateless() {
+        return true;
+    }
+}
@@ -29,7 +29,7 @@ public class SimpleRewardFunction implements RewardFunction {
      */
     @Override
     public double getReward(State state) {
-        String res = state.eval("res").toString();
+        String res = RewardFunction.eval(state, "res").toString();
         if (res.equals("OK")) {
             return 1.0; // Bon choix : récompense 1
         } else {
@@ -50,4 +50,14 @@ public class SimpleRewardFunction implements RewardFunction {
     public boolean isTerminal(State state) {
         return true;
     }
+
+    /**
+     * La récompense ne dépend que de la variable "res" de l'état : elle peut être évaluée à l'avance.
+     *
+     * @return toujours true
+     */
+    @Override
+    public boolean isStateless() {
+        return true;
+    }
 }
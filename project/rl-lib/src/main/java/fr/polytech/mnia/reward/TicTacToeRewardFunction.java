@@ -36,8 +36,8 @@ public class TicTacToeRewardFunction implements RewardFunction {
      */
     @Override
     public double getReward(State state) {
-        String win1 = state.eval("win(1)").toString();
-        String win0 = state.eval("win(0)").toString();
+        String win1 = RewardFunction.eval(state, "win(1)").toString();
+        String win0 = RewardFunction.eval(state, "win(0)").toString();
         int numSquares = getCardinality(state);
 
         if (win0.equals("TRUE")) {
@@ -62,8 +62,8 @@ public class TicTacToeRewardFunction implements RewardFunction {
      */
     @Override
     public boolean isTerminal(State state) {
-        String win1 = state.eval("win(1)").toString();
-        String win0 = state.eval("win(0)").toString();
+        String win1 = RewardFunction.eval(state, "win(1)").toString();
+        String win0 = RewardFunction.eval(state, "win(0)").toString();
         int numSquares = getCardinality(state);
 
         return win0.equals("TRUE") || win1.equals("TRUE") || numSquares == 9;
@@ -81,11 +81,21 @@ public class TicTacToeRewardFunction implements RewardFunction {
      */
     private int getCardinality(State state) {
         try {
-            AbstractEvalResult result = state.eval("card(dom(square))");
+            AbstractEvalResult result = RewardFunction.eval(state, "card(dom(square))");
             String value = result.toString().trim();
             return Integer.parseInt(value);
         } catch (Exception e) {
             throw new RuntimeException("Failed to parse card(dom(square)) result", e);
         }
     }
+
+    /**
+     * La récompense ne dépend que de la grille de l'état : elle peut être évaluée à l'avance.
+     *
+     * @return toujours true
+     */
+    @Override
+    public boolean isStateless() {
+        return true;
+    }
 }
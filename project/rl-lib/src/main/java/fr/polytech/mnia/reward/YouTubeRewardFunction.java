@@ -15,7 +15,7 @@ import de.prob.statespace.State;
  * 
  * Exemple d'utilisation :
  * RewardFunction rewardFunction = new YouTubeRewardFunction();
- * rewardFunction.updateChosenVideo(transition);
+ * rewardFunction.onAction(transition); // fait par Evironnement.runAction
  * double r = rewardFunction.getReward(state);
  * boolean terminal = rewardFunction.isTerminal(state);
  */
@@ -50,6 +50,16 @@ public class YouTubeRewardFunction implements RewardFunction {
      *         Exemple :
      *         double reward = rewardFunction.getReward(state);
      */
+    /**
+     * Retient la vidéo choisie à chaque action appliquée par l'environnement.
+     *
+     * @param t transition appliquée
+     */
+    @Override
+    public void onAction(Transition t) {
+        updateChosenVideo(t);
+    }
+
     @Override
     public double getReward(State state) {
         if (lastChosenVideo == null) {
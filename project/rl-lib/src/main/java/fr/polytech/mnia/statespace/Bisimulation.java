@@ -0,0 +1,244 @@
+package fr.polytech.mnia.statespace;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bisimulation.java
+ *
+ * Minimisation d'un graphe d'états par bisimulation, avant planification.
+ *
+ * Deux états sont équivalents s'ils ont la même récompense, le même
+ * caractère terminal et si leurs successeurs tombent dans les mêmes classes.
+ * La partition la plus grossière vérifiant ces conditions est obtenue par
+ * raffinement : on part des classes (terminal, récompense, sans issue) puis
+ * chaque état reçoit la signature (classe, ensemble des classes de ses
+ * successeurs), jusqu'à ce que le nombre de classes ne change plus.
+ *
+ * Les noms d'actions ne font pas partie de la signature : Value Iteration et
+ * Policy Iteration ne dépendent que des valeurs des successeurs, si bien que
+ * des positions symétriques du Tic-Tac-Toe sont fusionnées. Les valeurs
+ * calculées sur le quotient sont ensuite recopiées sur chaque état (expand).
+ *
+ * Exemple d'utilisation :
+ * Bisimulation bisim = Bisimulation.minimize(graph);
+ * double[] blockValues = valueIteration(bisim.quotient());
+ * double[] values = bisim.expand(blockValues);
+ */
+public final class Bisimulation {
+
+    private final CompactStateGraph graph;
+    private final int[] block; // Classe de chaque état
+    private final int blocks;
+    private final int rounds;
+    private final CompactStateGraph quotient;
+
+    private Bisimulation(CompactStateGraph graph, int[] block, int blocks, int rounds) {
+        this.graph = graph;
+        this.block = block;
+        this.blocks = blocks;
+        this.rounds = rounds;
+        this.quotient = buildQuotient();
+    }
+
+    /**
+     * Calcule la partition la plus grossière qui préserve récompenses,
+     * états terminaux et transitions, et le graphe quotient associé.
+     *
+     * @param graph graphe des états accessibles (état 0 = état initial)
+     * @return partition et quotient ; l'état 0 est dans la classe 0
+     *
+     *         Exemple :
+     *         Bisimulation bisim = Bisimulation.minimize(graph);
+     */
+    public static Bisimulation minimize(CompactStateGraph graph) {
+        int n = graph.size();
+        int[] block = new int[n];
+        Map<Signature, Integer> ids = new HashMap<>();
+        for (int s = 0; s < n; s++) {
+            long reward = Double.doubleToLongBits(graph.getReward(s));
+            int kind = graph.isTerminal(s) ? 1 : graph.edgeStart(s) == graph.edgeEnd(s) ? 2 : 0;
+            block[s] = id(ids, new Signature(new int[] { kind, (int) (reward >>> 32), (int) reward }));
+        }
+        int count = ids.size();
+
+        int rounds = 0;
+        while (true) {
+            rounds++;
+            ids.clear();
+            int[] refined = new int[n];
+            int[] successors = new int[16];
+            for (int s = 0; s < n; s++) {
+                int degree = graph.isTerminal(s) ? 0 : graph.edgeEnd(s) - graph.edgeStart(s);
+                if (successors.length < degree + 1) {
+                    successors = new int[Math.max(degree + 1, successors.length * 2)];
+                }
+                successors[0] = block[s];
+                for (int i = 0; i < degree; i++) {
+                    successors[i + 1] = block[graph.getTarget(graph.edgeStart(s) + i)];
+                }
+                Arrays.sort(successors, 1, degree + 1);
+                int distinct = 1;
+                for (int i = 1; i <= degree; i++) {
+                    if (distinct == 1 || successors[i] != successors[distinct - 1]) {
+                        successors[distinct++] = successors[i];
+                    }
+                }
+                refined[s] = id(ids, new Signature(Arrays.copyOf(successors, distinct)));
+            }
+            block = refined;
+            if (ids.size() == count) {
+                break;
+            }
+            count = ids.size();
+        }
+        return new Bisimulation(graph, block, count, rounds);
+    }
+
+    private static int id(Map<Signature, Integer> ids, Signature signature) {
+        Integer id = ids.get(signature);
+        if (id == null) {
+            id = ids.size();
+            ids.put(signature, id);
+        }
+        return id;
+    }
+
+    /**
+     * Graphe quotient : un état par classe, représenté par son premier état,
+     * avec un arc par classe successeur distincte (action du représentant).
+     */
+    private CompactStateGraph buildQuotient() {
+        int[] representative = new int[blocks];
+        Arrays.fill(representative, -1);
+        for (int s = 0; s < block.length; s++) {
+            if (representative[block[s]] < 0) {
+                representative[block[s]] = s;
+            }
+        }
+
+        double[] rewards = new double[blocks];
+        boolean[] terminals = new boolean[blocks];
+        String[] keys = new String[blocks];
+        int[] edgeStart = new int[blocks + 1];
+        int edges = 0;
+        for (int b = 0; b < blocks; b++) {
+            int s = representative[b];
+            rewards[b] = graph.getReward(s);
+            terminals[b] = graph.isTerminal(s);
+            keys[b] = graph.getStateKey(s);
+            edgeStart[b] = edges;
+            if (!terminals[b]) {
+                edges += distinctEdges(s).length;
+            }
+        }
+        edgeStart[blocks] = edges;
+
+        int[] targets = new int[edges];
+        String[] names = new String[edges];
+        String[] predicates = new String[edges];
+        for (int b = 0; b < blocks; b++) {
+            if (terminals[b]) {
+                continue;
+            }
+            int e = edgeStart[b];
+            for (int edge : distinctEdges(representative[b])) {
+                targets[e] = block[graph.getTarget(edge)];
+                names[e] = graph.getActionName(edge);
+                predicates[e] = graph.getActionPredicate(edge);
+                e++;
+            }
+        }
+        return new CompactStateGraph(CompactStateGraph.encode(graph.getFingerprint(), rewards, terminals,
+                edgeStart, targets, names, predicates, keys));
+    }
+
+    /**
+     * Premier arc de s vers chaque classe successeur distincte.
+     */
+    private int[] distinctEdges(int s) {
+        int[] edges = new int[graph.edgeEnd(s) - graph.edgeStart(s)];
+        int count = 0;
+        for (int e = graph.edgeStart(s); e < graph.edgeEnd(s); e++) {
+            boolean seen = false;
+            for (int i = 0; i < count && !seen; i++) {
+                seen = block[graph.getTarget(edges[i])] == block[graph.getTarget(e)];
+            }
+            if (!seen) {
+                edges[count++] = e;
+            }
+        }
+        return Arrays.copyOf(edges, count);
+    }
+
+    /**
+     * @return graphe quotient, sur lequel planifier
+     */
+    public CompactStateGraph quotient() {
+        return quotient;
+    }
+
+    /**
+     * @param s indice d'état du graphe d'origine
+     * @return indice de sa classe dans le quotient
+     */
+    public int blockOf(int s) {
+        return block[s];
+    }
+
+    /**
+     * @return nombre de classes (états du quotient)
+     */
+    public int blockCount() {
+        return blocks;
+    }
+
+    /**
+     * Recopie des valeurs calculées sur le quotient vers le graphe d'origine.
+     *
+     * @param blockValues une valeur par classe
+     * @return une valeur par état d'origine
+     *
+     *         Exemple :
+     *         double[] values = bisim.expand(quotientValues);
+     */
+    public double[] expand(double[] blockValues) {
+        double[] values = new double[block.length];
+        for (int s = 0; s < block.length; s++) {
+            values[s] = blockValues[block[s]];
+        }
+        return values;
+    }
+
+    /**
+     * @return résumé de la réduction
+     */
+    public String summary() {
+        return String.format("%d états -> %d classes, %d arcs -> %d (%d tours de raffinement)", graph.size(),
+                blocks, graph.edgeCount(), quotient.edgeCount(), rounds);
+    }
+
+    /**
+     * Signature d'un état pendant le raffinement.
+     */
+    private static final class Signature {
+        private final int[] values;
+        private final int hash;
+
+        Signature(int[] values) {
+            this.values = values;
+            this.hash = Arrays.hashCode(values);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Signature && Arrays.equals(values, ((Signature) o).values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package fr.polytech.mnia.statespace;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * CompactStateGraph.java
+ *
+ * Graphe d'états accessibles, autonome (sans ProB), stocké dans un unique
+ * tampon d'octets éventuellement projeté en mémoire depuis le disque.
+ *
+ * Pour chaque état (indice dense, 0 pour l'état de départ) :
+ * - sa récompense et son caractère terminal,
+ * - sa clé stable (VariableStateEncoder),
+ * - ses arcs sortants, numérotés de edgeStart(s) à edgeEnd(s) - 1.
+ * Pour chaque arc : l'indice de la destination, le nom de l'opération et le
+ * prédicat de paramètres de l'action.
+ *
+ * Disposition du tampon (entiers big-endian) :
+ * en-tête | récompenses (double) | terminaux (octet) | début des arcs (int,
+ * n + 1) | destinations (int) | noms (int) | prédicats (int) | clés d'états
+ * (int) | début des chaînes (int) | chaînes UTF-8.
+ * Les noms, prédicats et clés sont des indices dans la table de chaînes.
+ *
+ * Exemple d'utilisation :
+ * CompactStateGraph graph = StateGraphCache.load(dir, fingerprint);
+ * for (int e = graph.edgeStart(0); e < graph.edgeEnd(0); e++) {
+ * System.out.println(graph.getActionPredicate(e) + " -> " + graph.getTarget(e));
+ * }
+ */
+public class CompactStateGraph {
+
+    static final int MAGIC = 0x524C5347; // "RLSG"
+    static final int VERSION = 1;
+    static final int FINGERPRINT_LENGTH = 64; // SHA-256 en hexadécimal
+    static final int HEADER_SIZE = 4 + 4 + FINGERPRINT_LENGTH + 4 * 4;
+
+    private final ByteBuffer buffer;
+    private final String fingerprint;
+    private final int states;
+    private final int edges;
+    private final int strings;
+    private final int rewardsAt;
+    private final int terminalsAt;
+    private final int edgeStartAt;
+    private final int targetsAt;
+    private final int namesAt;
+    private final int predicatesAt;
+    private final int keysAt;
+    private final int stringStartAt;
+    private final int blobAt;
+    private Map<String, Integer> index; // clé d'état -> indice, construit à la demande
+
+    /**
+     * Lit un graphe depuis un tampon au format décrit ci-dessus.
+     *
+     * @param buffer tampon (non modifié, la position est ignorée)
+     * @throws IllegalArgumentException si le tampon n'est pas un graphe valide
+     */
+    CompactStateGraph(ByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Fichier de graphe invalide");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Version de graphe non supportée : " + buffer.getInt(4));
+        }
+        byte[] fp = new byte[FINGERPRINT_LENGTH];
+        for (int i = 0; i < fp.length; i++) {
+            fp[i] = buffer.get(8 + i);
+        }
+        this.fingerprint = new String(fp, StandardCharsets.US_ASCII);
+        int at = 8 + FINGERPRINT_LENGTH;
+        this.states = buffer.getInt(at);
+        this.edges = buffer.getInt(at + 4);
+        this.strings = buffer.getInt(at + 8);
+        int blobLength = buffer.getInt(at + 12);
+
+        this.rewardsAt = HEADER_SIZE;
+        this.terminalsAt = rewardsAt + 8 * states;
+        this.edgeStartAt = terminalsAt + states;
+        this.targetsAt = edgeStartAt + 4 * (states + 1);
+        this.namesAt = targetsAt + 4 * edges;
+        this.predicatesAt = namesAt + 4 * edges;
+        this.keysAt = predicatesAt + 4 * edges;
+        this.stringStartAt = keysAt + 4 * states;
+        this.blobAt = stringStartAt + 4 * (strings + 1);
+        if (buffer.capacity() < blobAt + blobLength) {
+            throw new IllegalArgumentException("Fichier de graphe tronqué");
+        }
+    }
+
+    /**
+     * Sérialise un graphe donné sous forme de tableaux (arcs de l'état s dans
+     * [edgeStart[s], edgeStart[s + 1])).
+     *
+     * @return tampon prêt à être lu ou écrit sur disque
+     */
+    static ByteBuffer encode(String fingerprint, double[] rewards, boolean[] terminals, int[] edgeStart,
+            int[] targets, String[] names, String[] predicates, String[] keys) {
+        Map<String, Integer> stringIds = new HashMap<>();
+        List<byte[]> strings = new ArrayList<>();
+        int n = rewards.length;
+        int e = targets.length;
+        int[] keyIds = new int[n];
+        int[] nameIds = new int[e];
+        int[] predicateIds = new int[e];
+        for (int s = 0; s < n; s++) {
+            keyIds[s] = intern(keys[s], stringIds, strings);
+        }
+        for (int i = 0; i < e; i++) {
+            nameIds[i] = intern(names[i], stringIds, strings);
+            predicateIds[i] = intern(predicates[i], stringIds, strings);
+        }
+        int blobLength = 0;
+        for (byte[] bytes : strings) {
+            blobLength += bytes.length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(sizeOf(n, e, strings.size(), blobLength));
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.put(fingerprint.getBytes(StandardCharsets.US_ASCII), 0, FINGERPRINT_LENGTH);
+        buffer.putInt(n).putInt(e).putInt(strings.size()).putInt(blobLength);
+        for (double reward : rewards) {
+            buffer.putDouble(reward);
+        }
+        for (boolean terminal : terminals) {
+            buffer.put(terminal ? (byte) 1 : (byte) 0);
+        }
+        for (int s = 0; s <= n; s++) {
+            buffer.putInt(edgeStart[s]);
+        }
+        for (int target : targets) {
+            buffer.putInt(target);
+        }
+        for (int name : nameIds) {
+            buffer.putInt(name);
+        }
+        for (int predicate : predicateIds) {
+            buffer.putInt(predicate);
+        }
+        for (int key : keyIds) {
+            buffer.putInt(key);
+        }
+        int offset = 0;
+        for (byte[] bytes : strings) {
+            buffer.putInt(offset);
+            offset += bytes.length;
+        }
+        buffer.putInt(offset);
+        for (byte[] bytes : strings) {
+            buffer.put(bytes);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static int intern(String value, Map<String, Integer> ids, List<byte[]> strings) {
+        String s = value == null ? "" : value;
+        Integer id = ids.get(s);
+        if (id == null) {
+            id = strings.size();
+            ids.put(s, id);
+            strings.add(s.getBytes(StandardCharsets.UTF_8));
+        }
+        return id;
+    }
+
+    /**
+     * Calcule la taille du tampon nécessaire pour un graphe.
+     */
+    static int sizeOf(int states, int edges, int strings, int blobLength) {
+        return HEADER_SIZE + 8 * states + states + 4 * (states + 1) + 3 * 4 * edges + 4 * states
+                + 4 * (strings + 1) + blobLength;
+    }
+
+    /**
+     * @return empreinte (modèle et fonction de récompense) du graphe
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * @return nombre d'états
+     */
+    public int size() {
+        return states;
+    }
+
+    /**
+     * @return nombre d'arcs
+     */
+    public int edgeCount() {
+        return edges;
+    }
+
+    /**
+     * @param s indice d'état
+     * @return récompense de l'état
+     */
+    public double getReward(int s) {
+        return buffer.getDouble(rewardsAt + 8 * s);
+    }
+
+    /**
+     * @param s indice d'état
+     * @return true si l'état est terminal
+     */
+    public boolean isTerminal(int s) {
+        return buffer.get(terminalsAt + s) != 0;
+    }
+
+    /**
+     * @param s indice d'état
+     * @return indice du premier arc sortant
+     */
+    public int edgeStart(int s) {
+        return buffer.getInt(edgeStartAt + 4 * s);
+    }
+
+    /**
+     * @param s indice d'état
+     * @return indice suivant le dernier arc sortant
+     */
+    public int edgeEnd(int s) {
+        return buffer.getInt(edgeStartAt + 4 * (s + 1));
+    }
+
+    /**
+     * @param e indice d'arc
+     * @return indice de l'état de destination
+     */
+    public int getTarget(int e) {
+        return buffer.getInt(targetsAt + 4 * e);
+    }
+
+    /**
+     * @param e indice d'arc
+     * @return nom de l'opération B
+     */
+    public String getActionName(int e) {
+        return string(buffer.getInt(namesAt + 4 * e));
+    }
+
+    /**
+     * @param e indice d'arc
+     * @return prédicat de paramètres de l'action
+     */
+    public String getActionPredicate(int e) {
+        return string(buffer.getInt(predicatesAt + 4 * e));
+    }
+
+    /**
+     * @param e indice d'arc
+     * @return clé stable de l'action, identique à ActionEncoder.NAME_AND_PARAMETERS
+     */
+    public String getActionKey(int e) {
+        return getActionName(e) + getActionPredicate(e);
+    }
+
+    /**
+     * @param s indice d'état
+     * @return clé stable de l'état
+     */
+    public String getStateKey(int s) {
+        return string(buffer.getInt(keysAt + 4 * s));
+    }
+
+    /**
+     * Retourne l'indice d'un état à partir de sa clé stable.
+     *
+     * @param stateKey clé produite par VariableStateEncoder
+     * @return indice, ou -1 si l'état est absent du graphe
+     */
+    public synchronized int indexOf(String stateKey) {
+        if (index == null) {
+            index = new HashMap<>(2 * states);
+            for (int s = 0; s < states; s++) {
+                index.put(getStateKey(s), s);
+            }
+        }
+        Integer s = index.get(stateKey);
+        return s == null ? -1 : s;
+    }
+
+    private String string(int i) {
+        int start = buffer.getInt(stringStartAt + 4 * i);
+        int end = buffer.getInt(stringStartAt + 4 * (i + 1));
+        byte[] bytes = new byte[end - start];
+        for (int k = 0; k < bytes.length; k++) {
+            bytes[k] = buffer.get(blobAt + start + k);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,138 @@
+package fr.polytech.mnia.statespace;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.prob.statespace.State;
+import de.prob.statespace.Transition;
+import fr.polytech.mnia.SuccessorCache;
+
+/**
+ * StateGraph.java
+ *
+ * Graphe des états accessibles d'une machine B, indexé de façon dense : chaque
+ * état reçoit un indice de 0 à size() - 1 (0 pour l'état de départ), et ses
+ * arcs sortants sont stockés sous forme de tableaux alignés (transition,
+ * indice de destination).
+ *
+ * Exemple d'utilisation :
+ * StateGraph graph = new StateSpaceEnumerator().enumerate(stateSpace, initial);
+ * for (int s = 0; s < graph.size(); s++) {
+ * int[] next = graph.getSuccessors(s);
+ * }
+ */
+public class StateGraph {
+
+    private static final int[] NO_SUCCESSORS = new int[0];
+    private static final Transition[] NO_TRANSITIONS = new Transition[0];
+
+    private final List<State> states = new ArrayList<>();
+    private final Map<String, Integer> index = new HashMap<>();
+    private final List<Transition[]> transitions = new ArrayList<>();
+    private final List<int[]> successors = new ArrayList<>();
+    private int edgeCount;
+
+    /**
+     * Ajoute un état s'il n'est pas déjà indexé.
+     *
+     * @param state état ProB
+     * @return indice dense de l'état
+     */
+    int add(State state) {
+        Integer existing = index.get(state.getId());
+        if (existing != null)
+            return existing;
+        int id = states.size();
+        states.add(state);
+        index.put(state.getId(), id);
+        transitions.add(NO_TRANSITIONS);
+        successors.add(NO_SUCCESSORS);
+        return id;
+    }
+
+    /**
+     * Enregistre les arcs sortants d'un état déjà indexé.
+     *
+     * @param source       indice de l'état source
+     * @param out          transitions sortantes
+     * @param destinations indices des destinations, alignés sur out
+     */
+    void setEdges(int source, Transition[] out, int[] destinations) {
+        edgeCount += destinations.length - successors.get(source).length;
+        transitions.set(source, out);
+        successors.set(source, destinations);
+    }
+
+    /**
+     * @return nombre d'états
+     */
+    public int size() {
+        return states.size();
+    }
+
+    /**
+     * @return nombre d'arcs
+     */
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * @param id indice dense
+     * @return état ProB correspondant
+     */
+    public State getState(int id) {
+        return states.get(id);
+    }
+
+    /**
+     * Retourne l'indice dense d'un état.
+     *
+     * @param state état ProB
+     * @return indice, ou -1 si l'état n'est pas dans le graphe
+     */
+    public int indexOf(State state) {
+        Integer id = index.get(state.getId());
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @param id indice dense de l'état source
+     * @return indices des destinations (ne pas modifier)
+     */
+    public int[] getSuccessors(int id) {
+        return successors.get(id);
+    }
+
+    /**
+     * @param id indice dense de l'état source
+     * @return transitions sortantes, alignées sur getSuccessors (ne pas
+     *         modifier)
+     */
+    public Transition[] getTransitions(int id) {
+        return transitions.get(id);
+    }
+
+    /**
+     * Recopie tout le graphe dans un cache de successeurs, pour que
+     * l'environnement n'ait plus à interroger ProB sur ces états.
+     *
+     * @param cache cache à remplir
+     *
+     *              Exemple :
+     *              graph.fill(env.getSuccessorCache());
+     */
+    public void fill(SuccessorCache cache) {
+        for (int s = 0; s < size(); s++) {
+            int[] next = successors.get(s);
+            State[] destinations = new State[next.length];
+            for (int i = 0; i < next.length; i++) {
+                destinations[i] = states.get(next[i]);
+            }
+            cache.put(states.get(s), Arrays.asList(transitions.get(s)), destinations);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package fr.polytech.mnia.statespace;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import de.prob.statespace.Transition;
+import fr.polytech.mnia.encoding.StateEncoder;
+import fr.polytech.mnia.encoding.VariableStateEncoder;
+import fr.polytech.mnia.reward.RewardFunction;
+
+/**
+ * StateGraphCache.java
+ *
+ * Cache disque des graphes d'états énumérés, pour démarrer sans ProB.
+ *
+ * Un graphe est enregistré sous une empreinte SHA-256 calculée sur le contenu
+ * des machines B (la machine et les machines de son dossier qu'elle nomme,
+ * lues comme ressources pour fonctionner aussi depuis un jar), sur la
+ * fonction de récompense (classe, bytecode et paramètres) et sur la variable
+ * de récompense. Tant que ni le modèle ni la récompense ne changent, le graphe
+ * est simplement projeté en mémoire au démarrage : ni chargement de la
+ * machine ni exploration.
+ *
+ * Seules les fonctions de récompense sans état (RewardFunction.isStateless)
+ * peuvent être mises en cache, les autres dépendant de l'historique.
+ *
+ * Exemple d'utilisation :
+ * String fp = StateGraphCache.fingerprint("/TicTacToe/tictac.mch", reward, "square");
+ * CompactStateGraph graph = StateGraphCache.load(dir, fp);
+ * if (graph == null) {
+ * graph = StateGraphCache.save(dir, fp, env.enumerateStateSpace(), reward);
+ * }
+ */
+public final class StateGraphCache {
+
+    /** Dossier par défaut des graphes en cache. */
+    public static final Path DEFAULT_DIRECTORY = Paths.get("statespace-cache");
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+    private StateGraphCache() {
+    }
+
+    /**
+     * Calcule l'empreinte d'un modèle et de sa fonction de récompense.
+     *
+     * @param machinePath    chemin de la machine dans les ressources
+     * @param rewardFunction fonction de récompense utilisée
+     * @param rewardVariable variable de l'environnement associée à la
+     *                       récompense
+     * @return empreinte hexadécimale (64 caractères)
+     * @throws IOException si les machines ne peuvent pas être lues
+     *
+     *                     Exemple :
+     *                     String fp = StateGraphCache.fingerprint("/TicTacToe/tictac.mch", reward, "square");
+     */
+    public static String fingerprint(String machinePath, RewardFunction rewardFunction, String rewardVariable)
+            throws IOException {
+        Class<?> rewardClass = rewardFunction.getClass();
+        MessageDigest digest = sha256();
+        digest.update(("graph-v" + CompactStateGraph.VERSION + ":" + rewardClass.getName() + ":"
+                + rewardFunction.describe() + ":" + rewardVariable).getBytes(StandardCharsets.UTF_8));
+        byte[] bytecode = readResource(rewardClass, "/" + rewardClass.getName().replace('.', '/') + ".class");
+        if (bytecode != null) {
+            digest.update(bytecode);
+        }
+
+        // La machine puis, par ordre alphabétique, les machines du même
+        // dossier qu'elle nomme (INCLUDES, SEES, ...), transitivement
+        int slash = machinePath.lastIndexOf('/');
+        String folder = machinePath.substring(0, slash + 1);
+        Set<String> machines = new TreeSet<>();
+        Deque<String> toRead = new ArrayDeque<>();
+        toRead.add(machinePath.substring(slash + 1, machinePath.length() - ".mch".length()));
+        Map<String, byte[]> contents = new HashMap<>();
+        while (!toRead.isEmpty()) {
+            String name = toRead.poll();
+            byte[] content = readResource(StateGraphCache.class, folder + name + ".mch");
+            if (content == null) {
+                if (contents.isEmpty()) {
+                    throw new IOException("Machine introuvable : " + machinePath);
+                }
+                continue;
+            }
+            contents.put(name, content);
+            machines.add(name);
+            Matcher identifiers = IDENTIFIER.matcher(new String(content, StandardCharsets.UTF_8));
+            while (identifiers.find()) {
+                String candidate = identifiers.group();
+                if (!contents.containsKey(candidate) && !toRead.contains(candidate)
+                        && StateGraphCache.class.getResource(folder + candidate + ".mch") != null) {
+                    toRead.add(candidate);
+                }
+            }
+        }
+        for (String name : machines) {
+            digest.update(name.getBytes(StandardCharsets.UTF_8));
+            digest.update(contents.get(name));
+        }
+
+        StringBuilder hex = new StringBuilder(CompactStateGraph.FINGERPRINT_LENGTH);
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Projette en mémoire le graphe enregistré sous une empreinte.
+     *
+     * @param directory   dossier du cache
+     * @param fingerprint empreinte du modèle
+     * @return graphe, ou null s'il n'est pas en cache ou illisible
+     *
+     *         Exemple :
+     *         CompactStateGraph graph = StateGraphCache.load(StateGraphCache.DEFAULT_DIRECTORY, fp);
+     */
+    public static CompactStateGraph load(Path directory, String fingerprint) {
+        Path file = fileFor(directory, fingerprint);
+        if (!Files.exists(file))
+            return null;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            CompactStateGraph graph = new CompactStateGraph(buffer);
+            return fingerprint.equals(graph.getFingerprint()) ? graph : null;
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("[StateGraphCache] Cache ignoré (" + e.getMessage() + ")");
+            return null;
+        }
+    }
+
+    /**
+     * Enregistre un graphe énuméré avec ses récompenses, terminaisons et
+     * libellés d'actions, puis le projette en mémoire.
+     *
+     * L'écriture est atomique : un fichier temporaire est écrit puis renommé.
+     *
+     * @param directory      dossier du cache
+     * @param fingerprint    empreinte du modèle
+     * @param graph          graphe énuméré depuis ProB
+     * @param rewardFunction fonction de récompense (sans état)
+     * @return graphe compact projeté depuis le fichier écrit
+     * @throws IOException en cas d'erreur d'écriture
+     *
+     *                     Exemple :
+     *                     CompactStateGraph graph = StateGraphCache.save(dir, fp, env.enumerateStateSpace(), reward);
+     */
+    public static CompactStateGraph save(Path directory, String fingerprint, StateGraph graph,
+            RewardFunction rewardFunction) throws IOException {
+        if (!rewardFunction.isStateless()) {
+            throw new IllegalArgumentException("La fonction de récompense dépend de l'historique : graphe non cachable");
+        }
+        ByteBuffer buffer = encode(fingerprint, graph, rewardFunction);
+
+        Files.createDirectories(directory);
+        Path target = fileFor(directory, fingerprint);
+        Path tmp = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        return load(directory, fingerprint);
+    }
+
+    /**
+     * Sérialise un graphe au format de CompactStateGraph.
+     */
+    private static ByteBuffer encode(String fingerprint, StateGraph graph, RewardFunction rewardFunction) {
+        StateEncoder encoder = new VariableStateEncoder();
+        int n = graph.size();
+        int e = graph.edgeCount();
+        double[] rewards = new double[n];
+        boolean[] terminals = new boolean[n];
+        int[] edgeStart = new int[n + 1];
+        int[] targets = new int[e];
+        String[] names = new String[e];
+        String[] predicates = new String[e];
+        String[] keys = new String[n];
+        int edge = 0;
+        for (int s = 0; s < n; s++) {
+            rewards[s] = rewardFunction.getReward(graph.getState(s));
+            terminals[s] = rewardFunction.isTerminal(graph.getState(s));
+            keys[s] = encoder.encode(graph.getState(s));
+            edgeStart[s] = edge;
+            int[] successors = graph.getSuccessors(s);
+            Transition[] transitions = graph.getTransitions(s);
+            for (int i = 0; i < successors.length; i++) {
+                targets[edge] = successors[i];
+                names[edge] = transitions[i].getName();
+                predicates[edge] = transitions[i].getParameterPredicate();
+                edge++;
+            }
+        }
+        edgeStart[n] = edge;
+        return CompactStateGraph.encode(fingerprint, rewards, terminals, edgeStart, targets, names, predicates,
+                keys);
+    }
+
+    /**
+     * Lit entièrement une ressource du classpath, qu'elle soit dans un
+     * dossier ou dans un jar.
+     *
+     * @return contenu, ou null si la ressource n'existe pas
+     */
+    private static byte[] readResource(Class<?> owner, String name) throws IOException {
+        try (InputStream in = owner.getResourceAsStream(name)) {
+            return in == null ? null : in.readAllBytes();
+        }
+    }
+
+    private static Path fileFor(Path directory, String fingerprint) {
+        return directory.resolve(fingerprint + ".graph");
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package fr.polytech.mnia.statespace;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import de.prob.animator.command.AbstractCommand;
+import de.prob.animator.command.ExploreStateCommand;
+import de.prob.check.ConsistencyChecker;
+import de.prob.check.IModelCheckingResult;
+import de.prob.check.ModelCheckingOptions;
+import de.prob.statespace.State;
+import de.prob.statespace.StateSpace;
+import de.prob.statespace.Transition;
+
+/**
+ * StateSpaceEnumerator.java
+ *
+ * Énumère en bloc l'espace d'états accessible d'une machine B.
+ *
+ * Au lieu d'un appel à probcli par état (explore() transition par
+ * transition), l'énumération se fait en deux temps :
+ * 1. le model checker de ProB parcourt nativement tout l'espace d'états, en
+ * un seul travail (aucune vérification d'invariant ni de blocage) ;
+ * 2. les états et arcs sont importés niveau par niveau (parcours en largeur) :
+ * toutes les commandes d'exploration d'un niveau sont envoyées ensemble, en
+ * un seul aller-retour avec probcli, par paquets de taille bornée.
+ *
+ * Le nombre d'allers-retours est donc de l'ordre de la profondeur du graphe
+ * (une dizaine pour TicTacToe) au lieu du nombre d'états.
+ *
+ * Le parcours est borné en nombre d'états et en durée (model checking et
+ * import compris) : au-delà, l'énumération échoue plutôt que de renvoyer un
+ * graphe incomplet.
+ *
+ * Exemple d'utilisation :
+ * StateSpaceEnumerator enumerator = new StateSpaceEnumerator();
+ * StateGraph graph = enumerator.enumerate(env.getAnimator().getStateSpace(), env.getInitialState());
+ * System.out.println(enumerator.summary(graph));
+ */
+public class StateSpaceEnumerator {
+
+    /** Nombre maximal de commandes envoyées en un seul aller-retour. */
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+
+    /** Nombre maximal d'états énumérés par défaut. */
+    public static final int DEFAULT_MAX_STATES = 1_000_000;
+
+    /** Durée maximale d'une énumération par défaut. */
+    public static final Duration DEFAULT_TIME_LIMIT = Duration.ofMinutes(5);
+
+    private final boolean nativeModelCheck;
+    private final int batchSize;
+    private final int maxStates;
+    private final Duration timeLimit;
+    private int roundTrips;
+    private long modelCheckMillis;
+    private long importMillis;
+    private String modelCheckResult = "non lancé";
+
+    /**
+     * Crée un énumérateur utilisant le model checker ProB, des paquets de
+     * taille par défaut et les limites par défaut.
+     */
+    public StateSpaceEnumerator() {
+        this(true, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Crée un énumérateur configuré, avec les limites par défaut.
+     *
+     * @param nativeModelCheck true pour lancer d'abord le model checker ProB
+     * @param batchSize        nombre maximal de commandes par aller-retour
+     */
+    public StateSpaceEnumerator(boolean nativeModelCheck, int batchSize) {
+        this(nativeModelCheck, batchSize, DEFAULT_MAX_STATES, DEFAULT_TIME_LIMIT);
+    }
+
+    /**
+     * Crée un énumérateur configuré.
+     *
+     * @param nativeModelCheck true pour lancer d'abord le model checker ProB
+     * @param batchSize        nombre maximal de commandes par aller-retour
+     * @param maxStates        nombre maximal d'états énumérés
+     * @param timeLimit        durée maximale de l'énumération
+     *
+     *                         Exemple :
+     *                         new StateSpaceEnumerator(true, 1024, 100_000, Duration.ofMinutes(1));
+     */
+    public StateSpaceEnumerator(boolean nativeModelCheck, int batchSize, int maxStates, Duration timeLimit) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("La taille de paquet doit être strictement positive");
+        }
+        if (maxStates < 1 || timeLimit.isNegative() || timeLimit.isZero()) {
+            throw new IllegalArgumentException("Les limites d'énumération doivent être strictement positives");
+        }
+        this.nativeModelCheck = nativeModelCheck;
+        this.batchSize = batchSize;
+        this.maxStates = maxStates;
+        this.timeLimit = timeLimit;
+    }
+
+    /**
+     * Énumère tous les états accessibles depuis un état de départ.
+     *
+     * @param stateSpace espace d'états ProB de la machine chargée
+     * @param initial    état de départ (indice 0 du graphe)
+     * @return graphe des états accessibles
+     * @throws IllegalStateException si le nombre d'états ou la durée dépasse
+     *                               les limites
+     *
+     *         Exemple :
+     *         StateGraph graph = enumerator.enumerate(stateSpace, initial);
+     */
+    public StateGraph enumerate(StateSpace stateSpace, State initial) {
+        roundTrips = 0;
+        long deadline = System.nanoTime() + timeLimit.toNanos();
+        if (nativeModelCheck) {
+            long start = System.nanoTime();
+            ModelCheckingOptions options = new ModelCheckingOptions()
+                    .breadthFirst(true)
+                    .checkDeadlocks(false)
+                    .checkInvariantViolations(false)
+                    .checkAssertions(false)
+                    .stateLimit(maxStates)
+                    .timeLimit(timeLimit);
+            IModelCheckingResult result = new ConsistencyChecker(stateSpace, options).call();
+            modelCheckResult = result == null ? "inconnu" : result.getMessage();
+            roundTrips++;
+            modelCheckMillis = (System.nanoTime() - start) / 1_000_000;
+        }
+
+        long start = System.nanoTime();
+        StateGraph graph = new StateGraph();
+        List<Integer> frontier = new ArrayList<>();
+        frontier.add(graph.add(initial));
+
+        while (!frontier.isEmpty()) {
+            List<Integer> next = new ArrayList<>();
+            for (int from = 0; from < frontier.size(); from += batchSize) {
+                List<Integer> batch = frontier.subList(from, Math.min(from + batchSize, frontier.size()));
+                AbstractCommand[] commands = new AbstractCommand[batch.size()];
+                for (int i = 0; i < commands.length; i++) {
+                    commands[i] = new ExploreStateCommand(stateSpace, graph.getState(batch.get(i)).getId(),
+                            Collections.emptyList());
+                }
+                stateSpace.execute(commands);
+                roundTrips++;
+
+                for (int i = 0; i < commands.length; i++) {
+                    List<Transition> out = ((ExploreStateCommand) commands[i]).getNewTransitions();
+                    Transition[] edges = out.toArray(new Transition[0]);
+                    int[] destinations = new int[edges.length];
+                    for (int e = 0; e < edges.length; e++) {
+                        int before = graph.size();
+                        destinations[e] = graph.add(edges[e].getDestination());
+                        if (destinations[e] == before) {
+                            next.add(destinations[e]);
+                        }
+                    }
+                    graph.setEdges(batch.get(i), edges, destinations);
+                }
+                checkLimits(graph, deadline);
+            }
+            frontier = next;
+        }
+        importMillis = (System.nanoTime() - start) / 1_000_000;
+        return graph;
+    }
+
+    private void checkLimits(StateGraph graph, long deadline) {
+        if (graph.size() > maxStates) {
+            throw new IllegalStateException("Énumération interrompue : plus de " + maxStates + " états");
+        }
+        if (System.nanoTime() > deadline) {
+            throw new IllegalStateException("Énumération interrompue : durée supérieure à "
+                    + timeLimit.toSeconds() + " s (" + graph.size() + " états importés)");
+        }
+    }
+
+    /**
+     * @return nombre d'allers-retours avec probcli lors de la dernière
+     *         énumération
+     */
+    public int getRoundTrips() {
+        return roundTrips;
+    }
+
+    /**
+     * Résumé de la dernière énumération.
+     *
+     * @param graph graphe obtenu
+     * @return taille du graphe, allers-retours et durées
+     */
+    public String summary(StateGraph graph) {
+        return String.format("%d états, %d arcs, %d allers-retours ProB (model checking %d ms : %s, import %d ms)",
+                graph.size(), graph.edgeCount(), roundTrips, modelCheckMillis, modelCheckResult, importMillis);
+    }
+}
@@ -0,0 +1,51 @@
+package fr.polytech.mnia.tictactoe;
+
+import de.prob.statespace.State;
+import de.prob.statespace.Transition;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * EpsilonMinimaxOpponent.java
+ *
+ * Adversaire imparfait : joue un coup aléatoire avec probabilité ε et le coup
+ * minimax sinon. Permet de doser la difficulté de l'entraînement.
+ *
+ * Exemple d'utilisation :
+ * Opponent opponent = new EpsilonMinimaxOpponent(0.2, new Random());
+ */
+public class EpsilonMinimaxOpponent implements Opponent {
+
+    private final double epsilon;
+    private final Random random;
+    private final MinimaxOpponent minimax;
+
+    /**
+     * Construit un adversaire ε-minimax.
+     *
+     * @param epsilon probabilité de jouer un coup aléatoire (0 ≤ epsilon ≤ 1)
+     * @param random  générateur aléatoire
+     *
+     *                Exemple :
+     *                Opponent opponent = new EpsilonMinimaxOpponent(0.2, new Random());
+     */
+    public EpsilonMinimaxOpponent(double epsilon, Random random) {
+        this.epsilon = epsilon;
+        this.random = random;
+        this.minimax = new MinimaxOpponent(random);
+    }
+
+    @Override
+    public Transition chooseMove(State state, List<Transition> actions) {
+        if (random.nextDouble() < epsilon) {
+            return actions.get(random.nextInt(actions.size()));
+        }
+        return minimax.chooseMove(state, actions);
+    }
+
+    @Override
+    public String getName() {
+        return "ε-minimax (ε = " + epsilon + ")";
+    }
+}
@@ -0,0 +1,86 @@
+package fr.polytech.mnia.tictactoe;
+
+import fr.polytech.mnia.agent.QTable;
+import fr.polytech.mnia.checkpoint.Checkpoint;
+import fr.polytech.mnia.encoding.ActionEncoder;
+import fr.polytech.mnia.encoding.StateEncoder;
+import fr.polytech.mnia.encoding.VariableStateEncoder;
+import de.prob.statespace.State;
+import de.prob.statespace.Transition;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * FrozenPolicyOpponent.java
+ *
+ * Adversaire qui joue de façon gloutonne selon un instantané figé de table Q
+ * (utilisé pour le self-play). Les égalités sont départagées au hasard, ce qui
+ * évite de toujours jouer le premier coup tant que la table est vide.
+ *
+ * Quand l'agent a repris depuis un checkpoint, ses valeurs ne sont recopiées
+ * dans la table qu'à la première visite de chaque état : pour un état absent
+ * de l'instantané, l'adversaire lit donc directement la ligne du checkpoint,
+ * c'est-à-dire la valeur qu'aurait eue la table.
+ *
+ * Exemple d'utilisation :
+ * Opponent opponent = new FrozenPolicyOpponent(q.snapshot(), random);
+ */
+public class FrozenPolicyOpponent implements Opponent {
+
+    private final QTable policy;
+    private final Random random;
+    private final Checkpoint warmStart; // Valeurs pas encore recopiées dans la table, ou null
+    private final StateEncoder encoder = new VariableStateEncoder();
+
+    /**
+     * Construit un adversaire à partir d'un instantané de table Q.
+     *
+     * @param policy instantané figé de la table Q
+     * @param random générateur utilisé pour départager les égalités
+     */
+    public FrozenPolicyOpponent(QTable policy, Random random) {
+        this(policy, null, random);
+    }
+
+    /**
+     * Construit un adversaire à partir d'un instantané de table Q et du
+     * checkpoint dont la table a été rechargée à la demande.
+     *
+     * @param policy    instantané figé de la table Q
+     * @param warmStart checkpoint de départ de la table (null si aucun)
+     * @param random    générateur utilisé pour départager les égalités
+     */
+    public FrozenPolicyOpponent(QTable policy, Checkpoint warmStart, Random random) {
+        this.policy = policy;
+        this.warmStart = warmStart;
+        this.random = random;
+    }
+
+    @Override
+    public Transition chooseMove(State state, List<Transition> actions) {
+        Transition best = actions.get(0);
+        double bestValue = Double.NEGATIVE_INFINITY;
+        int ties = 0;
+        Map<String, Double> saved = warmStart == null || policy.contains(state) ? null
+                : warmStart.getRow("Q", encoder.encode(state));
+        for (Transition t : actions) {
+            double value = saved == null ? policy.get(state, t)
+                    : saved.getOrDefault(ActionEncoder.NAME_AND_PARAMETERS.encode(t), 0.0);
+            if (value > bestValue) {
+                best = t;
+                bestValue = value;
+                ties = 1;
+            } else if (value == bestValue && random.nextInt(++ties) == 0) {
+                best = t;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public String getName() {
+        return "politique figée";
+    }
+}
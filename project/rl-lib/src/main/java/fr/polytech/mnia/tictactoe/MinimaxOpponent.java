@@ -0,0 +1,177 @@
+package fr.polytech.mnia.tictactoe;
+
+import de.prob.statespace.State;
+import de.prob.statespace.Transition;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * MinimaxOpponent.java
+ *
+ * Adversaire parfait : recherche alpha-beta complète (negamax) sur une grille
+ * représentée côté Java, avec une table de transposition indexée par un
+ * hachage de Zobrist.
+ *
+ * Caractéristiques :
+ * - Seule la lecture de la grille (variable square) passe par ProB.
+ * - Une victoire vaut 1 + le nombre de cases encore vides, pour préférer les
+ * victoires rapides et les défaites tardives ; le score ne dépend que de la
+ * position, ce qui permet de le partager via la table de transposition.
+ * - Après les premières parties, toutes les positions sont en table et un coup
+ * coûte quelques microsecondes.
+ * - Les égalités entre meilleurs coups sont départagées au hasard.
+ *
+ * Exemple d'utilisation :
+ * Opponent opponent = new MinimaxOpponent(new Random());
+ * Transition coup = opponent.chooseMove(state, actions);
+ */
+public class MinimaxOpponent implements Opponent {
+
+    private static final int TT_SIZE = 1 << 14; // > 5478 positions atteignables
+    private static final int TT_MASK = TT_SIZE - 1;
+    private static final byte EXACT = 1;
+    private static final byte LOWER = 2;
+    private static final byte UPPER = 3;
+
+    private static final int[] MOVE_ORDER = { 4, 0, 2, 6, 8, 1, 3, 5, 7 }; // Centre, coins, bords
+    private static final long[][] ZOBRIST = new long[9][2];
+
+    static {
+        Random seed = new Random(0x5DEECE66DL);
+        for (int cell = 0; cell < 9; cell++) {
+            ZOBRIST[cell][0] = seed.nextLong();
+            ZOBRIST[cell][1] = seed.nextLong();
+        }
+    }
+
+    private final Random random;
+    private final long[] ttKeys = new long[TT_SIZE];
+    private final byte[] ttValues = new byte[TT_SIZE];
+    private final byte[] ttFlags = new byte[TT_SIZE]; // 0 = entrée vide
+
+    /**
+     * Construit un adversaire minimax parfait.
+     *
+     * @param random générateur utilisé pour départager les meilleurs coups
+     */
+    public MinimaxOpponent(Random random) {
+        this.random = random;
+    }
+
+    @Override
+    public Transition chooseMove(State state, List<Transition> actions) {
+        int[] cells = TicTacToeBoard.cells(state);
+        int player = TicTacToeBoard.playerToMove(cells);
+        long hash = hash(cells);
+
+        Transition best = actions.get(0);
+        int bestScore = Integer.MIN_VALUE;
+        int ties = 0;
+        for (Transition t : actions) {
+            int cell = TicTacToeBoard.moveCell(t);
+            // Fenêtre complète à la racine : scores exacts pour départager
+            int score = scoreMove(cells, cell, player, hash, -10, 10);
+            if (score > bestScore) {
+                best = t;
+                bestScore = score;
+                ties = 1;
+            } else if (score == bestScore && random.nextInt(++ties) == 0) {
+                best = t;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public String getName() {
+        return "minimax";
+    }
+
+    /**
+     * Évalue un coup du point de vue du joueur qui le joue.
+     *
+     * @param cells  grille avant le coup (restaurée au retour)
+     * @param cell   case jouée
+     * @param player joueur qui joue
+     * @param hash   hachage de Zobrist de la grille avant le coup
+     * @param alpha  borne inférieure de la fenêtre, pour le joueur qui joue
+     * @param beta   borne supérieure de la fenêtre, pour le joueur qui joue
+     * @return score du coup (positif = gagnant), exact s'il est dans la
+     *         fenêtre, sinon une borne du bon côté
+     */
+    int scoreMove(int[] cells, int cell, int player, long hash, int alpha, int beta) {
+        cells[cell] = player;
+        int empties = TicTacToeBoard.empties(cells);
+        int score;
+        if (TicTacToeBoard.wins(cells, player)) {
+            score = 1 + empties;
+        } else if (empties == 0) {
+            score = 0;
+        } else {
+            score = -negamax(cells, 1 - player, hash ^ ZOBRIST[cell][player], -beta, -alpha);
+        }
+        cells[cell] = TicTacToeBoard.EMPTY;
+        return score;
+    }
+
+    /**
+     * Recherche alpha-beta en negamax sur une position non terminale.
+     *
+     * @param cells  grille (modifiée puis restaurée)
+     * @param player joueur qui doit jouer
+     * @param hash   hachage de Zobrist de la grille
+     * @param alpha  borne inférieure de la fenêtre
+     * @param beta   borne supérieure de la fenêtre
+     * @return score de la position pour le joueur qui doit jouer
+     */
+    private int negamax(int[] cells, int player, long hash, int alpha, int beta) {
+        int slot = (int) (hash ^ (hash >>> 32)) & TT_MASK;
+        if (ttFlags[slot] != 0 && ttKeys[slot] == hash) {
+            int stored = ttValues[slot];
+            if (ttFlags[slot] == EXACT)
+                return stored;
+            if (ttFlags[slot] == LOWER)
+                alpha = Math.max(alpha, stored);
+            else
+                beta = Math.min(beta, stored);
+            if (alpha >= beta)
+                return stored;
+        }
+
+        int alphaOrig = alpha;
+        int best = Integer.MIN_VALUE;
+        for (int cell : MOVE_ORDER) {
+            if (cells[cell] != TicTacToeBoard.EMPTY)
+                continue;
+            int score = scoreMove(cells, cell, player, hash, alpha, beta);
+            if (score > best)
+                best = score;
+            if (best > alpha)
+                alpha = best;
+            if (alpha >= beta)
+                break;
+        }
+
+        ttKeys[slot] = hash;
+        ttValues[slot] = (byte) best;
+        ttFlags[slot] = best <= alphaOrig ? UPPER : best >= beta ? LOWER : EXACT;
+        return best;
+    }
+
+    /**
+     * Calcule le hachage de Zobrist d'une grille.
+     *
+     * @param cells grille
+     * @return hachage 64 bits
+     */
+    private static long hash(int[] cells) {
+        long h = 0L;
+        for (int cell = 0; cell < 9; cell++) {
+            if (cells[cell] != TicTacToeBoard.EMPTY) {
+                h ^= ZOBRIST[cell][cells[cell]];
+            }
+        }
+        return h;
+    }
+}
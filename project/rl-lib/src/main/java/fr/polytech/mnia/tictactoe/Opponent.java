@@ -0,0 +1,40 @@
+package fr.polytech.mnia.tictactoe;
+
+import de.prob.statespace.State;
+import de.prob.statespace.Transition;
+
+import java.util.List;
+
+/**
+ * Opponent.java
+ *
+ * Interface d'un adversaire (joueur 1) pour l'entraînement au Tic-Tac-Toe.
+ *
+ * Un adversaire reçoit l'état courant et la liste des coups possibles, et
+ * retourne le coup qu'il joue.
+ *
+ * Exemple d'utilisation :
+ * Opponent opponent = new MinimaxOpponent();
+ * Transition coup = opponent.chooseMove(state, env.getActions(state));
+ */
+public interface Opponent {
+
+    /**
+     * Choisit le coup à jouer dans l'état donné.
+     *
+     * @param state   état courant (c'est au tour de l'adversaire)
+     * @param actions coups possibles, non vide
+     * @return coup choisi parmi actions
+     *
+     *         Exemple :
+     *         Transition coup = opponent.chooseMove(state, actions);
+     */
+    Transition chooseMove(State state, List<Transition> actions);
+
+    /**
+     * Retourne un nom court de l'adversaire, utilisé dans les affichages.
+     *
+     * @return nom de l'adversaire (ex: "aléatoire")
+     */
+    String getName();
+}
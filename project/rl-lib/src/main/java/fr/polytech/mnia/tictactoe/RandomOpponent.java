@@ -0,0 +1,39 @@
+package fr.polytech.mnia.tictactoe;
+
+import de.prob.statespace.State;
+import de.prob.statespace.Transition;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * RandomOpponent.java
+ *
+ * Adversaire qui joue un coup choisi uniformément parmi les coups possibles.
+ *
+ * Exemple d'utilisation :
+ * Opponent opponent = new RandomOpponent(new Random());
+ */
+public class RandomOpponent implements Opponent {
+
+    private final Random random;
+
+    /**
+     * Construit un adversaire aléatoire.
+     *
+     * @param random générateur utilisé pour tirer les coups
+     */
+    public RandomOpponent(Random random) {
+        this.random = random;
+    }
+
+    @Override
+    public Transition chooseMove(State state, List<Transition> actions) {
+        return actions.get(random.nextInt(actions.size()));
+    }
+
+    @Override
+    public String getName() {
+        return "aléatoire";
+    }
+}
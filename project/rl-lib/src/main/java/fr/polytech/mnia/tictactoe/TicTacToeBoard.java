@@ -0,0 +1,124 @@
+package fr.polytech.mnia.tictactoe;
+
+import fr.polytech.mnia.metrics.FormulaProfiler;
+import de.prob.statespace.State;
+import de.prob.statespace.Transition;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * TicTacToeBoard.java
+ *
+ * Fonctions utilitaires pour représenter une grille de Tic-Tac-Toe côté Java,
+ * sans passer par ProB.
+ *
+ * La grille est un tableau de 9 cases (ligne * 3 + colonne) contenant
+ * EMPTY, 0 ou 1. Les lignes et colonnes sont celles de la machine tictac.mch
+ * (square(xx|->yy)), décalées pour commencer à 0.
+ *
+ * Exemple d'utilisation :
+ * int[] cells = TicTacToeBoard.cells(state);
+ * int cell = TicTacToeBoard.moveCell(transition);
+ * boolean gagne = TicTacToeBoard.wins(cells, 0);
+ */
+public final class TicTacToeBoard {
+
+    public static final int EMPTY = -1;
+
+    static final int[][] LINES = {
+            { 0, 1, 2 }, { 3, 4, 5 }, { 6, 7, 8 }, // Lignes
+            { 0, 3, 6 }, { 1, 4, 7 }, { 2, 5, 8 }, // Colonnes
+            { 0, 4, 8 }, { 2, 4, 6 } // Diagonales
+    };
+
+    private static final Pattern NUMBER = Pattern.compile("\\d+");
+
+    private TicTacToeBoard() {
+    }
+
+    /**
+     * Lit la grille d'un état ProB à partir de la variable square.
+     *
+     * @param state état du jeu
+     * @return tableau de 9 cases (EMPTY, 0 ou 1)
+     *
+     *         Exemple :
+     *         int[] cells = TicTacToeBoard.cells(state);
+     */
+    public static int[] cells(State state) {
+        int[] cells = { EMPTY, EMPTY, EMPTY, EMPTY, EMPTY, EMPTY, EMPTY, EMPTY, EMPTY };
+        String input = FormulaProfiler.eval(state, "square").toString().replaceAll("[^0-9↦,]", "");
+        for (String entry : input.split(",")) {
+            if (entry.isEmpty())
+                continue;
+            String[] parts = entry.split("↦");
+            int row = Integer.parseInt(parts[0]) - 1;
+            int col = Integer.parseInt(parts[1]) - 1;
+            cells[row * 3 + col] = Integer.parseInt(parts[2]);
+        }
+        return cells;
+    }
+
+    /**
+     * Retourne la case jouée par une transition place0/place1.
+     *
+     * @param t transition dont le prédicat de paramètres est de la forme
+     *          "xx = 1 & yy = 2"
+     * @return indice de la case (0 à 8)
+     *
+     *         Exemple :
+     *         int cell = TicTacToeBoard.moveCell(transition);
+     */
+    public static int moveCell(Transition t) {
+        Matcher m = NUMBER.matcher(t.getParameterPredicate());
+        if (!m.find())
+            throw new IllegalArgumentException("Coup non reconnu : " + t.getParameterPredicate());
+        int row = Integer.parseInt(m.group()) - 1;
+        if (!m.find())
+            throw new IllegalArgumentException("Coup non reconnu : " + t.getParameterPredicate());
+        int col = Integer.parseInt(m.group()) - 1;
+        return row * 3 + col;
+    }
+
+    /**
+     * Indique si un joueur a aligné trois symboles.
+     *
+     * @param cells  grille
+     * @param player joueur (0 ou 1)
+     * @return true si le joueur a gagné
+     */
+    public static boolean wins(int[] cells, int player) {
+        for (int[] line : LINES) {
+            if (cells[line[0]] == player && cells[line[1]] == player && cells[line[2]] == player) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Retourne le nombre de cases vides.
+     *
+     * @param cells grille
+     * @return nombre de cases vides
+     */
+    public static int empties(int[] cells) {
+        int n = 0;
+        for (int c : cells) {
+            if (c == EMPTY)
+                n++;
+        }
+        return n;
+    }
+
+    /**
+     * Retourne le joueur dont c'est le tour (le joueur 0 commence).
+     *
+     * @param cells grille
+     * @return 0 ou 1
+     */
+    public static int playerToMove(int[] cells) {
+        return (9 - empties(cells)) % 2;
+    }
+}
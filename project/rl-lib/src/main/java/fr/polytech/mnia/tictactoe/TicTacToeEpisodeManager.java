@@ -1,6 +1,7 @@
 package fr.polytech.mnia.tictactoe;
 
 import fr.polytech.mnia.Evironnement;
+import fr.polytech.mnia.metrics.FormulaProfiler;
 import de.prob.statespace.State;
 import de.prob.statespace.Transition;
 
@@ -14,7 +15,7 @@ import java.util.Random;
  * 
  * Caractéristiques :
  * - Le joueur 0 est contrôlé par l'agent
- * - Le joueur 1 joue de manière aléatoire
+ * - Le joueur 1 est un adversaire interchangeable (aléatoire par défaut)
  * 
  * Utilisé pour simuler et observer le déroulement de parties de TicTacToe.
  * 
@@ -26,6 +27,7 @@ public class TicTacToeEpisodeManager {
 
     private final Evironnement env;
     private final Random random = new Random();
+    private final Opponent opponent;
 
     /**
      * Construit un gestionnaire d'épisodes de TicTacToe pour un environnement
@@ -39,6 +41,23 @@ public class TicTacToeEpisodeManager {
      */
     public TicTacToeEpisodeManager(Evironnement env) {
         this.env = env;
+        this.opponent = new RandomOpponent(random);
+    }
+
+    /**
+     * Construit un gestionnaire d'épisodes avec un adversaire donné pour le
+     * joueur 1.
+     *
+     * @param env      environnement TicTacToe
+     * @param opponent adversaire jouant le rôle du joueur 1
+     *
+     *                 Exemple :
+     *                 TicTacToeEpisodeManager manager = new
+     *                 TicTacToeEpisodeManager(env, new MinimaxOpponent(new Random()));
+     */
+    public TicTacToeEpisodeManager(Evironnement env, Opponent opponent) {
+        this.env = env;
+        this.opponent = opponent;
     }
 
     /**
@@ -56,11 +75,11 @@ public class TicTacToeEpisodeManager {
     public void playEpisode(boolean agentIsPlaying, boolean verbose) throws Exception {
         State state = env.getInitialState();
 
-        String win0 = state.eval("win(0)").toString();
-        String win1 = state.eval("win(1)").toString();
+        String win0 = FormulaProfiler.eval(state, "win(0)").toString();
+        String win1 = FormulaProfiler.eval(state, "win(1)").toString();
 
         while (win0.equals("FALSE") && win1.equals("FALSE") && !env.getActions().isEmpty()) {
-            String turn = state.eval("turn").toString().trim();
+            String turn = FormulaProfiler.eval(state, "turn").toString().trim();
 
             if (turn.equals("0")) {
                 if (agentIsPlaying) {
@@ -75,20 +94,20 @@ public class TicTacToeEpisodeManager {
                 }
             } else {
                 List<Transition> actions = env.getActions();
-                Transition randomMove = actions.get(random.nextInt(actions.size()));
-                env.runAction(randomMove);
+                Transition opponentMove = opponent.chooseMove(env.getState(), actions);
+                env.runAction(opponentMove);
 
                 if (verbose) {
-                    System.out.println("Joueur 1 joue (aléatoire) : " + randomMove.getName() + " "
-                            + randomMove.getParameterPredicate());
+                    System.out.println("Joueur 1 joue (" + opponent.getName() + ") : " + opponentMove.getName() + " "
+                            + opponentMove.getParameterPredicate());
                     prettyPrintGrid();
                 }
             }
 
             // Mise à jour des états
             state = env.getState();
-            win0 = state.eval("win(0)").toString();
-            win1 = state.eval("win(1)").toString();
+            win0 = FormulaProfiler.eval(state, "win(0)").toString();
+            win1 = FormulaProfiler.eval(state, "win(1)").toString();
         }
 
         if (verbose) {
@@ -121,7 +140,7 @@ public class TicTacToeEpisodeManager {
      * manager.prettyPrintGrid();
      */
     public void prettyPrintGrid() {
-        String input = env.getState().eval("square").toString();
+        String input = FormulaProfiler.eval(env.getState(), "square").toString();
         String[][] board = { { " ", " ", " " }, { " ", " ", " " }, { " ", " ", " " } };
 
         input = input.replaceAll("[^0-9↦,]", "");
@@ -0,0 +1,66 @@
+package fr.polytech.mnia.tictactoe;
+
+import fr.polytech.mnia.agent.TurnPolicy;
+import fr.polytech.mnia.metrics.FormulaProfiler;
+import de.prob.statespace.State;
+import de.prob.statespace.Transition;
+
+import java.util.List;
+
+/**
+ * TicTacToeTurnPolicy.java
+ *
+ * Règle de tour du Tic-Tac-Toe pour le moteur TD tabulaire : l'agent joue
+ * lorsque la variable turn vaut son camp, l'adversaire joue sinon.
+ *
+ * Exemple d'utilisation :
+ * TurnPolicy turns = new TicTacToeTurnPolicy(new MinimaxOpponent(random));
+ * Agent agent = new TabularTDAgent(TabularTDAgent.Variant.SARSA, 0.3, 0.9, 0.1, 20, turns);
+ */
+public class TicTacToeTurnPolicy implements TurnPolicy {
+
+    private final String seat;
+    private Opponent opponent;
+
+    /**
+     * Construit la règle de tour pour un agent jouant le joueur 0.
+     *
+     * @param opponent adversaire jouant le joueur 1
+     *
+     *                 Exemple :
+     *                 new TicTacToeTurnPolicy(new RandomOpponent(new Random()));
+     */
+    public TicTacToeTurnPolicy(Opponent opponent) {
+        this("0", opponent);
+    }
+
+    /**
+     * Construit la règle de tour pour un camp donné.
+     *
+     * @param seat     camp de l'agent ("0" ou "1")
+     * @param opponent adversaire jouant l'autre camp
+     */
+    public TicTacToeTurnPolicy(String seat, Opponent opponent) {
+        this.seat = seat;
+        this.opponent = opponent;
+    }
+
+    /**
+     * Remplace l'adversaire.
+     *
+     * @param opponent nouvel adversaire
+     */
+    public void setOpponent(Opponent opponent) {
+        this.opponent = opponent;
+    }
+
+    @Override
+    public boolean isAgentTurn(State state) {
+        return FormulaProfiler.eval(state, "turn").toString().trim().equals(seat);
+    }
+
+    @Override
+    public Transition otherMove(State state, List<Transition> actions) {
+        return opponent.chooseMove(state, actions);
+    }
+}
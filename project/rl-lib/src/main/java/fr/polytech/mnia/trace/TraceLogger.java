@@ -0,0 +1,389 @@
+package fr.polytech.mnia.trace;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.prob.animator.domainobjects.AbstractEvalResult;
+import de.prob.animator.domainobjects.FormulaExpand;
+import de.prob.animator.domainobjects.IEvalElement;
+import de.prob.statespace.State;
+import de.prob.statespace.Transition;
+
+/**
+ * TraceLogger.java
+ *
+ * Journal de trace structuré et échantillonné pour le mode détaillé.
+ *
+ * Le thread d'entraînement décide de l'échantillonnage (1 pas sur N et/ou au
+ * plus un pas par intervalle) et, pour les seuls pas retenus, lit les valeurs
+ * des variables auprès de ProB (un appel) avant de déposer l'événement, déjà
+ * réduit à des chaînes, dans une file bornée. Le thread d'écriture en
+ * arrière-plan n'interroge jamais ProB : il met en forme et écrit une ligne
+ * JSON par événement. Si la file est pleine, l'événement est abandonné (et
+ * compté) plutôt que de ralentir l'entraînement ; un événement dont la lecture
+ * ou la mise en forme échoue est compté à part.
+ *
+ * Format d'une ligne :
+ * {"seq":3,"timeMillis":...,"agent":"UCBAgent","step":200,"state":"12",
+ * "action":"choose(v=2)","reward":1.0,"variables":{...},"actions":[...]}
+ *
+ * Exemple d'utilisation :
+ * TraceLogger tracer = new TraceLogger(Paths.get("traces", "run.jsonl"), 100, 0, 4096);
+ * if (tracer.sample()) {
+ * tracer.log("UCBAgent", step, state, chosen, reward, env.getActions());
+ * }
+ * tracer.close();
+ */
+public class TraceLogger implements AutoCloseable {
+
+    private static final Event POISON = new Event(null, 0, null, null, 0, null, null);
+
+    /** Attente maximale de la fin du thread d'écriture à la fermeture. */
+    private static final long CLOSE_TIMEOUT_SECONDS = 10;
+
+    /**
+     * Événement en attente d'écriture, réduit à des chaînes sur le thread
+     * d'entraînement : il ne référence aucun objet ProB.
+     */
+    private static final class Event {
+        final String agent;
+        final long step;
+        final String state;
+        final String action; // null si aucune action
+        final double reward;
+        final String[][] variables; // {nom, valeur}
+        final String[] actions; // null si non fournies
+        final long timeMillis = System.currentTimeMillis();
+
+        Event(String agent, long step, String state, String action, double reward, String[][] variables,
+                String[] actions) {
+            this.agent = agent;
+            this.step = step;
+            this.state = state;
+            this.action = action;
+            this.reward = reward;
+            this.variables = variables;
+            this.actions = actions;
+        }
+    }
+
+    private final Path path;
+    private final int sampleEvery;
+    private final long intervalNanos;
+    private final BlockingQueue<Event> queue;
+    private final Thread writerThread;
+    private final BufferedWriter writer;
+
+    private final AtomicLong candidates = new AtomicLong();
+    private final AtomicLong lastSample = new AtomicLong(Long.MIN_VALUE);
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile long written = 0;
+    private volatile IOException failure;
+    private volatile boolean closed = false;
+
+    /**
+     * Ouvre un journal de trace.
+     *
+     * @param path           fichier JSON Lines de destination (dossiers créés
+     *                       si besoin)
+     * @param sampleEvery    conserver 1 pas sur sampleEvery (1 = tous)
+     * @param intervalMillis délai minimal entre deux pas conservés (0 = aucun)
+     * @param queueCapacity  nombre maximal d'événements en attente d'écriture
+     * @throws IOException si le fichier ne peut pas être créé
+     *
+     *                     Exemple :
+     *                     TraceLogger tracer = new
+     *                     TraceLogger(Paths.get("traces", "run.jsonl"), 1, 500,
+     *                     1024);
+     */
+    public TraceLogger(Path path, int sampleEvery, long intervalMillis, int queueCapacity) throws IOException {
+        if (sampleEvery < 1 || intervalMillis < 0 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Paramètres d'échantillonnage invalides");
+        }
+        this.path = path;
+        this.sampleEvery = sampleEvery;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        this.writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+        this.writerThread = new Thread(this::drain, "trace-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Indique si le pas courant doit être tracé. À appeler une fois par pas,
+     * avant de préparer l'événement.
+     *
+     * @return true si le pas est retenu par l'échantillonnage
+     *
+     *         Exemple :
+     *         if (tracer.sample()) { ... }
+     */
+    public boolean sample() {
+        if (closed || candidates.getAndIncrement() % sampleEvery != 0) {
+            return false;
+        }
+        if (intervalNanos == 0) {
+            return true;
+        }
+        long now = System.nanoTime();
+        long last = lastSample.get();
+        return (last == Long.MIN_VALUE || now - last >= intervalNanos) && lastSample.compareAndSet(last, now);
+    }
+
+    /**
+     * Lit les valeurs des variables de l'état (un appel à ProB, sur le thread
+     * appelant) puis dépose l'événement dans la file d'écriture, sans jamais
+     * bloquer. À n'appeler que si sample() a retenu le pas.
+     *
+     * @param agent   nom de l'agent
+     * @param step    numéro du pas
+     * @param state   état atteint
+     * @param action  action jouée (peut être null)
+     * @param reward  récompense obtenue
+     * @param actions actions disponibles dans l'état atteint (peut être null)
+     * @return false si l'événement a été abandonné (file pleine, journal
+     *         fermé ou lecture des variables en échec)
+     *
+     *         Exemple :
+     *         tracer.log("UCBAgent", step, state, chosen, reward, actions);
+     */
+    public boolean log(String agent, long step, State state, Transition action, double reward,
+            List<Transition> actions) {
+        if (closed) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        Event event;
+        try {
+            event = capture(agent, step, state, action, reward, actions);
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+            return false;
+        }
+        if (!queue.offer(event)) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Réduit un pas à des chaînes, en lisant les variables de l'état.
+     */
+    private static Event capture(String agent, long step, State state, Transition action, double reward,
+            List<Transition> actions) {
+        Map<IEvalElement, AbstractEvalResult> values = state.getVariableValues(FormulaExpand.EXPAND);
+        String[][] variables = new String[values.size()][];
+        int i = 0;
+        for (Map.Entry<IEvalElement, AbstractEvalResult> entry : values.entrySet()) {
+            variables[i++] = new String[] { String.valueOf(entry.getKey()), String.valueOf(entry.getValue()) };
+        }
+        String[] described = null;
+        if (actions != null) {
+            described = new String[actions.size()];
+            for (int a = 0; a < described.length; a++) {
+                described[a] = describe(actions.get(a));
+            }
+        }
+        return new Event(agent, step, state.getId(), action == null ? null : describe(action), reward, variables,
+                described);
+    }
+
+    /**
+     * Boucle du thread d'écriture.
+     */
+    private void drain() {
+        StringBuilder sb = new StringBuilder(512);
+        try {
+            while (true) {
+                Event event = queue.take();
+                if (event == POISON) {
+                    break;
+                }
+                sb.setLength(0);
+                try {
+                    format(event, sb);
+                } catch (RuntimeException e) {
+                    // Un événement illisible ne doit pas arrêter le thread d'écriture
+                    failed.incrementAndGet();
+                    continue;
+                }
+                writer.write(sb.toString());
+                writer.newLine();
+                written++;
+                if (queue.isEmpty()) {
+                    writer.flush();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            failure = e;
+        }
+    }
+
+    /**
+     * Formate un événement en une ligne JSON.
+     */
+    private void format(Event event, StringBuilder sb) {
+        sb.append("{\"seq\":").append(written)
+                .append(",\"timeMillis\":").append(event.timeMillis)
+                .append(",\"agent\":");
+        quote(event.agent, sb);
+        sb.append(",\"step\":").append(event.step).append(",\"state\":");
+        quote(event.state, sb);
+        sb.append(",\"action\":");
+        if (event.action == null) {
+            sb.append("null");
+        } else {
+            quote(event.action, sb);
+        }
+        sb.append(",\"reward\":").append(Double.isFinite(event.reward) ? String.valueOf(event.reward) : "null");
+
+        sb.append(",\"variables\":{");
+        for (int i = 0; i < event.variables.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            quote(event.variables[i][0], sb);
+            sb.append(':');
+            quote(event.variables[i][1], sb);
+        }
+        sb.append('}');
+
+        if (event.actions != null) {
+            sb.append(",\"actions\":[");
+            for (int i = 0; i < event.actions.length; i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                quote(event.actions[i], sb);
+            }
+            sb.append(']');
+        }
+        sb.append('}');
+    }
+
+    private static String describe(Transition t) {
+        return t.getName() + '(' + t.getParameterPredicate() + ')';
+    }
+
+    private static void quote(String value, StringBuilder sb) {
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+
+    /**
+     * Retourne le nombre d'événements écrits.
+     *
+     * @return événements écrits
+     */
+    public long getWritten() {
+        return written;
+    }
+
+    /**
+     * Retourne le nombre d'événements abandonnés faute de place dans la file
+     * (ou déposés après la fermeture).
+     *
+     * @return événements abandonnés
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Retourne le nombre d'événements perdus parce que la lecture des
+     * variables ou la mise en forme a échoué.
+     *
+     * @return événements en échec
+     */
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * Résumé du journal.
+     *
+     * @return ligne de résumé
+     *
+     *         Exemple :
+     *         System.out.println(tracer.summary());
+     */
+    public String summary() {
+        return String.format("%s : %d pas vus, %d écrits, %d abandonnés, %d en échec (1 sur %d, intervalle %d ms)%s",
+                path, candidates.get(), written, dropped.get(), failed.get(), sampleEvery,
+                TimeUnit.NANOSECONDS.toMillis(intervalNanos),
+                failure == null ? "" : ", erreur : " + failure.getMessage());
+    }
+
+    /**
+     * Écrit les événements encore en file puis ferme le fichier. N'attend pas
+     * plus de CLOSE_TIMEOUT_SECONDS le thread d'écriture, et pas du tout s'il
+     * s'est déjà arrêté sur une erreur d'écriture.
+     *
+     * Exemple :
+     * tracer.close();
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (writerThread.isAlive() && queue.offer(POISON, CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                writerThread.join(TimeUnit.SECONDS.toMillis(CLOSE_TIMEOUT_SECONDS));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            if (failure == null) {
+                failure = e;
+            }
+        }
+    }
+}